@@ -0,0 +1,107 @@
+/**
+ * This class runs the JMH tick benchmarks with the GC profiler and checks the results against a
+ * baseline in the format BenchmarkRunner uses. A benchmark regresses when its time per operation grew
+ * by more than the tolerance or it allocates more per operation. The Maven build runs it in the
+ * verify phase of the benchmarks profile: mvn -B -Pbenchmarks verify
+ *
+ * Options: --filter=REGEX, --baseline=FILE, --save-baseline=FILE, --tolerance=0.10, --forks=N
+ * A baseline file that does not exist is reported and skipped, so the first run can save one.
+ */
+package com.example.pong1;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class JmhSuite {
+    private static final double DEFAULT_TOLERANCE = 0.10; // Allowed slowdown before the build fails
+
+    /**
+     * Runs the benchmarks, compares them to the baseline and exits with a non-zero status on a
+     * regression.
+     * @param args The options described in the class comment.
+     * @throws Exception If JMH fails or a baseline file cannot be read or written.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = BenchmarkRunner.parseOptions(args);
+        Pattern filter = Pattern.compile(options.getOrDefault("filter", ".*"));
+        double tolerance = Double.parseDouble(options.getOrDefault("tolerance", String.valueOf(DEFAULT_TOLERANCE)));
+        Properties baseline = null;
+        if (options.containsKey("baseline")) {
+            Path path = Paths.get(options.get("baseline"));
+            if (Files.exists(path)) {
+                baseline = BenchmarkRunner.load(path);
+            } else {
+                System.out.println("No baseline at " + path + "; save one with --save-baseline to enable the check");
+            }
+        }
+
+        BenchmarkRunner cases = new BenchmarkRunner();
+        TickBenchmarks.register(cases);
+        String[] names = cases.getNames().stream().filter(name -> filter.matcher(name).find()).toArray(String[]::new);
+        if (names.length == 0) {
+            System.out.println("No tick benchmark matches " + filter);
+            System.exit(1);
+        }
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .include(TickJmhBenchmarks.class.getName())
+                .param("benchmark", names)
+                .addProfiler(GCProfiler.class);
+        if (options.containsKey("forks")) {
+            builder.forks(Integer.parseInt(options.get("forks")));
+        }
+        Collection<RunResult> runs = new Runner(builder.build()).run();
+
+        Properties results = new Properties();
+        int regressions = 0;
+        System.out.printf("%-28s %12s %12s%n", "Benchmark", "ns/op", "B/op");
+        for (RunResult run : runs) {
+            String name = run.getParams().getParam("benchmark");
+            double nanosPerOp = run.getPrimaryResult().getScore();
+            double bytesPerOp = allocationPerOp(run);
+            System.out.printf("%-28s %12.2f %12.2f%n", name, nanosPerOp, bytesPerOp);
+            results.setProperty(name + ".nsPerOp", String.valueOf(nanosPerOp));
+            results.setProperty(name + ".bytesPerOp", String.valueOf(bytesPerOp));
+            if (baseline != null) {
+                regressions += BenchmarkRunner.compare(name, nanosPerOp, bytesPerOp, baseline, tolerance);
+            }
+        }
+
+        if (options.containsKey("save-baseline")) {
+            Path path = Paths.get(options.get("save-baseline"));
+            if (path.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(path)) {
+                results.store(out, "Pong JMH benchmark baseline");
+            }
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed against the baseline");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Returns the bytes allocated per operation reported by the GC profiler, or 0 if it reported none.
+     */
+    private static double allocationPerOp(RunResult run) {
+        // Older JMH versions prefix the profiler's results with a middle dot
+        Result<?> result = run.getSecondaryResults().get("gc.alloc.rate.norm");
+        if (result == null) {
+            result = run.getSecondaryResults().get("\u00B7gc.alloc.rate.norm");
+        }
+        return result == null ? 0 : result.getScore();
+    }
+}
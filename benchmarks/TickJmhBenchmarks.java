@@ -0,0 +1,62 @@
+/**
+ * This class runs the tick benchmarks under JMH. Each case registered by TickBenchmarks is one value
+ * of the benchmark parameter, and each invocation plays OPERATIONS operations of it, as a timed
+ * batch of the BenchmarkRunner harness does, so the cases go through every variation of their loop
+ * index rather than only the first. JMH reports the time and allocation per operation, with its own
+ * forks, warm-up and protection against dead code. JmhSuite runs them with the GC profiler and the
+ * baseline check; on their own they run with: java -jar target/benchmarks.jar TickJmhBenchmarks -prof gc
+ */
+package com.example.pong1;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TickJmhBenchmarks {
+    private static final int OPERATIONS = 64; // Operations per invocation, a multiple of the cases' variations (8)
+
+    @Param({"tick", "wall-collision", "racket-collision", "reset-and-score", "predictive-bot-tick",
+            "predictive-bot-predict", "rally-speed-1", "rally-speed-8", "rally-speed-64", "rally-speed-512"})
+    public String benchmark; // Name of the TickBenchmarks case
+
+    private BenchmarkRunner.Benchmark operation;
+
+    /**
+     * Sets up the case named by the benchmark parameter.
+     */
+    @Setup
+    public void setUp() {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        TickBenchmarks.register(runner);
+        operation = runner.get(benchmark);
+        if (operation == null) {
+            throw new IllegalArgumentException("No tick benchmark named " + benchmark);
+        }
+    }
+
+    /**
+     * Plays OPERATIONS operations of the case.
+     * @return A value derived from the work, consumed by JMH.
+     */
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public long run() {
+        return operation.run(OPERATIONS);
+    }
+}
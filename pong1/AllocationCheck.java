@@ -0,0 +1,254 @@
+/**
+ * This class checks that the tick path allocates nothing once it is warmed up. Each scenario plays
+ * warm-up rounds until the JIT has settled, then plays several measured rounds while the thread's
+ * allocated bytes and the garbage collections are counted, and fails if a single byte was allocated.
+ * The scenarios cover what Panel.update() runs every tick: sampling the keys, a bot, the simulation
+ * step with its ball movement, wall and racket collisions, racket movement and win check, recording
+ * its duration and points into GameMetrics, and publishing its events to a GameEventBus that a reader
+ * drains and gathers rally statistics from, as well as whole matches that end and restart, long
+ * rallies at high speed and the multi-ball mode.
+ *
+ * Warming up for a fixed number of ticks is not enough. When HotSpot queues a method for C2, the
+ * requesting thread resolves every String constant of the method's class, e.g. GameMetrics or
+ * Integer, and that shows up as a few dozen bytes on the tick thread. Code that only runs now and
+ * then, like the key events of the panel scenario, reaches C2 late, sometimes after a fixed warm-up.
+ * The warm-up therefore only ends with a round that allocated nothing and during which no compilation
+ * finished.
+ *
+ * Run it with: AllocationCheck [--ticks=N] [--rounds=N] [--warmup=N] [--max-warmup=N] [--filter=REGEX]
+ * --ticks is split over --rounds measured rounds; --warmup is the least and --max-warmup the most
+ * warm-up ticks. It exits with a non-zero status if any scenario allocated or never settled.
+ */
+package com.example.pong1;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import javafx.scene.input.KeyCode;
+
+public class AllocationCheck {
+    private static final int MULTI_BALLS = 256; // Extra balls of the multi-ball scenario
+    private static final int KEY_INTERVAL = 30; // Ticks between the key events of the panel scenario
+    private static final int RALLY_SPEED = 64; // Ball speed of the rally scenario
+    private static final int WARMUP_ROUND = 50_000; // Ticks per warm-up round
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final CompilationMXBean JIT = ManagementFactory.getCompilationMXBean();
+    private static long sink; // Keeps the scenario results alive
+
+    /**
+     * Runs every scenario matching the filter and prints how much each allocated.
+     * @param args The options described in the class comment.
+     */
+    public static void main(String[] args) {
+        Map<String, String> options = BenchmarkRunner.parseOptions(args);
+        int ticks = LaunchConfig.parseInt("ticks", options.get("ticks"), 2_000_000, 1, Integer.MAX_VALUE);
+        int rounds = LaunchConfig.parseInt("rounds", options.get("rounds"), 5, 1, ticks);
+        int warmup = LaunchConfig.parseInt("warmup", options.get("warmup"), 300_000, 0, Integer.MAX_VALUE);
+        int maxWarmup = LaunchConfig.parseInt("max-warmup", options.get("max-warmup"), 20_000_000, warmup,
+                Integer.MAX_VALUE);
+        Pattern filter = Pattern.compile(options.getOrDefault("filter", ".*"));
+
+        int failures = 0;
+        System.out.printf("%-16s %12s %12s %12s %10s %6s%n", "Scenario", "Warm-up", "Ticks", "Bytes", "B/tick",
+                "GCs");
+        for (Map.Entry<String, BenchmarkRunner.Benchmark> entry : scenarios().entrySet()) {
+            if (!filter.matcher(entry.getKey()).find()) {
+                continue;
+            }
+            BenchmarkRunner.Benchmark scenario = entry.getValue();
+            long warmupTicks = warmUp(scenario, warmup, maxWarmup);
+            if (warmupTicks < 0) {
+                System.out.printf("%-16s %12d %12s %12s %10s %6s UNSETTLED%n", entry.getKey(), maxWarmup, "-", "-",
+                        "-", "-");
+                failures++;
+                continue;
+            }
+
+            // Every round must be clean on its own, so a one-off allocation cannot hide in an average
+            long bytes = 0;
+            long gcs = 0;
+            int dirtyRounds = 0;
+            for (int round = 0; round < rounds; round++) {
+                int roundTicks = ticks / rounds + (round < ticks % rounds ? 1 : 0);
+                long gcsBefore = gcCount();
+                long roundBytes = allocatedBytes(scenario, roundTicks);
+                gcs += gcCount() - gcsBefore;
+                bytes += roundBytes;
+                if (roundBytes != 0) {
+                    dirtyRounds++;
+                }
+            }
+            System.out.printf("%-16s %12d %12d %12d %10.3f %6d %s%n", entry.getKey(), warmupTicks, ticks, bytes,
+                    (double) bytes / ticks, gcs, dirtyRounds == 0 ? "ok" : "ALLOCATES in " + dirtyRounds + " round(s)");
+            if (dirtyRounds != 0) {
+                failures++;
+            }
+        }
+        if (failures > 0) {
+            System.out.println(failures + " scenario(s) allocated on the tick path or never settled");
+            System.exit(1);
+        }
+        System.out.println("No allocations on the tick path (" + sink + ")");
+    }
+
+    /**
+     * Plays warm-up rounds until at least the minimum number of ticks were played and the last round
+     * allocated nothing while no compilation finished.
+     * @param scenario The scenario to warm up.
+     * @param minTicks The fewest warm-up ticks.
+     * @param maxTicks The most warm-up ticks.
+     * @return The warm-up ticks played, or -1 if the scenario had not settled after maxTicks.
+     */
+    private static long warmUp(BenchmarkRunner.Benchmark scenario, int minTicks, int maxTicks) {
+        long played = 0;
+        while (played < maxTicks) {
+            int roundTicks = (int) Math.min(WARMUP_ROUND, maxTicks - played);
+            long compileBefore = compilationMillis();
+            long bytes = allocatedBytes(scenario, roundTicks);
+            boolean quiet = bytes == 0 && compilationMillis() == compileBefore;
+            played += roundTicks;
+            if (quiet && played >= minTicks) {
+                return played;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Plays ticks of a scenario and returns how many bytes the current thread allocated meanwhile.
+     */
+    private static long allocatedBytes(BenchmarkRunner.Benchmark scenario, int ticks) {
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        sink += scenario.run(ticks);
+        return THREADS.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    /**
+     * Creates the scenarios, each running the requested number of ticks per call.
+     */
+    private static Map<String, BenchmarkRunner.Benchmark> scenarios() {
+        Map<String, BenchmarkRunner.Benchmark> scenarios = new LinkedHashMap<>();
+
+        // The work of Panel.update() in a local match against the computer, with key events coming in
+        Simulation panel = newSimulation(Integer.MAX_VALUE);
+        InputSystem input = new InputSystem(InputBindings.defaults());
+        PredictiveBot panelBot = new PredictiveBot(false, BotDifficulty.HARD, 1);
+        RallyStats rallies = new RallyStats();
+        GameEventBus bus = new GameEventBus(1_024);
+        GameEventBus.Reader reader = bus.newReader();
+        GameMetrics metrics = new GameMetrics();
+        scenarios.put("panel-tick", new BenchmarkRunner.Benchmark() {
+            private int events; // Events of the previous tick, passed to the bot
+            private long tick;
+
+            @Override
+            public long run(int operations) {
+                long sum = 0;
+                for (int i = 0; i < operations; i++) {
+                    if (++tick % KEY_INTERVAL == 0) {
+                        if ((tick / KEY_INTERVAL & 1) == 0) {
+                            input.keyPressed(KeyCode.W);
+                        } else {
+                            input.keyReleased(KeyCode.W);
+                        }
+                    }
+                    long tickStart = System.nanoTime();
+                    int inputs = input.sample(tickStart) | panelBot.inputs(panel, events);
+                    events = panel.step(inputs);
+                    bus.publishTick(panel, events);
+                    metrics.recordEvents(events, panel.getLeftScore(), panel.getRightScore());
+                    while (reader.next()) {
+                        rallies.record(reader.getType());
+                    }
+                    long tickEnd = System.nanoTime();
+                    metrics.recordTick(tickEnd - tickStart);
+                    metrics.recordFrame(tickEnd - tickStart, false);
+                    input.frameRendered(tickEnd);
+                    sum += events;
+                }
+                return sum + rallies.getRacketHits();
+            }
+        });
+
+        // Short matches between an easy and a hard bot, so points are scored and matches end and restart
+        Simulation match = newSimulation(5);
+        PredictiveBot easy = new PredictiveBot(true, BotDifficulty.EASY, 2);
+        PredictiveBot hard = new PredictiveBot(false, BotDifficulty.HARD, 3);
+        scenarios.put("matches", new BenchmarkRunner.Benchmark() {
+            private int events;
+
+            @Override
+            public long run(int operations) {
+                long sum = 0;
+                for (int i = 0; i < operations; i++) {
+                    events = match.step(easy.inputs(match, events) | hard.inputs(match, events));
+                    if ((events & Simulation.EVENT_MATCH_END) != 0) {
+                        match.reset();
+                    }
+                    sum += events;
+                }
+                return sum;
+            }
+        });
+
+        // Full-height rackets never miss, so every tick sweeps several racket and wall contacts
+        Simulation rally = newSimulation(Integer.MAX_VALUE);
+        rally.racketHeight = Simulation.HEIGHT;
+        rally.leftRacketY = 0;
+        rally.rightRacketY = 0;
+        rally.ballDirX = RALLY_SPEED;
+        rally.ballDirY = RALLY_SPEED * 0.75;
+        scenarios.put("fast-rally", operations -> {
+            long sum = 0;
+            for (int i = 0; i < operations; i++) {
+                sum += rally.step(0);
+            }
+            return sum;
+        });
+
+        Simulation multi = newSimulation(Integer.MAX_VALUE);
+        MultiBall multiBall = new MultiBall(MULTI_BALLS);
+        multiBall.spawn(MULTI_BALLS, 4);
+        multiBall.setScoring(true); // Covers the scoring path as well
+        multi.setMultiBall(multiBall);
+        scenarios.put("multi-ball", operations -> {
+            long sum = 0;
+            for (int i = 0; i < operations; i++) {
+                sum += multi.step(TrackingBot.inputs(multi));
+            }
+            return sum;
+        });
+        return scenarios;
+    }
+
+    /**
+     * Returns a simulation running at the default tick rate.
+     */
+    private static Simulation newSimulation(int finalScore) {
+        Simulation simulation = new Simulation(finalScore);
+        simulation.setTickRate(Panel.DEFAULT_TICK_RATE);
+        return simulation;
+    }
+
+    /**
+     * Returns the time the JIT compilers have spent so far, or 0 if the JVM does not track it.
+     */
+    private static long compilationMillis() {
+        return JIT != null && JIT.isCompilationTimeMonitoringSupported() ? JIT.getTotalCompilationTime() : 0;
+    }
+
+    /**
+     * Returns the number of garbage collections so far.
+     */
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(collector.getCollectionCount(), 0);
+        }
+        return count;
+    }
+}
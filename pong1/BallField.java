@@ -0,0 +1,80 @@
+/**
+ * This class stores the extra balls of the multi-ball mode as a structure of arrays: one primitive
+ * float array per coordinate and velocity component, indexed by ball. Balls are packed at the front
+ * of the arrays, so a tick walks them with plain sequential loads, and removing a ball moves the last
+ * one into its place. Every ball has the same radius.
+ */
+package com.example.pong1;
+
+public class BallField {
+    final float[] x; // Centers, X
+    final float[] y; // Centers, Y
+    final float[] vx; // Velocities in units per reference frame, X
+    final float[] vy; // Velocities in units per reference frame, Y
+    final float radius;
+    int count; // Number of balls in use, at the front of the arrays
+
+    /**
+     * Constructs a new empty field.
+     * @param capacity The largest number of balls the field can hold.
+     * @param radius The radius of every ball.
+     */
+    public BallField(int capacity, float radius) {
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        this.radius = radius;
+    }
+
+    /**
+     * Adds a ball.
+     * @param ballX The x-coordinate of the center.
+     * @param ballY The y-coordinate of the center.
+     * @param velocityX The velocity along the X axis, in units per reference frame.
+     * @param velocityY The velocity along the Y axis, in units per reference frame.
+     * @return The index of the new ball, or -1 if the field is full.
+     */
+    public int add(float ballX, float ballY, float velocityX, float velocityY) {
+        if (count == x.length) {
+            return -1;
+        }
+        int i = count++;
+        x[i] = ballX;
+        y[i] = ballY;
+        vx[i] = velocityX;
+        vy[i] = velocityY;
+        return i;
+    }
+
+    /**
+     * Removes a ball by moving the last ball into its slot.
+     * @param i The index of the ball to remove.
+     */
+    public void remove(int i) {
+        int last = --count;
+        x[i] = x[last];
+        y[i] = y[last];
+        vx[i] = vx[last];
+        vy[i] = vy[last];
+    }
+
+    /**
+     * Removes every ball.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return x.length;
+    }
+
+    public float getRadius() {
+        return radius;
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * This interface represents the per-ball inner loops of the multi-ball mode: moving every ball and
+ * bouncing it off the top and bottom walls, and bouncing a set of candidate balls off a racket. They
+ * are the multi-ball counterparts of Simulation.checkWallCollision() and checkRacketCollision(), and
+ * run over the BallField arrays either lane by lane with the Vector API or one ball at a time.
+ */
+package com.example.pong1;
+
+public interface BallKernel {
+    /**
+     * Moves every ball by one tick and reflects the balls that crossed the top or bottom wall.
+     * @param balls The balls to move.
+     * @param timeScale The fraction of a reference frame covered by one tick.
+     */
+    void moveAndBounceWalls(BallField balls, float timeScale);
+
+    /**
+     * Reflects every candidate ball that overlaps a racket and is moving towards it, and pushes it
+     * out to the racket's face.
+     * @param balls The balls.
+     * @param candidates The indices of the balls to test, each at most once.
+     * @param count The number of candidates.
+     * @param racketX The x-coordinate of the racket.
+     * @param racketY The y-coordinate of the racket.
+     * @param racketWidth The width of the racket.
+     * @param racketHeight The height of the racket.
+     * @return The number of balls that bounced.
+     */
+    int bounceRacket(BallField balls, int[] candidates, int count, float racketX, float racketY,
+                     float racketWidth, float racketHeight);
+
+    /**
+     * Returns the Vector API kernel when the jdk.incubator.vector module is available (started with
+     * --add-modules jdk.incubator.vector), and the scalar kernel otherwise.
+     * @return The fastest kernel this JVM can run.
+     */
+    static BallKernel load() {
+        try {
+            // Loaded by name so this class links without the incubator module
+            Class<?> vector = Class.forName("com.example.pong1.VectorBallKernel");
+            return (BallKernel) vector.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarBallKernel();
+        }
+    }
+}
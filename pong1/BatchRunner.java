@@ -0,0 +1,340 @@
+/**
+ * This class plays large numbers of headless matches between scripted bots to tune gameplay
+ * parameters. It sweeps every combination of ball speed increase, racket height increase and racket
+ * speed, splits the matches of each combination across all cores with fork/join, and prints one line
+ * of aggregated statistics per combination as soon as it is done: rally length, points per minute,
+ * the left bot's win rate and the throughput in matches per second per core. Every worker plays its
+ * share of matches on its own Simulation, bots and counters, which are only merged when the task
+ * joins, so no locks are taken while matches run. Match outcomes depend only on the seed and the match
+ * number, not on the number of threads.
+ *
+ * Options: --matches=N, --final-score=N, --ball-speed=LIST, --racket-height=LIST, --racket-speed=LIST,
+ *          --left-noise=PX, --right-noise=PX, --reaction=TICKS, --max-ticks=N, --seed=N, --threads=N,
+ *          --scaling
+ * Lists are comma-separated, e.g. --ball-speed=4,6,8. --scaling plays the first combination with
+ * 1, 2, 4, ... threads up to --threads and reports how the throughput scales.
+ */
+package com.example.pong1;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class BatchRunner {
+    private static final int LEAF_MATCHES = 64; // Matches a task plays itself instead of splitting further
+
+    /**
+     * This class holds the parameters of one combination in the sweep.
+     */
+    static final class Settings {
+        final int ballSpeedIncrease; // Factor applied with Simulation.increaseBallSpeed()
+        final double racketHeightIncrease; // Added to Simulation.RACKET_HEIGHT
+        final double racketSpeed; // Racket movement per reference frame
+        final int finalScore;
+        final int maxTicks; // Matches still running after this many ticks count as timed out
+        final int reactionTicks; // Ticks between the bots' looks at the ball
+        final double leftNoise; // Aiming error of the left bot, in pixels
+        final double rightNoise; // Aiming error of the right bot, in pixels
+        final long seed;
+
+        Settings(int ballSpeedIncrease, double racketHeightIncrease, double racketSpeed, int finalScore,
+                 int maxTicks, int reactionTicks, double leftNoise, double rightNoise, long seed) {
+            this.ballSpeedIncrease = ballSpeedIncrease;
+            this.racketHeightIncrease = racketHeightIncrease;
+            this.racketSpeed = racketSpeed;
+            this.finalScore = finalScore;
+            this.maxTicks = maxTicks;
+            this.reactionTicks = reactionTicks;
+            this.leftNoise = leftNoise;
+            this.rightNoise = rightNoise;
+            this.seed = seed;
+        }
+    }
+
+    /**
+     * This class accumulates the outcome of a batch of matches. Each task fills its own instance and
+     * merges its subtasks' results into it after joining them.
+     */
+    static final class BatchStats {
+        long matches;
+        long leftWins;
+        long timeouts;
+        long ticks;
+        long points;
+        long racketHits;
+
+        /**
+         * Adds the counts of another batch to this one.
+         */
+        void merge(BatchStats other) {
+            matches += other.matches;
+            leftWins += other.leftWins;
+            timeouts += other.timeouts;
+            ticks += other.ticks;
+            points += other.points;
+            racketHits += other.racketHits;
+        }
+
+        /**
+         * Returns the average number of racket hits per point.
+         */
+        double rallyLength() {
+            return points == 0 ? 0 : (double) racketHits / points;
+        }
+
+        /**
+         * Returns the points scored per minute of game time at the reference frame rate.
+         */
+        double pointsPerMinute() {
+            return ticks == 0 ? 0 : points * 60.0 * Simulation.REFERENCE_RATE / ticks;
+        }
+
+        /**
+         * Returns the share of finished matches won by the left bot.
+         */
+        double leftWinRate() {
+            long finished = matches - timeouts;
+            return finished == 0 ? 0 : (double) leftWins / finished;
+        }
+    }
+
+    /**
+     * This class plays a range of match numbers, splitting it in half until it is small enough.
+     */
+    @SuppressWarnings("serial") // Tasks are never serialized
+    static final class MatchBatch extends RecursiveTask<BatchStats> {
+        private final Settings settings;
+        private final long from;
+        private final long to;
+
+        MatchBatch(Settings settings, long from, long to) {
+            this.settings = settings;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BatchStats compute() {
+            if (to - from <= LEAF_MATCHES) {
+                return playAll();
+            }
+            long middle = (from + to) >>> 1;
+            MatchBatch first = new MatchBatch(settings, from, middle);
+            MatchBatch second = new MatchBatch(settings, middle, to);
+            first.fork();
+            BatchStats stats = second.compute();
+            stats.merge(first.join());
+            return stats;
+        }
+
+        /**
+         * Plays every match of this range on one simulation and one pair of bots.
+         */
+        private BatchStats playAll() {
+            BatchStats stats = new BatchStats();
+            Simulation simulation = new Simulation(settings.finalScore);
+            LaggingBot left = new LaggingBot(settings.reactionTicks, settings.leftNoise);
+            LaggingBot right = new LaggingBot(settings.reactionTicks, settings.rightNoise);
+            for (long match = from; match < to; match++) {
+                playMatch(simulation, left, right, match, stats);
+            }
+            return stats;
+        }
+
+        /**
+         * Plays one match from the starting positions and adds its outcome to the stats.
+         */
+        private void playMatch(Simulation simulation, LaggingBot left, LaggingBot right, long match,
+                               BatchStats stats) {
+            simulation.racketHeight = Simulation.RACKET_HEIGHT + settings.racketHeightIncrease;
+            simulation.racketSpeed = settings.racketSpeed;
+            simulation.reset();
+            simulation.increaseBallSpeed(settings.ballSpeedIncrease);
+            left.reset(settings.seed * 0x9E3779B97F4A7C15L + match * 2);
+            right.reset(settings.seed * 0x9E3779B97F4A7C15L + match * 2 + 1);
+
+            int ticks = 0;
+            while (!simulation.isGameEnded() && ticks < settings.maxTicks) {
+                int inputs = left.inputs(simulation, simulation.leftRacketY, Simulation.LEFT_UP, Simulation.LEFT_DOWN)
+                        | right.inputs(simulation, simulation.rightRacketY, Simulation.RIGHT_UP, Simulation.RIGHT_DOWN);
+                int events = simulation.step(inputs);
+                if ((events & Simulation.EVENT_RACKET_HIT) != 0) {
+                    stats.racketHits++;
+                }
+                ticks++;
+            }
+            stats.matches++;
+            stats.ticks += ticks;
+            stats.points += simulation.leftScore + simulation.rightScore;
+            if (!simulation.isGameEnded()) {
+                stats.timeouts++;
+            } else if (simulation.leftScore > simulation.rightScore) {
+                stats.leftWins++;
+            }
+        }
+    }
+
+    /**
+     * This class is a tracking bot with human-like flaws: it only looks at the ball every few ticks
+     * and aims at a point that is off by a random amount, so it can miss fast balls. Its random numbers
+     * come from a SplitMix64 sequence held in a single long, so it can be reseeded for every match
+     * without allocating.
+     */
+    static final class LaggingBot {
+        private final int reactionTicks;
+        private final double noise;
+        private long state; // SplitMix64 state
+        private int untilLook; // Ticks until the bot looks at the ball again
+        private double target; // Height the bot is moving the middle of its racket to
+
+        LaggingBot(int reactionTicks, double noise) {
+            this.reactionTicks = Math.max(reactionTicks, 1);
+            this.noise = noise;
+        }
+
+        /**
+         * Prepares the bot for a new match.
+         * @param seed The seed of this match's random numbers.
+         */
+        void reset(long seed) {
+            state = seed;
+            untilLook = 0;
+            target = Simulation.HEIGHT / 2;
+        }
+
+        /**
+         * Returns the input bits for one racket.
+         * @param simulation The match being played.
+         * @param racketY The current y-coordinate of the bot's racket.
+         * @param up The input bit that moves the racket up.
+         * @param down The input bit that moves the racket down.
+         * @return The input bits for this tick.
+         */
+        int inputs(Simulation simulation, double racketY, int up, int down) {
+            if (--untilLook <= 0) {
+                untilLook = reactionTicks;
+                target = simulation.ballY + (nextDouble() * 2 - 1) * noise;
+            }
+            double middle = racketY + simulation.racketHeight / 2;
+            double deadZone = simulation.racketSpeed * simulation.timeScale; // Avoids shaking around the target
+            if (middle < target - deadZone) {
+                return down;
+            }
+            return middle > target + deadZone ? up : 0;
+        }
+
+        /**
+         * Returns the next random number in [0, 1).
+         */
+        private double nextDouble() {
+            long z = state += 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            z ^= z >>> 31;
+            return (z >>> 11) * 0x1.0p-53;
+        }
+    }
+
+    /**
+     * Runs the sweep, or the scaling measurement with --scaling.
+     * @param args The command-line options described in the class comment.
+     */
+    public static void main(String[] args) {
+        Map<String, String> options = BenchmarkRunner.parseOptions(args);
+        long matches = Long.parseLong(options.getOrDefault("matches", "10000"));
+        int finalScore = Integer.parseInt(options.getOrDefault("final-score", "5"));
+        int[] ballSpeeds = parseInts(options.getOrDefault("ball-speed", "4,6,8"));
+        double[] racketHeights = parseDoubles(options.getOrDefault("racket-height", "0,50,100"));
+        double[] racketSpeeds = parseDoubles(options.getOrDefault("racket-speed", "5,8"));
+        double leftNoise = Double.parseDouble(options.getOrDefault("left-noise", "20"));
+        double rightNoise = Double.parseDouble(options.getOrDefault("right-noise", "60"));
+        int reaction = Integer.parseInt(options.getOrDefault("reaction", "6"));
+        int maxTicks = Integer.parseInt(options.getOrDefault("max-ticks", "200000"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+
+        if (options.containsKey("scaling")) {
+            Settings settings = new Settings(ballSpeeds[0], racketHeights[0], racketSpeeds[0], finalScore, maxTicks,
+                    reaction, leftNoise, rightNoise, seed);
+            measureScaling(settings, matches, threads);
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        System.out.printf("%d matches per combination on %d threads%n", matches, threads);
+        System.out.printf("%-6s %-7s %-7s %10s %10s %9s %9s %14s%n", "speed", "height", "rspeed", "rally",
+                "points/min", "left win", "timeouts", "matches/s/core");
+        long totalMatches = 0;
+        long start = System.nanoTime();
+        for (int ballSpeed : ballSpeeds) {
+            for (double racketHeight : racketHeights) {
+                for (double racketSpeed : racketSpeeds) {
+                    Settings settings = new Settings(ballSpeed, racketHeight, racketSpeed, finalScore, maxTicks,
+                            reaction, leftNoise, rightNoise, seed);
+                    long pointStart = System.nanoTime();
+                    BatchStats stats = pool.invoke(new MatchBatch(settings, 0, matches));
+                    double seconds = (System.nanoTime() - pointStart) / 1e9;
+                    System.out.printf("%-6d %-7.0f %-7.1f %10.2f %10.1f %8.1f%% %9d %14.0f%n", ballSpeed,
+                            racketHeight, racketSpeed, stats.rallyLength(), stats.pointsPerMinute(),
+                            stats.leftWinRate() * 100, stats.timeouts, stats.matches / seconds / threads);
+                    totalMatches += stats.matches;
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d matches in %.1f s: %.0f matches/s, %.0f per core%n", totalMatches, seconds,
+                totalMatches / seconds, totalMatches / seconds / threads);
+        pool.shutdown();
+    }
+
+    /**
+     * Plays the same batch with 1, 2, 4, ... threads and prints the throughput per core and the
+     * speedup relative to one thread.
+     */
+    private static void measureScaling(Settings settings, long matches, int maxThreads) {
+        System.out.printf("%-8s %12s %14s %8s %11s%n", "threads", "matches/s", "matches/s/core", "speedup",
+                "efficiency");
+        double single = 0;
+        for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            pool.invoke(new MatchBatch(settings, 0, Math.max(matches / 10, 1))); // Warm up the pool and the JIT
+            long start = System.nanoTime();
+            BatchStats stats = pool.invoke(new MatchBatch(settings, 0, matches));
+            double rate = stats.matches / ((System.nanoTime() - start) / 1e9);
+            pool.shutdown();
+            if (threads == 1) {
+                single = rate;
+            }
+            System.out.printf("%-8d %12.0f %14.0f %7.2fx %10.0f%%%n", threads, rate, rate / threads, rate / single,
+                    rate / single / threads * 100);
+            if (threads == maxThreads) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Parses a comma-separated list of integers.
+     */
+    private static int[] parseInts(String list) {
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+
+    /**
+     * Parses a comma-separated list of numbers.
+     */
+    private static double[] parseDoubles(String list) {
+        String[] parts = list.split(",");
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Double.parseDouble(parts[i].trim());
+        }
+        return values;
+    }
+}
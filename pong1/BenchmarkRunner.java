@@ -0,0 +1,250 @@
+/**
+ * This class is a small micro-benchmark harness for the headless parts of the Pong game. Each
+ * benchmark is warmed up, then timed over several iterations, and reported in nanoseconds per
+ * operation together with the bytes allocated per operation, the allocation rate and the garbage
+ * collections seen while it ran. Results can be saved as a baseline, and a later run compared against
+ * that baseline fails when a benchmark has become slower or allocates more.
+ *
+ * Options: --filter=REGEX, --iterations=N, --baseline=FILE, --save-baseline=FILE, --tolerance=0.10
+ */
+package com.example.pong1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+public class BenchmarkRunner {
+    private static final long WARMUP_NANOS = 1_000_000_000L; // Time spent warming up each benchmark
+    private static final long ITERATION_NANOS = 200_000_000L; // Target duration of one iteration
+    private static final int DEFAULT_ITERATIONS = 5;
+    private static final double DEFAULT_TOLERANCE = 0.10; // Allowed slowdown before a run fails
+    private static final double ALLOCATION_ALLOWANCE = 0.5; // Allowed growth in bytes per operation
+
+    /**
+     * This interface represents a single benchmark. It runs the measured code the requested number of
+     * times and returns a value derived from the work, so the JIT cannot remove it as dead code.
+     */
+    public interface Benchmark {
+        public long run(int operations);
+    }
+
+    private final Map<String, Benchmark> benchmarks = new LinkedHashMap<>();
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private volatile long sink; // Keeps benchmark results alive
+
+    /**
+     * Registers a benchmark under the specified name.
+     * @param name The name shown in the report and stored in baselines.
+     * @param benchmark The benchmark to run.
+     */
+    public void add(String name, Benchmark benchmark) {
+        benchmarks.put(name, benchmark);
+    }
+
+    /**
+     * Returns the benchmark registered under a name, e.g. for the JMH suite to run it.
+     * @param name The name the benchmark was registered under.
+     * @return The benchmark, or null if there is none of that name.
+     */
+    Benchmark get(String name) {
+        return benchmarks.get(name);
+    }
+
+    /**
+     * Returns the names of the registered benchmarks in the order they were added.
+     */
+    Set<String> getNames() {
+        return benchmarks.keySet();
+    }
+
+    /**
+     * Runs every registered benchmark matching the filter and compares the results to the baseline.
+     * @param args The command-line options described in the class comment.
+     * @return 0 if all benchmarks ran without regressions, 1 otherwise.
+     * @throws IOException If a baseline file cannot be read or written.
+     */
+    public int runAll(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        Pattern filter = Pattern.compile(options.getOrDefault("filter", ".*"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", String.valueOf(DEFAULT_ITERATIONS)));
+        double tolerance = Double.parseDouble(options.getOrDefault("tolerance", String.valueOf(DEFAULT_TOLERANCE)));
+        Properties baseline = options.containsKey("baseline") ? load(Paths.get(options.get("baseline"))) : null;
+        Properties results = new Properties();
+        int regressions = 0;
+
+        System.out.printf("%-28s %12s %12s %12s %8s %8s%n", "Benchmark", "ns/op", "B/op", "MB/s", "GCs", "GC ms");
+        for (Map.Entry<String, Benchmark> entry : benchmarks.entrySet()) {
+            String name = entry.getKey();
+            if (!filter.matcher(name).find()) {
+                continue;
+            }
+            Result result = measure(entry.getValue(), iterations);
+            System.out.printf("%-28s %12.2f %12.2f %12.1f %8d %8d%n", name, result.nanosPerOp,
+                    result.bytesPerOp, result.allocationRate(), result.gcCount, result.gcMillis);
+            results.setProperty(name + ".nsPerOp", String.valueOf(result.nanosPerOp));
+            results.setProperty(name + ".bytesPerOp", String.valueOf(result.bytesPerOp));
+            if (baseline != null) {
+                regressions += compare(name, result.nanosPerOp, result.bytesPerOp, baseline, tolerance);
+            }
+        }
+
+        if (options.containsKey("save-baseline")) {
+            try (OutputStream out = Files.newOutputStream(Paths.get(options.get("save-baseline")))) {
+                results.store(out, "Pong benchmark baseline");
+            }
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed against the baseline");
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Warms up and then times a benchmark.
+     * @param benchmark The benchmark to measure.
+     * @param iterations The number of measured iterations.
+     * @return The averaged measurements.
+     */
+    private Result measure(Benchmark benchmark, int iterations) {
+        // Warm up, growing the batch size until one batch takes about an iteration's time
+        int operations = 1;
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            long start = System.nanoTime();
+            sink += benchmark.run(operations);
+            long elapsed = System.nanoTime() - start;
+            if (elapsed < ITERATION_NANOS && operations < Integer.MAX_VALUE / 2) {
+                operations *= 2;
+            }
+        }
+
+        long totalNanos = 0;
+        long totalBytes = 0;
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        for (int i = 0; i < iterations; i++) {
+            long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            sink += benchmark.run(operations);
+            totalNanos += System.nanoTime() - start;
+            totalBytes += threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+        }
+        long totalOperations = (long) operations * iterations;
+        return new Result((double) totalNanos / totalOperations, (double) totalBytes / totalOperations,
+                gcCount() - gcCountBefore, gcMillis() - gcMillisBefore);
+    }
+
+    /**
+     * Compares a result with the baseline and prints any regression.
+     * @param name The name of the benchmark.
+     * @param nanosPerOp The measured nanoseconds per operation.
+     * @param bytesPerOp The measured bytes allocated per operation.
+     * @param baseline The baseline, with name.nsPerOp and name.bytesPerOp entries. Either may be left
+     *                 out, e.g. timings in a baseline shared between machines.
+     * @param tolerance The allowed slowdown, e.g. 0.10 for 10%.
+     * @return 1 if the benchmark regressed, 0 otherwise.
+     */
+    static int compare(String name, double nanosPerOp, double bytesPerOp, Properties baseline, double tolerance) {
+        String nanos = baseline.getProperty(name + ".nsPerOp");
+        String bytes = baseline.getProperty(name + ".bytesPerOp");
+        if (nanos == null && bytes == null) {
+            System.out.println("  " + name + ": no baseline entry");
+            return 0;
+        }
+        int regressed = 0;
+        double baselineNanos = nanos == null ? Double.POSITIVE_INFINITY : Double.parseDouble(nanos);
+        if (nanosPerOp > baselineNanos * (1 + tolerance)) {
+            System.out.printf("  %s: REGRESSION %.2f ns/op vs baseline %.2f ns/op%n", name, nanosPerOp, baselineNanos);
+            regressed = 1;
+        }
+        double baselineBytes = bytes == null ? Double.POSITIVE_INFINITY : Double.parseDouble(bytes);
+        if (bytesPerOp > baselineBytes + ALLOCATION_ALLOWANCE) {
+            System.out.printf("  %s: REGRESSION %.2f B/op vs baseline %.2f B/op%n", name, bytesPerOp, baselineBytes);
+            regressed = 1;
+        }
+        return regressed;
+    }
+
+    /**
+     * Parses options of the form --name=value.
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                int equals = arg.indexOf('=');
+                if (equals < 0) {
+                    options.put(arg.substring(2), "true");
+                } else {
+                    options.put(arg.substring(2, equals), arg.substring(equals + 1));
+                }
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Loads a baseline file.
+     */
+    static Properties load(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    private long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(collector.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            millis += Math.max(collector.getCollectionTime(), 0);
+        }
+        return millis;
+    }
+
+    /**
+     * This class holds the averaged measurements of one benchmark.
+     */
+    private static class Result {
+        final double nanosPerOp;
+        final double bytesPerOp;
+        final long gcCount;
+        final long gcMillis;
+
+        Result(double nanosPerOp, double bytesPerOp, long gcCount, long gcMillis) {
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        /**
+         * Returns the allocation rate in megabytes per second.
+         */
+        double allocationRate() {
+            return nanosPerOp == 0 ? 0 : bytesPerOp / nanosPerOp * 1_000_000_000.0 / (1024 * 1024);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * This enum lists the difficulty levels of the PredictiveBot. A level sets how long the bot takes to
+ * react to a new ball trajectory and how far off its predicted intercept may be.
+ */
+package com.example.pong1;
+
+public enum BotDifficulty {
+    EASY(24, 70), // Reacts after 24 reference frames, misses its aim by up to 70 units
+    MEDIUM(10, 30),
+    HARD(3, 8);
+
+    final int reactionFrames; // Delay before a new prediction is acted on, in reference frames
+    final double noise; // Largest error added to a prediction, in units
+
+    BotDifficulty(int reactionFrames, double noise) {
+        this.reactionFrames = reactionFrames;
+        this.noise = noise;
+    }
+
+    /**
+     * Looks up a difficulty by name, ignoring case.
+     * @param name The name of the difficulty, or null for the default.
+     * @return The matching difficulty, or MEDIUM if the name is null.
+     */
+    public static BotDifficulty fromName(String name) {
+        if (name == null) {
+            return MEDIUM;
+        }
+        return valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * This class draws the game in immediate mode into a single Canvas. Every frame the whole field is
+ * cleared and the ball and rackets are drawn from the simulation state, so the scene graph
+ * only has to track one node no matter how many objects are on screen.
+ */
+package com.example.pong1;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+public class CanvasRenderer implements Renderer {
+    private static final Color BALL_COLOR = Color.WHITE;
+    private static final Color LEFT_COLOR = Color.BLUE;
+    private static final Color RIGHT_COLOR = Color.RED;
+    private final Canvas canvas;
+    private final GraphicsContext gc;
+
+    /**
+     * Constructs a new canvas renderer and adds its canvas to the specified pane.
+     * @param parent The pane that hosts the canvas.
+     */
+    public CanvasRenderer(Pane parent) {
+        canvas = new Canvas(Simulation.WIDTH, Simulation.HEIGHT);
+        gc = canvas.getGraphicsContext2D();
+        parent.getChildren().add(canvas);
+    }
+
+    @Override
+    public void render(Simulation simulation, double alpha) {
+        // The canvas covers the logical field; the panel's transform maps it onto the window
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+        double racketHeight = simulation.getRacketHeight();
+        gc.setFill(LEFT_COLOR);
+        gc.fillRect(Simulation.LEFT_RACKET_X, simulation.getLeftRacketY(alpha), Simulation.RACKET_WIDTH, racketHeight);
+        gc.setFill(RIGHT_COLOR);
+        gc.fillRect(Simulation.RIGHT_RACKET_X, simulation.getRightRacketY(alpha), Simulation.RACKET_WIDTH, racketHeight);
+
+        double radius = simulation.getBallRadius();
+        gc.setFill(BALL_COLOR);
+        gc.fillOval(simulation.getBallX(alpha) - radius, simulation.getBallY(alpha) - radius, radius * 2, radius * 2);
+        if (simulation.getMultiBall() != null) {
+            renderBalls(simulation.getMultiBall().getBalls(), simulation.getTimeScale(), alpha);
+        }
+    }
+
+    /**
+     * Draws the extra balls of the multi-ball mode. Instead of keeping their previous positions, each
+     * ball is drawn back along its velocity by the part of the tick the frame has not reached yet.
+     * @param balls The extra balls.
+     * @param timeScale The fraction of a reference frame covered by one tick.
+     * @param alpha How far the frame lies between the previous and the current tick.
+     */
+    private void renderBalls(BallField balls, double timeScale, double alpha) {
+        double radius = balls.getRadius();
+        double back = timeScale * (alpha - 1);
+        for (int i = 0; i < balls.count; i++) {
+            gc.fillOval(balls.x[i] + balls.vx[i] * back - radius, balls.y[i] + balls.vy[i] * back - radius,
+                    radius * 2, radius * 2);
+        }
+    }
+}
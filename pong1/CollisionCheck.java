@@ -0,0 +1,175 @@
+/**
+ * This class checks the swept ball collision against the rackets. The shot scenario fires the ball
+ * at a standing racket from the middle of the field at every speed from 1 up to
+ * Simulation.MAX_BALL_SPEED, at several angles, tick rates, racket heights, points along the racket's
+ * face and offsets within a tick, and fails if the ball ever gets past the racket instead of
+ * bouncing. The moving scenario plays random matches with rackets moving all the time and the ball
+ * at random speeds up to the same limit, and fails if the ball is ever left inside a racket after a
+ * tick, which is how a racket moving onto the ball used to trap it.
+ *
+ * Run it with: CollisionCheck [--ticks=N] [--seed=N]
+ * It exits with a non-zero status if the ball tunnelled through or stayed inside a racket.
+ */
+package com.example.pong1;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+
+public class CollisionCheck {
+    private static final int[] TICK_RATES = {60, Panel.DEFAULT_TICK_RATE, 240};
+    private static final double[] SLOPES = {0, 0.2, -0.2, 0.4, -0.4}; // Vertical speed per horizontal speed
+    private static final double[] AIMS = {0, 0.1, 0.5, 0.9, 1}; // Points along the racket's face
+    private static final double[] PHASES = {0, 0.3, 0.7}; // Start offsets, in parts of a tick's movement
+    private static final double[] GROWTHS = {0, 300}; // Racket height increases
+    private static final double MAX_PHASE_OFFSET = 200; // Keeps the offset start inside the field
+    private static final double SLOP = 1e-6; // Overlap still counted as touching
+    private static final int MAX_HOLD_TICKS = 60; // Longest time a random input is held
+
+    /**
+     * Runs both scenarios and prints what each found.
+     * @param args The options described in the class comment.
+     */
+    public static void main(String[] args) {
+        Map<String, String> options = BenchmarkRunner.parseOptions(args);
+        int ticks = LaunchConfig.parseInt("ticks", options.get("ticks"), 2_000_000, 1, Integer.MAX_VALUE);
+        long seed = options.containsKey("seed") ? Long.parseLong(options.get("seed")) : 1;
+
+        int failures = 0;
+        System.out.printf("%-10s %8s %8s %10s%n", "Speed", "Shots", "Hits", "Tunnelled");
+        for (double speed = 1; ; speed = Math.min(speed * 2, Simulation.MAX_BALL_SPEED)) {
+            int[] result = shoot(speed);
+            System.out.printf("%-10.0f %8d %8d %10d %s%n", speed, result[0], result[1], result[0] - result[1],
+                    result[0] == result[1] ? "ok" : "TUNNELS");
+            failures += result[0] - result[1];
+            if (speed == Simulation.MAX_BALL_SPEED) {
+                break;
+            }
+        }
+
+        long stuck = playMoving(ticks, seed);
+        System.out.printf("moving rackets: %d ticks, %d left inside a racket %s%n", ticks, stuck,
+                stuck == 0 ? "ok" : "STUCK");
+        failures += (int) Math.min(stuck, Integer.MAX_VALUE);
+
+        if (failures > 0) {
+            System.out.println(failures + " collision failure(s)");
+            System.exit(1);
+        }
+        System.out.println("No tunnelling up to MAX_BALL_SPEED " + Simulation.MAX_BALL_SPEED);
+    }
+
+    /**
+     * Fires the ball at both rackets at one horizontal speed in every combination of the settings.
+     * @param speed The horizontal speed of the ball, in units per reference frame.
+     * @return The number of shots and the number of them that bounced off the racket.
+     */
+    private static int[] shoot(double speed) {
+        int shots = 0;
+        int hits = 0;
+        for (int tickRate : TICK_RATES) {
+            for (double growth : GROWTHS) {
+                for (double slope : SLOPES) {
+                    for (double aim : AIMS) {
+                        for (double phase : PHASES) {
+                            for (boolean left : new boolean[] {true, false}) {
+                                shots++;
+                                if (shot(speed, tickRate, growth, slope, aim, phase, left)) {
+                                    hits++;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return new int[] {shots, hits};
+    }
+
+    /**
+     * Fires the ball in a straight line at a point on a standing racket's face.
+     * @return true if the ball bounced off the racket without the point going to the other side.
+     */
+    private static boolean shot(double speed, int tickRate, double growth, double slope, double aim,
+                                double phase, boolean left) {
+        Simulation s = new Simulation(Integer.MAX_VALUE);
+        s.setTickRate(tickRate);
+        s.increaseRacketHeight(growth);
+        s.reset();
+
+        // Work back from the contact point on the face to a start in the middle of the field
+        double contactX = Simulation.LEFT_RACKET_X + s.racketWidth + s.ballRadius;
+        double contactY = s.leftRacketY + s.racketHeight * aim;
+        double startX = Simulation.WIDTH / 2 + Math.min(speed * s.timeScale * phase, MAX_PHASE_OFFSET);
+        double startY = contactY + slope * (startX - contactX);
+        s.ballX = left ? startX : Simulation.WIDTH - startX;
+        s.ballY = startY;
+        s.ballDirX = left ? -speed : speed;
+        s.ballDirY = -slope * speed;
+        s.savePreviousState();
+
+        int lost = left ? Simulation.EVENT_RIGHT_SCORED : Simulation.EVENT_LEFT_SCORED;
+        long maxTicks = (long) Math.ceil(Simulation.WIDTH / (speed * s.timeScale)) + 1;
+        for (long tick = 0; tick < maxTicks; tick++) {
+            int events = s.step(0);
+            if ((events & lost) != 0) {
+                return false;
+            }
+            if ((events & Simulation.EVENT_RACKET_HIT) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Plays random matches in which both rackets keep moving and checks after every tick that the ball
+     * is clear of both rackets.
+     * @param ticks The number of ticks to play.
+     * @param seed The seed of the random inputs and speeds.
+     * @return The number of ticks after which the ball was inside a racket.
+     */
+    private static long playMoving(int ticks, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Simulation s = null;
+        int held = 0;
+        int holdTicks = 0;
+        long stuck = 0;
+        for (int i = 0; i < ticks; i++) {
+            if (s == null || s.isGameEnded()) {
+                s = new Simulation(21);
+                s.setTickRate(TICK_RATES[random.nextInt(TICK_RATES.length)]);
+                s.increaseRacketHeight(random.nextInt(301));
+                s.reset();
+                double speed = random.nextDouble(1, Simulation.MAX_BALL_SPEED);
+                double angle = random.nextDouble(-Math.PI / 4, Math.PI / 4);
+                s.ballDirX = Math.cos(angle) * speed;
+                s.ballDirY = Math.sin(angle) * speed;
+            }
+            if (holdTicks-- <= 0) {
+                held = random.nextInt(16); // Any mix of the four input bits
+                holdTicks = random.nextInt(MAX_HOLD_TICKS);
+            }
+            s.step(held);
+            if (inside(s, Simulation.LEFT_RACKET_X, s.leftRacketY) || inside(s, Simulation.RIGHT_RACKET_X, s.rightRacketY)) {
+                if (stuck++ == 0) {
+                    System.out.printf("First ball inside a racket: tick=%d ball=(%.3f, %.3f) velocity=(%.3f, %.3f)"
+                                    + " rackets=(%.3f, %.3f) height=%.0f%n", s.tick, s.ballX, s.ballY, s.ballDirX,
+                            s.ballDirY, s.leftRacketY, s.rightRacketY, s.racketHeight);
+                }
+            }
+        }
+        return stuck;
+    }
+
+    /**
+     * Returns whether the ball overlaps a racket by more than SLOP.
+     */
+    private static boolean inside(Simulation s, double racketX, double racketY) {
+        double nearestX = Math.max(racketX, Math.min(s.ballX, racketX + s.racketWidth));
+        double nearestY = Math.max(racketY, Math.min(s.ballY, racketY + s.racketHeight));
+        double dx = s.ballX - nearestX;
+        double dy = s.ballY - nearestY;
+        double reach = s.ballRadius - SLOP;
+        return dx * dx + dy * dy < reach * reach;
+    }
+}
@@ -1,18 +1,47 @@
 /**
- * This class represents the display panel in the Pong game, where player names and winner announcements
- * are shown. It extends the Pane class and manages the layout and appearance of text elements.
+ * This class represents the display panel in the Pong game, where player names, scores and winner
+ * announcements are shown. It is a Canvas that covers the whole panel at screen resolution, so the
+ * text is rasterised for the size it appears at instead of being scaled with the field. All text comes
+ * from glyph atlases built once per font size: a score change blits a few digits and builds no strings,
+ * and announcing the winner adds no nodes. The font size follows the viewport scale, and the atlases
+ * of recently used sizes are kept so resizing back and forth does not rasterise them again.
  */
 package com.example.pong1;
 
-import javafx.scene.layout.Pane;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
-import javafx.scene.text.Text;
 
-public class Display extends Pane {
-    private final Text player1NameText; // Text representing player 1's name
-    private final Text player2NameText; // Text representing player 2's name
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class Display extends Canvas {
+    private static final double FONT_SIZE = 24; // Size of names and scores in logical units
+    private static final double WINNER_FONT_SIZE = 36; // Size of the winner text in logical units
+    private static final int MAX_CACHED_SIZES = 4; // Pixel sizes whose atlases are kept
+    private static final double SCORE_Y = 150; // Logical baseline of the scores
+    private static final double WINNER_Y = 100; // Logical baseline of the winner text
+    private static final int NAME = 0; // Label indices in the player atlases
+    private static final int SCORE = 1;
+    private final double x; // Logical x-coordinate of the left player's name
+    private final double y; // Logical baseline of the player names
+    private final String player1Name; // The name of player 1
+    private final String player2Name; // The name of player 2
     private final int winningScore; // The winning score of the game
+    private final Map<Integer, GlyphAtlas[]> atlases = new LinkedHashMap<>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, GlyphAtlas[]> eldest) {
+            return size() > MAX_CACHED_SIZES;
+        }
+    };
+    private GlyphAtlas[] current; // Left, right and winner atlases for the current size
+    private Viewport viewport;
+    private int leftScore;
+    private int rightScore;
+    private int winner = -1; // Label index of the winner text, or -1 while the game is running
+    private boolean dirty = true; // Whether the canvas must be drawn again
+    private long atlasBuilds; // Number of atlas sets rasterised so far
 
     /**
      * Constructs a new Display with specified coordinates, player names, and winning score.
@@ -23,68 +52,120 @@ public class Display extends Pane {
      * @param winningScore The winning score of the game.
      */
     public Display(double x, double y, String player1Name, String player2Name, int winningScore) {
-        player1NameText = new Text(player1Name);
-        player2NameText = new Text(player2Name);
-        player1NameText.setFill(Color.BLUE); // Set the color of player 1's name text
-        player2NameText.setFill(Color.RED); // Set the color of player 2's name text
-        player1NameText.setFont(Font.font(24)); // Set the font size of player 1's name text
-        player2NameText.setFont(Font.font(24)); // Set the font size of player 2's name text
+        this.x = x;
+        this.y = y;
+        this.player1Name = player1Name;
+        this.player2Name = player2Name;
         this.winningScore = winningScore;
+        setManaged(false);
+        setMouseTransparent(true);
+    }
 
-        // Set the positions of player name texts
-        player1NameText.setLayoutX(x);
-        player1NameText.setLayoutY(y);
-        player2NameText.setLayoutX(x + 800);
-        player2NameText.setLayoutY(y);
+    /**
+     * Retrieves the name of player 1.
+     * @return The name of player 1.
+     */
+    public String getLeftPlayerName() {
+        return player1Name;
+    }
 
-        getChildren().addAll(player1NameText, player2NameText); // Add player name texts to the display
+    /**
+     * Retrieves the name of player 2.
+     * @return The name of player 2.
+     */
+    public String getRightPlayerName() {
+        return player2Name;
     }
 
     /**
-     * Adjusts the layout of text elements horizontally based on the specified factor.
-     * @param factor The factor by which to adjust the layout horizontally.
+     * Sets the scores shown, marking the display for drawing only when one of them changed.
+     * @param left The score of the left player.
+     * @param right The score of the right player.
      */
-    public void resizeX(double factor) {
-        player1NameText.setLayoutX(player1NameText.getLayoutX() * factor);
-        player2NameText.setLayoutX(player2NameText.getLayoutX() * factor);
+    public void setScores(int left, int right) {
+        if (left != leftScore || right != rightScore) {
+            leftScore = left;
+            rightScore = right;
+            dirty = true;
+        }
     }
 
     /**
-     * Adjusts the layout of text elements vertically based on the specified factor.
-     * @param factor The factor by which to adjust the layout vertically.
+     * Announces the winner of the game by displaying a text message.
+     * @param winner The name of the winning player.
      */
-    public void resizeY(double factor) {
-        player1NameText.setLayoutY(player1NameText.getLayoutY() * factor);
-        player2NameText.setLayoutY(player2NameText.getLayoutY() * factor);
+    public void announceWinner(String winner) {
+        this.winner = winner.equals(player2Name) && !winner.equals(player1Name) ? 1 : 0;
+        dirty = true;
     }
 
     /**
-     * Retrieves the name of player 1.
-     * @return The name of player 1.
+     * Resizes the display to the panel and picks the atlases for the viewport scale. Called from the
+     * panel's layout pass whenever the viewport changed.
+     * @param viewport The mapping from logical coordinates to the panel's pixels.
+     * @param width The width of the panel in pixels.
+     * @param height The height of the panel in pixels.
      */
-    public String getLeftPlayerName() {
-        return player1NameText.getText();
+    public void setViewport(Viewport viewport, double width, double height) {
+        this.viewport = viewport;
+        setWidth(width);
+        setHeight(height);
+        int pixelSize = (int) Math.max(Math.round(FONT_SIZE * viewport.getScale()), 1);
+        current = atlases.get(pixelSize);
+        if (current == null) {
+            current = buildAtlases(pixelSize);
+            atlases.put(pixelSize, current);
+        }
+        dirty = true;
     }
 
     /**
-     * Retrieves the name of player 2.
-     * @return The name of player 2.
+     * Rasterises the left, right and winner atlases for one pixel size of the names and scores.
      */
-    public String getRightPlayerName() {
-        return player2NameText.getText();
+    private GlyphAtlas[] buildAtlases(int pixelSize) {
+        Font font = Font.font(pixelSize);
+        Font winnerFont = Font.font(Math.round(pixelSize * WINNER_FONT_SIZE / FONT_SIZE));
+        atlasBuilds++;
+        return new GlyphAtlas[] {
+                new GlyphAtlas(font, Color.BLUE, player1Name, "Score: "),
+                new GlyphAtlas(font, Color.RED, player2Name, "Score: "),
+                new GlyphAtlas(winnerFont, Color.GREEN, "Winner: " + player1Name, "Winner: " + player2Name)
+        };
     }
 
     /**
-     * Announces the winner of the game by displaying a text message.
-     * @param winner The name of the winning player.
+     * Draws the names, scores and winner text if anything changed since the last call.
      */
-    public void announceWinner(String winner) {
-        Text winnerText = new Text("Winner: " + winner);
-        winnerText.setFill(Color.GREEN); // Set the color of the winner text
-        winnerText.setFont(Font.font(36)); // Set the font size of the winner text
-        // Set the position of the winner text at the center between player name texts
-        winnerText.setLayoutX((player1NameText.getLayoutX() + player2NameText.getLayoutX() + player2NameText.getBoundsInLocal().getWidth()) / 2);
-        winnerText.setLayoutY((player1NameText.getLayoutY() + player1NameText.getBoundsInLocal().getHeight()) / 2);
-        getChildren().add(winnerText); // Add the winner text to the display
+    public void draw() {
+        if (!dirty || current == null) {
+            return;
+        }
+        dirty = false;
+        GraphicsContext gc = getGraphicsContext2D();
+        gc.clearRect(0, 0, getWidth(), getHeight());
+        drawPlayer(gc, current[0], x, x, leftScore);
+        drawPlayer(gc, current[1], x + 800, 900, rightScore);
+        if (winner >= 0) {
+            double width = current[2].getLabelWidth(winner);
+            current[2].drawLabel(gc, winner, viewport.toScreenX(Simulation.WIDTH / 2.0) - width / 2,
+                    viewport.toScreenY(WINNER_Y));
+        }
+    }
+
+    /**
+     * Draws the name and score of one player.
+     */
+    private void drawPlayer(GraphicsContext gc, GlyphAtlas atlas, double nameX, double scoreX, int score) {
+        atlas.drawLabel(gc, NAME, viewport.toScreenX(nameX), viewport.toScreenY(y));
+        double end = atlas.drawLabel(gc, SCORE, viewport.toScreenX(scoreX), viewport.toScreenY(SCORE_Y));
+        atlas.drawNumber(gc, score, end, viewport.toScreenY(SCORE_Y));
+    }
+
+    /**
+     * Returns how many sets of atlases have been rasterised, i.e. how many distinct sizes were needed.
+     * @return The number of atlas builds.
+     */
+    public long getAtlasBuilds() {
+        return atlasBuilds;
     }
 }
@@ -0,0 +1,149 @@
+/**
+ * This class measures GameEventBus with consumers on their own threads. For each consumer count a
+ * producer thread publishes events for a while, either as fast as it can or at a fixed rate, and each
+ * EventConsumer records how long every event took from being published to being handled. It reports
+ * the events published per second, how far the consumers trailed the producer in events and in time,
+ * and how many events they lost. With --slow the last consumer stalls regularly, to show that it
+ * loses events of its own while the producer and the other consumers carry on unaffected.
+ *
+ * Run it with: EventBusLoad [--consumers=N,N,...] [--rate=EVENTS_PER_SECOND] [--seconds=S] [--slow]
+ * A rate of 0 publishes as fast as possible.
+ */
+package com.example.pong1;
+
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+public class EventBusLoad {
+    private static final String DEFAULT_CONSUMERS = "0,1,2,4";
+    private static final int CAPACITY = 4_096;
+    private static final int LAG_SAMPLE_INTERVAL = 1_024; // Events between two samples of the consumers' lag
+    private static final long PACE_PARK_NANOS = 100_000; // Pause of a paced producer between batches
+    private static final int SLOW_BATCH = 100; // Events the slow consumer handles between stalls
+    private static final long SLOW_STALL_NANOS = 1_000_000;
+
+    /**
+     * Runs the measurement for every consumer count, flat out and at the requested rate.
+     * @param args The options described in the class comment.
+     * @throws InterruptedException If interrupted while the consumers stop.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = BenchmarkRunner.parseOptions(args);
+        int rate = LaunchConfig.parseInt("rate", options.get("rate"), 100_000, 0, Integer.MAX_VALUE);
+        double seconds = options.containsKey("seconds") ? Double.parseDouble(options.get("seconds")) : 3;
+        boolean slow = options.containsKey("slow");
+
+        run(1, 0, 1, false); // Compiles the publish and read paths
+        System.out.printf("%9s %10s %12s %10s %10s %10s %10s %10s %12s%n", "Consumers", "Rate", "Published/s",
+                "Mean lag", "Max lag", "p50 us", "p99 us", "Max us", "Lost");
+        for (int target : new int[] {0, rate}) {
+            for (String count : options.getOrDefault("consumers", DEFAULT_CONSUMERS).split(",")) {
+                int consumers = Integer.parseInt(count.trim());
+                Result result = run(consumers, target, seconds, slow && consumers > 1);
+                String label = target == 0 ? "max" : String.valueOf(target);
+                if (consumers == 0) {
+                    System.out.printf("%9d %10s %12.0f%n", 0, label, result.publishedPerSecond);
+                    continue;
+                }
+                System.out.printf("%9d %10s %12.0f %10.1f %10d %10.1f %10.1f %10.1f %12d%n", consumers, label,
+                        result.publishedPerSecond, result.meanLag, result.maxLag, result.latency.percentile(50) / 1e3,
+                        result.latency.percentile(99) / 1e3, result.latency.getMax() / 1e3, result.lost);
+                if (result.slowLost >= 0) {
+                    System.out.printf("%9s %10s %12s %10s %10s %10s %10s %10s %12d  (slow consumer)%n", "", "", "",
+                            "", "", "", "", "", result.slowLost);
+                }
+            }
+        }
+    }
+
+    /**
+     * The measurements of one run. The lag and latency cover the consumers that keep up.
+     */
+    private static class Result {
+        double publishedPerSecond;
+        double meanLag; // Events
+        long maxLag; // Events
+        LatencyHistogram latency = new LatencyHistogram(); // Publish to handled, over all consumers
+        long lost;
+        long slowLost = -1; // Events the slow consumer lost, or -1 without one
+    }
+
+    /**
+     * This class is the handler of a measuring consumer. Events carry their publish time in the tick.
+     */
+    private static class Timing implements EventConsumer.Handler {
+        final LatencyHistogram latency = new LatencyHistogram();
+        private final boolean slow;
+        private long events;
+
+        Timing(boolean slow) {
+            this.slow = slow;
+        }
+
+        @Override
+        public void onEvent(GameEventBus.Reader event) {
+            latency.record(System.nanoTime() - event.getTick());
+            if (slow && ++events % SLOW_BATCH == 0) {
+                LockSupport.parkNanos(SLOW_STALL_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Publishes events for a while with the specified consumers reading them.
+     * @param consumers The number of consumers.
+     * @param rate The events to publish per second, or 0 for as many as possible.
+     * @param seconds How long to publish.
+     * @param slow Whether the last consumer stalls regularly.
+     * @return The measurements.
+     */
+    private static Result run(int consumers, int rate, double seconds, boolean slow) throws InterruptedException {
+        GameEventBus bus = new GameEventBus(CAPACITY);
+        EventConsumer[] running = new EventConsumer[consumers];
+        Timing[] handlers = new Timing[consumers];
+        for (int i = 0; i < consumers; i++) {
+            handlers[i] = new Timing(slow && i == consumers - 1);
+            running[i] = new EventConsumer(bus, "event-consumer-" + i, handlers[i]).start();
+        }
+        int measured = slow ? consumers - 1 : consumers; // Consumers whose lag is reported
+        Result result = new Result();
+        long lagSum = 0;
+        long lagSamples = 0;
+
+        long start = System.nanoTime();
+        long end = start + (long) (seconds * 1e9);
+        long published = 0;
+        long now = start;
+        while (now < end) {
+            long due = rate == 0 ? published + LAG_SAMPLE_INTERVAL : (long) ((now - start) / 1e9 * rate);
+            for (; published < due; published++) {
+                bus.publish(System.nanoTime(), Simulation.EVENT_WALL_BOUNCE, 0, 0, 0, 0, 0);
+                if (published % LAG_SAMPLE_INTERVAL == 0) {
+                    for (int i = 0; i < measured; i++) {
+                        long lag = running[i].getReader().getLag();
+                        lagSum += lag;
+                        lagSamples++;
+                        result.maxLag = Math.max(result.maxLag, lag);
+                    }
+                }
+            }
+            if (rate != 0) {
+                LockSupport.parkNanos(PACE_PARK_NANOS);
+            }
+            now = System.nanoTime();
+        }
+        result.publishedPerSecond = published / ((now - start) / 1e9);
+
+        for (int i = 0; i < consumers; i++) {
+            running[i].stop();
+            if (i < measured) {
+                result.latency.add(handlers[i].latency);
+                result.lost += running[i].getReader().getLost();
+            } else {
+                result.slowLost = running[i].getReader().getLost();
+            }
+        }
+        result.meanLag = lagSamples == 0 ? 0 : (double) lagSum / lagSamples;
+        return result;
+    }
+}
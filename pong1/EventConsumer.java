@@ -0,0 +1,102 @@
+/**
+ * This class runs one consumer of a GameEventBus on a thread of its own. It hands every event to its
+ * handler as soon as it sees it, and parks for a moment whenever the bus has nothing new, so the game
+ * loop never signals or waits for it. Stopping it lets it handle the events already published first.
+ */
+package com.example.pong1;
+
+import java.util.concurrent.locks.LockSupport;
+
+public class EventConsumer implements Runnable {
+    private static final long IDLE_PARK_NANOS = 1_000_000; // Pause while the bus has nothing new
+    private static final long STOP_TIMEOUT_MILLIS = 5_000;
+    private final GameEventBus.Reader reader;
+    private final Handler handler;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile long handled; // Events handed to the handler, written by the consumer thread only
+
+    /**
+     * This interface represents what a consumer does with each event.
+     */
+    public interface Handler {
+        /**
+         * Handles one event.
+         * @param event The reader positioned at the event; only valid during the call.
+         */
+        public void onEvent(GameEventBus.Reader event);
+    }
+
+    /**
+     * Constructs a new consumer that reads the events published from now on. Call start() to run it.
+     * @param bus The bus to read.
+     * @param name The name of the consumer's thread.
+     * @param handler What to do with each event.
+     */
+    public EventConsumer(GameEventBus bus, String name, Handler handler) {
+        reader = bus.newReader();
+        this.handler = handler;
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the consumer's thread.
+     * @return This consumer.
+     */
+    public EventConsumer start() {
+        thread.start();
+        return this;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            if (!drain()) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        drain(); // Events published before stop() was called
+    }
+
+    /**
+     * Hands every event published so far to the handler.
+     * @return false if there was nothing to handle.
+     */
+    private boolean drain() {
+        boolean any = false;
+        long count = handled;
+        while (reader.next()) {
+            try {
+                handler.onEvent(reader);
+            } catch (RuntimeException e) {
+                System.err.println(thread.getName() + " failed to handle an event: " + e);
+            }
+            count++;
+            any = true;
+        }
+        handled = count;
+        return any;
+    }
+
+    /**
+     * Stops the consumer once it has handled the events published so far, and waits for it.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join(STOP_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Returns the reader of the consumer, e.g. to report its lag and lost events.
+     */
+    public GameEventBus.Reader getReader() {
+        return reader;
+    }
+
+    public long getHandled() {
+        return handled;
+    }
+}
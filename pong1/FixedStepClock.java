@@ -0,0 +1,88 @@
+/**
+ * This class turns the variable pulse times of the animation timer into a fixed number of simulation
+ * ticks. Elapsed time is collected in an accumulator and consumed in fixed steps, with a cap on the
+ * number of catch-up steps per frame so a slow machine cannot fall into a spiral of death.
+ */
+package com.example.pong1;
+
+public class FixedStepClock {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private final long stepNanos; // Duration of one simulation tick
+    private final int maxStepsPerFrame; // Cap on catch-up ticks run for one pulse
+    private long lastTime = -1; // Time of the previous pulse, or -1 before the first one
+    private long accumulator; // Elapsed time not yet consumed by ticks
+    private long droppedSteps; // Ticks discarded because of the catch-up cap
+
+    /**
+     * Constructs a new clock for the specified simulation rate.
+     * @param tickRate The number of simulation ticks per second.
+     * @param maxStepsPerFrame The maximum number of ticks to run for a single pulse.
+     */
+    public FixedStepClock(int tickRate, int maxStepsPerFrame) {
+        if (tickRate <= 0 || maxStepsPerFrame <= 0) {
+            throw new IllegalArgumentException("tickRate and maxStepsPerFrame must be positive");
+        }
+        this.stepNanos = NANOS_PER_SECOND / tickRate;
+        this.maxStepsPerFrame = maxStepsPerFrame;
+    }
+
+    /**
+     * Adds the time elapsed since the previous pulse and returns how many ticks to run now.
+     * @param now The pulse time in nanoseconds.
+     * @return The number of simulation ticks to run for this pulse.
+     */
+    public int advance(long now) {
+        if (lastTime < 0) {
+            lastTime = now;
+            return 0;
+        }
+        accumulator += now - lastTime;
+        lastTime = now;
+
+        long steps = accumulator / stepNanos;
+        if (steps > maxStepsPerFrame) {
+            // Too far behind: drop the backlog rather than trying to catch up
+            droppedSteps += steps - maxStepsPerFrame;
+            steps = maxStepsPerFrame;
+            accumulator = accumulator % stepNanos;
+        } else {
+            accumulator -= steps * stepNanos;
+        }
+        return (int) steps;
+    }
+
+    /**
+     * Returns the time one of the ticks of the last pulse stands for, i.e. the point on the clock at
+     * which the accumulator had enough time for it.
+     * @param index The tick within the pulse, from 0.
+     * @param steps The number of ticks the last call to advance() returned.
+     * @return The time of the tick in the units of the pulse times.
+     */
+    public long getTickTime(int index, int steps) {
+        return lastTime - accumulator - (steps - 1 - index) * stepNanos;
+    }
+
+    /**
+     * Returns how far the current time lies between the last tick and the next one.
+     * @return The interpolation factor in the range [0, 1).
+     */
+    public double alpha() {
+        return (double) accumulator / stepNanos;
+    }
+
+    /**
+     * Forgets the previous pulse time, so time spent paused is not replayed as catch-up ticks.
+     */
+    public void reset() {
+        lastTime = -1;
+        accumulator = 0;
+    }
+
+    public long getStepNanos() {
+        return stepNanos;
+    }
+
+    public long getDroppedSteps() {
+        return droppedSteps;
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * This class is the JFR event emitted once per rendered frame of the game loop. It carries the
+ * interval since the previous pulse, the time spent simulating and rendering, and the number of
+ * simulation ticks run for the frame, so stutter can be inspected in a flight recording.
+ */
+package com.example.pong1;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("com.example.pong1.Frame")
+@Label("Pong Frame")
+@Category("Pong")
+@Description("One pulse of the game loop")
+public class FrameEvent extends Event {
+    @Label("Pulse Interval")
+    @Timespan(Timespan.NANOSECONDS)
+    long pulseInterval;
+
+    @Label("Simulation Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long simulationTime;
+
+    @Label("Render Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long renderTime;
+
+    @Label("Ticks")
+    int ticks;
+
+    @Label("Dropped")
+    @Description("Whether the pulse came late enough to count as a dropped frame")
+    boolean dropped;
+}
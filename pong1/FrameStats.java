@@ -0,0 +1,147 @@
+/**
+ * This class collects timing data from the game loop: the duration of every simulation tick, the
+ * render time and pulse interval of every frame, dropped frames, and garbage collection pauses.
+ * Durations go into LatencyHistograms, so recording a frame never allocates. When a flight
+ * recording has the event enabled, each frame is also emitted as a FrameEvent.
+ */
+package com.example.pong1;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import jdk.jfr.EventType;
+
+public class FrameStats {
+    private static final EventType FRAME_EVENT_TYPE = EventType.getEventType(FrameEvent.class);
+    private static final double DROPPED_FRAME_FACTOR = 1.5; // Interval, relative to normal, counted as a drop
+    private final LatencyHistogram tickTimes = new LatencyHistogram();
+    private final LatencyHistogram renderTimes = new LatencyHistogram();
+    private final LatencyHistogram pulseIntervals = new LatencyHistogram();
+    private final LatencyHistogram gcPauses = new LatencyHistogram(); // Written by the GC notification thread
+    private long lastPulse = -1; // Time of the previous pulse, or -1 before the first one
+    private double normalInterval; // Smoothed interval of frames that were not dropped
+    private long frames; // Number of frames recorded
+    private long droppedFrames; // Number of frames that came late
+    private long frameInterval; // Interval of the current frame
+    private long frameSimulationTime; // Time spent in ticks during the current frame
+    private int frameTicks; // Number of ticks run during the current frame
+    private GameMetrics metrics; // Also receives the tick durations and frame intervals while not null
+
+    /**
+     * Constructs new frame statistics and starts listening for garbage collection pauses.
+     */
+    public FrameStats() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter && !collector.getName().contains("Concurrent")) {
+                ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                    if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                        GarbageCollectionNotificationInfo info =
+                                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                        gcPauses.record(info.getGcInfo().getDuration() * 1_000_000L);
+                    }
+                }, null, null);
+            }
+        }
+    }
+
+    /**
+     * Records the start of a pulse and the interval since the previous one.
+     * @param now The pulse time in nanoseconds.
+     */
+    public void beginFrame(long now) {
+        frameInterval = 0;
+        frameSimulationTime = 0;
+        frameTicks = 0;
+        if (lastPulse >= 0) {
+            frameInterval = now - lastPulse;
+            pulseIntervals.record(frameInterval);
+        }
+        lastPulse = now;
+    }
+
+    /**
+     * Records the duration of one simulation tick.
+     * @param nanos The duration in nanoseconds.
+     */
+    public void recordTick(long nanos) {
+        tickTimes.record(nanos);
+        if (metrics != null) {
+            metrics.recordTick(nanos);
+        }
+        frameSimulationTime += nanos;
+        frameTicks++;
+    }
+
+    /**
+     * Records the render time of the frame, classifies it as dropped or not, and emits it to JFR.
+     * @param renderNanos The time spent rendering, in nanoseconds.
+     */
+    public void endFrame(long renderNanos) {
+        renderTimes.record(renderNanos);
+        frames++;
+        boolean dropped = false;
+        if (frameInterval > 0) {
+            if (normalInterval > 0 && frameInterval > normalInterval * DROPPED_FRAME_FACTOR) {
+                dropped = true;
+                droppedFrames++;
+            } else {
+                // Follow the display's refresh interval, ignoring the late frames
+                normalInterval = normalInterval == 0 ? frameInterval : normalInterval * 0.95 + frameInterval * 0.05;
+            }
+        }
+        if (metrics != null) {
+            metrics.recordFrame(frameInterval, dropped);
+        }
+
+        if (FRAME_EVENT_TYPE.isEnabled()) {
+            FrameEvent event = new FrameEvent();
+            event.pulseInterval = frameInterval;
+            event.simulationTime = frameSimulationTime;
+            event.renderTime = renderNanos;
+            event.ticks = frameTicks;
+            event.dropped = dropped;
+            event.commit();
+        }
+    }
+
+    /**
+     * Passes the tick durations and frame intervals on to metrics as well, e.g. for a MetricsServer.
+     * @param metrics The metrics to record into, or null to stop.
+     */
+    public void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Forgets the previous pulse, so a pause is not counted as a dropped frame.
+     */
+    public void resetPulse() {
+        lastPulse = -1;
+    }
+
+    public LatencyHistogram getTickTimes() {
+        return tickTimes;
+    }
+
+    public LatencyHistogram getRenderTimes() {
+        return renderTimes;
+    }
+
+    public LatencyHistogram getPulseIntervals() {
+        return pulseIntervals;
+    }
+
+    public LatencyHistogram getGcPauses() {
+        return gcPauses;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+}
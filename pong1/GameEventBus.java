@@ -0,0 +1,221 @@
+/**
+ * This class is a fixed-size, lock-free ring of game events with one producer (the game loop) and any
+ * number of consumers. The game loop publishes what happened in a tick, and side effects such as the
+ * winner announcement and the match history read it through their own Reader at their own pace, on
+ * their own thread if they like. Events are stored in parallel primitive arrays preallocated for every
+ * slot, so publishing and reading them allocates nothing.
+ *
+ * The producer never waits for a consumer: it overwrites the oldest slot whether or not everyone has
+ * read it. Before writing a slot it announces the event it is about to write in claimed, and after
+ * writing it publishes it in cursor. A reader copies a slot and then checks claimed; if the producer
+ * had already started overwriting the slot, the copy is thrown away and the event counted as lost. A
+ * reader that falls a whole ring behind skips to the oldest event still in the ring, counting the rest
+ * as lost, so a slow consumer only ever loses its own events.
+ */
+package com.example.pong1;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class GameEventBus {
+    // Event types beyond the Simulation event bits, which are published as they are
+    public static final int EVENT_SPEED_UP = 1 << 5; // The ball speed was increased; the value is the factor
+    public static final int EVENT_RESET = 1 << 6; // The match was put back into its starting positions
+    private final long[] ticks;
+    private final int[] types; // One event bit per event
+    private final int[] leftScores;
+    private final int[] rightScores;
+    private final double[] ballXs;
+    private final double[] ballYs;
+    private final int[] values; // Extra value of the event type, or 0
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1); // Newest event being written, written first
+    private final AtomicLong cursor = new AtomicLong(-1); // Newest event published, written last
+    private long next; // Sequence of the next event, written by the producer only
+
+    /**
+     * Constructs a new empty bus.
+     * @param capacity The number of events kept for readers; must be a power of two.
+     */
+    public GameEventBus(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        ticks = new long[capacity];
+        types = new int[capacity];
+        leftScores = new int[capacity];
+        rightScores = new int[capacity];
+        ballXs = new double[capacity];
+        ballYs = new double[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Publishes one event for every event bit a tick raised, lowest bit first, so a point comes
+     * before the end of the match it decided. Called by the producer only.
+     * @param simulation The simulation after the tick.
+     * @param events The event bits returned by the tick.
+     */
+    public void publishTick(Simulation simulation, int events) {
+        for (int remaining = events; remaining != 0; remaining &= remaining - 1) {
+            publish(simulation, Integer.lowestOneBit(remaining), 0);
+        }
+    }
+
+    /**
+     * Publishes an event with the current state of a simulation. Called by the producer only.
+     * @param simulation The simulation the event happened in.
+     * @param type The event bit.
+     * @param value The extra value of the event type, or 0.
+     */
+    public void publish(Simulation simulation, int type, int value) {
+        publish(simulation.getTick(), type, simulation.getLeftScore(), simulation.getRightScore(),
+                simulation.getBallX(), simulation.getBallY(), value);
+    }
+
+    /**
+     * Publishes an event. Called by the producer only; never blocks.
+     * @param tick The tick the event happened in.
+     * @param type The event bit.
+     * @param leftScore The score of the left player after the event.
+     * @param rightScore The score of the right player after the event.
+     * @param ballX The x-coordinate of the ball.
+     * @param ballY The y-coordinate of the ball.
+     * @param value The extra value of the event type, or 0.
+     */
+    public void publish(long tick, int type, int leftScore, int rightScore, double ballX, double ballY, int value) {
+        long sequence = next++;
+        claimed.setOpaque(sequence);
+        VarHandle.storeStoreFence(); // Readers see the claim before any part of the new event
+        int slot = (int) sequence & mask;
+        ticks[slot] = tick;
+        types[slot] = type;
+        leftScores[slot] = leftScore;
+        rightScores[slot] = rightScore;
+        ballXs[slot] = ballX;
+        ballYs[slot] = ballY;
+        values[slot] = value;
+        cursor.lazySet(sequence); // Publish the event after its fields
+    }
+
+    /**
+     * Creates a reader that starts with the next event published.
+     * @return A new reader, for the use of one thread.
+     */
+    public Reader newReader() {
+        return new Reader(this);
+    }
+
+    /**
+     * Returns the number of events published so far.
+     */
+    public long getPublished() {
+        return cursor.get() + 1;
+    }
+
+    /**
+     * This class reads the events of a bus for one consumer. next() copies the next event into the
+     * reader, where the getters return it until the following call. Only the lag and the lost events
+     * may be read from other threads.
+     */
+    public static class Reader {
+        private final GameEventBus bus;
+        private final AtomicLong position; // Next event to read, published for getLag()
+        private long next;
+        private volatile long lost; // Events overwritten before they were read, written by the reader only
+
+        // The event last returned by next()
+        private long tick;
+        private int type;
+        private int leftScore;
+        private int rightScore;
+        private double ballX;
+        private double ballY;
+        private int value;
+
+        private Reader(GameEventBus bus) {
+            this.bus = bus;
+            next = bus.cursor.get() + 1;
+            position = new AtomicLong(next);
+        }
+
+        /**
+         * Moves to the next event, skipping events that were overwritten before they could be read.
+         * @return false if every published event has been read.
+         */
+        public boolean next() {
+            GameEventBus ring = bus;
+            while (true) {
+                long available = ring.cursor.get();
+                if (next > available) {
+                    return false;
+                }
+                if (available - next > ring.mask) {
+                    lost += available - ring.mask - next; // Fell a whole ring behind
+                    next = available - ring.mask;
+                }
+                int slot = (int) next & ring.mask;
+                tick = ring.ticks[slot];
+                type = ring.types[slot];
+                leftScore = ring.leftScores[slot];
+                rightScore = ring.rightScores[slot];
+                ballX = ring.ballXs[slot];
+                ballY = ring.ballYs[slot];
+                value = ring.values[slot];
+                VarHandle.loadLoadFence(); // The copy is complete before the claim is checked
+                boolean overwritten = ring.claimed.getOpaque() - next > ring.mask;
+                next++;
+                position.lazySet(next);
+                if (!overwritten) {
+                    return true;
+                }
+                lost++;
+            }
+        }
+
+        /**
+         * Returns the number of published events this reader has not read yet. May be called from any
+         * thread.
+         */
+        public long getLag() {
+            return Math.max(bus.cursor.get() + 1 - position.get(), 0);
+        }
+
+        /**
+         * Returns the number of events overwritten before this reader got to them. May be called from
+         * any thread.
+         */
+        public long getLost() {
+            return lost;
+        }
+
+        public long getTick() {
+            return tick;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        public int getLeftScore() {
+            return leftScore;
+        }
+
+        public int getRightScore() {
+            return rightScore;
+        }
+
+        public double getBallX() {
+            return ballX;
+        }
+
+        public double getBallY() {
+            return ballY;
+        }
+
+        public int getValue() {
+            return value;
+        }
+    }
+}
@@ -1,7 +1,8 @@
 /**
  * This class represents the main frame of the Pong game. It handles the initialization of the game,
  * including setting up player names, final score, game controls, and UI elements such as buttons.
- * It also manages user interactions and scene resizing.
+ * It also manages user interactions. Resizing needs no handling here: the Panel fits the field to
+ * the window through its Viewport.
  */
 package com.example.pong1;
 
@@ -13,6 +14,10 @@ import javafx.scene.control.TextInputDialog;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 import javafx.scene.input.KeyCode;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Optional;
 import javafx.scene.layout.HBox;
 import javafx.scene.control.Button;
@@ -20,9 +25,24 @@ import javafx.scene.control.Button;
 public class GameFrame extends Application {
     private static final int DEFAULT_WIDTH = 1000;
     private static final int DEFAULT_HEIGHT = 1000;
+    private static final int TRAINING_FRAMES = 600; // Frames played by --cds-training before exiting
+    private static final String DEFAULT_SAVE_FILE = "pong.snapshot"; // Written by F5 without --save
+    private static final int LEADERBOARD_SIZE = 5; // Players printed from the match history on exit
     private String leftPlayerName;
     private String rightPlayerName;
     private int finalScore;
+    private LaunchConfig config; // Settings from the command line and the config file
+    private Panel panel; // The panel being shown, once the game has started
+    private MatchHistory history; // Open while started with --history=FILE
+
+    /**
+     * Reads the launch settings. Runs on the launcher thread once the JavaFX toolkit is up.
+     */
+    @Override
+    public void init() {
+        StartupBenchmark.mark(StartupBenchmark.INIT);
+        config = LaunchConfig.load(getParameters().getRaw());
+    }
 
     /**
      * The entry point for launching the Pong game application.
@@ -30,63 +50,299 @@ public class GameFrame extends Application {
      */
     @Override
     public void start(Stage primaryStage) {
-        // Asking for the player on the left hand side their name
-        TextInputDialog leftPlayerDialog = new TextInputDialog();
-        leftPlayerDialog.setTitle("Left Player Name");
-        leftPlayerDialog.setHeaderText("Enter left player's name:");
-        Optional<String> leftPlayerResult = leftPlayerDialog.showAndWait();
-        leftPlayerResult.ifPresent(name -> leftPlayerName = name);
-
-        // Asking for the player on the right hand side their name
-        TextInputDialog rightPlayerDialog = new TextInputDialog();
-        rightPlayerDialog.setTitle("Right Player Name");
-        rightPlayerDialog.setHeaderText("Enter right player's name:");
-        Optional<String> rightPlayerResult = rightPlayerDialog.showAndWait();
-        rightPlayerResult.ifPresent(name -> rightPlayerName = name);
-
-        // Asking the user for the final score
-        TextInputDialog finalScoreDialog = new TextInputDialog();
-        finalScoreDialog.setTitle("Final Score");
-        finalScoreDialog.setHeaderText("Enter the final score:");
-        Optional<String> finalScoreResult = finalScoreDialog.showAndWait();
-        finalScoreResult.ifPresent(score -> finalScore = Integer.parseInt(score));
-
-        Platform.runLater(() -> {
-            // Asking the user to set a ball speed
-            TextInputDialog ballSpeedDialog = new TextInputDialog();
-            ballSpeedDialog.setTitle("Ball Speed");
-            ballSpeedDialog.setHeaderText("Change Ball Speed");
-            ballSpeedDialog.setContentText("Enter the amount by which you want to increase the ball speed:");
-            Optional<String> ballSpeedResult = ballSpeedDialog.showAndWait();
-            ballSpeedResult.ifPresent(speed -> {
-                int ballSpeedIncrease = Integer.parseInt(speed);
-
-                // Access the Panel instance from the root of the scene
-                StackPane root = (StackPane) primaryStage.getScene().getRoot();
-                Panel panel = (Panel) root.getChildren().get(0); // Assuming Panel is the first child
-                panel.increaseBallSpeed(ballSpeedIncrease);
-            });
-        });
+        StartupBenchmark.mark(StartupBenchmark.START);
+        // A recording passed with --replay=FILE is played back instead of starting a new match
+        String replayFile = config.get("replay");
+        if (replayFile != null) {
+            startReplay(primaryStage, Paths.get(replayFile));
+            return;
+        }
 
-        Platform.runLater(() -> {
-            // Asking the user to change the racket size
-            TextInputDialog racketSizeDialog = new TextInputDialog();
-            racketSizeDialog.setTitle("Racket Size");
-            racketSizeDialog.setHeaderText("Change Racket Size");
-            racketSizeDialog.setContentText("Enter the amount by which you want to increase the racket size:");
-            Optional<String> racketSizeResult = racketSizeDialog.showAndWait();
-            racketSizeResult.ifPresent(size -> {
-                int racketSizeIncrease = Integer.parseInt(size);
-
-                // Access the Panel instance from the root of the scene
-                StackPane root = (StackPane) primaryStage.getScene().getRoot();
-                Panel panel = (Panel) root.getChildren().get(0); // Assuming Panel is the first child
-                panel.increaseRacketHeight(racketSizeIncrease);
-            });
-        });
+        // --connect=HOST:PORT joins a NetServer instead of playing on one keyboard
+        String server = config.get("connect");
+        if (server != null) {
+            startNetworkClient(primaryStage, server);
+            return;
+        }
+
+        // A training run for the class data sharing archive asks nothing and lets the computer play
+        boolean training = config.isSet("cds-training");
+        boolean dialogs = config.allowsDialogs() && !training && !config.isSet("startup-benchmark");
+
+        // Only the settings that were not given are asked for, so a complete config skips every dialog
+        leftPlayerName = ask("left-name", dialogs, "Left Player Name", "Enter left player's name:", null,
+                LaunchConfig.DEFAULT_LEFT_NAME);
+        rightPlayerName = ask("right-name", dialogs, "Right Player Name", "Enter right player's name:", null,
+                LaunchConfig.DEFAULT_RIGHT_NAME);
+        finalScore = LaunchConfig.parseInt("final-score", ask("final-score", dialogs, "Final Score",
+                "Enter the final score:", null, null), LaunchConfig.DEFAULT_FINAL_SCORE, 1, 1_000_000);
+        int ballSpeedIncrease = LaunchConfig.parseInt("ball-speed", ask("ball-speed", dialogs, "Ball Speed",
+                "Change Ball Speed", "Enter the amount by which you want to increase the ball speed:", null),
+                1, 1, 100);
+        int racketSizeIncrease = LaunchConfig.parseInt("racket-size", ask("racket-size", dialogs, "Racket Size",
+                "Change Racket Size", "Enter the amount by which you want to increase the racket size:", null),
+                0, 10 - Simulation.RACKET_HEIGHT, Simulation.HEIGHT - Simulation.RACKET_HEIGHT);
 
         // Created Panel with player names and scores
-        Panel panel = new Panel(leftPlayerName, rightPlayerName, finalScore);
+        // The render backend can be chosen with --renderer=nodes|canvas
+        int balls = config.getInt("balls", 0, 0, 1_000_000);
+        RenderBackend backend = config.getRenderBackend("renderer",
+                balls > 0 ? RenderBackend.CANVAS : RenderBackend.NODES); // Only the canvas draws extra balls
+        Panel panel = new Panel(leftPlayerName, rightPlayerName, finalScore, Panel.DEFAULT_TICK_RATE, backend);
+
+        // --balls=N adds N extra balls; with --ball-scoring their goals count towards the score too
+        if (balls > 0) {
+            panel.enableMultiBall(balls, config.isSet("ball-scoring"));
+        }
+
+        // --particles=N caps the effect particles; 0 turns the effects off
+        int particles = config.getInt("particles", Panel.DEFAULT_PARTICLES, 0, 1_000_000);
+        if (particles > 0) {
+            panel.enableParticles(particles);
+        }
+
+        // --keys=KEY:PLAYER:up|down,... rebinds the racket keys; --sides=left,right,... seats the players
+        String keys = config.get("keys");
+        if (keys != null) {
+            try {
+                panel.getInput().setBindings(InputBindings.parse(keys, config.get("sides")));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Ignoring --keys: " + e.getMessage());
+            }
+        }
+
+        // --cpu=left|right lets the computer play that racket, at --difficulty=easy|medium|hard
+        String cpu = config.get("cpu");
+        if (cpu == null && training) {
+            cpu = "right";
+        }
+        if (cpu != null) {
+            panel.setComputerPlayer(cpu.equalsIgnoreCase("left"),
+                    config.getDifficulty("difficulty", BotDifficulty.MEDIUM));
+        }
+
+        // --resume=FILE continues a match saved with F5
+        String resumeFile = config.get("resume");
+        if (resumeFile != null) {
+            try {
+                panel.resumeSnapshot(Paths.get(resumeFile));
+            } catch (IOException e) {
+                System.err.println("Could not resume the match: " + e.getMessage());
+            }
+        }
+
+        // --history=FILE keeps the result of the match and rates the players
+        String historyFile = config.get("history");
+        if (historyFile != null) {
+            try {
+                history = new MatchHistory(Paths.get(historyFile), true);
+                panel.setMatchHistory(history);
+            } catch (IOException e) {
+                System.err.println("Could not open the match history: " + e.getMessage());
+            }
+        }
+
+        // The match is recorded to a file when started with --record=FILE
+        String recordFile = config.get("record");
+        if (recordFile != null && balls > 0) {
+            System.err.println("Matches with extra balls cannot be recorded");
+        } else if (recordFile != null) {
+            try {
+                panel.startRecording(Paths.get(recordFile));
+            } catch (IOException e) {
+                System.err.println("Could not start recording: " + e.getMessage());
+            }
+        }
+
+        // Applied after the recording started, so the recording holds them as well
+        if (ballSpeedIncrease != 1) {
+            panel.increaseBallSpeed(ballSpeedIncrease);
+        }
+        if (racketSizeIncrease != 0) {
+            panel.increaseRacketHeight(racketSizeIncrease);
+        }
+
+        // --peer=HOST:PORT plays against another instance with rollback netcode, from --bind=PORT and
+        // on the racket given by --side=left|right
+        String peer = config.get("peer");
+        if (peer != null) {
+            if (balls > 0 || recordFile != null) {
+                System.err.println("Rollback matches cannot use extra balls or be recorded");
+                Platform.exit();
+                return;
+            }
+            if (!startRollback(panel, peer)) {
+                Platform.exit();
+                return;
+            }
+        }
+        showGame(primaryStage, panel);
+    }
+
+    /**
+     * Connects the panel to a rollback peer. Both instances must be started with the same settings.
+     * @param panel The configured game panel.
+     * @param peer The address of the other instance, as HOST:PORT.
+     * @return true if the peer is set up.
+     */
+    private boolean startRollback(Panel panel, String peer) {
+        InetSocketAddress remote = parseAddress("peer", peer);
+        if (remote == null) {
+            return false;
+        }
+        if (remote.isUnresolved()) {
+            System.err.println("Unknown host " + remote.getHostString());
+            return false;
+        }
+        int port = config.getInt("bind", remote.getPort(), 0, 65_535);
+        try {
+            boolean left = !"right".equalsIgnoreCase(config.get("side"));
+            panel.startRollback(new RollbackPeer(new InetSocketAddress(port), remote, left, LinkSimulator.perfect()));
+            return true;
+        } catch (IOException e) {
+            System.err.println("Could not open port " + port + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Parses a HOST:PORT address, reporting text that is not one.
+     * @param key The option the address was given with.
+     * @param text The address.
+     * @return The address, or null if it cannot be parsed.
+     */
+    private static InetSocketAddress parseAddress(String key, String text) {
+        int colon = text.lastIndexOf(':');
+        int port = colon < 0 ? -1 : LaunchConfig.parseInt(key, text.substring(colon + 1), -1, 1, 65_535);
+        if (port < 0) {
+            System.err.println("Expected --" + key + "=HOST:PORT but got " + text);
+            return null;
+        }
+        return new InetSocketAddress(text.substring(0, colon), port);
+    }
+
+    /**
+     * Returns a launch setting, asking for it in a dialog if it was not given and dialogs are allowed.
+     * @param key The key of the setting.
+     * @param dialogs Whether a missing setting may be asked for.
+     * @param title The title of the dialog.
+     * @param header The header text of the dialog.
+     * @param content The content text of the dialog, or null.
+     * @param fallback The value used when the setting is missing and not entered.
+     * @return The setting, the entered text or fallback.
+     */
+    private String ask(String key, boolean dialogs, String title, String header, String content, String fallback) {
+        if (config.has(key)) {
+            return config.get(key);
+        }
+        if (!dialogs) {
+            return fallback;
+        }
+        TextInputDialog dialog = new TextInputDialog();
+        dialog.setTitle(title);
+        dialog.setHeaderText(header);
+        if (content != null) {
+            dialog.setContentText(content);
+        }
+        Optional<String> result = dialog.showAndWait();
+        return result.orElse(fallback);
+    }
+
+    /**
+     * Closes the match history and prints the input latencies measured during the session when the
+     * application exits.
+     */
+    @Override
+    public void stop() {
+        if (panel != null) {
+            panel.stopEventConsumers(); // Lets the last result reach the match history
+        }
+        if (history != null) {
+            history.printTop(LEADERBOARD_SIZE);
+            try {
+                history.close();
+            } catch (IOException e) {
+                System.err.println("Could not close the match history: " + e.getMessage());
+            }
+        }
+        if (panel == null) {
+            return;
+        }
+        panel.stopBroadcast();
+        panel.stopMetrics();
+        InputSystem input = panel.getInput();
+        LatencyHistogram tick = input.getTickLatency();
+        LatencyHistogram frame = input.getFrameLatency();
+        System.out.printf("Key to tick:  p50 %.2f ms  p99 %.2f ms  max %.2f ms  (%d events)%n",
+                tick.percentile(50) / 1e6, tick.percentile(99) / 1e6, tick.getMax() / 1e6, tick.getCount());
+        System.out.printf("Key to frame: p50 %.2f ms  p99 %.2f ms  max %.2f ms  (%d events)%n",
+                frame.percentile(50) / 1e6, frame.percentile(99) / 1e6, frame.getMax() / 1e6, frame.getCount());
+        MultiBall multiBall = panel.getMultiBall();
+        if (multiBall != null) {
+            System.out.printf("Extra ball goals: %d left, %d right%n", multiBall.getLeftGoals(),
+                    multiBall.getRightGoals());
+        }
+    }
+
+    /**
+     * Plays back a recorded match, optionally faster than real time with --replay-speed=N.
+     * @param primaryStage The primary stage for the application.
+     * @param path The path of the recording.
+     */
+    private void startReplay(Stage primaryStage, Path path) {
+        ReplayReader reader;
+        try {
+            reader = new ReplayReader(path);
+        } catch (IOException e) {
+            System.err.println("Could not open recording: " + e.getMessage());
+            Platform.exit();
+            return;
+        }
+        int speed = config.getInt("replay-speed", 1, 1, 1_000);
+        RenderBackend backend = config.getRenderBackend("renderer", RenderBackend.NODES);
+        Panel panel = new Panel(reader.getLeftPlayerName(), reader.getRightPlayerName(), reader.getFinalScore(),
+                reader.getTickRate(), backend);
+        panel.startReplay(reader, speed);
+        showGame(primaryStage, panel);
+    }
+
+    /**
+     * Joins a networked match and shows it. The names, final score and tick rate come from the server.
+     * @param primaryStage The primary stage for the application.
+     * @param server The address of the server, as HOST:PORT.
+     */
+    private void startNetworkClient(Stage primaryStage, String server) {
+        InetSocketAddress address = parseAddress("connect", server);
+        if (address == null) {
+            Platform.exit();
+            return;
+        }
+        NetClient client;
+        try {
+            client = new NetClient(address, LinkSimulator.perfect());
+            if (!client.join(5_000)) {
+                System.err.println("No answer from " + server);
+                Platform.exit();
+                return;
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not connect to " + server + ": " + e.getMessage());
+            Platform.exit();
+            return;
+        }
+        RenderBackend backend = config.getRenderBackend("renderer", RenderBackend.NODES);
+        Panel panel = new Panel(client.getLeftPlayerName(), client.getRightPlayerName(), client.getFinalScore(),
+                client.getTickRate(), backend);
+        panel.startNetworkClient(client);
+        showGame(primaryStage, panel);
+    }
+
+    /**
+     * Builds the scene around the panel with its buttons and key handlers, and shows it.
+     * @param primaryStage The primary stage for the application.
+     * @param panel The game panel to show.
+     */
+    private void showGame(Stage primaryStage, Panel panel) {
         panel.setPrefSize(DEFAULT_WIDTH, DEFAULT_HEIGHT);
 
         StackPane root = new StackPane(panel);
@@ -120,41 +376,96 @@ public class GameFrame extends Application {
         primaryStage.setTitle("Pong Game");
         primaryStage.setScene(scene);
         primaryStage.show();
+        StartupBenchmark.mark(StartupBenchmark.SHOWN);
 
-        // Listeners for resizing (responsiveness)
-        scene.widthProperty().addListener((observable, oldValue, newValue) -> {
-            double factor = newValue.doubleValue() / oldValue.doubleValue();
-            panel.resizeX(factor);
-        });
+        // Resizing needs no listeners: the panel fits its logical field into its size during layout
 
-        scene.heightProperty().addListener((observable, oldValue, newValue) -> {
-            double factor = newValue.doubleValue() / oldValue.doubleValue();
-            panel.resizeY(factor);
-        });
-
-        // Key pressed listeners
+        // Key listeners: racket keys are queued with their time and applied by the game loop on the
+        // next tick boundary
         scene.setOnKeyPressed(event -> {
             KeyCode code = event.getCode();
-            if (code == KeyCode.W) {
-                panel.moveLeftRacketUp();
-            } else if (code == KeyCode.S) {
-                panel.moveLeftRacketDown();
-            } else if (code == KeyCode.O) {
-                panel.moveRightRacketUp();
-            } else if (code == KeyCode.L) {
-                panel.moveRightRacketDown();
+            if (code == KeyCode.F3) { // key F3 toggles the frame statistics overlay
+                panel.toggleStatsOverlay();
+            } else if (code == KeyCode.F5) { // key F5 saves the match to --save=FILE
+                saveGame(panel);
+            } else {
+                panel.getInput().keyPressed(code);
             }
         });
 
-        scene.setOnKeyReleased(event -> {
-            KeyCode code = event.getCode();
-            if (code == KeyCode.W || code == KeyCode.S) { // key W and S for the movement of the left player
-                panel.stopLeftRacketMovement();
-            } else if (code == KeyCode.O || code == KeyCode.L) { //  key O and L for the movement of the left player
-                panel.stopRightRacketMovement();
+        scene.setOnKeyReleased(event -> panel.getInput().keyReleased(event.getCode()));
+        this.panel = panel;
+        watchFrames(scene, panel);
+
+        // --broadcast=PORT streams the match to spectators
+        int broadcastPort = config.getInt("broadcast", -1, 0, 65_535);
+        if (broadcastPort >= 0) {
+            try {
+                SpectatorServer server = panel.startBroadcast(new InetSocketAddress(broadcastPort));
+                System.out.println("Spectators can watch on " + server.getLocalAddress());
+            } catch (IOException e) {
+                System.err.println("Could not start broadcasting: " + e.getMessage());
             }
-        });
+        }
 
+        // --metrics=PORT serves the game and JVM metrics for Prometheus at /metrics
+        int metricsPort = config.getInt("metrics", -1, 0, 65_535);
+        if (metricsPort >= 0) {
+            MetricsServer.useNoDelay(); // Before the first HttpServer; see MetricsServer
+            try {
+                MetricsServer server = panel.startMetrics(new InetSocketAddress(metricsPort));
+                System.out.println("Metrics are served on " + server.getLocalAddress() + MetricsServer.PATH);
+            } catch (IOException e) {
+                System.err.println("Could not serve the metrics: " + e.getMessage());
+            }
+        }
+
+        // Everything is configured and on screen, so the ticks can start
+        panel.start();
+    }
 
+    /**
+     * Saves the match shown by the panel to the file given with --save, or DEFAULT_SAVE_FILE.
+     * @param panel The game panel.
+     */
+    private void saveGame(Panel panel) {
+        Path path = Paths.get(config.get("save") == null ? DEFAULT_SAVE_FILE : config.get("save"));
+        try {
+            panel.saveSnapshot(path);
+            System.out.println("Match saved to " + path);
+        } catch (IOException e) {
+            System.err.println("Could not save the match: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ends a --startup-benchmark run once the first frame has been rendered, printing the startup
+     * times, and a --cds-training run once it has played TRAINING_FRAMES frames. The check runs at the
+     * end of layout in every pulse, after the game loop drew its frame.
+     * @param scene The scene of the game.
+     * @param panel The game panel.
+     */
+    private void watchFrames(Scene scene, Panel panel) {
+        boolean benchmark = config.isSet("startup-benchmark");
+        boolean training = config.isSet("cds-training");
+        if (!benchmark && !training) {
+            return;
+        }
+        boolean[] exiting = {false};
+        scene.addPostLayoutPulseListener(() -> {
+            long frames = panel.getFrameStats().getFrames();
+            if (exiting[0]) {
+                return;
+            }
+            if (benchmark && frames >= 1) {
+                exiting[0] = true;
+                StartupBenchmark.mark(StartupBenchmark.FIRST_FRAME);
+                System.out.println(StartupBenchmark.report());
+                Platform.exit();
+            } else if (training && frames >= TRAINING_FRAMES) {
+                exiting[0] = true;
+                Platform.exit();
+            }
+        });
     }
 }
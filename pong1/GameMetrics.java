@@ -0,0 +1,254 @@
+/**
+ * This class holds the metrics of a running game for a MetricsServer to expose: histograms of the
+ * tick durations and frame intervals, the frame rate, whether the game is paused, the scores, the
+ * number of matches completed, and dropped frames. The game loop records into it on the JavaFX thread
+ * and the server reads it on a thread of its own, so the two never wait for each other. Counters and
+ * histogram buckets are LongAdders: recording is an uncontended add on one cell, never locks and never
+ * allocates, and a scrape sums the cells without stopping the writer. The other values are gauges the
+ * game loop overwrites.
+ *
+ * A scrape reads every value at a slightly different moment, so a histogram may be a few ticks ahead
+ * of the counter next to it; each histogram is made consistent on its own, with its count taken from
+ * its buckets.
+ */
+package com.example.pong1;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.atomic.LongAdder;
+
+public class GameMetrics {
+    // Upper bounds of the histogram buckets, in nanoseconds
+    private static final long[] TICK_BOUNDS = {1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000,
+            500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000};
+    private static final long[] FRAME_BOUNDS = {4_000_000, 7_000_000, 8_500_000, 12_000_000, 17_000_000,
+            20_000_000, 25_000_000, 34_000_000, 50_000_000, 100_000_000, 250_000_000, 1_000_000_000};
+    private static final double FPS_SMOOTHING = 0.05; // Weight of the newest frame in the frame rate
+    private final Histogram tickDurations = new Histogram(TICK_BOUNDS);
+    private final Histogram frameIntervals = new Histogram(FRAME_BOUNDS);
+    private final LongAdder droppedFrames = new LongAdder();
+    private final LongAdder matchesCompleted = new LongAdder();
+    private final LongAdder points = new LongAdder();
+    private final long startTime = System.nanoTime();
+    private double smoothedInterval; // Written by the game loop only
+    private volatile double fps;
+    private volatile boolean paused;
+    private volatile int leftScore;
+    private volatile int rightScore;
+
+    /**
+     * This class is a histogram with fixed bucket bounds that any number of threads may record into
+     * and read at the same time.
+     */
+    static class Histogram {
+        private final long[] bounds; // Upper bound of each bucket but the last, which takes the rest
+        private final LongAdder[] buckets;
+        private final LongAdder sum = new LongAdder(); // Nanoseconds
+
+        Histogram(long[] bounds) {
+            this.bounds = bounds;
+            buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Records one duration.
+         * @param nanos The duration in nanoseconds; negative values are counted as zero.
+         */
+        void record(long nanos) {
+            long value = Math.max(nanos, 0);
+            int i = 0;
+            while (i < bounds.length && value > bounds[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            sum.add(value);
+        }
+
+        /**
+         * Appends the histogram in the Prometheus text format, in seconds.
+         * @param out The text to append to.
+         * @param name The name of the metric.
+         * @param help The description of the metric.
+         */
+        void write(StringBuilder out, String name, String help) {
+            header(out, name, help, "histogram");
+            long cumulative = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                cumulative += buckets[i].sum();
+                out.append(name).append("_bucket{le=\"").append(bounds[i] / 1e9).append("\"} ")
+                        .append(cumulative).append('\n');
+            }
+            cumulative += buckets[bounds.length].sum();
+            out.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+            out.append(name).append("_sum ").append(sum.sum() / 1e9).append('\n');
+            out.append(name).append("_count ").append(cumulative).append('\n');
+        }
+
+        long getCount() {
+            long count = 0;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Records the duration of one simulation tick.
+     * @param nanos The duration in nanoseconds.
+     */
+    public void recordTick(long nanos) {
+        tickDurations.record(nanos);
+    }
+
+    /**
+     * Records the interval since the previous frame and updates the frame rate.
+     * @param intervalNanos The interval in nanoseconds, or 0 for the first frame after a pause.
+     * @param dropped Whether the frame came late.
+     */
+    public void recordFrame(long intervalNanos, boolean dropped) {
+        if (intervalNanos <= 0) {
+            return;
+        }
+        frameIntervals.record(intervalNanos);
+        if (dropped) {
+            droppedFrames.increment();
+        }
+        smoothedInterval = smoothedInterval == 0 ? intervalNanos
+                : smoothedInterval + FPS_SMOOTHING * (intervalNanos - smoothedInterval);
+        fps = 1e9 / smoothedInterval;
+    }
+
+    /**
+     * Records the points and match ends among the events of a tick.
+     * @param events The event bits returned by Simulation.step().
+     * @param left The score of the left player after the tick.
+     * @param right The score of the right player after the tick.
+     */
+    public void recordEvents(int events, int left, int right) {
+        if ((events & (Simulation.EVENT_LEFT_SCORED | Simulation.EVENT_RIGHT_SCORED)) != 0) {
+            // Extra balls can score several points in one tick, which raise the same event bits
+            points.add(Math.max(1, left + right - leftScore - rightScore));
+            setScores(left, right);
+        }
+        if ((events & Simulation.EVENT_MATCH_END) != 0) {
+            matchesCompleted.increment();
+        }
+    }
+
+    /**
+     * Sets the scores without counting a point, e.g. after a saved match was resumed.
+     * @param left The score of the left player.
+     * @param right The score of the right player.
+     */
+    public void setScores(int left, int right) {
+        leftScore = left;
+        rightScore = right;
+    }
+
+    /**
+     * Sets whether the game is paused. A paused game draws no frames, so the frame rate drops to 0.
+     * @param paused Whether the game loop was stopped by the player.
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        if (paused) {
+            smoothedInterval = 0;
+            fps = 0;
+        }
+    }
+
+    /**
+     * Appends every metric, the game's and the JVM's, in the Prometheus text format.
+     * @param out The text to append to.
+     */
+    public void write(StringBuilder out) {
+        tickDurations.write(out, "pong_tick_duration_seconds", "Time taken by one simulation tick.");
+        frameIntervals.write(out, "pong_frame_interval_seconds", "Time between two frames of the game loop.");
+        gauge(out, "pong_fps", "Frames per second, smoothed over the last frames.", fps);
+        gauge(out, "pong_paused", "1 while the game is paused.", paused ? 1 : 0);
+        header(out, "pong_score", "Points of each player in the current match.", "gauge");
+        out.append("pong_score{side=\"left\"} ").append(leftScore).append('\n');
+        out.append("pong_score{side=\"right\"} ").append(rightScore).append('\n');
+        counter(out, "pong_points_total", "Points scored.", points.sum());
+        counter(out, "pong_matches_completed_total", "Matches played to the final score.", matchesCompleted.sum());
+        counter(out, "pong_dropped_frames_total", "Frames that came late.", droppedFrames.sum());
+        gauge(out, "pong_uptime_seconds", "Time since the metrics were created.",
+                (System.nanoTime() - startTime) / 1e9);
+        writeJvm(out);
+    }
+
+    /**
+     * Appends the heap, non-heap and garbage collection statistics of the JVM.
+     */
+    private static void writeJvm(StringBuilder out) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        MemoryUsage nonHeap = memory.getNonHeapMemoryUsage();
+        header(out, "jvm_memory_bytes_used", "Memory in use.", "gauge");
+        area(out, "jvm_memory_bytes_used", "heap", heap.getUsed());
+        area(out, "jvm_memory_bytes_used", "nonheap", nonHeap.getUsed());
+        header(out, "jvm_memory_bytes_committed", "Memory committed by the operating system.", "gauge");
+        area(out, "jvm_memory_bytes_committed", "heap", heap.getCommitted());
+        area(out, "jvm_memory_bytes_committed", "nonheap", nonHeap.getCommitted());
+        header(out, "jvm_memory_bytes_max", "Largest memory that can be used, or -1 if undefined.", "gauge");
+        area(out, "jvm_memory_bytes_max", "heap", heap.getMax());
+        area(out, "jvm_memory_bytes_max", "nonheap", nonHeap.getMax());
+
+        header(out, "jvm_gc_collection_seconds", "Time spent in garbage collections, by collector.", "summary");
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String label = "{gc=\"" + escape(collector.getName()) + "\"} ";
+            out.append("jvm_gc_collection_seconds_count").append(label)
+                    .append(Math.max(collector.getCollectionCount(), 0)).append('\n');
+            out.append("jvm_gc_collection_seconds_sum").append(label)
+                    .append(Math.max(collector.getCollectionTime(), 0) / 1e3).append('\n');
+        }
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, double value) {
+        header(out, name, help, "gauge");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, help, "counter");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void area(StringBuilder out, String name, String area, long value) {
+        out.append(name).append("{area=\"").append(area).append("\"} ").append(value).append('\n');
+    }
+
+    /**
+     * Escapes a label value for the Prometheus text format.
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public long getTickCount() {
+        return tickDurations.getCount();
+    }
+
+    public long getFrameCount() {
+        return frameIntervals.getCount();
+    }
+
+    public long getMatchesCompleted() {
+        return matchesCompleted.sum();
+    }
+
+    public double getFps() {
+        return fps;
+    }
+}
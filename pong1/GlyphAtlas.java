@@ -0,0 +1,127 @@
+/**
+ * This class is a cache of pre-rasterised text for the HUD. The digits 0 to 9 and a fixed set of
+ * labels are drawn once, in one font, size and colour, into a single image; afterwards numbers and
+ * labels are drawn by copying their rectangles out of that image. Drawing a number walks its digits
+ * arithmetically, so updating the HUD builds no strings and lays out no text.
+ */
+package com.example.pong1;
+
+import javafx.geometry.Bounds;
+import javafx.geometry.VPos;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+public class GlyphAtlas {
+    private static final int PADDING = 2; // Empty pixels between entries, so scaling never bleeds
+    private final WritableImage image;
+    private final double[] digitX = new double[10]; // Left edge of each digit in the image
+    private final double[] digitWidth = new double[10]; // Advance of each digit
+    private final double[] labelX; // Left edge of each label in the image
+    private final double[] labelWidth; // Advance of each label
+    private final double height; // Height of every entry
+    private final double ascent; // Distance from the top of an entry to its baseline
+
+    /**
+     * Rasterises the digits and labels. Must be called on the JavaFX application thread.
+     * @param font The font to draw with.
+     * @param color The colour to draw with.
+     * @param labels The fixed labels to cache, referred to later by their index.
+     */
+    public GlyphAtlas(Font font, Color color, String... labels) {
+        labelX = new double[labels.length];
+        labelWidth = new double[labels.length];
+        Text probe = new Text();
+        probe.setFont(font);
+
+        // Measure every entry and lay them out in one row
+        double x = PADDING;
+        for (int digit = 0; digit < 10; digit++) {
+            probe.setText(Character.toString((char) ('0' + digit)));
+            digitX[digit] = x;
+            digitWidth[digit] = probe.getLayoutBounds().getWidth();
+            x += Math.ceil(digitWidth[digit]) + PADDING;
+        }
+        for (int i = 0; i < labels.length; i++) {
+            probe.setText(labels[i]);
+            labelX[i] = x;
+            labelWidth[i] = probe.getLayoutBounds().getWidth();
+            x += Math.ceil(labelWidth[i]) + PADDING;
+        }
+        probe.setText("0");
+        Bounds bounds = probe.getLayoutBounds();
+        height = Math.ceil(bounds.getHeight());
+        ascent = -bounds.getMinY();
+
+        Canvas canvas = new Canvas(Math.ceil(x), height);
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.setFont(font);
+        gc.setFill(color);
+        gc.setTextBaseline(VPos.BASELINE);
+        for (int digit = 0; digit < 10; digit++) {
+            gc.fillText(Character.toString((char) ('0' + digit)), digitX[digit], ascent);
+        }
+        for (int i = 0; i < labels.length; i++) {
+            gc.fillText(labels[i], labelX[i], ascent);
+        }
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        image = canvas.snapshot(parameters, null);
+    }
+
+    /**
+     * Draws a cached label.
+     * @param gc The graphics context to draw into.
+     * @param label The index of the label, in the order given to the constructor.
+     * @param x The left edge of the text.
+     * @param baseline The y-coordinate of the baseline.
+     * @return The x-coordinate just after the label.
+     */
+    public double drawLabel(GraphicsContext gc, int label, double x, double baseline) {
+        blit(gc, labelX[label], labelWidth[label], x, baseline);
+        return x + labelWidth[label];
+    }
+
+    /**
+     * Draws a non-negative number digit by digit.
+     * @param gc The graphics context to draw into.
+     * @param value The number to draw; negative numbers are drawn as 0.
+     * @param x The left edge of the text.
+     * @param baseline The y-coordinate of the baseline.
+     * @return The x-coordinate just after the number.
+     */
+    public double drawNumber(GraphicsContext gc, int value, double x, double baseline) {
+        value = Math.max(value, 0);
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            int digit = value / divisor % 10;
+            blit(gc, digitX[digit], digitWidth[digit], x, baseline);
+            x += digitWidth[digit];
+        }
+        return x;
+    }
+
+    /**
+     * Copies one entry of the image to a position, snapped to whole pixels so it stays sharp.
+     */
+    private void blit(GraphicsContext gc, double sourceX, double width, double x, double baseline) {
+        double w = Math.ceil(width);
+        gc.drawImage(image, sourceX, 0, w, height, Math.round(x), Math.round(baseline - ascent), w, height);
+    }
+
+    /**
+     * Returns the width of a cached label.
+     * @param label The index of the label.
+     * @return The width in pixels.
+     */
+    public double getLabelWidth(int label) {
+        return labelWidth[label];
+    }
+}
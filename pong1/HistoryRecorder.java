@@ -0,0 +1,58 @@
+/**
+ * This class is the event consumer that keeps finished matches in a MatchHistory. It gathers the
+ * rally statistics from the collision and score events, and when the match ends it writes the result,
+ * so the disk write of the history happens on the consumer's thread instead of in the tick.
+ */
+package com.example.pong1;
+
+import java.io.IOException;
+
+public class HistoryRecorder implements EventConsumer.Handler {
+    private final MatchHistory history;
+    private final String leftPlayerName;
+    private final String rightPlayerName;
+    private final int finalScore;
+    private final int tickRate;
+    private long startTick; // Tick the current match started at
+    private RallyStats rallies = new RallyStats();
+
+    /**
+     * Constructs a new recorder for a match in progress.
+     * @param history The history to add the result to.
+     * @param leftPlayerName The name of the left player.
+     * @param rightPlayerName The name of the right player.
+     * @param finalScore The score the match is played to.
+     * @param tickRate The number of ticks per second.
+     * @param startTick The tick the match is at now, e.g. after resuming a snapshot.
+     */
+    public HistoryRecorder(MatchHistory history, String leftPlayerName, String rightPlayerName, int finalScore,
+                           int tickRate, long startTick) {
+        this.history = history;
+        this.leftPlayerName = leftPlayerName;
+        this.rightPlayerName = rightPlayerName;
+        this.finalScore = finalScore;
+        this.tickRate = tickRate;
+        this.startTick = startTick;
+    }
+
+    @Override
+    public void onEvent(GameEventBus.Reader event) {
+        int type = event.getType();
+        if (type == GameEventBus.EVENT_RESET) {
+            startTick = event.getTick();
+            rallies = new RallyStats();
+            return;
+        }
+        rallies.record(type);
+        if (type == Simulation.EVENT_MATCH_END) {
+            MatchResult result = new MatchResult(leftPlayerName, rightPlayerName, event.getLeftScore(),
+                    event.getRightScore(), finalScore, System.currentTimeMillis(),
+                    (int) (event.getTick() - startTick), tickRate, rallies);
+            try {
+                history.record(result);
+            } catch (IOException e) {
+                System.err.println("Could not save the match result: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * This class maps keys to the racket actions of local players. Every player has an up and a down
+ * action and plays one side; several players on the same side share that side's racket, which moves
+ * while any of them holds a key (and stays put if one holds up and another down). The default
+ * bindings are W/S for the left player and O/L for the right one.
+ *
+ * Bindings can be given as text, e.g. "W:1:up,S:1:down,O:2:up,L:2:down,UP:3:up,DOWN:3:down", with the
+ * sides of the players as e.g. "left,right,left". Key names are those of javafx.scene.input.KeyCode.
+ */
+package com.example.pong1;
+
+import java.util.EnumMap;
+import java.util.Map;
+import javafx.scene.input.KeyCode;
+
+public class InputBindings {
+    public static final int MAX_PLAYERS = 32; // Two actions per player must fit in one long
+    private final Map<KeyCode, Integer> actions = new EnumMap<>(KeyCode.class);
+    private final boolean[] leftSide = new boolean[MAX_PLAYERS]; // Side of each player
+    private int players;
+
+    /**
+     * Constructs new bindings without any keys bound.
+     */
+    public InputBindings() {
+        for (int player = 0; player < MAX_PLAYERS; player++) {
+            leftSide[player] = player % 2 == 0; // Players 1, 3, ... on the left by default
+        }
+    }
+
+    /**
+     * Returns the default bindings: W and S for the left player, O and L for the right player.
+     */
+    public static InputBindings defaults() {
+        InputBindings bindings = new InputBindings();
+        bindings.bind(KeyCode.W, 0, true);
+        bindings.bind(KeyCode.S, 0, false);
+        bindings.bind(KeyCode.O, 1, true);
+        bindings.bind(KeyCode.L, 1, false);
+        return bindings;
+    }
+
+    /**
+     * Parses bindings written as KEY:PLAYER:up|down entries and the sides of the players.
+     * @param keys The comma-separated bindings, with players numbered from 1.
+     * @param sides The comma-separated sides (left or right) of players 1, 2, ..., or null to alternate.
+     * @return The parsed bindings.
+     * @throws IllegalArgumentException If an entry cannot be parsed.
+     */
+    public static InputBindings parse(String keys, String sides) {
+        InputBindings bindings = new InputBindings();
+        for (String entry : keys.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Expected KEY:PLAYER:up|down but got " + entry);
+            }
+            int player = Integer.parseInt(parts[1].trim()) - 1;
+            String direction = parts[2].trim().toLowerCase();
+            if (!direction.equals("up") && !direction.equals("down")) {
+                throw new IllegalArgumentException("Expected up or down but got " + parts[2]);
+            }
+            bindings.bind(KeyCode.valueOf(parts[0].trim().toUpperCase()), player, direction.equals("up"));
+        }
+        if (sides != null) {
+            String[] names = sides.split(",");
+            for (int player = 0; player < names.length && player < MAX_PLAYERS; player++) {
+                bindings.setSide(player, names[player].trim().equalsIgnoreCase("left"));
+            }
+        }
+        return bindings;
+    }
+
+    /**
+     * Binds a key to a player's up or down action, replacing any earlier binding of the key.
+     * @param key The key.
+     * @param player The player, from 0.
+     * @param up true for the up action, false for the down action.
+     */
+    public void bind(KeyCode key, int player, boolean up) {
+        if (player < 0 || player >= MAX_PLAYERS) {
+            throw new IllegalArgumentException("player must be between 1 and " + MAX_PLAYERS);
+        }
+        actions.put(key, player * 2 + (up ? 0 : 1));
+        players = Math.max(players, player + 1);
+    }
+
+    /**
+     * Removes the binding of a key.
+     * @param key The key.
+     */
+    public void unbind(KeyCode key) {
+        actions.remove(key);
+    }
+
+    /**
+     * Sets the side a player plays on.
+     * @param player The player, from 0.
+     * @param left true for the left racket, false for the right one.
+     */
+    public void setSide(int player, boolean left) {
+        leftSide[player] = left;
+    }
+
+    /**
+     * Returns the action a key is bound to.
+     * @param key The key.
+     * @return The action, or -1 if the key is not bound.
+     */
+    public int actionOf(KeyCode key) {
+        Integer action = actions.get(key);
+        return action == null ? -1 : action;
+    }
+
+    /**
+     * Returns the Simulation input bit an action sets while held.
+     * @param action The action.
+     * @return LEFT_UP, LEFT_DOWN, RIGHT_UP or RIGHT_DOWN.
+     */
+    public int inputBitOf(int action) {
+        boolean up = (action & 1) == 0;
+        if (leftSide[action / 2]) {
+            return up ? Simulation.LEFT_UP : Simulation.LEFT_DOWN;
+        }
+        return up ? Simulation.RIGHT_UP : Simulation.RIGHT_DOWN;
+    }
+
+    public int getPlayers() {
+        return players;
+    }
+}
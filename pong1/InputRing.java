@@ -0,0 +1,95 @@
+/**
+ * This class is a fixed-size, lock-free ring buffer of timestamped input events with one producer
+ * (the thread delivering key events) and one consumer (the game loop). Events are stored in parallel
+ * primitive arrays, so offering and reading them allocates nothing. The producer publishes an event by
+ * advancing the tail with a release store after writing it, and the consumer frees a slot the same
+ * way with the head, so neither side ever waits for the other. When the ring is full, new events are
+ * dropped and counted.
+ */
+package com.example.pong1;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class InputRing {
+    private final long[] times; // Event times in System.nanoTime() units
+    private final int[] actions; // Bound action of each event
+    private final boolean[] pressed; // Whether each event is a press or a release
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // Next event to read, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // Next slot to write, written by the producer
+    private long dropped; // Events lost because the ring was full, written by the producer
+
+    /**
+     * Constructs a new empty ring.
+     * @param capacity The number of events the ring can hold; must be a power of two.
+     */
+    public InputRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        times = new long[capacity];
+        actions = new int[capacity];
+        pressed = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds an event. Called by the producer only.
+     * @param time The time of the event in System.nanoTime() units.
+     * @param action The action the key is bound to.
+     * @param isPressed true for a key press, false for a release.
+     * @return false if the ring was full and the event was dropped.
+     */
+    public boolean offer(long time, int action, boolean isPressed) {
+        long t = tail.get();
+        if (t - head.get() > mask) {
+            dropped++;
+            return false;
+        }
+        int slot = (int) t & mask;
+        times[slot] = time;
+        actions[slot] = action;
+        pressed[slot] = isPressed;
+        tail.lazySet(t + 1); // Publish the event after its fields
+        return true;
+    }
+
+    /**
+     * Returns whether there is an event to read. Called by the consumer only.
+     */
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * Returns the time of the oldest event. Only valid if the ring is not empty.
+     */
+    public long peekTime() {
+        return times[(int) head.get() & mask];
+    }
+
+    /**
+     * Returns the action of the oldest event. Only valid if the ring is not empty.
+     */
+    public int peekAction() {
+        return actions[(int) head.get() & mask];
+    }
+
+    /**
+     * Returns whether the oldest event is a key press. Only valid if the ring is not empty.
+     */
+    public boolean peekPressed() {
+        return pressed[(int) head.get() & mask];
+    }
+
+    /**
+     * Removes the oldest event. Only valid if the ring is not empty.
+     */
+    public void poll() {
+        head.lazySet(head.get() + 1);
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * This class is the input pipeline of the local players. Key handlers only stamp each event with
+ * System.nanoTime() and put it into an InputRing; the game loop then samples the held keys once per
+ * simulation tick, applying exactly the events that happened before the time that tick stands for.
+ * Input therefore takes effect on a tick boundary, no matter where in the pulse the key event
+ * arrived. Every key is held and released on its own, so releasing one key of a racket does not stop
+ * a movement another key is still asking for.
+ *
+ * It measures two latencies for every key press or release: from the event to the tick that applied
+ * it, in simulation time, which should stay within one tick, and from the event until the frame
+ * showing that tick has been drawn.
+ */
+package com.example.pong1;
+
+import javafx.scene.input.KeyCode;
+
+public class InputSystem {
+    private static final int RING_CAPACITY = 256;
+    private static final int MAX_PENDING = 64; // Applied events waiting for their frame to be drawn
+    private final InputRing ring = new InputRing(RING_CAPACITY);
+    private final int[] actionBits = new int[2 * InputBindings.MAX_PLAYERS]; // Input bit of each action
+    private InputBindings bindings;
+    private long held; // One bit per held action
+    private final long[] pendingTimes = new long[MAX_PENDING]; // Times of events applied since the last frame
+    private int pendingCount;
+    private final LatencyHistogram tickLatency = new LatencyHistogram();
+    private final LatencyHistogram frameLatency = new LatencyHistogram();
+
+    /**
+     * Constructs a new input pipeline.
+     * @param bindings The keys of the local players.
+     */
+    public InputSystem(InputBindings bindings) {
+        setBindings(bindings);
+    }
+
+    /**
+     * Replaces the key bindings. Keys held at the time are treated as released.
+     * @param bindings The new keys of the local players.
+     */
+    public void setBindings(InputBindings bindings) {
+        this.bindings = bindings;
+        for (int action = 0; action < actionBits.length; action++) {
+            actionBits[action] = bindings.inputBitOf(action);
+        }
+        held = 0;
+    }
+
+    /**
+     * Queues a key press. Called from the key handler.
+     * @param key The key that was pressed.
+     * @return true if the key is bound to a racket action.
+     */
+    public boolean keyPressed(KeyCode key) {
+        return queue(key, true);
+    }
+
+    /**
+     * Queues a key release. Called from the key handler.
+     * @param key The key that was released.
+     * @return true if the key is bound to a racket action.
+     */
+    public boolean keyReleased(KeyCode key) {
+        return queue(key, false);
+    }
+
+    /**
+     * Stamps a key event and puts it into the ring.
+     */
+    private boolean queue(KeyCode key, boolean pressed) {
+        int action = bindings.actionOf(key);
+        if (action < 0) {
+            return false;
+        }
+        ring.offer(System.nanoTime(), action, pressed);
+        return true;
+    }
+
+    /**
+     * Applies the key events that happened up to a tick's time and returns the input bits for it.
+     * Events after that time stay queued for a later tick.
+     * @param tickTime The time the tick stands for, in System.nanoTime() units.
+     * @return The held input bits for the tick.
+     */
+    public int sample(long tickTime) {
+        while (!ring.isEmpty() && ring.peekTime() <= tickTime) {
+            long time = ring.peekTime();
+            long bit = 1L << ring.peekAction();
+            // Auto-repeated presses of a key that is already held change nothing
+            if (ring.peekPressed() != ((held & bit) != 0)) {
+                held ^= bit;
+                tickLatency.record(tickTime - time);
+                if (pendingCount < MAX_PENDING) {
+                    pendingTimes[pendingCount++] = time;
+                }
+            }
+            ring.poll();
+        }
+
+        int inputs = 0;
+        for (long remaining = held; remaining != 0; remaining &= remaining - 1) {
+            inputs |= actionBits[Long.numberOfTrailingZeros(remaining)];
+        }
+        return inputs;
+    }
+
+    /**
+     * Records how long the events applied since the last frame took to be drawn. Called once the
+     * frame has been rendered.
+     * @param now The current time in System.nanoTime() units.
+     */
+    public void frameRendered(long now) {
+        for (int i = 0; i < pendingCount; i++) {
+            frameLatency.record(now - pendingTimes[i]);
+        }
+        pendingCount = 0;
+    }
+
+    /**
+     * Returns the latencies from key events to the ticks that applied them.
+     */
+    public LatencyHistogram getTickLatency() {
+        return tickLatency;
+    }
+
+    /**
+     * Returns the latencies from key events to the end of the frames that showed them.
+     */
+    public LatencyHistogram getFrameLatency() {
+        return frameLatency;
+    }
+
+    public InputBindings getBindings() {
+        return bindings;
+    }
+
+    public long getDroppedEvents() {
+        return ring.getDropped();
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * This class is a fixed-size histogram of durations in nanoseconds. Values are counted in
+ * logarithmic buckets with eight linear sub-buckets per power of two, so recording is a few bit
+ * operations and an array increment, never allocates, and percentiles are accurate to about 12%.
+ * A histogram has a single writer; other threads may read it at any time and see a slightly stale view.
+ */
+package com.example.pong1;
+
+import java.util.Arrays;
+
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    private final long[] counts = new long[BUCKETS];
+    private long count; // Number of recorded values
+    private long sum; // Sum of recorded values
+    private long max; // Largest recorded value
+
+    /**
+     * Records one duration.
+     * @param nanos The duration in nanoseconds; negative values are counted as zero.
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Returns an upper bound of the duration below which the specified fraction of values lie.
+     * @param percentile The percentile to look up, in the range [0, 100].
+     * @return The duration in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public long percentile(double percentile) {
+        long total = count;
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min(upperBoundOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the number of values recorded in the specified bucket.
+     * @param bucket The bucket index, in the range [0, bucketCount()).
+     */
+    public long countAt(int bucket) {
+        return counts[bucket];
+    }
+
+    /**
+     * Returns the largest duration, in nanoseconds, counted by the specified bucket.
+     * @param bucket The bucket index, in the range [0, bucketCount()).
+     */
+    public static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long base = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        long bound = base + (1L << shift) - 1;
+        return bound < 0 ? Long.MAX_VALUE : bound;
+    }
+
+    /**
+     * Returns the number of buckets in every histogram.
+     */
+    public static int bucketCount() {
+        return BUCKETS;
+    }
+
+    /**
+     * Returns the index of the bucket that counts the specified non-negative value.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int shift = highestBit - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Adds every value recorded by another histogram, e.g. to combine the histograms of several threads.
+     * @param other The histogram to add; it may be written to meanwhile, and is then read slightly stale.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Forgets all recorded values.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the mean of the recorded values in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * This class holds the settings a game is launched with. They come from the command line as
+ * --key=value options and, with --config=FILE, from a properties file using the same keys; options on
+ * the command line win over the file. A setting that is given is never asked for in a dialog, and
+ * with --no-dialogs (or no-dialogs=true in the file) the ones that are missing take their defaults,
+ * so a kiosk can start straight into the game, e.g. with a file holding
+ *
+ *   left-name=Blue
+ *   right-name=Red
+ *   final-score=11
+ *   cpu=right
+ *   no-dialogs=true
+ *
+ * Values that cannot be parsed are reported on stderr and replaced by their default instead of
+ * stopping the launch.
+ */
+package com.example.pong1;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+public class LaunchConfig {
+    public static final String DEFAULT_LEFT_NAME = "Left";
+    public static final String DEFAULT_RIGHT_NAME = "Right";
+    public static final int DEFAULT_FINAL_SCORE = 10;
+    private final Map<String, String> options;
+
+    /**
+     * Constructs a configuration from parsed options.
+     * @param options The settings by key, without the leading dashes.
+     */
+    public LaunchConfig(Map<String, String> options) {
+        this.options = options;
+    }
+
+    /**
+     * Reads the settings from the command line and from the file named by --config, if any.
+     * @param args The raw command-line arguments.
+     * @return The combined settings.
+     */
+    public static LaunchConfig load(List<String> args) {
+        Map<String, String> options = BenchmarkRunner.parseOptions(args.toArray(new String[0]));
+        String file = options.get("config");
+        if (file != null) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(Paths.get(file))) {
+                properties.load(reader);
+            } catch (IOException e) {
+                System.err.println("Could not read config file " + file + ": " + e.getMessage());
+            }
+            for (String key : properties.stringPropertyNames()) {
+                options.putIfAbsent(key, properties.getProperty(key).trim());
+            }
+        }
+        return new LaunchConfig(options);
+    }
+
+    /**
+     * Returns a setting as text.
+     * @param key The key of the setting.
+     * @return The value, or null if it was not given.
+     */
+    public String get(String key) {
+        return options.get(key);
+    }
+
+    /**
+     * Returns whether a setting was given.
+     * @param key The key of the setting.
+     * @return true if the setting was given on the command line or in the config file.
+     */
+    public boolean has(String key) {
+        return options.containsKey(key);
+    }
+
+    /**
+     * Returns a setting as a flag; a flag given without a value, e.g. --no-dialogs, is true.
+     * @param key The key of the setting.
+     * @return true if the setting was given as true.
+     */
+    public boolean isSet(String key) {
+        return Boolean.parseBoolean(options.get(key));
+    }
+
+    /**
+     * Returns whether the settings that are missing may be asked for in dialogs.
+     * @return false if started with --no-dialogs.
+     */
+    public boolean allowsDialogs() {
+        return !isSet("no-dialogs");
+    }
+
+    /**
+     * Returns a setting as a whole number within a range.
+     * @param key The key of the setting.
+     * @param fallback The value used when the setting is missing or invalid.
+     * @param min The smallest valid value.
+     * @param max The largest valid value.
+     * @return The value of the setting, or fallback.
+     */
+    public int getInt(String key, int fallback, int min, int max) {
+        return parseInt(key, options.get(key), fallback, min, max);
+    }
+
+    /**
+     * Returns a setting as a render backend.
+     * @param key The key of the setting.
+     * @param fallback The backend used when the setting is missing or invalid.
+     * @return The backend named by the setting, or fallback.
+     */
+    public RenderBackend getRenderBackend(String key, RenderBackend fallback) {
+        String value = options.get(key);
+        try {
+            return value == null ? fallback : RenderBackend.fromName(value);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ignoring " + key + "=" + value + ": not a render backend");
+            return fallback;
+        }
+    }
+
+    /**
+     * Returns a setting as a bot difficulty.
+     * @param key The key of the setting.
+     * @param fallback The difficulty used when the setting is missing or invalid.
+     * @return The difficulty named by the setting, or fallback.
+     */
+    public BotDifficulty getDifficulty(String key, BotDifficulty fallback) {
+        String value = options.get(key);
+        try {
+            return value == null ? fallback : BotDifficulty.fromName(value);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ignoring " + key + "=" + value + ": not a difficulty");
+            return fallback;
+        }
+    }
+
+    /**
+     * Parses a whole number within a range, reporting text that is not one instead of throwing.
+     * @param what The name of the value, used in the report.
+     * @param text The text to parse, or null.
+     * @param fallback The value returned when the text is missing or invalid.
+     * @param min The smallest valid value.
+     * @param max The largest valid value.
+     * @return The parsed value, or fallback.
+     */
+    public static int parseInt(String what, String text, int fallback, int min, int max) {
+        if (text == null || text.isBlank()) {
+            return fallback;
+        }
+        try {
+            int value = Integer.parseInt(text.trim());
+            if (value >= min && value <= max) {
+                return value;
+            }
+            System.err.printf("Ignoring %s=%s: expected %d to %d%n", what, text, min, max);
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring " + what + "=" + text + ": not a whole number");
+        }
+        return fallback;
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * This class is the in-memory index of the match history: the Elo rating and win/loss record of every
+ * player, and a ranking by rating. Players are found by name in a HashMap, and the ranking is a
+ * TreeSet ordered by rating, so recording a match re-ranks both players in O(log n) and the top N
+ * players are read in O(log n + N). Its size depends on the number of players, not of matches.
+ *
+ * While the index is rebuilt from the log, only the players' records are updated, and the ranking is
+ * built once at the end by endRebuild().
+ */
+package com.example.pong1;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+public class Leaderboard {
+    public static final double INITIAL_RATING = 1500;
+    private static final double K_FACTOR = 32; // Largest rating change of one match
+    private static final Comparator<Player> BY_RATING = (a, b) -> {
+        int order = Double.compare(b.rating, a.rating);
+        return order != 0 ? order : a.name.compareTo(b.name);
+    };
+    private final HashMap<String, Player> players = new HashMap<>();
+    private final TreeSet<Player> ranking = new TreeSet<>(BY_RATING);
+    private boolean rebuilding;
+
+    /**
+     * This class holds the rating and record of one player. It is changed only by the Leaderboard,
+     * which must take it out of the ranking first.
+     */
+    public static class Player {
+        private final String name;
+        private double rating = INITIAL_RATING;
+        private int wins;
+        private int losses;
+
+        Player(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getRating() {
+            return rating;
+        }
+
+        public int getWins() {
+            return wins;
+        }
+
+        public int getLosses() {
+            return losses;
+        }
+    }
+
+    /**
+     * Updates the ratings and records of both players of a finished match. A match of a player
+     * against themselves is ignored.
+     * @param result The result of the match.
+     */
+    public void record(MatchResult result) {
+        String winnerName = result.isLeftWinner() ? result.getLeftPlayerName() : result.getRightPlayerName();
+        String loserName = result.isLeftWinner() ? result.getRightPlayerName() : result.getLeftPlayerName();
+        if (winnerName.equals(loserName)) {
+            return;
+        }
+        Player winner = player(winnerName);
+        Player loser = player(loserName);
+        if (!rebuilding) {
+            ranking.remove(winner);
+            ranking.remove(loser);
+        }
+        double expected = 1 / (1 + Math.pow(10, (loser.rating - winner.rating) / 400));
+        double change = K_FACTOR * (1 - expected);
+        winner.rating += change;
+        loser.rating -= change;
+        winner.wins++;
+        loser.losses++;
+        if (!rebuilding) {
+            ranking.add(winner);
+            ranking.add(loser);
+        }
+    }
+
+    /**
+     * Returns a player by name, creating them with the initial rating if they are new.
+     */
+    private Player player(String name) {
+        Player player = players.get(name);
+        if (player == null) {
+            player = new Player(name);
+            players.put(name, player);
+            if (!rebuilding) {
+                ranking.add(player);
+            }
+        }
+        return player;
+    }
+
+    /**
+     * Starts rebuilding the index: records are kept up to date but the ranking is left alone.
+     */
+    void beginRebuild() {
+        rebuilding = true;
+        ranking.clear();
+    }
+
+    /**
+     * Ends rebuilding the index by ranking every player once.
+     */
+    void endRebuild() {
+        rebuilding = false;
+        ranking.addAll(players.values());
+    }
+
+    /**
+     * Returns the players with the highest ratings.
+     * @param n The number of players to return.
+     * @return Up to n players, best first.
+     */
+    public List<Player> top(int n) {
+        List<Player> top = new ArrayList<>(Math.min(n, ranking.size()));
+        Iterator<Player> it = ranking.iterator();
+        while (top.size() < n && it.hasNext()) {
+            top.add(it.next());
+        }
+        return top;
+    }
+
+    /**
+     * Returns a player by name.
+     * @param name The name of the player.
+     * @return The player, or null if they have not played yet.
+     */
+    public Player get(String name) {
+        return players.get(name);
+    }
+
+    public int getPlayerCount() {
+        return players.size();
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * This class simulates a poor network link on top of a real datagram channel. Outgoing packets are
+ * dropped with a configurable probability, or held back for a fixed latency plus random jitter before
+ * they are sent, so client prediction can be exercised over loopback. Held packets are copied into a
+ * fixed pool of preallocated buffers; when the pool is full the packet is dropped, like a full router
+ * queue. Without latency or loss, packets are sent straight away.
+ */
+package com.example.pong1;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.SplittableRandom;
+
+public class LinkSimulator {
+    private static final int SLOTS = 512; // Packets that can be in flight at once
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final double lossRate;
+    private final SplittableRandom random;
+    private final ByteBuffer[] packets = new ByteBuffer[SLOTS];
+    private final SocketAddress[] targets = new SocketAddress[SLOTS];
+    private final long[] releaseTimes = new long[SLOTS]; // 0 marks a free slot
+    private long sentPackets;
+    private long droppedPackets;
+    private long sentBytes;
+
+    /**
+     * Constructs a new link with the specified impairments.
+     * @param latencyMillis The one-way delay added to every packet, in milliseconds.
+     * @param jitterMillis The maximum random delay added on top of the latency, in milliseconds.
+     * @param lossRate The probability of dropping a packet, in [0, 1].
+     * @param seed The seed of the random loss and jitter.
+     */
+    public LinkSimulator(double latencyMillis, double jitterMillis, double lossRate, long seed) {
+        this.latencyNanos = (long) (latencyMillis * 1_000_000);
+        this.jitterNanos = (long) (jitterMillis * 1_000_000);
+        this.lossRate = lossRate;
+        this.random = new SplittableRandom(seed);
+        for (int i = 0; i < SLOTS; i++) {
+            packets[i] = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET_BYTES);
+        }
+    }
+
+    /**
+     * Returns a link that sends every packet immediately.
+     */
+    public static LinkSimulator perfect() {
+        return new LinkSimulator(0, 0, 0, 0);
+    }
+
+    /**
+     * Sends a packet through the simulated link.
+     * @param channel The channel to send on.
+     * @param packet The packet, between its position and limit.
+     * @param target The address to send to.
+     * @param now The current time in nanoseconds.
+     * @throws IOException If the channel fails.
+     */
+    public void send(DatagramChannel channel, ByteBuffer packet, SocketAddress target, long now) throws IOException {
+        if (lossRate > 0 && random.nextDouble() < lossRate) {
+            droppedPackets++;
+            return;
+        }
+        if (latencyNanos == 0 && jitterNanos == 0) {
+            transmit(channel, packet, target);
+            return;
+        }
+        for (int i = 0; i < SLOTS; i++) {
+            if (releaseTimes[i] == 0) {
+                packets[i].clear();
+                packets[i].put(packet).flip();
+                targets[i] = target;
+                long jitter = jitterNanos == 0 ? 0 : random.nextLong(jitterNanos);
+                releaseTimes[i] = Math.max(now + latencyNanos + jitter, 1);
+                return;
+            }
+        }
+        droppedPackets++; // Queue full
+    }
+
+    /**
+     * Sends every held packet whose delay has passed. Call this regularly from the network loop.
+     * @param channel The channel to send on.
+     * @param now The current time in nanoseconds.
+     * @throws IOException If the channel fails.
+     */
+    public void flush(DatagramChannel channel, long now) throws IOException {
+        for (int i = 0; i < SLOTS; i++) {
+            if (releaseTimes[i] != 0 && releaseTimes[i] <= now) {
+                transmit(channel, packets[i], targets[i]);
+                releaseTimes[i] = 0;
+                targets[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Sends a packet on the channel and counts it.
+     */
+    private void transmit(DatagramChannel channel, ByteBuffer packet, SocketAddress target) throws IOException {
+        int bytes = packet.remaining();
+        if (channel.send(packet, target) == 0) {
+            droppedPackets++; // The socket buffer was full
+        } else {
+            sentPackets++;
+            sentBytes += bytes;
+        }
+    }
+
+    /**
+     * Returns whether any packets are still held back by the simulated latency.
+     */
+    public boolean hasPending() {
+        for (int i = 0; i < SLOTS; i++) {
+            if (releaseTimes[i] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long getSentPackets() {
+        return sentPackets;
+    }
+
+    public long getDroppedPackets() {
+        return droppedPackets;
+    }
+
+    public long getSentBytes() {
+        return sentBytes;
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * This class keeps the result of every finished match: each one is appended to a MatchLog on disk and
+ * applied to a Leaderboard in memory. Opening the history rebuilds the leaderboard from the log, so
+ * the log is the only state that needs to survive a restart.
+ *
+ * Run it with: MatchHistory FILE [TOP_N] to print the leaderboard of a history file.
+ */
+package com.example.pong1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class MatchHistory implements Closeable {
+    private final MatchLog log;
+    private final Leaderboard leaderboard = new Leaderboard();
+
+    /**
+     * Opens or creates a history and rebuilds its leaderboard.
+     * @param path The path of the log file.
+     * @param sync Whether every match is forced to disk before record() returns.
+     * @throws IOException If the log cannot be opened.
+     */
+    public MatchHistory(Path path, boolean sync) throws IOException {
+        leaderboard.beginRebuild();
+        log = new MatchLog(path, sync, leaderboard::record);
+        leaderboard.endRebuild();
+        if (log.isDamaged()) {
+            System.err.println("Match history " + path + " is damaged after " + log.getRecordCount()
+                    + " matches; the rest was discarded");
+        }
+    }
+
+    /**
+     * Appends a finished match to the log and updates the leaderboard.
+     * @param result The result of the match.
+     * @throws IOException If the log cannot be written.
+     */
+    public void record(MatchResult result) throws IOException {
+        log.append(result);
+        leaderboard.record(result);
+    }
+
+    /**
+     * Prints the best players, one per line.
+     * @param n The number of players to print.
+     */
+    public void printTop(int n) {
+        int rank = 1;
+        for (Leaderboard.Player player : leaderboard.top(n)) {
+            System.out.printf("%3d. %-20s %6.0f  %d-%d%n", rank++, player.getName(), player.getRating(),
+                    player.getWins(), player.getLosses());
+        }
+    }
+
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    public MatchLog getLog() {
+        return log;
+    }
+
+    /**
+     * Closes the log.
+     * @throws IOException If the log cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    /**
+     * Prints the leaderboard of a history file.
+     * @param args The path of the file and optionally the number of players to print.
+     * @throws IOException If the file cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        try (MatchHistory history = new MatchHistory(Paths.get(args[0]), false)) {
+            System.out.println(history.getLog().getRecordCount() + " matches, "
+                    + history.getLeaderboard().getPlayerCount() + " players");
+            history.printTop(n);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * This class measures MatchHistory at scale. It appends millions of generated match results between a
+ * pool of players to a fresh history file, reopens it to time rebuilding the leaderboard from the log
+ * and to measure the heap the rebuilt index uses, and times top-N queries, indexed appends, and
+ * appends forced to disk one by one. The file is deleted afterwards unless --keep is given.
+ *
+ * Run it with: MatchHistoryLoad [--matches=N] [--players=N] [--file=PATH] [--keep]
+ */
+package com.example.pong1;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+public class MatchHistoryLoad {
+    private static final int QUERIES = 100_000;
+    private static final int INDEXED_APPENDS = 100_000;
+    private static final int SYNCED_APPENDS = 1_000;
+
+    /**
+     * Runs the measurements and prints them.
+     * @param args The options described in the class comment.
+     * @throws Exception If the history file cannot be written.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = BenchmarkRunner.parseOptions(args);
+        int matches = LaunchConfig.parseInt("matches", options.get("matches"), 10_000_000, 1, Integer.MAX_VALUE);
+        int playerCount = LaunchConfig.parseInt("players", options.get("players"), 100_000, 2, 100_000_000);
+        Path path = Paths.get(options.getOrDefault("file", "match-history-load.log"));
+        Files.deleteIfExists(path);
+        String[] players = new String[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            players[i] = "player-" + i;
+        }
+        SplittableRandom random = new SplittableRandom(1);
+        long heapBefore = usedHeapAfterGc();
+
+        long start = System.nanoTime();
+        long usedBytes;
+        try (MatchLog log = new MatchLog(path, false, null)) {
+            for (int i = 0; i < matches; i++) {
+                log.append(randomResult(random, players));
+            }
+            usedBytes = log.getUsedBytes();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Append:  %d matches in %.1f s (%.0f per second), %.1f bytes each, file %.0f MB%n",
+                matches, seconds, matches / seconds, (double) usedBytes / matches, Files.size(path) / 1e6);
+
+        start = System.nanoTime();
+        MatchHistory history = new MatchHistory(path, false);
+        seconds = (System.nanoTime() - start) / 1e9;
+        Leaderboard leaderboard = history.getLeaderboard();
+        long heap = usedHeapAfterGc() - heapBefore;
+        System.out.printf("Rebuild: %d matches in %.2f s (%.0f per second), %d players, %.1f MB heap (%.0f bytes"
+                        + " per player)%n", history.getLog().getRecordCount(), seconds,
+                history.getLog().getRecordCount() / seconds, leaderboard.getPlayerCount(), heap / 1e6,
+                (double) heap / leaderboard.getPlayerCount());
+
+        long check = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            check += leaderboard.top(10).size();
+        }
+        System.out.printf("Top 10:  %.0f ns per query%n", (System.nanoTime() - start) / (double) QUERIES);
+
+        start = System.nanoTime();
+        for (int i = 0; i < INDEXED_APPENDS; i++) {
+            history.record(randomResult(random, players));
+        }
+        System.out.printf("Record:  %.0f ns per match, appended and ranked%n",
+                (System.nanoTime() - start) / (double) INDEXED_APPENDS);
+        history.close();
+
+        LatencyHistogram synced = new LatencyHistogram();
+        try (MatchLog log = new MatchLog(path, true, null)) {
+            for (int i = 0; i < SYNCED_APPENDS; i++) {
+                MatchResult result = randomResult(random, players);
+                long before = System.nanoTime();
+                log.append(result);
+                synced.record(System.nanoTime() - before);
+            }
+        }
+        System.out.printf("Durable: append forced to disk p50 %.1f us p99 %.1f us max %.1f us%n",
+                synced.percentile(50) / 1e3, synced.percentile(99) / 1e3, synced.getMax() / 1e3);
+        System.out.println("Best players:");
+        try (MatchHistory reopened = new MatchHistory(path, false)) {
+            reopened.printTop(5);
+        }
+        if (!options.containsKey("keep")) {
+            Files.delete(path);
+        }
+        if (check == 42) {
+            System.out.println(); // Keeps the queries from being optimized away
+        }
+    }
+
+    /**
+     * Returns the result of a made-up match between two different players.
+     */
+    private static MatchResult randomResult(SplittableRandom random, String[] players) {
+        int left = random.nextInt(players.length);
+        int right = (left + 1 + random.nextInt(players.length - 1)) % players.length;
+        int finalScore = 5 + random.nextInt(17);
+        int loserScore = random.nextInt(finalScore);
+        boolean leftWins = random.nextBoolean();
+        RallyStats rallies = new RallyStats();
+        return new MatchResult(players[left], players[right], leftWins ? finalScore : loserScore,
+                leftWins ? loserScore : finalScore, finalScore, System.currentTimeMillis(),
+                random.nextInt(100_000), Panel.DEFAULT_TICK_RATE, rallies);
+    }
+
+    /**
+     * Returns the heap in use after a full collection.
+     */
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * This class is the durable, append-only log of finished matches behind MatchHistory. The file is
+ * memory-mapped in segments of SEGMENT_BYTES and grows one segment at a time, so neither appending nor
+ * reading goes through the heap or a system call per record. Each record is the length of its
+ * MatchResult, a CRC-32C of it, and the result itself; the length is written last, so a record only
+ * becomes visible once it is complete. A record never spans two segments: if it does not fit, a
+ * SKIP length sends readers to the next segment.
+ *
+ * Opening the log reads every record from the start and stops at the first zero length, which marks
+ * the unwritten rest of the file, or at the first record that fails its CRC check, e.g. one torn by a
+ * crash; the rest of the file is then discarded. New records are appended from there. With sync
+ * enabled every append is forced to disk before it returns; without it, records reach the disk when
+ * their segment is full, on flush() and on close().
+ *
+ * File: magic, version, then records of length, CRC-32C, result
+ */
+package com.example.pong1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+public class MatchLog implements Closeable {
+    static final int MAGIC = 0x504D4C47; // "PMLG"
+    static final short VERSION = 1;
+    static final int SEGMENT_BYTES = 64 << 20;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES; // Length and CRC
+    private static final int SKIP = -1; // Length marking the unused end of a segment
+    private final FileChannel channel;
+    private final boolean sync;
+    private final CRC32C crc = new CRC32C();
+    private MappedByteBuffer segment; // The segment appended to
+    private long segmentStart; // File offset of that segment
+    private long records;
+    private boolean damaged; // Reading stopped at a record that failed its check
+
+    /**
+     * Opens or creates a log and reads every intact record in it.
+     * @param path The path of the log file.
+     * @param sync Whether every append is forced to disk before it returns.
+     * @param visitor Called with each record read, oldest first; may be null.
+     * @throws IOException If the file cannot be opened or is not a match log.
+     */
+    public MatchLog(Path path, boolean sync, Consumer<MatchResult> visitor) throws IOException {
+        this.sync = sync;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() == 0;
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+            if (created) {
+                segment.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+                segment.force();
+            } else if (segment.getInt(0) != MAGIC || segment.getShort(4) != VERSION) {
+                throw new IOException("Not a match log of version " + VERSION + ": " + path);
+            }
+            segment.position(HEADER_BYTES);
+            readAll(visitor);
+            if (damaged) {
+                discardRest();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads records from the start of the log up to its end, leaving the last segment mapped at the
+     * position of the next append.
+     */
+    private void readAll(Consumer<MatchResult> visitor) throws IOException {
+        while (true) {
+            int start = segment.position();
+            if (segment.remaining() < RECORD_HEADER_BYTES) {
+                nextSegment();
+                continue;
+            }
+            int length = segment.getInt(start);
+            if (length == SKIP) {
+                nextSegment();
+                continue;
+            }
+            if (length <= 0 || length > MatchResult.MAX_BYTES || length > segment.remaining() - RECORD_HEADER_BYTES) {
+                damaged = length != 0;
+                return;
+            }
+            ByteBuffer result = segment.duplicate();
+            result.position(start + RECORD_HEADER_BYTES).limit(start + RECORD_HEADER_BYTES + length);
+            crc.reset();
+            crc.update(result.duplicate());
+            if ((int) crc.getValue() != segment.getInt(start + Integer.BYTES)) {
+                damaged = true;
+                return;
+            }
+            if (visitor != null) {
+                visitor.accept(MatchResult.read(result));
+            }
+            records++;
+            segment.position(start + RECORD_HEADER_BYTES + length);
+        }
+    }
+
+    /**
+     * Appends a result to the log.
+     * @param result The result to append.
+     * @throws IOException If the file cannot be extended or forced to disk.
+     */
+    public void append(MatchResult result) throws IOException {
+        if (segment.remaining() < RECORD_HEADER_BYTES + MatchResult.MAX_BYTES) {
+            if (segment.remaining() >= Integer.BYTES) {
+                segment.putInt(segment.position(), SKIP);
+            }
+            nextSegment();
+        }
+        int start = segment.position();
+        segment.position(start + RECORD_HEADER_BYTES);
+        result.write(segment);
+        int end = segment.position();
+        ByteBuffer written = segment.duplicate();
+        written.position(start + RECORD_HEADER_BYTES).limit(end);
+        crc.reset();
+        crc.update(written);
+        segment.putInt(start + Integer.BYTES, (int) crc.getValue());
+        segment.putInt(start, end - start - RECORD_HEADER_BYTES); // Last, so the record appears complete
+        if (sync) {
+            segment.force(start, end - start);
+        }
+        records++;
+    }
+
+    /**
+     * Erases everything after the last intact record, so that records appended over a damaged one
+     * can never run into leftovers of the old ones.
+     */
+    private void discardRest() throws IOException {
+        for (int i = segment.position(); i < segment.limit(); i++) {
+            segment.put(i, (byte) 0);
+        }
+        segment.force();
+        channel.truncate(segmentStart + SEGMENT_BYTES);
+    }
+
+    /**
+     * Maps the segment after the current one, extending the file if needed.
+     */
+    private void nextSegment() throws IOException {
+        segment.force();
+        segmentStart += SEGMENT_BYTES;
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentStart, SEGMENT_BYTES);
+    }
+
+    /**
+     * Forces every appended record to disk.
+     * @throws IOException If the file cannot be forced to disk.
+     */
+    public void flush() throws IOException {
+        segment.force();
+    }
+
+    /**
+     * Forces the log to disk and closes it.
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    public long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Returns whether opening the log stopped at a damaged record rather than at the end.
+     * @return true if the damaged record and everything after it were discarded.
+     */
+    public boolean isDamaged() {
+        return damaged;
+    }
+
+    /**
+     * Returns the number of bytes the log uses, up to the end of its last record.
+     * @return The used size of the file.
+     */
+    public long getUsedBytes() {
+        return segmentStart + segment.position();
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * This class records a match as a compact, append-only binary input log. Because the Simulation is
+ * deterministic, the held input bits and configuration changes of every tick are enough to replay the
+ * match exactly. Only changes are written, each as a variable-length tick delta followed by a tag byte.
+ * Every keyframe interval the complete simulation state is also appended to a separate index file
+ * of fixed-size records, so ReplayReader can find the keyframe for any tick in O(1).
+ *
+ * Log file: magic, version, tick rate, final score, keyframe interval, both player names, then records.
+ * Index file: magic, version, keyframe interval, snapshot size, first tick, then keyframes of
+ * tick, log offset, tick of the preceding record, held inputs and a SnapshotCodec snapshot.
+ */
+package com.example.pong1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class MatchRecorder implements Closeable {
+    static final int LOG_MAGIC = 0x504F4E47; // "PONG"
+    static final int INDEX_MAGIC = 0x504F4E49; // "PONI"
+    // Version 2 stores keyframes as SnapshotCodec snapshots; version 3 moves the rackets before the ball
+    static final short VERSION = 3;
+    static final int TAG_BALL_SPEED = 0x10; // Followed by the speed factor as a zig-zag varint
+    static final int TAG_RACKET_SIZE = 0x11; // Followed by the height increase as a double
+    static final int TAG_END = 0x1F; // The recording ends at this tick
+    static final int INDEX_HEADER_BYTES = 24;
+    static final int KEYFRAME_BYTES = 3 * Long.BYTES + Integer.BYTES + SnapshotCodec.SNAPSHOT_BYTES;
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 600; // Five seconds at 120 ticks per second
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_RECORD_BYTES = 32; // Longest record: delta, tag and a double
+
+    private final FileChannel log;
+    private final FileChannel index;
+    private final ByteBuffer logBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final ByteBuffer keyframe = ByteBuffer.allocateDirect(KEYFRAME_BYTES);
+    private final int keyframeInterval;
+    private final long startTick; // Tick of the first keyframe
+    private long flushedBytes; // Bytes of the log already written to the file
+    private long lastRecordTick; // Tick of the last record written
+    private int lastInputs; // Inputs held as of the last record
+
+    /**
+     * Creates the log and index files and writes their headers. The first keyframe is taken from
+     * the simulation's current tick, so recording can start in the middle of a match.
+     * @param path The path of the log file; the index is written next to it with an ".idx" suffix.
+     * @param simulation The simulation being recorded.
+     * @param leftPlayerName The name of the left player.
+     * @param rightPlayerName The name of the right player.
+     * @param tickRate The number of simulation ticks per second.
+     * @param keyframeInterval The number of ticks between keyframes.
+     * @throws IOException If the files cannot be created.
+     */
+    public MatchRecorder(Path path, Simulation simulation, String leftPlayerName, String rightPlayerName,
+                         int tickRate, int keyframeInterval) throws IOException {
+        this.keyframeInterval = keyframeInterval;
+        this.startTick = simulation.getTick();
+        this.lastRecordTick = startTick;
+        log = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        index = FileChannel.open(indexPathOf(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        logBuffer.putInt(LOG_MAGIC).putShort(VERSION);
+        logBuffer.putInt(tickRate).putInt(simulation.getFinalScore()).putInt(keyframeInterval);
+        putName(leftPlayerName);
+        putName(rightPlayerName);
+
+        ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_BYTES);
+        header.putInt(INDEX_MAGIC).putShort(VERSION).putShort((short) 0);
+        header.putInt(keyframeInterval).putInt(SnapshotCodec.SNAPSHOT_BYTES).putLong(startTick);
+        header.flip();
+        writeFully(index, header);
+    }
+
+    /**
+     * Returns the path of the keyframe index that belongs to a log file.
+     * @param path The path of the log file.
+     * @return The path of the index file.
+     */
+    public static Path indexPathOf(Path path) {
+        return Paths.get(path.toString() + ".idx");
+    }
+
+    /**
+     * Records the inputs held for the tick about to be simulated. Must be called before every step.
+     * @param simulation The simulation being recorded, before it is stepped.
+     * @param inputs The input bits that will be passed to step().
+     * @throws IOException If the log or index cannot be written.
+     */
+    public void recordTick(Simulation simulation, int inputs) throws IOException {
+        long tick = simulation.getTick();
+        if ((tick - startTick) % keyframeInterval == 0) {
+            writeKeyframe(simulation, tick);
+        }
+        if (inputs != lastInputs) {
+            putRecordHeader(tick, inputs);
+            lastInputs = inputs;
+        }
+    }
+
+    /**
+     * Records a change of the ball speed, applied before the next tick.
+     * @param tick The simulation's current tick.
+     * @param speedIncrease The factor passed to Simulation.increaseBallSpeed().
+     * @throws IOException If the log cannot be written.
+     */
+    public void recordBallSpeedIncrease(long tick, int speedIncrease) throws IOException {
+        putRecordHeader(tick, TAG_BALL_SPEED);
+        putVarLong(((speedIncrease << 1) ^ (speedIncrease >> 31)) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Records a change of the racket height, applied before the next tick.
+     * @param tick The simulation's current tick.
+     * @param heightIncrease The amount passed to Simulation.increaseRacketHeight().
+     * @throws IOException If the log cannot be written.
+     */
+    public void recordRacketSizeIncrease(long tick, double heightIncrease) throws IOException {
+        putRecordHeader(tick, TAG_RACKET_SIZE);
+        logBuffer.putDouble(heightIncrease);
+    }
+
+    /**
+     * Marks the end of the recording at the specified tick and closes the files.
+     * @param tick The last tick of the recording.
+     * @throws IOException If the log cannot be written.
+     */
+    public void finish(long tick) throws IOException {
+        putRecordHeader(tick, TAG_END);
+        close();
+    }
+
+    /**
+     * Flushes the buffered records and closes the files.
+     * @throws IOException If the log cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            log.close();
+            index.close();
+        }
+    }
+
+    /**
+     * Appends a keyframe of the simulation state to the index. The log is flushed first, so the
+     * log offset stored in the keyframe always points into data that is already on disk.
+     */
+    private void writeKeyframe(Simulation simulation, long tick) throws IOException {
+        flush();
+        keyframe.clear();
+        keyframe.putLong(tick).putLong(flushedBytes).putLong(lastRecordTick).putInt(lastInputs);
+        SnapshotCodec.encode(simulation, keyframe);
+        keyframe.flip();
+        writeFully(index, keyframe);
+    }
+
+    /**
+     * Starts a record: the ticks since the previous record, then the tag.
+     */
+    private void putRecordHeader(long tick, int tag) throws IOException {
+        if (logBuffer.remaining() < MAX_RECORD_BYTES) {
+            flush();
+        }
+        putVarLong(tick - lastRecordTick);
+        logBuffer.put((byte) tag);
+        lastRecordTick = tick;
+    }
+
+    /**
+     * Writes a non-negative value in seven-bit groups, low bits first.
+     */
+    private void putVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            logBuffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        logBuffer.put((byte) value);
+    }
+
+    /**
+     * Writes a player name as a length-prefixed UTF-8 string.
+     */
+    private void putName(String name) {
+        byte[] bytes = (name == null ? "" : name).getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, 255);
+        logBuffer.putShort((short) length).put(bytes, 0, length);
+    }
+
+    /**
+     * Writes the buffered records to the log file.
+     */
+    private void flush() throws IOException {
+        logBuffer.flip();
+        flushedBytes += writeFully(log, logBuffer);
+        logBuffer.clear();
+    }
+
+    /**
+     * Writes all remaining bytes of a buffer to a channel.
+     * @return The number of bytes written.
+     */
+    private static int writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        return written;
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * This class holds the result of one finished match as it is kept in the match history: both player
+ * names, the scores and the final score played to, when it ended and how long it lasted, and the
+ * rally statistics gathered by RallyStats. It is written to and read from a MatchLog record with a
+ * fixed layout followed by the two names:
+ *
+ * version, end time (epoch milliseconds), duration in ticks, tick rate, final score, left score,
+ * right score, racket hits, longest rally, wall bounces, left name, right name
+ *
+ * Names are cut to MAX_NAME_BYTES of UTF-8 on a code point boundary when the result is constructed,
+ * so the names the live Leaderboard sees are exactly the ones read back from the log after a restart.
+ */
+package com.example.pong1;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class MatchResult {
+    static final byte VERSION = 1;
+    static final int MAX_NAME_BYTES = 64; // Longest name in UTF-8 bytes, as NetProtocol.putString() stores it
+    static final int MAX_BYTES = 1 + Long.BYTES + 8 * Integer.BYTES + 2 * (1 + MAX_NAME_BYTES);
+    private final String leftPlayerName;
+    private final String rightPlayerName;
+    private final int leftScore;
+    private final int rightScore;
+    private final int finalScore;
+    private final long endTime; // Epoch milliseconds
+    private final int durationTicks;
+    private final int tickRate;
+    private final int racketHits;
+    private final int longestRally; // Racket hits in the longest rally
+    private final int wallBounces;
+
+    /**
+     * Constructs a new result.
+     * @param leftPlayerName The name of the left player.
+     * @param rightPlayerName The name of the right player.
+     * @param leftScore The score of the left player.
+     * @param rightScore The score of the right player.
+     * @param finalScore The score the match was played to.
+     * @param endTime The time the match ended, in epoch milliseconds.
+     * @param durationTicks The number of ticks the match lasted.
+     * @param tickRate The number of ticks per second.
+     * @param rallies The rally statistics of the match.
+     */
+    public MatchResult(String leftPlayerName, String rightPlayerName, int leftScore, int rightScore, int finalScore,
+                       long endTime, int durationTicks, int tickRate, RallyStats rallies) {
+        this(leftPlayerName, rightPlayerName, leftScore, rightScore, finalScore, endTime, durationTicks, tickRate,
+                rallies.getRacketHits(), rallies.getLongestRally(), rallies.getWallBounces());
+    }
+
+    private MatchResult(String leftPlayerName, String rightPlayerName, int leftScore, int rightScore, int finalScore,
+                        long endTime, int durationTicks, int tickRate, int racketHits, int longestRally,
+                        int wallBounces) {
+        this.leftPlayerName = normalizeName(leftPlayerName);
+        this.rightPlayerName = normalizeName(rightPlayerName);
+        this.leftScore = leftScore;
+        this.rightScore = rightScore;
+        this.finalScore = finalScore;
+        this.endTime = endTime;
+        this.durationTicks = durationTicks;
+        this.tickRate = tickRate;
+        this.racketHits = racketHits;
+        this.longestRally = longestRally;
+        this.wallBounces = wallBounces;
+    }
+
+    /**
+     * Writes the result at the buffer's position.
+     * @param buffer The buffer to write to, with at least MAX_BYTES remaining.
+     */
+    void write(ByteBuffer buffer) {
+        buffer.put(VERSION).putLong(endTime).putInt(durationTicks).putInt(tickRate).putInt(finalScore);
+        buffer.putInt(leftScore).putInt(rightScore).putInt(racketHits).putInt(longestRally).putInt(wallBounces);
+        NetProtocol.putString(buffer, leftPlayerName);
+        NetProtocol.putString(buffer, rightPlayerName);
+    }
+
+    /**
+     * Reads a result written by write().
+     * @param buffer The buffer to read from, at the start of the result.
+     * @return The result.
+     * @throws IllegalArgumentException If the result was written by an unknown version.
+     */
+    static MatchResult read(ByteBuffer buffer) {
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported match result version " + version);
+        }
+        long endTime = buffer.getLong();
+        int durationTicks = buffer.getInt();
+        int tickRate = buffer.getInt();
+        int finalScore = buffer.getInt();
+        int leftScore = buffer.getInt();
+        int rightScore = buffer.getInt();
+        int racketHits = buffer.getInt();
+        int longestRally = buffer.getInt();
+        int wallBounces = buffer.getInt();
+        String left = NetProtocol.getString(buffer);
+        String right = NetProtocol.getString(buffer);
+        return new MatchResult(left, right, leftScore, rightScore, finalScore, endTime, durationTicks, tickRate,
+                racketHits, longestRally, wallBounces);
+    }
+
+    /**
+     * Returns a player name as it can be stored: characters UTF-8 cannot encode are replaced the way
+     * the encoder does, and the name is cut after the last whole code point within MAX_NAME_BYTES.
+     * @param name The name, or null.
+     * @return The stored form of the name; empty for null.
+     */
+    static String normalizeName(String name) {
+        if (name == null) {
+            return "";
+        }
+        String encodable = new String(name.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+        int bytes = 0;
+        for (int i = 0; i < encodable.length(); ) {
+            int codePoint = encodable.codePointAt(i);
+            bytes += codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            if (bytes > MAX_NAME_BYTES) {
+                return encodable.substring(0, i);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return encodable;
+    }
+
+    /**
+     * Returns whether the left player won.
+     * @return true if the left player scored more.
+     */
+    public boolean isLeftWinner() {
+        return leftScore > rightScore;
+    }
+
+    public String getLeftPlayerName() {
+        return leftPlayerName;
+    }
+
+    public String getRightPlayerName() {
+        return rightPlayerName;
+    }
+
+    public int getLeftScore() {
+        return leftScore;
+    }
+
+    public int getRightScore() {
+        return rightScore;
+    }
+
+    public int getFinalScore() {
+        return finalScore;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public int getDurationTicks() {
+        return durationTicks;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public int getRacketHits() {
+        return racketHits;
+    }
+
+    public int getLongestRally() {
+        return longestRally;
+    }
+
+    public int getWallBounces() {
+        return wallBounces;
+    }
+}
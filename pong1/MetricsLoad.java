@@ -0,0 +1,331 @@
+/**
+ * This class checks a MetricsServer against localhost while a game runs. The main thread plays matches
+ * between two bots as fast as it can, recording every tick, a frame every FRAME_TICKS ticks and every
+ * point into GameMetrics, while scraper threads fetch /metrics over HTTP. Every response is checked:
+ * it must be 200 with the Prometheus content type, every sample line must parse, histogram buckets
+ * must be cumulative and end with +Inf equal to the count, and counters must never go backwards
+ * between two scrapes. Once the game stops, a last scrape must show exactly the ticks, frames and
+ * matches played. It reports the ticks per second for each number of scrapers, so the cost of being
+ * scraped shows up, along with the scrapes per second and their latency.
+ *
+ * Run it with: MetricsLoad [--scrapers=N,N,...] [--seconds=S] [--interval=MILLIS]
+ * An interval of 0 scrapes as fast as possible. It exits with a non-zero status if a scrape was wrong.
+ */
+package com.example.pong1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+public class MetricsLoad {
+    private static final String DEFAULT_SCRAPERS = "0,1,4";
+    private static final int FRAME_TICKS = 2; // Ticks per recorded frame, like 120 Hz ticks at 60 fps
+    private static final int FINAL_SCORE = 5;
+    private static final long FRAME_INTERVAL_NANOS = 16_666_667; // Recorded for every frame
+
+    /**
+     * Runs the check for every scraper count.
+     * @param args The options described in the class comment.
+     * @throws Exception If the server cannot be started or a scraper is interrupted.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = BenchmarkRunner.parseOptions(args);
+        double seconds = options.containsKey("seconds") ? Double.parseDouble(options.get("seconds")) : 3;
+        int interval = LaunchConfig.parseInt("interval", options.get("interval"), 0, 0, 60_000);
+        MetricsServer.useNoDelay(); // Before the first HttpServer; see MetricsServer
+
+        run(1, 1, interval); // Compiles the tick and scrape paths
+        int failures = 0;
+        System.out.printf("%9s %12s %10s %10s %10s %10s %8s%n", "Scrapers", "Ticks/s", "Scrapes/s", "p50 ms",
+                "p99 ms", "Bytes", "Errors");
+        for (String count : options.getOrDefault("scrapers", DEFAULT_SCRAPERS).split(",")) {
+            int scrapers = Integer.parseInt(count.trim());
+            Result result = run(scrapers, seconds, interval);
+            failures += result.errors;
+            if (scrapers == 0) {
+                System.out.printf("%9d %12.0f %10s %10s %10s %10d %8d%n", 0, result.ticksPerSecond, "-", "-", "-",
+                        result.bytes, result.errors);
+                continue;
+            }
+            System.out.printf("%9d %12.0f %10.1f %10.2f %10.2f %10d %8d%n", scrapers, result.ticksPerSecond,
+                    result.scrapesPerSecond, result.latency.percentile(50) / 1e6,
+                    result.latency.percentile(99) / 1e6, result.bytes, result.errors);
+            if (result.firstError != null) {
+                System.out.println("  " + result.firstError);
+            }
+        }
+        if (failures > 0) {
+            System.out.println(failures + " scrape(s) were wrong");
+            System.exit(1);
+        }
+        System.out.println("Every scrape was valid");
+    }
+
+    /**
+     * The measurements of one run.
+     */
+    private static class Result {
+        double ticksPerSecond;
+        double scrapesPerSecond;
+        LatencyHistogram latency = new LatencyHistogram();
+        long bytes; // Size of the last scrape
+        int errors;
+        String firstError;
+
+        synchronized void fail(String error) {
+            errors++;
+            if (firstError == null) {
+                firstError = error;
+            }
+        }
+    }
+
+    /**
+     * This class fetches the metrics over and over and checks every response.
+     */
+    private static class Scraper extends Thread {
+        final LatencyHistogram latency = new LatencyHistogram();
+        private final URL url;
+        private final int interval;
+        private final Result result;
+        private final Map<String, Double> counters = new HashMap<>(); // Last value of every counter
+        private volatile boolean running = true;
+        long scrapes;
+
+        Scraper(URL url, int interval, Result result, int index) {
+            super("metrics-scraper-" + index);
+            this.url = url;
+            this.interval = interval;
+            this.result = result;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                long start = System.nanoTime();
+                try {
+                    String error = check(fetch(url), counters);
+                    if (error != null) {
+                        result.fail(error);
+                    }
+                } catch (IOException e) {
+                    result.fail(e.toString());
+                }
+                latency.record(System.nanoTime() - start);
+                scrapes++;
+                if (interval > 0) {
+                    LockSupport.parkNanos(interval * 1_000_000L);
+                }
+            }
+        }
+    }
+
+    /**
+     * Plays matches for a while with the specified number of scrapers, then checks the final counts.
+     * @param scrapers The number of scraper threads.
+     * @param seconds How long to play.
+     * @param interval The pause of each scraper between two scrapes, in milliseconds.
+     * @return The measurements.
+     */
+    private static Result run(int scrapers, double seconds, int interval) throws Exception {
+        GameMetrics metrics = new GameMetrics();
+        MetricsServer server = new MetricsServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                metrics);
+        URL url = new URL("http://" + server.getLocalAddress().getHostString() + ":"
+                + server.getLocalAddress().getPort() + MetricsServer.PATH);
+        Result result = new Result();
+        Scraper[] running = new Scraper[scrapers];
+        for (int i = 0; i < scrapers; i++) {
+            running[i] = new Scraper(url, interval, result, i);
+            running[i].start();
+        }
+
+        Simulation simulation = new Simulation(FINAL_SCORE);
+        simulation.setTickRate(Panel.DEFAULT_TICK_RATE);
+        PredictiveBot left = new PredictiveBot(true, BotDifficulty.EASY, 1);
+        PredictiveBot right = new PredictiveBot(false, BotDifficulty.HARD, 2);
+        int events = 0;
+        long ticks = 0;
+        long matches = 0;
+        long start = System.nanoTime();
+        long end = start + (long) (seconds * 1e9);
+        long now = start;
+        while (now < end) {
+            for (int i = 0; i < 1_024; i++) {
+                long tickStart = System.nanoTime();
+                events = simulation.step(left.inputs(simulation, events) | right.inputs(simulation, events));
+                metrics.recordEvents(events, simulation.getLeftScore(), simulation.getRightScore());
+                metrics.recordTick(System.nanoTime() - tickStart);
+                if (++ticks % FRAME_TICKS == 0) {
+                    metrics.recordFrame(FRAME_INTERVAL_NANOS, false);
+                }
+                if ((events & Simulation.EVENT_MATCH_END) != 0) {
+                    matches++;
+                    simulation.reset();
+                }
+            }
+            now = System.nanoTime();
+        }
+        result.ticksPerSecond = ticks / ((now - start) / 1e9);
+
+        long scrapes = 0;
+        for (Scraper scraper : running) {
+            scraper.running = false;
+            scraper.join();
+            result.latency.add(scraper.latency);
+            scrapes += scraper.scrapes;
+        }
+        result.scrapesPerSecond = scrapes / ((System.nanoTime() - start) / 1e9);
+
+        // Nothing records any more, so the last scrape must show exactly what was played
+        String text = fetch(url);
+        result.bytes = text.length();
+        String error = check(text, new HashMap<>());
+        if (error != null) {
+            result.fail(error);
+        }
+        Map<String, Double> samples = parse(text);
+        expect(result, samples, "pong_tick_duration_seconds_count", ticks);
+        expect(result, samples, "pong_frame_interval_seconds_count", ticks / FRAME_TICKS);
+        expect(result, samples, "pong_matches_completed_total", matches);
+        expect(result, samples, "pong_paused", 0);
+        server.stop();
+        return result;
+    }
+
+    /**
+     * Fetches the metrics and checks the status and content type of the response.
+     */
+    private static String fetch(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            if (connection.getResponseCode() != 200) {
+                throw new IOException("Status " + connection.getResponseCode());
+            }
+            if (!MetricsServer.CONTENT_TYPE.equals(connection.getContentType())) {
+                throw new IOException("Content type " + connection.getContentType());
+            }
+            try (InputStream in = connection.getInputStream()) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Checks that a scrape is valid text format with consistent histograms, and that no counter went
+     * backwards since the previous scrape of the same scraper.
+     * @param text The scrape.
+     * @param counters The counters of the previous scrape, replaced by this one's.
+     * @return A description of the first problem, or null if there is none.
+     */
+    private static String check(String text, Map<String, Double> counters) {
+        Map<String, String> types = new HashMap<>();
+        String bucketsOf = null; // Histogram whose buckets are being read
+        double lastBucket = 0;
+        for (String line : text.split("\n")) {
+            if (line.startsWith("# TYPE ")) {
+                String[] parts = line.split(" ");
+                types.put(parts[2], parts[3]);
+                continue;
+            }
+            if (line.startsWith("#")) {
+                continue;
+            }
+            int space = line.lastIndexOf(' ');
+            if (space < 0) {
+                return "Not a sample: " + line;
+            }
+            String name = line.substring(0, space);
+            double value;
+            try {
+                value = Double.parseDouble(line.substring(space + 1));
+            } catch (NumberFormatException e) {
+                return "Not a number: " + line;
+            }
+            String metric = name.indexOf('{') < 0 ? name : name.substring(0, name.indexOf('{'));
+            if (!metric.matches("[a-zA-Z_:][a-zA-Z0-9_:]*")) {
+                return "Bad metric name: " + line;
+            }
+            String family = family(metric, types);
+            if (family == null) {
+                return "Sample without a type: " + line;
+            }
+            String type = types.get(family);
+            if (metric.endsWith("_bucket") && type.equals("histogram")) {
+                if (!family.equals(bucketsOf)) {
+                    bucketsOf = family;
+                    lastBucket = 0;
+                }
+                if (value < lastBucket) {
+                    return "Buckets not cumulative: " + line;
+                }
+                lastBucket = value;
+                if (name.contains("le=\"+Inf\"")) {
+                    counters.put(family + "_inf", value);
+                }
+            } else if (metric.endsWith("_count") && type.equals("histogram")) {
+                if (!Double.valueOf(value).equals(counters.get(family + "_inf"))) {
+                    return "Count differs from the +Inf bucket: " + line;
+                }
+            }
+            if (type.equals("counter") || type.equals("histogram") || type.equals("summary")) {
+                Double previous = counters.put(name, value);
+                if (previous != null && value < previous && !metric.endsWith("_bucket")) {
+                    return "Counter went backwards from " + previous + ": " + line;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the metric family a sample belongs to, or null if no TYPE line declared it.
+     */
+    private static String family(String metric, Map<String, String> types) {
+        if (types.containsKey(metric)) {
+            return metric;
+        }
+        for (String suffix : new String[] {"_bucket", "_sum", "_count"}) {
+            if (metric.endsWith(suffix)) {
+                String family = metric.substring(0, metric.length() - suffix.length());
+                if (types.containsKey(family)) {
+                    return family;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns every sample of a scrape by its name and labels.
+     */
+    private static Map<String, Double> parse(String text) {
+        Map<String, Double> samples = new HashMap<>();
+        for (String line : text.split("\n")) {
+            if (!line.startsWith("#") && !line.isEmpty()) {
+                int space = line.lastIndexOf(' ');
+                samples.put(line.substring(0, space), Double.parseDouble(line.substring(space + 1)));
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Fails the run if a sample of the last scrape does not have the expected value.
+     */
+    private static void expect(Result result, Map<String, Double> samples, String name, long expected) {
+        Double value = samples.get(name);
+        if (value == null || value != expected) {
+            result.fail(name + " is " + value + " instead of " + expected);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * This class serves GameMetrics over HTTP in the Prometheus text format, on the JDK's built-in HTTP
+ * server. GET /metrics returns every metric; anything else is answered with 404 or 405. Requests are
+ * handled one at a time on a daemon thread of the server's own, which reads the metrics without
+ * waiting for the game loop, so a slow or frequent scraper costs the game nothing but CPU time.
+ *
+ * The JDK server writes the headers and the body of a response separately, so with Nagle's algorithm
+ * the body waits for the delayed ACK of the headers and every scrape takes 40 ms. Only the JVM-wide
+ * property sun.net.httpserver.nodelay turns that off, and it is read once, when the first server is
+ * created. Launchers either call useNoDelay() before starting a server or pass
+ * -Dsun.net.httpserver.nodelay=true on the command line.
+ */
+package com.example.pong1;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class MetricsServer {
+    public static final String PATH = "/metrics";
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final int BACKLOG = 16;
+    private static final int INITIAL_CAPACITY = 4_096; // Characters; a scrape is a little under 4k
+    public static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final GameMetrics metrics;
+    private volatile long scrapes;
+
+    /**
+     * Constructs a new server bound to the specified address and starts serving.
+     * @param address The address to listen on; port 0 picks a free port.
+     * @param metrics The metrics to serve.
+     * @throws IOException If the server socket cannot be opened.
+     */
+    public MetricsServer(InetSocketAddress address, GameMetrics metrics) throws IOException {
+        this.metrics = metrics;
+        server = HttpServer.create(address, BACKLOG);
+        server.createContext("/", this::handle);
+        executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "pong-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Turns off Nagle's algorithm for every HttpServer of this JVM, unless NODELAY_PROPERTY was set on
+     * the command line. Has no effect once a server was created.
+     */
+    public static void useNoDelay() {
+        if (System.getProperty(NODELAY_PROPERTY) == null) {
+            System.setProperty(NODELAY_PROPERTY, "true");
+        }
+    }
+
+    /**
+     * Answers one request.
+     * @param exchange The request and its response.
+     * @throws IOException If the response cannot be sent.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!exchange.getRequestURI().getPath().equals(PATH)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            StringBuilder text = new StringBuilder(INITIAL_CAPACITY);
+            metrics.write(text);
+            byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            scrapes++;
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Stops serving, letting a request in progress finish for up to a second.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the address the server listens on, with the port it picked if it was given port 0.
+     * @return The local address.
+     */
+    public InetSocketAddress getLocalAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Returns the number of scrapes answered.
+     * @return The number of successful GET requests for PATH.
+     */
+    public long getScrapes() {
+        return scrapes;
+    }
+}
@@ -0,0 +1,259 @@
+/**
+ * This class runs the extra balls of the multi-ball mode next to the regular ball of a Simulation.
+ * Each tick a BallKernel moves every ball and bounces it off the walls, a SpatialHash sorts the balls
+ * into grid cells, the balls in the cells around each racket are bounced off it, and balls in
+ * neighbouring cells bounce off each other. A ball that reaches the left or right edge is counted as
+ * a goal and starts again from the center. Only the regular ball scores, unless setScoring() lets the
+ * extra balls score too; with hundreds of balls that ends a match within seconds.
+ *
+ * Unlike the regular ball, the extra balls are tested at their end position each tick rather than
+ * swept, so their speed is capped at MAX_SPEED to keep them from passing through a racket.
+ */
+package com.example.pong1;
+
+public class MultiBall {
+    // Highest ball speed along each axis, in units per reference frame. At REFERENCE_RATE or higher
+    // a ball moves at most one radius per tick, less than the width of a racket plus a ball.
+    public static final float MAX_SPEED = Simulation.BALL_RADIUS;
+    private static final float MIN_SPAWN_SPEED = 1; // Speed range of new balls, per reference frame
+    private static final float MAX_SPAWN_SPEED = 3;
+    private final BallField balls;
+    private final SpatialHash hash;
+    private final BallKernel kernel;
+    private final int[] candidates; // Balls near a racket, reused every tick
+    private boolean ballCollisions = true; // Whether balls bounce off each other
+    private long random; // SplitMix64 state for spawning
+    private long ballContacts; // Ball-ball bounces so far
+    private boolean scoring; // Whether the extra balls' goals count towards the score
+    private long leftGoals; // Extra balls that reached the right edge
+    private long rightGoals; // Extra balls that reached the left edge
+
+    /**
+     * Constructs a new multi-ball mode with the fastest kernel available.
+     * @param capacity The largest number of extra balls.
+     */
+    public MultiBall(int capacity) {
+        this(capacity, BallKernel.load());
+    }
+
+    /**
+     * Constructs a new multi-ball mode with a specific kernel, e.g. to compare kernels in benchmarks.
+     * @param capacity The largest number of extra balls.
+     * @param kernel The kernel that moves and bounces the balls.
+     */
+    public MultiBall(int capacity, BallKernel kernel) {
+        balls = new BallField(capacity, Simulation.BALL_RADIUS);
+        hash = new SpatialHash(2 * Simulation.BALL_RADIUS, capacity);
+        candidates = new int[capacity];
+        this.kernel = kernel;
+    }
+
+    /**
+     * Adds balls at random positions in the middle half of the field, moving in random directions.
+     * @param count The number of balls to add; balls beyond the capacity are ignored.
+     * @param seed The seed of the random positions and directions.
+     */
+    public void spawn(int count, long seed) {
+        random = seed;
+        for (int i = 0; i < count; i++) {
+            float speed = MIN_SPAWN_SPEED + (MAX_SPAWN_SPEED - MIN_SPAWN_SPEED) * nextFloat();
+            double angle = (nextFloat() - 0.5) * Math.PI / 2; // Within 45 degrees of horizontal
+            float velocityX = (float) (speed * Math.cos(angle)) * (nextFloat() < 0.5 ? -1 : 1);
+            float velocityY = (float) (speed * Math.sin(angle));
+            float x = Simulation.WIDTH * (0.25f + 0.5f * nextFloat());
+            float y = balls.radius + (Simulation.HEIGHT - 2 * balls.radius) * nextFloat();
+            if (balls.add(x, y, velocityX, velocityY) < 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Advances every extra ball by one tick. Called from Simulation.step().
+     * @param simulation The simulation whose rackets the balls bounce off and whose scores they raise.
+     * @return The event bits raised by the extra balls.
+     */
+    int step(Simulation simulation) {
+        kernel.moveAndBounceWalls(balls, (float) simulation.timeScale);
+        hash.build(balls);
+
+        int events = 0;
+        int bounces = bounceRacket(Simulation.LEFT_RACKET_X, simulation.leftRacketY, simulation)
+                + bounceRacket(Simulation.RIGHT_RACKET_X, simulation.rightRacketY, simulation);
+        if (bounces > 0) {
+            events |= Simulation.EVENT_RACKET_HIT;
+        }
+        if (ballCollisions) {
+            collideBalls();
+        }
+        return events | checkGoals(simulation);
+    }
+
+    /**
+     * Bounces the balls in the cells around a racket off it.
+     * @return The number of balls that bounced.
+     */
+    private int bounceRacket(double racketX, double racketY, Simulation simulation) {
+        float r = balls.radius;
+        int count = hash.query((float) racketX - r, (float) racketY - r,
+                (float) (racketX + simulation.racketWidth) + r, (float) (racketY + simulation.racketHeight) + r,
+                candidates);
+        return kernel.bounceRacket(balls, candidates, count, (float) racketX, (float) racketY,
+                (float) simulation.racketWidth, (float) simulation.racketHeight);
+    }
+
+    /**
+     * Bounces touching balls off each other. Each ball is checked against the balls after it in its
+     * own cell and against the four neighbouring cells after it (right, and the three below), so every
+     * nearby pair is checked exactly once. Walking the balls rather than the cells keeps the cost
+     * proportional to the number of balls.
+     */
+    private void collideBalls() {
+        int columns = hash.columns;
+        int rows = hash.rows;
+        int[] start = hash.cellStart;
+        int[] entries = hash.entries;
+        for (int a = 0; a < balls.count; a++) {
+            int i = entries[a];
+            int cell = hash.ballCell[i];
+            int column = cell % columns;
+            int row = cell / columns;
+            for (int b = a + 1, end = start[cell + 1]; b < end; b++) {
+                collide(i, entries[b]);
+            }
+            if (column + 1 < columns) {
+                collideWithCell(i, cell + 1);
+            }
+            if (row + 1 < rows) {
+                if (column > 0) {
+                    collideWithCell(i, cell + columns - 1);
+                }
+                collideWithCell(i, cell + columns);
+                if (column + 1 < columns) {
+                    collideWithCell(i, cell + columns + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Bounces a ball off every ball in a cell.
+     */
+    private void collideWithCell(int i, int cell) {
+        int[] entries = hash.entries;
+        for (int e = hash.cellStart[cell], end = hash.cellStart[cell + 1]; e < end; e++) {
+            collide(i, entries[e]);
+        }
+    }
+
+    /**
+     * Bounces two balls off each other if they touch and are moving closer. Both balls have the same
+     * mass, so they swap their velocity components along the line between their centers.
+     */
+    private void collide(int i, int j) {
+        float[] x = balls.x;
+        float[] y = balls.y;
+        float[] vx = balls.vx;
+        float[] vy = balls.vy;
+        float dx = x[j] - x[i];
+        float dy = y[j] - y[i];
+        float distanceSquared = dx * dx + dy * dy;
+        float diameter = 2 * balls.radius;
+        if (distanceSquared >= diameter * diameter || distanceSquared == 0) {
+            return;
+        }
+        float approach = (vx[i] - vx[j]) * dx + (vy[i] - vy[j]) * dy;
+        if (approach <= 0) {
+            return; // Already moving apart
+        }
+        float k = approach / distanceSquared;
+        vx[i] = limitSpeed(vx[i] - k * dx);
+        vy[i] = limitSpeed(vy[i] - k * dy);
+        vx[j] = limitSpeed(vx[j] + k * dx);
+        vy[j] = limitSpeed(vy[j] + k * dy);
+        ballContacts++;
+    }
+
+    /**
+     * Counts every ball that reached the left or right edge as a goal and puts it back in the center.
+     * The goals only raise the scores if scoring is on.
+     * @return The event bits raised by the goals.
+     */
+    private int checkGoals(Simulation simulation) {
+        float[] x = balls.x;
+        float r = balls.radius;
+        int events = 0;
+        for (int i = 0; i < balls.count; i++) {
+            if (x[i] - r <= 0) {
+                rightGoals++;
+                if (scoring) {
+                    simulation.rightScore++;
+                    events |= Simulation.EVENT_RIGHT_SCORED;
+                }
+                x[i] = Simulation.WIDTH / 2f;
+            } else if (x[i] + r >= Simulation.WIDTH) {
+                leftGoals++;
+                if (scoring) {
+                    simulation.leftScore++;
+                    events |= Simulation.EVENT_LEFT_SCORED;
+                }
+                x[i] = Simulation.WIDTH / 2f;
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Limits a velocity component to MAX_SPEED in either direction.
+     */
+    private static float limitSpeed(float speed) {
+        return Math.max(-MAX_SPEED, Math.min(speed, MAX_SPEED));
+    }
+
+    /**
+     * Returns the next random number in [0, 1).
+     */
+    private float nextFloat() {
+        long z = random += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (z >>> 40) * 0x1.0p-24f;
+    }
+
+    /**
+     * Turns ball-ball bounces on or off.
+     * @param enabled Whether balls bounce off each other.
+     */
+    public void setBallCollisions(boolean enabled) {
+        ballCollisions = enabled;
+    }
+
+    /**
+     * Sets whether the goals of the extra balls raise the scores like those of the regular ball.
+     * @param enabled Whether the extra balls score; off by default.
+     */
+    public void setScoring(boolean enabled) {
+        scoring = enabled;
+    }
+
+    public BallField getBalls() {
+        return balls;
+    }
+
+    public BallKernel getKernel() {
+        return kernel;
+    }
+
+    public long getBallContacts() {
+        return ballContacts;
+    }
+
+    public long getLeftGoals() {
+        return leftGoals;
+    }
+
+    public long getRightGoals() {
+        return rightGoals;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * This class holds the benchmarks for the multi-ball mode: one full simulation tick with 1 to 100,000
+ * extra balls, once with the scalar kernel and, when the JVM was started with
+ * --add-modules jdk.incubator.vector, once with the Vector API kernel. These leave out ball-ball
+ * bounces, which are measured separately because 100,000 balls cover the field many times over and
+ * the cost then depends on the overlap more than on the broadphase. The spatial hash build is also
+ * measured on its own. Run it with the options of BenchmarkRunner, e.g. --filter=multiball-vector.
+ */
+package com.example.pong1;
+
+public class MultiBallBenchmarks {
+    private static final int[] BALL_COUNTS = {1, 10, 100, 1_000, 10_000, 100_000};
+
+    /**
+     * Runs the multi-ball benchmarks and exits with a non-zero status if any of them regressed.
+     * @param args Options passed on to BenchmarkRunner.
+     * @throws Exception If a baseline file cannot be read or written.
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        register(runner);
+        System.exit(runner.runAll(args));
+    }
+
+    /**
+     * Registers the multi-ball benchmarks with a runner.
+     * @param runner The runner to add the benchmarks to.
+     */
+    static void register(BenchmarkRunner runner) {
+        BallKernel fastest = BallKernel.load();
+        for (int count : BALL_COUNTS) {
+            addTick(runner, "multiball-scalar-" + count, new ScalarBallKernel(), count, false);
+            if (!(fastest instanceof ScalarBallKernel)) {
+                addTick(runner, "multiball-vector-" + count, fastest, count, false);
+            }
+        }
+        for (int count : BALL_COUNTS) {
+            addTick(runner, "multiball-collide-" + count, fastest, count, true);
+        }
+
+        for (int count : BALL_COUNTS) {
+            MultiBall multiBall = new MultiBall(count);
+            multiBall.spawn(count, 1);
+            BallField balls = multiBall.getBalls();
+            SpatialHash hash = new SpatialHash(2 * Simulation.BALL_RADIUS, count);
+            runner.add("spatial-hash-build-" + count, operations -> {
+                long entries = 0;
+                for (int i = 0; i < operations; i++) {
+                    hash.build(balls);
+                    entries += hash.entries[i % count];
+                }
+                return entries;
+            });
+        }
+    }
+
+    /**
+     * Registers a benchmark of one full tick with the specified number of extra balls.
+     */
+    private static void addTick(BenchmarkRunner runner, String name, BallKernel kernel, int count,
+                                boolean ballCollisions) {
+        Simulation simulation = new Simulation(Integer.MAX_VALUE);
+        simulation.setTickRate(Panel.DEFAULT_TICK_RATE);
+        MultiBall multiBall = new MultiBall(count, kernel);
+        multiBall.spawn(count, 1);
+        multiBall.setBallCollisions(ballCollisions);
+        simulation.setMultiBall(multiBall);
+        runner.add(name, operations -> {
+            long events = 0;
+            for (int i = 0; i < operations; i++) {
+                events += simulation.step(TrackingBot.inputs(simulation));
+            }
+            return events;
+        });
+    }
+}
@@ -1,18 +1,25 @@
 /**
  * This class serves as the entry point for the Pong game application. It contains the main method
  * that launches the JavaFX application by invoking the launch method of the Application class with
- * the specified GameFrame class.
+ * the specified GameFrame class. Before that it starts warming up the game code on a background
+ * thread (unless started with --no-warmup), so the warm-up overlaps the start of the JavaFX toolkit.
  */
 package com.example.pong1;
 
 import javafx.application.Application;
 
+import java.util.Arrays;
+
 public class MyMain {
     /**
      * The main method that launches the Pong game application.
-     * @param args Command-line arguments (unused).
+     * @param args Command-line arguments, see GameFrame and LaunchConfig.
      */
     public static void main(String[] args) {
+        StartupBenchmark.mark(StartupBenchmark.MAIN);
+        if (!Arrays.asList(args).contains("--no-warmup")) {
+            StartupBenchmark.setWarmup(Warmup.start());
+        }
         Application.launch(GameFrame.class, args); // Launch the JavaFX application with GameFrame
     }
 }
@@ -0,0 +1,268 @@
+/**
+ * This class is a player's connection to a NetServer. Once per tick it sends the local input bits in a
+ * timestamped INPUT packet, applies the newest SNAPSHOT from the server to a local Simulation, and
+ * predicts its own racket by replaying the inputs the server has not applied yet on top of the
+ * authoritative position, so the player's racket responds without waiting a round trip. It measures
+ * the end-to-end input latency, from sending an input until a snapshot confirms it was applied.
+ */
+package com.example.pong1;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+
+public class NetClient {
+    private static final int INPUT_HISTORY = 256; // Unacknowledged inputs kept for prediction
+    private final DatagramChannel channel;
+    private final InetSocketAddress server;
+    private final LinkSimulator link;
+    private Simulation simulation; // Receives the match state once attached
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET_BYTES);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET_BYTES);
+    private final double[][] snapshots = new double[NetProtocol.HISTORY][NetProtocol.FIELDS]; // Received, by sequence
+    private final int[] snapshotSeqs = new int[NetProtocol.HISTORY];
+    private final double[] fields = new double[NetProtocol.FIELDS];
+    private final int[] inputHistory = new int[INPUT_HISTORY]; // Input bits by sequence
+    private final LatencyHistogram inputLatency = new LatencyHistogram();
+    private byte side; // 0 until welcomed
+    private int tickRate;
+    private int finalScore;
+    private String leftPlayerName;
+    private String rightPlayerName;
+    private int inputSeq = -1; // Sequence of the last input sent
+    private int latestSnapshot = -1; // Sequence of the newest snapshot applied
+    private int ackedInputSeq = -1; // Last input the server has applied
+    private double serverRacketY; // Authoritative position of our own racket
+    private long receivedBytes;
+
+    /**
+     * Constructs a new client for the specified server.
+     * @param server The address of the server.
+     * @param link The simulated link used for outgoing packets.
+     * @throws IOException If the channel cannot be opened.
+     */
+    public NetClient(InetSocketAddress server, LinkSimulator link) throws IOException {
+        this.server = server;
+        this.link = link;
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.connect(server);
+        Arrays.fill(snapshotSeqs, -1);
+    }
+
+    /**
+     * Joins the match, resending the request until the server welcomes the client.
+     * @param timeoutMillis How long to keep trying.
+     * @return true if the client was welcomed.
+     * @throws IOException If the channel fails.
+     */
+    public boolean join(long timeoutMillis) throws IOException {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+        long nextJoin = 0;
+        while (side == 0 && System.nanoTime() < deadline) {
+            long now = System.nanoTime();
+            if (now >= nextJoin) {
+                sendBuffer.clear();
+                sendBuffer.put(NetProtocol.JOIN).flip();
+                link.send(channel, sendBuffer, server, now);
+                nextJoin = now + 100_000_000L;
+            }
+            link.flush(channel, now);
+            receive(now);
+            Thread.onSpinWait();
+        }
+        return side != 0;
+    }
+
+    /**
+     * Sets the simulation that receives the match state, e.g. the one a Panel renders. Call this
+     * after joining and before the first tick.
+     * @param target The simulation to write the match state into.
+     */
+    public void attach(Simulation target) {
+        simulation = target;
+        simulation.finalScore = finalScore;
+        simulation.setTickRate(tickRate);
+        serverRacketY = side == NetProtocol.LEFT ? simulation.leftRacketY : simulation.rightRacketY;
+    }
+
+    /**
+     * Advances the client by one tick: applies any new snapshots, sends the local input and predicts
+     * the local racket.
+     * @param localInputs The input bits held by the local player; bits for the other racket are ignored.
+     * @return The event bits for scores and the end of the match seen in this tick's snapshots.
+     * @throws IOException If the channel fails.
+     */
+    public int tick(int localInputs) throws IOException {
+        long now = System.nanoTime();
+        int leftScore = simulation.leftScore;
+        int rightScore = simulation.rightScore;
+        boolean ended = simulation.gameEnded;
+        simulation.savePreviousState();
+        receive(now);
+
+        // Send this tick's input
+        inputSeq++;
+        int bits = localInputs & ownInputMask();
+        inputHistory[inputSeq & (INPUT_HISTORY - 1)] = bits;
+        sendBuffer.clear();
+        sendBuffer.put(NetProtocol.INPUT).putInt(inputSeq).putLong(now).put((byte) bits).putInt(latestSnapshot);
+        sendBuffer.flip();
+        link.send(channel, sendBuffer, server, now);
+        link.flush(channel, now);
+
+        // Predict our racket: the server's position plus every input it has not applied yet
+        if (side != 0 && !simulation.gameEnded) {
+            double y = serverRacketY;
+            int first = Math.max(ackedInputSeq + 1, inputSeq - INPUT_HISTORY + 1);
+            for (int seq = first; seq <= inputSeq; seq++) {
+                y = moveOwnRacket(y, inputHistory[seq & (INPUT_HISTORY - 1)]);
+            }
+            if (side == NetProtocol.LEFT) {
+                simulation.leftRacketY = y;
+            } else {
+                simulation.rightRacketY = y;
+            }
+        }
+
+        int events = 0;
+        if (simulation.leftScore != leftScore) {
+            events |= Simulation.EVENT_LEFT_SCORED;
+        }
+        if (simulation.rightScore != rightScore) {
+            events |= Simulation.EVENT_RIGHT_SCORED;
+        }
+        if (simulation.gameEnded && !ended) {
+            events |= Simulation.EVENT_MATCH_END;
+        }
+        return events;
+    }
+
+    /**
+     * Reads every pending datagram from the server.
+     */
+    private void receive(long now) throws IOException {
+        while (true) {
+            receiveBuffer.clear();
+            if (channel.receive(receiveBuffer) == null) {
+                return;
+            }
+            receivedBytes += receiveBuffer.position();
+            receiveBuffer.flip();
+            if (!receiveBuffer.hasRemaining()) {
+                continue;
+            }
+            byte type = receiveBuffer.get();
+            if (type == NetProtocol.WELCOME && side == 0) {
+                side = receiveBuffer.get();
+                tickRate = receiveBuffer.getInt();
+                finalScore = receiveBuffer.getInt();
+                leftPlayerName = NetProtocol.getString(receiveBuffer);
+                rightPlayerName = NetProtocol.getString(receiveBuffer);
+            } else if (type == NetProtocol.SNAPSHOT) {
+                handleSnapshot(now);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds a snapshot from its baseline and applies it if it is newer than the last one applied.
+     */
+    private void handleSnapshot(long now) {
+        int seq = receiveBuffer.getInt();
+        int baseSeq = receiveBuffer.getInt();
+        receiveBuffer.getLong(); // Server tick
+        int appliedInputSeq = receiveBuffer.getInt();
+        long inputTime = receiveBuffer.getLong();
+        if (simulation == null || (latestSnapshot >= 0 && seq - latestSnapshot <= 0)) {
+            return; // Not attached yet, or out of order
+        }
+        double[] baseline = null;
+        if (baseSeq >= 0) {
+            int slot = baseSeq & (NetProtocol.HISTORY - 1);
+            if (snapshotSeqs[slot] != baseSeq) {
+                return; // Baseline no longer held; a later snapshot will use a newer one
+            }
+            baseline = snapshots[slot];
+        }
+        NetProtocol.readDelta(receiveBuffer, baseline == null ? fields : baseline, fields);
+        int slot = seq & (NetProtocol.HISTORY - 1);
+        System.arraycopy(fields, 0, snapshots[slot], 0, NetProtocol.FIELDS);
+        snapshotSeqs[slot] = seq;
+        latestSnapshot = seq;
+
+        int scores = simulation.leftScore + simulation.rightScore;
+        NetProtocol.apply(fields, simulation);
+        if (simulation.leftScore + simulation.rightScore != scores) {
+            simulation.prevBallX = simulation.ballX; // Don't interpolate across a reset
+            simulation.prevBallY = simulation.ballY;
+        }
+        serverRacketY = side == NetProtocol.LEFT ? simulation.leftRacketY : simulation.rightRacketY;
+        if (appliedInputSeq - ackedInputSeq > 0) {
+            ackedInputSeq = appliedInputSeq;
+            inputLatency.record(now - inputTime);
+        }
+    }
+
+    /**
+     * Moves our racket by one tick of input, the same way the server does.
+     */
+    private double moveOwnRacket(double y, int bits) {
+        if (side == NetProtocol.LEFT) {
+            return simulation.moveRacket(y, (bits & Simulation.LEFT_UP) != 0, (bits & Simulation.LEFT_DOWN) != 0);
+        }
+        return simulation.moveRacket(y, (bits & Simulation.RIGHT_UP) != 0, (bits & Simulation.RIGHT_DOWN) != 0);
+    }
+
+    /**
+     * Returns the input bits of the racket this client controls.
+     */
+    private int ownInputMask() {
+        if (side == NetProtocol.LEFT) {
+            return Simulation.LEFT_UP | Simulation.LEFT_DOWN;
+        }
+        return side == NetProtocol.RIGHT ? Simulation.RIGHT_UP | Simulation.RIGHT_DOWN : 0;
+    }
+
+    /**
+     * Closes the connection.
+     * @throws IOException If the channel cannot be closed.
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public byte getSide() {
+        return side;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public int getFinalScore() {
+        return finalScore;
+    }
+
+    public String getLeftPlayerName() {
+        return leftPlayerName;
+    }
+
+    public String getRightPlayerName() {
+        return rightPlayerName;
+    }
+
+    public LatencyHistogram getInputLatency() {
+        return inputLatency;
+    }
+
+    public long getSentBytes() {
+        return link.getSentBytes();
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+}
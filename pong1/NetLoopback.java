@@ -0,0 +1,112 @@
+/**
+ * This class plays a complete networked match over loopback on one machine: a NetServer and two
+ * NetClients driven by TrackingBot inputs, each on its own thread, with the link impairments given on
+ * the command line. It reports the bandwidth used by the match in each direction, the packets lost,
+ * and the end-to-end input latency seen by each client.
+ *
+ * Run it with: NetLoopback [LATENCY_MS] [JITTER_MS] [LOSS_RATE] [FINAL_SCORE] [BALL_SPEED]
+ */
+package com.example.pong1;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.locks.LockSupport;
+
+public class NetLoopback {
+    private static final long JOIN_TIMEOUT_MILLIS = 5_000;
+
+    /**
+     * Runs one loopback match and prints the measurements.
+     * @param args The link impairments and match settings described in the class comment.
+     * @throws Exception If the match cannot be set up.
+     */
+    public static void main(String[] args) throws Exception {
+        double latency = args.length > 0 ? Double.parseDouble(args[0]) : 20;
+        double jitter = args.length > 1 ? Double.parseDouble(args[1]) : 5;
+        double loss = args.length > 2 ? Double.parseDouble(args[2]) : 0.02;
+        int finalScore = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        int ballSpeed = args.length > 4 ? Integer.parseInt(args[4]) : 8;
+
+        LinkSimulator serverLink = new LinkSimulator(latency, jitter, loss, 1);
+        NetServer server = new NetServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), finalScore,
+                Panel.DEFAULT_TICK_RATE, "Left bot", "Right bot", serverLink);
+        server.getSimulation().increaseBallSpeed(ballSpeed);
+        InetSocketAddress address = server.getLocalAddress();
+        Thread serverThread = new Thread(server, "pong-server");
+        serverThread.start();
+
+        ClientRunner left = new ClientRunner(address, new LinkSimulator(latency, jitter, loss, 2));
+        ClientRunner right = new ClientRunner(address, new LinkSimulator(latency, jitter, loss, 3));
+        Thread leftThread = new Thread(left, "pong-client-left");
+        Thread rightThread = new Thread(right, "pong-client-right");
+        long start = System.nanoTime();
+        leftThread.start();
+        rightThread.start();
+        leftThread.join();
+        rightThread.join();
+        server.stop();
+        serverThread.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Simulation result = server.getSimulation();
+        System.out.printf("Link: %.0f ms latency, %.0f ms jitter, %.1f%% loss%n", latency, jitter, loss * 100);
+        System.out.printf("Match: %d : %d in %.1f s (%d ticks)%n", result.getLeftScore(), result.getRightScore(),
+                seconds, result.getTick());
+        System.out.printf("Server -> clients: %d bytes (%.1f kbit/s), %d packets dropped%n", server.getSentBytes(),
+                server.getSentBytes() * 8 / seconds / 1000, serverLink.getDroppedPackets());
+        System.out.printf("Clients -> server: %d bytes (%.1f kbit/s)%n", server.getReceivedBytes(),
+                server.getReceivedBytes() * 8 / seconds / 1000);
+        left.report("left");
+        right.report("right");
+    }
+
+    /**
+     * This class runs one client at the server's tick rate until its match has ended.
+     */
+    private static class ClientRunner implements Runnable {
+        private final InetSocketAddress address;
+        private final LinkSimulator link;
+        private final Simulation simulation = new Simulation(Integer.MAX_VALUE);
+        private NetClient client;
+
+        ClientRunner(InetSocketAddress address, LinkSimulator link) {
+            this.address = address;
+            this.link = link;
+        }
+
+        @Override
+        public void run() {
+            try {
+                client = new NetClient(address, link);
+                if (!client.join(JOIN_TIMEOUT_MILLIS)) {
+                    System.err.println("Could not join the server");
+                    return;
+                }
+                client.attach(simulation);
+                long tickNanos = 1_000_000_000L / client.getTickRate();
+                long nextTick = System.nanoTime();
+                while (!simulation.isGameEnded()) {
+                    client.tick(TrackingBot.inputs(simulation));
+                    nextTick += tickNanos;
+                    LockSupport.parkNanos(nextTick - System.nanoTime());
+                }
+                client.close();
+            } catch (Exception e) {
+                System.err.println("Client stopped: " + e);
+            }
+        }
+
+        /**
+         * Prints the input latency and traffic of this client.
+         */
+        void report(String name) {
+            if (client == null) {
+                return;
+            }
+            LatencyHistogram latency = client.getInputLatency();
+            System.out.printf("Client %-5s: input latency p50 %.1f ms p99 %.1f ms max %.1f ms, %d bytes sent, %d received%n",
+                    name, latency.percentile(50) / 1e6, latency.percentile(99) / 1e6, latency.getMax() / 1e6,
+                    client.getSentBytes(), client.getReceivedBytes());
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * This class defines the datagram protocol between NetServer and NetClient. Clients join, then send
+ * one timestamped INPUT packet per tick with their held input bits. The server answers with SNAPSHOT
+ * packets of the authoritative match state, delta-compressed against the last snapshot the client
+ * acknowledged: a bit mask says which fields changed, and only those fields follow.
+ *
+ * JOIN:     type
+ * WELCOME:  type, side, tick rate, final score, left name, right name
+ * INPUT:    type, input sequence, client time, input bits, last snapshot received
+ * SNAPSHOT: type, snapshot sequence, baseline sequence (-1 for a full snapshot), server tick,
+ *           last input sequence applied, client time of that input, changed-field mask, fields
+ *
+ * Rollback peers (RollbackPeer) skip the server and send each other their inputs directly:
+ *
+ * PEER_INPUT: type, first tick, input count, input bits of each tick from the first, last tick up to
+ *             which every input of the receiver has arrived
+ *
+ * Spectators (SpectatorServer) connect over TCP instead and only receive. Every message on the stream
+ * starts with its length as an unsigned short, not counting the length itself:
+ *
+ * SPECTATE_HELLO:    type, tick rate, final score, keyframe interval, left name, right name
+ * SPECTATE_KEYFRAME: type, frame sequence, tick, server time, changed-field mask (all set), fields
+ * SPECTATE_DELTA:    type, frame sequence, tick, server time, changed-field mask, fields changed since
+ *                    the frame before
+ */
+package com.example.pong1;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public final class NetProtocol {
+    public static final byte JOIN = 1;
+    public static final byte WELCOME = 2;
+    public static final byte INPUT = 3;
+    public static final byte SNAPSHOT = 4;
+    public static final byte PEER_INPUT = 5;
+    public static final byte SPECTATE_HELLO = 6;
+    public static final byte SPECTATE_KEYFRAME = 7;
+    public static final byte SPECTATE_DELTA = 8;
+    public static final byte LEFT = 1; // Side of the player controlling the left racket
+    public static final byte RIGHT = 2; // Side of the player controlling the right racket
+    public static final int MAX_PACKET_BYTES = 512;
+    static final int HISTORY = 32; // Snapshots kept as delta baselines; must be a power of two
+
+    // Snapshot fields, in the order they are written
+    static final int BALL_X = 0;
+    static final int BALL_Y = 1;
+    static final int BALL_DIR_X = 2;
+    static final int BALL_DIR_Y = 3;
+    static final int LEFT_RACKET_Y = 4;
+    static final int RIGHT_RACKET_Y = 5;
+    static final int RACKET_HEIGHT = 6;
+    static final int LEFT_SCORE = 7;
+    static final int RIGHT_SCORE = 8;
+    static final int GAME_ENDED = 9;
+    static final int FIELDS = 10;
+
+    private NetProtocol() {
+    }
+
+    /**
+     * Copies the replicated fields of a simulation into a field array.
+     * @param simulation The simulation to read.
+     * @param fields The array to fill, of length FIELDS.
+     */
+    static void capture(Simulation simulation, double[] fields) {
+        fields[BALL_X] = simulation.ballX;
+        fields[BALL_Y] = simulation.ballY;
+        fields[BALL_DIR_X] = simulation.ballDirX;
+        fields[BALL_DIR_Y] = simulation.ballDirY;
+        fields[LEFT_RACKET_Y] = simulation.leftRacketY;
+        fields[RIGHT_RACKET_Y] = simulation.rightRacketY;
+        fields[RACKET_HEIGHT] = simulation.racketHeight;
+        fields[LEFT_SCORE] = simulation.leftScore;
+        fields[RIGHT_SCORE] = simulation.rightScore;
+        fields[GAME_ENDED] = simulation.gameEnded ? 1 : 0;
+    }
+
+    /**
+     * Copies a field array into the replicated fields of a simulation.
+     * @param fields The fields to apply, of length FIELDS.
+     * @param simulation The simulation to update.
+     */
+    static void apply(double[] fields, Simulation simulation) {
+        simulation.ballX = fields[BALL_X];
+        simulation.ballY = fields[BALL_Y];
+        simulation.ballDirX = fields[BALL_DIR_X];
+        simulation.ballDirY = fields[BALL_DIR_Y];
+        simulation.leftRacketY = fields[LEFT_RACKET_Y];
+        simulation.rightRacketY = fields[RIGHT_RACKET_Y];
+        simulation.racketHeight = fields[RACKET_HEIGHT];
+        simulation.leftScore = (int) fields[LEFT_SCORE];
+        simulation.rightScore = (int) fields[RIGHT_SCORE];
+        simulation.gameEnded = fields[GAME_ENDED] != 0;
+    }
+
+    /**
+     * Writes the fields that differ from the baseline, preceded by the mask of changed fields.
+     * @param buffer The packet to write to.
+     * @param fields The current fields.
+     * @param baseline The fields the receiver already has, or null to write every field.
+     */
+    static void writeDelta(ByteBuffer buffer, double[] fields, double[] baseline) {
+        int maskPosition = buffer.position();
+        buffer.putShort((short) 0);
+        int mask = 0;
+        for (int i = 0; i < FIELDS; i++) {
+            if (baseline == null || Double.doubleToRawLongBits(fields[i]) != Double.doubleToRawLongBits(baseline[i])) {
+                mask |= 1 << i;
+                putField(buffer, i, fields[i]);
+            }
+        }
+        buffer.putShort(maskPosition, (short) mask);
+    }
+
+    /**
+     * Reads a delta written by writeDelta() on top of the baseline.
+     * @param buffer The packet to read from.
+     * @param baseline The fields the delta was made against; unchanged fields are copied from it.
+     * @param fields The array to fill with the resulting fields.
+     */
+    static void readDelta(ByteBuffer buffer, double[] baseline, double[] fields) {
+        int mask = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < FIELDS; i++) {
+            fields[i] = (mask & (1 << i)) != 0 ? getField(buffer, i) : baseline[i];
+        }
+    }
+
+    /**
+     * Writes one field in its wire format: scores as ints, the end flag as a byte, the rest as doubles.
+     */
+    private static void putField(ByteBuffer buffer, int field, double value) {
+        if (field == LEFT_SCORE || field == RIGHT_SCORE) {
+            buffer.putInt((int) value);
+        } else if (field == GAME_ENDED) {
+            buffer.put((byte) value);
+        } else {
+            buffer.putDouble(value);
+        }
+    }
+
+    /**
+     * Reads one field written by putField().
+     */
+    private static double getField(ByteBuffer buffer, int field) {
+        if (field == LEFT_SCORE || field == RIGHT_SCORE) {
+            return buffer.getInt();
+        } else if (field == GAME_ENDED) {
+            return buffer.get();
+        }
+        return buffer.getDouble();
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string.
+     */
+    static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, 64);
+        buffer.put((byte) length).put(bytes, 0, length);
+    }
+
+    /**
+     * Reads a string written by putString().
+     */
+    static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.get() & 0xFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * This class is the authoritative server of the networked two-player mode. It runs the game rules
+ * headless in a Simulation at a fixed tick rate, takes the held input bits of each player from
+ * INPUT packets on a non-blocking DatagramChannel, and sends every client a delta-compressed SNAPSHOT
+ * of the match after each tick. The first client to join plays the left racket, the second the right.
+ *
+ * Run it with: NetServer PORT [FINAL_SCORE] [LEFT_NAME] [RIGHT_NAME]
+ */
+package com.example.pong1;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.locks.LockSupport;
+
+public class NetServer implements Runnable {
+    private static final int MAX_STEPS_PER_LOOP = 5; // Cap on catch-up ticks per loop iteration
+    private static final long IDLE_NANOS = 200_000L; // Sleep between loop iterations
+    private static final int LINGER_SECONDS = 1; // Final snapshots keep going out this long, in case some are lost
+    private final DatagramChannel channel;
+    private final Simulation simulation;
+    private final FixedStepClock clock;
+    private final LinkSimulator link;
+    private final int tickRate;
+    private final String leftPlayerName;
+    private final String rightPlayerName;
+    private final ClientSlot left = new ClientSlot(NetProtocol.LEFT);
+    private final ClientSlot right = new ClientSlot(NetProtocol.RIGHT);
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET_BYTES);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET_BYTES);
+    private final double[] fields = new double[NetProtocol.FIELDS];
+    private volatile boolean running = true;
+    private int lingerTicks; // Ticks of final snapshots left to send after the match has ended
+    private long receivedBytes;
+
+    /**
+     * This class holds the connection state of one player.
+     */
+    private static class ClientSlot {
+        final byte side;
+        SocketAddress address; // Null until a client has joined
+        int lastInputSeq = -1; // Highest input sequence received
+        long lastInputTime; // Client time of that input
+        int inputs; // Input bits held by the player
+        int ackedSnapshot = -1; // Last snapshot the client reported receiving
+        int nextSnapshotSeq; // Sequence of the next snapshot sent to the client
+        final double[][] history = new double[NetProtocol.HISTORY][NetProtocol.FIELDS]; // Sent snapshots by sequence
+
+        ClientSlot(byte side) {
+            this.side = side;
+        }
+    }
+
+    /**
+     * Constructs a new server bound to the specified address.
+     * @param address The address to listen on; port 0 picks a free port.
+     * @param finalScore The final score at which the match ends.
+     * @param tickRate The number of simulation ticks per second.
+     * @param leftPlayerName The name of the left player.
+     * @param rightPlayerName The name of the right player.
+     * @param link The simulated link used for outgoing packets.
+     * @throws IOException If the channel cannot be opened.
+     */
+    public NetServer(InetSocketAddress address, int finalScore, int tickRate, String leftPlayerName,
+                     String rightPlayerName, LinkSimulator link) throws IOException {
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.bind(address);
+        simulation = new Simulation(finalScore);
+        simulation.setTickRate(tickRate);
+        clock = new FixedStepClock(tickRate, MAX_STEPS_PER_LOOP);
+        this.tickRate = tickRate;
+        lingerTicks = tickRate * LINGER_SECONDS;
+        this.leftPlayerName = leftPlayerName;
+        this.rightPlayerName = rightPlayerName;
+        this.link = link;
+    }
+
+    /**
+     * Runs the server loop until the match has ended or stop() is called. The match clock starts
+     * once both players have joined; after the match has ended the final state is sent for another
+     * second so clients that lost a packet still see the result.
+     */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                receive();
+                if (left.address != null && right.address != null) {
+                    int steps = clock.advance(now);
+                    for (int i = 0; i < steps && lingerTicks > 0; i++) {
+                        if (simulation.isGameEnded()) {
+                            lingerTicks--;
+                        } else {
+                            simulation.step(left.inputs | right.inputs);
+                        }
+                        sendSnapshot(left, now);
+                        sendSnapshot(right, now);
+                    }
+                }
+                link.flush(channel, now);
+                if (lingerTicks == 0 && !link.hasPending()) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_NANOS);
+            }
+        } catch (IOException e) {
+            System.err.println("Server stopped: " + e.getMessage());
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Closing anyway
+            }
+        }
+    }
+
+    /**
+     * Asks the server loop to stop.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Reads every pending datagram and handles joins and inputs.
+     */
+    private void receive() throws IOException {
+        while (true) {
+            receiveBuffer.clear();
+            SocketAddress sender = channel.receive(receiveBuffer);
+            if (sender == null) {
+                return;
+            }
+            receivedBytes += receiveBuffer.position();
+            receiveBuffer.flip();
+            if (!receiveBuffer.hasRemaining()) {
+                continue;
+            }
+            byte type = receiveBuffer.get();
+            if (type == NetProtocol.JOIN) {
+                handleJoin(sender);
+            } else if (type == NetProtocol.INPUT && receiveBuffer.remaining() >= 17) {
+                ClientSlot slot = sender.equals(left.address) ? left : sender.equals(right.address) ? right : null;
+                if (slot != null) {
+                    handleInput(slot);
+                }
+            }
+        }
+    }
+
+    /**
+     * Assigns a joining client to the first free side and welcomes it. A repeated join from the same
+     * address is welcomed again, in case the first welcome was lost.
+     */
+    private void handleJoin(SocketAddress sender) throws IOException {
+        ClientSlot slot;
+        if (sender.equals(left.address) || left.address == null) {
+            slot = left;
+        } else if (sender.equals(right.address) || right.address == null) {
+            slot = right;
+        } else {
+            return; // Match is full
+        }
+        slot.address = sender;
+        sendBuffer.clear();
+        sendBuffer.put(NetProtocol.WELCOME).put(slot.side).putInt(tickRate).putInt(simulation.getFinalScore());
+        NetProtocol.putString(sendBuffer, leftPlayerName);
+        NetProtocol.putString(sendBuffer, rightPlayerName);
+        sendBuffer.flip();
+        link.send(channel, sendBuffer, sender, System.nanoTime());
+    }
+
+    /**
+     * Takes the input bits from an INPUT packet, ignoring packets older than the newest one seen.
+     * Each player can only move their own racket.
+     */
+    private void handleInput(ClientSlot slot) {
+        int seq = receiveBuffer.getInt();
+        long clientTime = receiveBuffer.getLong();
+        int bits = receiveBuffer.get();
+        int ackedSnapshot = receiveBuffer.getInt();
+        if (ackedSnapshot - slot.ackedSnapshot > 0) {
+            slot.ackedSnapshot = ackedSnapshot;
+        }
+        if (seq - slot.lastInputSeq <= 0 && slot.lastInputSeq >= 0) {
+            return; // Late or duplicate packet
+        }
+        slot.lastInputSeq = seq;
+        slot.lastInputTime = clientTime;
+        int mask = slot.side == NetProtocol.LEFT
+                ? Simulation.LEFT_UP | Simulation.LEFT_DOWN
+                : Simulation.RIGHT_UP | Simulation.RIGHT_DOWN;
+        slot.inputs = bits & mask;
+    }
+
+    /**
+     * Sends the current match state to a client, as a delta against the last snapshot it acknowledged
+     * if that snapshot is still in the history, or in full otherwise.
+     */
+    private void sendSnapshot(ClientSlot slot, long now) throws IOException {
+        int seq = slot.nextSnapshotSeq++;
+        NetProtocol.capture(simulation, fields);
+        boolean hasBaseline = slot.ackedSnapshot >= 0 && seq - slot.ackedSnapshot < NetProtocol.HISTORY;
+        int baseSeq = hasBaseline ? slot.ackedSnapshot : -1;
+
+        sendBuffer.clear();
+        sendBuffer.put(NetProtocol.SNAPSHOT).putInt(seq).putInt(baseSeq).putLong(simulation.getTick());
+        sendBuffer.putInt(slot.lastInputSeq).putLong(slot.lastInputTime);
+        NetProtocol.writeDelta(sendBuffer, fields,
+                hasBaseline ? slot.history[baseSeq & (NetProtocol.HISTORY - 1)] : null);
+        sendBuffer.flip();
+        System.arraycopy(fields, 0, slot.history[seq & (NetProtocol.HISTORY - 1)], 0, NetProtocol.FIELDS);
+        link.send(channel, sendBuffer, slot.address, now);
+    }
+
+    /**
+     * Returns the address the server is listening on.
+     * @throws IOException If the channel is closed.
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) channel.getLocalAddress();
+    }
+
+    public Simulation getSimulation() {
+        return simulation;
+    }
+
+    public long getSentBytes() {
+        return link.getSentBytes();
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    /**
+     * Starts a server from the command line and runs it until the match ends.
+     * @param args The port, and optionally the final score and both player names.
+     * @throws IOException If the server cannot be started.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = Integer.parseInt(args[0]);
+        int finalScore = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String leftName = args.length > 2 ? args[2] : "Left";
+        String rightName = args.length > 3 ? args[3] : "Right";
+        NetServer server = new NetServer(new InetSocketAddress(port), finalScore, Panel.DEFAULT_TICK_RATE,
+                leftName, rightName, LinkSimulator.perfect());
+        System.out.println("Pong server listening on " + server.getLocalAddress());
+        server.run();
+        Simulation result = server.getSimulation();
+        System.out.printf("Match over %d : %d, %d bytes sent, %d bytes received%n", result.getLeftScore(),
+                result.getRightScore(), server.getSentBytes(), server.getReceivedBytes());
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * This class draws the game with one scene graph node per game object. It projects the simulation
+ * state onto a Ball and two Rackets every frame; the scores are drawn by the Display.
+ */
+package com.example.pong1;
+
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+
+public class NodeRenderer implements Renderer {
+    private final Racket leftRacket;
+    private final Racket rightRacket;
+    private final Ball ball;
+
+    /**
+     * Constructs a new node renderer and adds its nodes to the specified pane.
+     * @param parent The pane that hosts the nodes.
+     * @param simulation The simulation providing the starting positions.
+     */
+    public NodeRenderer(Pane parent, Simulation simulation) {
+        leftRacket = new Racket(Simulation.LEFT_RACKET_X, simulation.getLeftRacketY());
+        rightRacket = new Racket(Simulation.RIGHT_RACKET_X, simulation.getRightRacketY());
+        rightRacket.setFill(Color.RED);
+        ball = new Ball(simulation.getBallX(), simulation.getBallY(), Ball.BALL_RADIUS, Color.WHITE);
+        parent.getChildren().addAll(leftRacket, rightRacket, ball);
+    }
+
+    @Override
+    public void render(Simulation simulation, double alpha) {
+        double racketHeight = simulation.getRacketHeight();
+        ball.moveTo(simulation.getBallX(alpha), simulation.getBallY(alpha));
+        leftRacket.moveTo(Simulation.LEFT_RACKET_X, simulation.getLeftRacketY(alpha), racketHeight);
+        rightRacket.moveTo(Simulation.RIGHT_RACKET_X, simulation.getRightRacketY(alpha), racketHeight);
+    }
+}
@@ -1,25 +1,58 @@
 /**
  * This class represents the game panel where all the logic of the Pong game happens. It manages the
- * initialization of game elements such as rackets, ball, scores, and display. It also handles collision
- * detection, user input for racket movement, and game state updates.
+ * initialization of game elements such as rackets, ball, scores, and display. It also handles user input
+ * for racket movement and hands the state of the headless Simulation to a Renderer every frame. What
+ * happens in a tick is published on a GameEventBus; the winner announcement reads it when the next frame
+ * is drawn, and the match history on a thread of its own, so the tick itself has no side effects.
  */
 package com.example.pong1;
 
 import javafx.scene.layout.Pane;
-import javafx.scene.paint.Color;
+import javafx.scene.transform.Affine;
 import javafx.animation.AnimationTimer;
 import javafx.scene.control.Button;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
 
 
 // This is where all the logic happens
 public class Panel extends Pane {
-    private static final int WIDTH = 1000;
-    public static final int HEIGHT = 1000;
-    private Score leftPlayerScore;
-    private Score rightPlayerScore;
-    private Racket leftRacket;
-    private Racket rightRacket;
-    private Ball ball;
+    private static final int WIDTH = Simulation.WIDTH;
+    public static final int HEIGHT = Simulation.HEIGHT;
+    public static final int DEFAULT_TICK_RATE = 120; // Simulation ticks per second
+    public static final int DEFAULT_PARTICLES = 4_096; // Largest number of live effect particles
+    private static final int MAX_STEPS_PER_FRAME = 5; // Cap on catch-up ticks per pulse
+    private static final int EVENT_RING = 1_024; // Events kept for the consumers; a power of two
+    private final Simulation simulation;
+    private final int tickRate;
+    private MatchRecorder recorder; // Records the match while not null
+    private final GameEventBus eventBus = new GameEventBus(EVENT_RING);
+    private final GameEventBus.Reader hud = eventBus.newReader(); // Read by render() on the JavaFX thread
+    private EventConsumer historyConsumer; // Keeps the result of the match while not null
+    private ReplayReader replay; // Drives the simulation from a recording while not null
+    private int replaySpeed = 1; // Ticks replayed per simulation tick of wall-clock time
+    private NetClient network; // Takes the match state from a server while not null
+    private RollbackPeer rollback; // Plays the match together with a peer while not null
+    private SpectatorServer broadcast; // Streams the match to spectators while not null
+    private GameMetrics metrics; // Counts ticks, frames and points for metricsServer while not null
+    private MetricsServer metricsServer;
+    private final FixedStepClock clock;
+    private double alpha; // Interpolation factor used for the last render
+    private int inputs; // Input bits currently held for both rackets
+    private final InputSystem input = new InputSystem(InputBindings.defaults());
+    private ParticleSystem particles; // Effects triggered by the game events while not null
+    private ParticleLayer particleLayer;
+    private PredictiveBot bot; // Plays one racket while not null
+    private boolean botLeft; // Whether the bot plays the left racket
+    private int lastEvents; // Event bits of the last tick, passed to the bot
+    private final Renderer renderer;
+    private final Pane world = new Pane(); // Holds every game node, in logical coordinates
+    private final Affine worldTransform = new Affine(); // Maps the logical coordinates onto the panel
+    private final Viewport viewport = new Viewport();
+    private long viewportUpdates; // Number of times the transform was recomputed
+    private final FrameStats frameStats = new FrameStats();
+    private final StatsOverlay statsOverlay;
     private Display display;
     private int finalScore;
     private boolean gameEnded = false;
@@ -34,25 +67,82 @@ public class Panel extends Pane {
      * @param finalScore The final score at which the game ends.
      */
     public Panel(String player1Name, String player2Name, int finalScore) {
+        this(player1Name, player2Name, finalScore, DEFAULT_TICK_RATE);
+    }
+
+    /**
+     * Constructs a new Panel with specified player names, final score and simulation rate.
+     * @param player1Name The name of the left player.
+     * @param player2Name The name of the right player.
+     * @param finalScore The final score at which the game ends.
+     * @param tickRate The number of simulation ticks per second, e.g. 120 or 240.
+     */
+    public Panel(String player1Name, String player2Name, int finalScore, int tickRate) {
+        this(player1Name, player2Name, finalScore, tickRate, RenderBackend.NODES);
+    }
+
+    /**
+     * Constructs a new Panel with specified player names, final score, simulation rate and renderer.
+     * @param player1Name The name of the left player.
+     * @param player2Name The name of the right player.
+     * @param finalScore The final score at which the game ends.
+     * @param tickRate The number of simulation ticks per second, e.g. 120 or 240.
+     * @param backend The render backend used to draw the ball and rackets.
+     */
+    public Panel(String player1Name, String player2Name, int finalScore, int tickRate, RenderBackend backend) {
         this.finalScore = finalScore;
+        simulation = new Simulation(finalScore);
+        simulation.setTickRate(tickRate);
+        this.tickRate = tickRate;
+        clock = new FixedStepClock(tickRate, MAX_STEPS_PER_FRAME);
         display = new Display(50, 50, player1Name, player2Name, finalScore);
-        leftPlayerScore = new Score(50, 150, Color.BLUE, finalScore);
-        rightPlayerScore = new Score(900, 150, Color.RED, finalScore);
-        leftRacket = new Racket(10, getHeight() / 2 - Racket.RACKET_HEIGHT / 2);
-        rightRacket = new Racket(getWidth() - 20, getHeight() / 2 - Racket.RACKET_HEIGHT / 2);
         setPrefSize(WIDTH, HEIGHT);
-        initRackets();
-        initBall();
-        getChildren().addAll(display, leftPlayerScore, rightPlayerScore);
-
-        // Start game loop
+        world.setManaged(false);
+        world.resize(WIDTH, HEIGHT);
+        world.getTransforms().add(worldTransform);
+        getChildren().add(world);
+        renderer = initRenderer(backend);
+        statsOverlay = new StatsOverlay(300, 30);
+        world.getChildren().add(statsOverlay);
+        getChildren().add(display); // Drawn at screen resolution, on top of the field
+
+        // The game loop runs once start() is called
         gameLoop = new AnimationTimer() {
             @Override
             public void handle(long now) {
-                update();
+                long frameStart = System.nanoTime();
+                frameStats.beginFrame(now);
+
+                // Run as many fixed ticks as the elapsed time calls for, then draw in between them
+                int ticks = clock.advance(now);
+                int steps = ticks * replaySpeed;
+                for (int i = 0; i < steps && !gameEnded; i++) {
+                    long tickStart = System.nanoTime();
+                    update(clock.getTickTime(i / replaySpeed, ticks));
+                    frameStats.recordTick(System.nanoTime() - tickStart);
+                }
+                long renderStart = System.nanoTime();
+                render(clock.alpha());
+                if (particles != null) {
+                    renderEffects(now);
+                }
+                long renderEnd = System.nanoTime();
+                frameStats.endFrame(renderEnd - renderStart);
+                if (particles != null) {
+                    particles.endFrame(renderEnd - frameStart);
+                }
+                input.frameRendered(renderEnd);
+                statsOverlay.refresh(frameStats, input, now);
             }
         };
-        gameLoop.start();
+    }
+
+    /**
+     * Starts the game loop. Called once the panel is configured and shown, so no ticks run while the
+     * launch is still being set up and the first tick does not try to catch up on that time.
+     */
+    public void start() {
+        resumeGame();
     }
 
     /**
@@ -61,157 +151,396 @@ public class Panel extends Pane {
     // Method to pause the game
     void pauseGame() {
         gameLoop.stop();
+        if (metrics != null) {
+            metrics.setPaused(true);
+        }
     }
 
     // Method to continue the game
     void resumeGame() {
+        clock.reset();
+        frameStats.resetPulse();
+        if (particleLayer != null) {
+            particleLayer.resetClock();
+        }
+        if (metrics != null) {
+            metrics.setPaused(false);
+        }
         gameLoop.start();
     }
 
     /**
-     * Initializes the left and right rackets.
+     * Initializes the renderer that draws the rackets and ball.
+     * @param backend The render backend to use.
+     * @return The renderer for the specified backend.
      */
-    private void initRackets() {
-        // Initialize left and right rackets
-        leftRacket = new Racket(10, HEIGHT / 2 - Racket.RACKET_HEIGHT / 2);
-        rightRacket = new Racket(WIDTH - 20, HEIGHT / 2 - Racket.RACKET_HEIGHT / 2);
-        rightRacket.setFill(Color.RED);
+    private Renderer initRenderer(RenderBackend backend) {
+        if (backend == RenderBackend.CANVAS) {
+            return new CanvasRenderer(world);
+        }
+        return new NodeRenderer(world, simulation);
+    }
 
-        getChildren().addAll(leftRacket, rightRacket);
+    /**
+     * Fits the logical field into the panel's current size. JavaFX calls this in the layout pass of
+     * a pulse, so however many size changes a drag-resize fires, the transform is recomputed at most
+     * once per pulse, and only when the size actually changed.
+     */
+    @Override
+    protected void layoutChildren() {
+        if (viewport.update(getWidth(), getHeight())) {
+            worldTransform.setToTransform(viewport.getScale(), 0, viewport.getOffsetX(),
+                    0, viewport.getScale(), viewport.getOffsetY());
+            display.setViewport(viewport, getWidth(), getHeight());
+            viewportUpdates++;
+        }
     }
 
     /**
-     * Initializes the ball.
+     * Returns the mapping from logical coordinates to the panel's pixels.
+     * @return The viewport of the panel.
      */
-    private void initBall() {
-        // Initialize the ball
-        ball = new Ball(WIDTH / 2, HEIGHT / 2, Ball.BALL_RADIUS, Color.WHITE);
-        getChildren().add(ball);
+    public Viewport getViewport(){
+        return viewport;
     }
 
     /**
-     * Resizes the game elements along the X-axis by a specified factor.
-     * @param factor The factor by which to resize the game elements along the X-axis.
+     * Returns how many times the viewport transform has been recomputed.
+     * @return The number of viewport updates.
      */
-    public void resizeX(double factor){
-        leftRacket.setX(leftRacket.getX() * factor);
-        rightRacket.setX(rightRacket.getX() * factor);
-        ball.setCenterX(ball.getCenterX() * factor);
-        display.resizeX(factor);
-        leftPlayerScore.resizeX(factor);
-        rightPlayerScore.resizeX(factor);
+    public long getViewportUpdates(){
+        return viewportUpdates;
     }
 
     /**
-     * Resizes the game elements along the Y-axis by a specified factor.
-     * @param factor The factor by which to resize the game elements along the Y-axis.
+     * Shows or hides the frame statistics overlay.
      */
-    public void resizeY(double factor){
-        leftRacket.setY(leftRacket.getY() * factor);
-        rightRacket.setY(rightRacket.getY() * factor);
-        ball.setCenterY(ball.getCenterY() * factor);
-        display.resizeY(factor);
-        leftPlayerScore.resizeY(factor);
-        rightPlayerScore.resizeY(factor);
+    public void toggleStatsOverlay(){
+        statsOverlay.toggle();
     }
 
     /**
-     * Checks for collisions with the walls of the game panel and handles them accordingly.
+     * Returns the input pipeline that the key handlers feed and the game loop samples.
+     * @return The input pipeline of the local players.
      */
-    private void checkWallCollision() {
-        double ballX = ball.getCenterX();
-        double ballY = ball.getCenterY();
-        double ballRadius = ball.getRadius();
-        double panelWidth = getWidth();
-        double panelHeight = getHeight();
+    public InputSystem getInput(){
+        return input;
+    }
 
-        // Left wall collision
-        if (ballX - ballRadius <= 0){
-            // When the ball hits the left edge, increment the score for the right player
-            rightPlayerScore.incrementScore();
-            // Reset the ball position
-            ball.reset(panelWidth, panelHeight);
-            return;
+    /**
+     * Returns the timing statistics recorded by the game loop.
+     * @return The frame statistics.
+     */
+    public FrameStats getFrameStats(){
+        return frameStats;
+    }
+
+    /**
+     * Returns the extra balls of the multi-ball mode.
+     * @return The extra balls, or null if the mode is off.
+     */
+    public MultiBall getMultiBall(){
+        return simulation.getMultiBall();
+    }
+
+    /**
+     * Increases the speed of the ball by a specified amount.
+     * @param speedIncrease The amount by which to increase the ball speed.
+     */
+    public void increaseBallSpeed(int speedIncrease){
+        if (replay != null || network != null || rollback != null) {
+            return; // The recording, the server or the peer's agreed settings hold the speed
+        }
+        simulation.increaseBallSpeed(speedIncrease);
+        eventBus.publish(simulation, GameEventBus.EVENT_SPEED_UP, speedIncrease);
+        if (recorder != null) {
+            try {
+                recorder.recordBallSpeedIncrease(simulation.getTick(), speedIncrease);
+            } catch (IOException e) {
+                stopRecording(e);
+            }
+        }
+    }
+
+    /**
+     * Increases the height of the rackets by a specified amount.
+     * @param heightIncrease The amount by which to increase the height of the rackets.
+     */
+    public void increaseRacketHeight(double heightIncrease){
+        if (replay != null || network != null || rollback != null) {
+            return; // The recording, the server or the peer's agreed settings hold the size
+        }
+        simulation.increaseRacketHeight(heightIncrease);
+        if (recorder != null) {
+            try {
+                recorder.recordRacketSizeIncrease(simulation.getTick(), heightIncrease);
+            } catch (IOException e) {
+                stopRecording(e);
+            }
         }
+        render();
+    }
 
-        // Right wall collision
-        if (ballX + ballRadius >= panelWidth){
-            // When the ball hits the right edge, increment the score for the left player
-            leftPlayerScore.incrementScore();
+    /**
+     * Adds extra balls that play alongside the regular ball. They are drawn by the canvas renderer only.
+     * @param count The number of extra balls.
+     * @param scoring Whether the goals of the extra balls count towards the score.
+     */
+    public void enableMultiBall(int count, boolean scoring) {
+        MultiBall multiBall = new MultiBall(count);
+        multiBall.spawn(count, System.nanoTime());
+        multiBall.setScoring(scoring);
+        simulation.setMultiBall(multiBall);
+    }
 
-            // Reset the ball position
-            ball.reset(panelWidth, panelHeight);
+    /**
+     * Shows effects for the game events: a trail behind the ball, sparks at racket hits and wall
+     * bounces, and a burst at every goal. They are drawn above the ball and rackets.
+     * @param capacity The largest number of live particles.
+     */
+    public void enableParticles(int capacity) {
+        particles = new ParticleSystem(capacity);
+        particleLayer = new ParticleLayer(particles);
+        world.getChildren().add(world.getChildren().indexOf(statsOverlay), particleLayer);
+    }
+
+    /**
+     * Saves the complete state of the match to a file, so it can be resumed later.
+     * @param path The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void saveSnapshot(Path path) throws IOException {
+        SnapshotCodec.save(simulation, path);
+    }
+
+    /**
+     * Continues a match saved with saveSnapshot(). Must be called before recording starts.
+     * @param path The file to read.
+     * @throws IOException If the file cannot be read or holds no snapshot.
+     */
+    public void resumeSnapshot(Path path) throws IOException {
+        if (replay != null || network != null) {
+            return; // The recording or the server holds the match state
+        }
+        SnapshotCodec.load(path, simulation);
+        eventBus.publish(simulation, GameEventBus.EVENT_RESET, 0);
+        if (simulation.isGameEnded() && !gameEnded) {
+            gameEnded = true;
+            announceWinner();
+        }
+        render();
+    }
+
+    /**
+     * Starts recording the match to a file, from the current tick onwards.
+     * @param path The path of the recording.
+     * @throws IOException If the recording cannot be created.
+     */
+    public void startRecording(Path path) throws IOException {
+        recorder = new MatchRecorder(path, simulation, display.getLeftPlayerName(), display.getRightPlayerName(),
+                tickRate, MatchRecorder.DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Keeps the result of the match in a match history once it ends. The result is written by a
+     * consumer of the game events on a thread of its own. Replays are not kept.
+     * @param history The history to add the result to.
+     */
+    public void setMatchHistory(MatchHistory history) {
+        if (replay != null) {
             return;
         }
+        historyConsumer = new EventConsumer(eventBus, "pong-history", new HistoryRecorder(history,
+                display.getLeftPlayerName(), display.getRightPlayerName(), simulation.getFinalScore(), tickRate,
+                simulation.getTick())).start();
+    }
 
-        // Top and bottom wall collision
-        if (ballY - ballRadius <= 0 || ballY + ballRadius >= panelHeight){
-            ball.reverseYDirection();
-            ball.increaseSpeed(1); // Increase ball speed by 1 every time it bounces
+    /**
+     * Stops the consumers of the game events once they have handled every event published so far,
+     * so the match history can be closed.
+     */
+    public void stopEventConsumers() {
+        if (historyConsumer == null) {
+            return;
         }
+        try {
+            historyConsumer.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        historyConsumer = null;
     }
 
     /**
-     * Checks for collisions with the rackets and handles them accordingly.
+     * Gives up on the recording after a write error, keeping the game running.
+     * @param e The error that stopped the recording.
      */
-    private void checkRacketCollision(){
-        if (ball.intersects(leftRacket.getBoundsInLocal()) || ball.intersects(rightRacket.getBoundsInLocal())) {
-            ball.reverseXDirection();
+    private void stopRecording(IOException e) {
+        System.err.println("Recording stopped: " + e.getMessage());
+        try {
+            recorder.close();
+        } catch (IOException ignored) {
+            // Already failing; the first error has been reported
         }
+        recorder = null;
     }
 
     /**
-     * Increases the speed of the ball by a specified amount.
-     * @param speedIncrease The amount by which to increase the ball speed.
+     * Plays back a recording instead of taking input from the keyboard.
+     * @param reader The recording to play back.
+     * @param speed The number of recorded ticks to play per tick of real time.
      */
-    public void increaseBallSpeed(int speedIncrease){
-        ball.increaseSpeed(speedIncrease);
+    public void startReplay(ReplayReader reader, int speed) {
+        replay = reader;
+        replaySpeed = Math.max(speed, 1);
+        reader.seek(simulation, reader.getStartTick());
+        render();
     }
 
     /**
-     * Increases the height of the rackets by a specified amount.
-     * @param heightIncrease The amount by which to increase the height of the rackets.
+     * Plays a networked match: the server runs the game and this panel shows its snapshots, sending
+     * the keys of the local player's racket to it.
+     * @param client A client that has already joined the server.
      */
-    public void increaseRacketHeight(double heightIncrease){
-        double newHeight = leftRacket.getHeight() + heightIncrease;
-        leftRacket.setHeight(newHeight);
-        rightRacket.setHeight(newHeight);
+    public void startNetworkClient(NetClient client) {
+        network = client;
+        client.attach(simulation);
+        render();
+    }
+
+    /**
+     * Streams the match to spectators from now on. The server does its I/O on a thread of its own;
+     * the game loop only hands it one frame per tick.
+     * @param address The address to accept spectators on.
+     * @return The server, e.g. to report how many spectators are watching.
+     * @throws IOException If the server socket cannot be opened.
+     */
+    public SpectatorServer startBroadcast(InetSocketAddress address) throws IOException {
+        broadcast = new SpectatorServer(address, tickRate, simulation.getFinalScore(), display.getLeftPlayerName(),
+                display.getRightPlayerName(), SpectatorServer.DEFAULT_KEYFRAME_INTERVAL,
+                SpectatorServer.DEFAULT_MAX_VIEWERS);
+        Thread thread = new Thread(broadcast, "pong-spectators");
+        thread.setDaemon(true);
+        thread.start();
+        return broadcast;
+    }
+
+    /**
+     * Stops streaming the match and disconnects every spectator.
+     */
+    public void stopBroadcast() {
+        if (broadcast != null) {
+            broadcast.stop();
+            broadcast = null;
+        }
+    }
+
+    /**
+     * Serves the metrics of the game loop and the JVM for Prometheus from now on. The game loop only
+     * adds to counters; the server reads them on a thread of its own and never touches the JavaFX thread.
+     * @param address The address to serve GET /metrics on.
+     * @return The server, e.g. to report the port it listens on.
+     * @throws IOException If the server socket cannot be opened.
+     */
+    public MetricsServer startMetrics(InetSocketAddress address) throws IOException {
+        GameMetrics gameMetrics = new GameMetrics();
+        gameMetrics.setScores(simulation.getLeftScore(), simulation.getRightScore());
+        metricsServer = new MetricsServer(address, gameMetrics);
+        metrics = gameMetrics;
+        frameStats.setMetrics(gameMetrics);
+        return metricsServer;
+    }
+
+    /**
+     * Stops serving the metrics.
+     */
+    public void stopMetrics() {
+        if (metricsServer != null) {
+            frameStats.setMetrics(null);
+            metrics = null;
+            metricsServer.stop();
+            metricsServer = null;
+        }
+    }
+
+    /**
+     * Plays a rollback match: this panel and a peer both simulate the match and exchange only their
+     * inputs, and a late input from the peer rolls the simulation back and replays it. Call this once
+     * the match settings are applied; they must be the same on both peers.
+     * @param peer A peer connected to the other player, not yet attached.
+     */
+    public void startRollback(RollbackPeer peer) {
+        rollback = peer;
+        peer.attach(simulation);
+        render();
+    }
+
+    /**
+     * Lets the computer play one racket, for a single-player match.
+     * @param left Whether the computer plays the left racket rather than the right one.
+     * @param difficulty How quickly and accurately the computer plays.
+     */
+    public void setComputerPlayer(boolean left, BotDifficulty difficulty) {
+        bot = new PredictiveBot(left, difficulty, System.nanoTime());
+        botLeft = left;
+    }
+
+    /**
+     * Moves the computer's racket through the same methods the key handlers use.
+     */
+    private void driveBot() {
+        int bits = bot.inputs(simulation, lastEvents);
+        if (botLeft) {
+            stopLeftRacketMovement();
+            if ((bits & Simulation.LEFT_UP) != 0) {
+                moveLeftRacketUp();
+            } else if ((bits & Simulation.LEFT_DOWN) != 0) {
+                moveLeftRacketDown();
+            }
+        } else {
+            stopRightRacketMovement();
+            if ((bits & Simulation.RIGHT_UP) != 0) {
+                moveRightRacketUp();
+            } else if ((bits & Simulation.RIGHT_DOWN) != 0) {
+                moveRightRacketDown();
+            }
+        }
     }
 
     /**
      * Moves the left racket upwards.
      */
     public void moveLeftRacketUp(){
-        leftRacket.moveUp();
+        inputs |= Simulation.LEFT_UP;
     }
 
     /**
      * Moves the left racket downwards.
      */
     public void moveLeftRacketDown(){
-        leftRacket.moveDown();
+        inputs |= Simulation.LEFT_DOWN;
     }
 
     /**
      * Stops the movement of the left racket.
      */
     public void stopLeftRacketMovement(){
-        leftRacket.stopMovement();
+        inputs &= ~(Simulation.LEFT_UP | Simulation.LEFT_DOWN);
     }
 
     /**
      * Moves the right racket upwards.
      */
     public void moveRightRacketUp(){
-        rightRacket.moveUp();
+        inputs |= Simulation.RIGHT_UP;
     }
 
     public void moveRightRacketDown(){
-        rightRacket.moveDown();
+        inputs |= Simulation.RIGHT_DOWN;
     }
 
     public void stopRightRacketMovement(){
-        rightRacket.stopMovement();
+        inputs &= ~(Simulation.RIGHT_UP | Simulation.RIGHT_DOWN);
     }
 
 
@@ -220,7 +549,7 @@ public class Panel extends Pane {
      */
     private void announceWinner() {
         String winner;
-        if (leftPlayerScore.getScore() > rightPlayerScore.getScore()) {
+        if (simulation.getLeftScore() > simulation.getRightScore()) {
             winner = display.getLeftPlayerName();
         } else {
             winner = display.getRightPlayerName();
@@ -237,27 +566,117 @@ public class Panel extends Pane {
     }
 
     /**
-     * Updates the game state by moving the ball, checking for collisions, updating racket movement,
-     * and checking if the game has ended.
+     * Updates the game state by advancing the simulation one tick and announcing the winner once the
+     * game has ended.
+     * @param tickTime The time this tick stands for; key events up to this time are applied.
      */
-    private void update(){
-        // Move the ball.
-        ball.move();
+    private void update(long tickTime){
+        int events;
+        inputs = input.sample(tickTime);
+        if (bot != null && replay == null) {
+            driveBot();
+        }
+        if (replay != null) {
+            events = replay.step(simulation);
+            if (replay.isFinished(simulation) && !simulation.isGameEnded()) {
+                stopGameLoop(); // The recording ended before the match did
+            }
+        } else if (network != null) {
+            try {
+                events = network.tick(inputs);
+            } catch (IOException e) {
+                System.err.println("Connection lost: " + e.getMessage());
+                stopGameLoop();
+                return;
+            }
+        } else if (rollback != null) {
+            try {
+                events = rollback.tick(inputs);
+            } catch (IOException e) {
+                System.err.println("Connection lost: " + e.getMessage());
+                stopGameLoop();
+                return;
+            }
+        } else {
+            if (recorder != null) {
+                try {
+                    recorder.recordTick(simulation, inputs);
+                } catch (IOException e) {
+                    stopRecording(e);
+                }
+            }
+            events = simulation.step(inputs);
+        }
 
-        // Check for collisions.
-        checkWallCollision();
-        checkRacketCollision();
+        lastEvents = events;
+        eventBus.publishTick(simulation, events);
+        if (metrics != null) {
+            metrics.recordEvents(events, simulation.getLeftScore(), simulation.getRightScore());
+        }
+        if (broadcast != null) {
+            broadcast.publish(simulation);
+        }
 
-        // Update racket movement.
-        leftRacket.update();
-        rightRacket.update();
+        // Check if the game has ended. The winner is announced when the next frame is drawn.
+        if (!gameEnded && (events & Simulation.EVENT_MATCH_END) != 0) {
+            gameEnded = true;
+            if (recorder != null) {
+                try {
+                    recorder.finish(simulation.getTick());
+                } catch (IOException e) {
+                    System.err.println("Could not finish recording: " + e.getMessage());
+                }
+                recorder = null;
+            }
+        }
+    }
 
-        // Check if the game has ended.
-        if (!gameEnded) {
-            if (leftPlayerScore.getScore() >= finalScore || rightPlayerScore.getScore() >= finalScore) {
+    /**
+     * Reacts to the game events published since the last frame: announces the winner once the match
+     * has ended, and starts the effects of collisions and goals.
+     */
+    private void readEvents() {
+        long lost = hud.getLost();
+        while (hud.next()) {
+            if (hud.getType() == Simulation.EVENT_MATCH_END) {
                 announceWinner();
-                gameEnded = true;
             }
+            if (particles != null) {
+                particles.emit(hud);
+            }
+        }
+        if (hud.getLost() != lost && gameEnded) {
+            announceWinner(); // The end of the match may have been overwritten during a fast replay
         }
     }
+
+    /**
+     * Leaves the ball's trail, then advances and draws the effect particles.
+     * @param now The time of the frame in nanoseconds.
+     */
+    private void renderEffects(long now) {
+        if (!gameEnded) {
+            particles.emitTrail(simulation.getBallX(alpha), simulation.getBallY(alpha));
+        }
+        particleLayer.render(now);
+    }
+
+    /**
+     * Draws the simulation state again, using the last interpolation factor.
+     */
+    private void render(){
+        render(alpha);
+    }
+
+    /**
+     * Draws the simulation state through the renderer, interpolated between the last two ticks.
+     * @param alpha How far the frame lies between the previous and the current tick, in [0, 1).
+     */
+    private void render(double alpha){
+        this.alpha = alpha;
+        readEvents();
+        renderer.render(simulation, alpha);
+        display.setScores(simulation.getLeftScore(), simulation.getRightScore());
+        display.draw();
+    }
 }
@@ -0,0 +1,87 @@
+/**
+ * This class holds the benchmarks for the particle system: one frame of effects with a given number
+ * of live particles kept alive by racket hits arriving through a GameEventBus, and the burst of a goal
+ * on its own. A frame should stay well within the update budget at 10k particles and allocate
+ * nothing. The drawing is measured by RenderBenchmark --particles=N, since it needs a JavaFX window.
+ * Run it with the options of BenchmarkRunner, e.g. --filter=particles.
+ */
+package com.example.pong1;
+
+public class ParticleBenchmarks {
+    private static final int[] LIVE_COUNTS = {1_000, 10_000, 40_000};
+    private static final float FRAME_SECONDS = 1 / 60f;
+
+    /**
+     * Runs the particle benchmarks and exits with a non-zero status if any of them regressed.
+     * @param args Options passed on to BenchmarkRunner.
+     * @throws Exception If a baseline file cannot be read or written.
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        register(runner);
+        System.exit(runner.runAll(args));
+    }
+
+    /**
+     * Registers the particle benchmarks with a runner.
+     * @param runner The runner to add the benchmarks to.
+     */
+    static void register(BenchmarkRunner runner) {
+        for (int live : LIVE_COUNTS) {
+            ParticleSystem particles = newSystem(2 * live);
+            GameEventBus bus = new GameEventBus(64);
+            GameEventBus.Reader reader = bus.newReader();
+            runner.add("particles-frame-" + live, operations -> {
+                long sum = 0;
+                for (int i = 0; i < operations; i++) {
+                    refill(particles, bus, reader, live, i);
+                    particles.emitTrail(Simulation.WIDTH / 2, i & 1023);
+                    particles.update(FRAME_SECONDS);
+                    sum += particles.getCount();
+                }
+                return sum;
+            });
+        }
+
+        ParticleSystem goals = newSystem(4_096);
+        GameEventBus bus = new GameEventBus(64);
+        GameEventBus.Reader reader = bus.newReader();
+        runner.add("particles-goal-burst", operations -> {
+            long sum = 0;
+            for (int i = 0; i < operations; i++) {
+                bus.publish(i, Simulation.EVENT_LEFT_SCORED, 1, 0, Simulation.WIDTH / 2, Simulation.HEIGHT / 2, 0);
+                reader.next();
+                goals.emit(reader);
+                sum += goals.getCount();
+                goals.count = 0;
+            }
+            return sum;
+        });
+    }
+
+    /**
+     * Replaces the particles that died with the sparks of racket hits, like a long rally would.
+     * @param particles The particles to refill.
+     * @param bus The bus the racket hits are published on.
+     * @param reader The reader of the bus that starts the effects.
+     * @param live The number of live particles to reach.
+     * @param frame The number of the frame, which moves the hits along the racket.
+     */
+    static void refill(ParticleSystem particles, GameEventBus bus, GameEventBus.Reader reader, int live, int frame) {
+        while (particles.getCount() < live) {
+            bus.publish(frame, Simulation.EVENT_RACKET_HIT, 0, 0, Simulation.LEFT_RACKET_X + 20, 100 + (frame & 511), 0);
+            while (reader.next()) {
+                particles.emit(reader);
+            }
+        }
+    }
+
+    /**
+     * Returns a particle system whose cap is its capacity alone, so the benchmark controls the count.
+     */
+    static ParticleSystem newSystem(int capacity) {
+        ParticleSystem particles = new ParticleSystem(capacity);
+        particles.setBudgets(Long.MAX_VALUE, Long.MAX_VALUE);
+        return particles;
+    }
+}
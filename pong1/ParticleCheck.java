@@ -0,0 +1,112 @@
+/**
+ * This class checks that the particle cap derived from the update budget recovers from slow updates.
+ * Each scenario first plays frames of racket-hit sparks, SPAWN_HITS hits a frame, so the cost per
+ * particle is measured, then sets the update budget to BUDGET_PARTICLES particles at that cost, so
+ * the cap comes from the budget rather than the capacity, and notes the cap. The stale scenario then
+ * feeds slow samples until the cap has fallen below ParticleSystem.MIN_COST_SAMPLE, which used to
+ * stop the cost from ever being measured again, and fails unless normal frames bring the cap back to
+ * at least a quarter of what it was. The outlier scenario feeds one sample of a 15 ms pause over 100
+ * particles, like a GC pause during an update, and fails if that alone halves the cap.
+ *
+ * Run it with: ParticleCheck [--frames=N]
+ * It exits with a non-zero status if a cap did not recover or collapsed.
+ */
+package com.example.pong1;
+
+import java.util.Map;
+
+public class ParticleCheck {
+    private static final int CAPACITY = 4_096;
+    private static final int SPAWN_HITS = 8; // Racket hits a frame, about 200 sparks
+    private static final int WARMUP_FRAMES = 2_000;
+    private static final int BUDGET_PARTICLES = 1_000; // Cap the update budget is set to after the warm-up
+    private static final float FRAME_SECONDS = 1 / 60f;
+    private static final long SLOW_NANOS_PER_PARTICLE = 20_000; // Cost of the slow samples
+    private static final long PAUSE_NANOS = 15_000_000; // Update time of the outlier sample
+    private static final int PAUSE_PARTICLES = 100;
+
+    /**
+     * Runs both scenarios and prints the caps before, during and after the slow updates.
+     * @param args The options described in the class comment.
+     */
+    public static void main(String[] args) {
+        Map<String, String> options = BenchmarkRunner.parseOptions(args);
+        int frames = LaunchConfig.parseInt("frames", options.get("frames"), 10_000, 1, Integer.MAX_VALUE);
+
+        int failures = 0;
+        System.out.printf("%-10s %10s %10s %10s%n", "Scenario", "Before", "Slow", "After");
+
+        ParticleSystem stale = new ParticleSystem(CAPACITY);
+        Sparks staleSparks = new Sparks();
+        staleSparks.play(stale, WARMUP_FRAMES);
+        fitBudget(stale);
+        int before = stale.limit();
+        for (int i = 0; i < 1_000 && stale.limit() >= ParticleSystem.MIN_COST_SAMPLE; i++) {
+            stale.recordCost(SLOW_NANOS_PER_PARTICLE * ParticleSystem.MIN_COST_SAMPLE, ParticleSystem.MIN_COST_SAMPLE);
+        }
+        int slow = stale.limit();
+        staleSparks.play(stale, frames);
+        int after = stale.limit();
+        boolean recovered = slow < ParticleSystem.MIN_COST_SAMPLE && after >= before / 4;
+        System.out.printf("%-10s %10d %10d %10d %s%n", "stale", before, slow, after,
+                recovered ? "ok" : "STUCK");
+        if (!recovered) {
+            failures++;
+        }
+
+        ParticleSystem outlier = new ParticleSystem(CAPACITY);
+        Sparks outlierSparks = new Sparks();
+        outlierSparks.play(outlier, WARMUP_FRAMES);
+        fitBudget(outlier);
+        before = outlier.limit();
+        outlier.recordCost(PAUSE_NANOS, PAUSE_PARTICLES);
+        slow = outlier.limit();
+        outlierSparks.play(outlier, 1);
+        after = outlier.limit();
+        boolean kept = slow >= before / 2;
+        System.out.printf("%-10s %10d %10d %10d %s%n", "outlier", before, slow, after, kept ? "ok" : "COLLAPSED");
+        if (!kept) {
+            failures++;
+        }
+
+        if (failures > 0) {
+            System.out.println(failures + " particle check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("The particle cap recovers from slow updates");
+    }
+
+    /**
+     * Sets the update budget to BUDGET_PARTICLES particles at the measured cost per particle.
+     */
+    private static void fitBudget(ParticleSystem particles) {
+        particles.setBudgets(ParticleSystem.DEFAULT_FRAME_BUDGET_NANOS,
+                (long) Math.ceil(particles.getNanosPerParticle() * BUDGET_PARTICLES));
+    }
+
+    /**
+     * This class plays frames of racket-hit sparks on a particle system.
+     */
+    private static final class Sparks {
+        private final GameEventBus bus = new GameEventBus(64);
+        private final GameEventBus.Reader reader = bus.newReader();
+        private int frame;
+
+        /**
+         * Spawns the sparks of SPAWN_HITS racket hits and a trail particle, then updates, once a frame.
+         */
+        void play(ParticleSystem particles, int frames) {
+            for (int end = frame + frames; frame < end; frame++) {
+                for (int hit = 0; hit < SPAWN_HITS; hit++) {
+                    bus.publish(frame, Simulation.EVENT_RACKET_HIT, 0, 0, Simulation.LEFT_RACKET_X + 20,
+                            100 + ((frame + hit * 64) & 511), 0);
+                    while (reader.next()) {
+                        particles.emit(reader);
+                    }
+                }
+                particles.emitTrail(Simulation.WIDTH / 2, frame & 1023);
+                particles.update(FRAME_SECONDS);
+            }
+        }
+    }
+}
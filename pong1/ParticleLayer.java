@@ -0,0 +1,73 @@
+/**
+ * This class draws a ParticleSystem into a Canvas that covers the playing field, so any number of
+ * particles is a single node and a single draw pass. Each frame it advances the particles by the time
+ * since the last frame and draws them as squares, one color at a time, so the fill changes only once
+ * per color however many particles there are. An empty system is cleared once and then left alone.
+ */
+package com.example.pong1;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+public class ParticleLayer extends Canvas {
+    private static final Color[] PALETTE = { // Indexed by the particle colors of ParticleSystem
+            Color.rgb(255, 255, 255, 0.5), Color.rgb(90, 150, 255), Color.rgb(255, 90, 90), Color.GOLD
+    };
+    private static final double MAX_STEP_SECONDS = 0.1; // Longest step, e.g. after the game was paused
+    private final ParticleSystem particles;
+    private final GraphicsContext gc;
+    private long lastFrame = -1; // Time of the previous frame, or -1 before the first one
+    private boolean drawn; // Whether the canvas holds particles from the last frame
+
+    /**
+     * Constructs a new layer for a particle system.
+     * @param particles The particles to draw.
+     */
+    public ParticleLayer(ParticleSystem particles) {
+        super(Simulation.WIDTH, Simulation.HEIGHT);
+        this.particles = particles;
+        gc = getGraphicsContext2D();
+        setMouseTransparent(true);
+    }
+
+    /**
+     * Advances the particles to the time of this frame and draws them.
+     * @param now The time of the frame in nanoseconds.
+     */
+    public void render(long now) {
+        float seconds = lastFrame < 0 ? 0 : (float) Math.min((now - lastFrame) / 1e9, MAX_STEP_SECONDS);
+        lastFrame = now;
+        particles.update(seconds);
+        int count = particles.getCount();
+        if (count == 0 && !drawn) {
+            return;
+        }
+        gc.clearRect(0, 0, Simulation.WIDTH, Simulation.HEIGHT);
+        float[] x = particles.getX();
+        float[] y = particles.getY();
+        byte[] color = particles.getColor();
+        for (int c = 0; c < ParticleSystem.COLORS; c++) {
+            gc.setFill(PALETTE[c]);
+            for (int i = 0; i < count; i++) {
+                if (color[i] == c) {
+                    float size = particles.drawSize(i);
+                    gc.fillRect(x[i] - size / 2, y[i] - size / 2, size, size);
+                }
+            }
+        }
+        drawn = count > 0;
+    }
+
+    /**
+     * Forgets the time of the last frame, so the next one does not advance the particles by the time
+     * the game was paused.
+     */
+    public void resetClock() {
+        lastFrame = -1;
+    }
+
+    public ParticleSystem getParticles() {
+        return particles;
+    }
+}
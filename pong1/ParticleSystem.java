@@ -0,0 +1,327 @@
+/**
+ * This class holds the particles of the visual effects: the ball's trail, sparks where the ball hits a
+ * racket or a wall, and a burst along the goal line when a point is scored. Particle state lives in
+ * parallel primitive arrays allocated once, and the live particles are kept packed at the front: a
+ * particle that dies is replaced by the last live one, so its slot is reused and nothing is allocated
+ * while the game runs.
+ *
+ * Two budgets keep the effects from costing frames. The number of live particles is capped by the
+ * capacity, by the quality, and by how many particles fit into the update budget at the measured cost
+ * per particle. The cost is measured over at least MIN_COST_SAMPLE particles, across several updates
+ * if few are alive, so a low cap can always be raised again; a sample many times the estimate, e.g.
+ * an update interrupted by a GC pause, counts as at most MAX_COST_JUMP times it. The quality drops
+ * when frames keep taking longer than the frame budget, which thins out every effect and the cap with
+ * it, and slowly recovers once frames are well within budget again. It touches no JavaFX state;
+ * ParticleLayer draws it.
+ */
+package com.example.pong1;
+
+public class ParticleSystem {
+    // Colors of the particles, drawn by ParticleLayer one color at a time
+    public static final int COLORS = 4;
+    static final byte TRAIL = 0;
+    static final byte LEFT = 1; // Sparks of the left racket
+    static final byte RIGHT = 2; // Sparks of the right racket
+    static final byte SPARK = 3; // Wall sparks and goal bursts
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = 8_000_000; // Half a frame at 60 Hz
+    public static final long DEFAULT_UPDATE_BUDGET_NANOS = 1_000_000;
+    private static final float MIN_QUALITY = 0.1f;
+    private static final float QUALITY_DROP = 0.7f; // Factor applied after SLOW_FRAMES frames over budget
+    private static final float QUALITY_RISE = 1.1f; // Factor applied after CALM_FRAMES frames well within budget
+    private static final int SLOW_FRAMES = 3; // A single late frame, e.g. a GC pause, changes nothing
+    private static final int CALM_FRAMES = 60;
+    private static final float DRAG = 2; // Fraction of the speed lost per second
+    private static final double COST_SMOOTHING = 0.1; // Weight of the newest update in the cost per particle
+    static final int MIN_COST_SAMPLE = 64; // Particles updated before their cost is taken as a sample
+    private static final double MAX_COST_JUMP = 4; // Largest sample, as a multiple of the current estimate
+    private static final int RACKET_SPARKS = 24;
+    private static final int WALL_SPARKS = 8;
+    private static final int GOAL_BURST = 160;
+    private final float[] x;
+    private final float[] y;
+    private final float[] vx; // Logical units per second
+    private final float[] vy;
+    private final float[] age; // Seconds
+    private final float[] life; // Seconds
+    private final float[] size; // Logical units at birth; shrinks to nothing with age
+    private final byte[] color;
+    private final int capacity;
+    int count; // Live particles, packed at the front of the arrays
+    private long frameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+    private long updateBudgetNanos = DEFAULT_UPDATE_BUDGET_NANOS;
+    private float quality = 1;
+    private int slowFrames; // Frames in a row over budget
+    private int calmFrames; // Frames in a row well within budget
+    private double nanosPerParticle; // Smoothed update cost
+    private long sampleNanos; // Update time gathered towards the next cost sample
+    private int sampleParticles; // Particles updated towards the next cost sample
+    private long random = 1; // SplitMix64 state
+    private long dropped; // Particles not spawned because the cap was reached
+
+    /**
+     * Constructs a new empty particle system.
+     * @param capacity The largest number of live particles.
+     */
+    public ParticleSystem(int capacity) {
+        this.capacity = capacity;
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        age = new float[capacity];
+        life = new float[capacity];
+        size = new float[capacity];
+        color = new byte[capacity];
+    }
+
+    /**
+     * Sets the time a frame and the particle update may take before the effects are scaled back.
+     * @param frameNanos The budget of a whole frame, in nanoseconds.
+     * @param updateNanos The budget of update(), in nanoseconds.
+     */
+    public void setBudgets(long frameNanos, long updateNanos) {
+        frameBudgetNanos = frameNanos;
+        updateBudgetNanos = updateNanos;
+    }
+
+    /**
+     * Starts the effect of a game event: sparks at a racket hit or wall bounce, a burst at a goal.
+     * @param event The reader positioned at the event.
+     */
+    public void emit(GameEventBus.Reader event) {
+        switch (event.getType()) {
+            case Simulation.EVENT_RACKET_HIT:
+                boolean left = event.getBallX() < Simulation.WIDTH / 2;
+                spawn(RACKET_SPARKS, (float) event.getBallX(), (float) event.getBallY(), left ? 0 : (float) Math.PI,
+                        (float) Math.PI * 0.6f, 150, 450, 0.2f, 0.5f, 6, left ? LEFT : RIGHT);
+                break;
+            case Simulation.EVENT_WALL_BOUNCE:
+                boolean top = event.getBallY() < Simulation.HEIGHT / 2;
+                spawn(WALL_SPARKS, (float) event.getBallX(), (float) event.getBallY(),
+                        (float) Math.PI * (top ? 0.5f : 1.5f), (float) Math.PI * 0.5f, 80, 250, 0.15f, 0.3f, 4, SPARK);
+                break;
+            case Simulation.EVENT_LEFT_SCORED:
+                emitGoal(Simulation.WIDTH, (float) Math.PI);
+                break;
+            case Simulation.EVENT_RIGHT_SCORED:
+                emitGoal(0, 0);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Bursts particles from along the goal line the ball went through.
+     */
+    private void emitGoal(float lineX, float direction) {
+        int n = scaled(GOAL_BURST);
+        for (int i = 0; i < n; i++) {
+            spawn(1, lineX, Simulation.HEIGHT * nextFloat(), direction, (float) Math.PI * 0.4f, 100, 600, 0.4f,
+                    1.2f, 8, SPARK);
+        }
+    }
+
+    /**
+     * Leaves a trail particle behind the ball. Called once per frame; at lower quality only some
+     * frames leave one.
+     * @param ballX The x-coordinate of the ball as drawn.
+     * @param ballY The y-coordinate of the ball as drawn.
+     */
+    public void emitTrail(double ballX, double ballY) {
+        if (nextFloat() < quality) {
+            spawnOne((float) ballX, (float) ballY, 0, 0, 0.3f, Simulation.BALL_RADIUS * 1.5f, TRAIL);
+        }
+    }
+
+    /**
+     * Spawns particles flying out from a point, the count scaled by the quality.
+     */
+    private void spawn(int n, float px, float py, float direction, float spread, float minSpeed, float maxSpeed,
+                       float minLife, float maxLife, float startSize, byte particleColor) {
+        for (int i = scaled(n); i > 0; i--) {
+            float angle = direction + spread * (nextFloat() - 0.5f) * 2;
+            float speed = minSpeed + (maxSpeed - minSpeed) * nextFloat();
+            spawnOne(px, py, speed * (float) Math.cos(angle), speed * (float) Math.sin(angle),
+                    minLife + (maxLife - minLife) * nextFloat(), startSize, particleColor);
+        }
+    }
+
+    /**
+     * Spawns one particle in the first free slot, unless the cap has been reached.
+     */
+    private void spawnOne(float px, float py, float velocityX, float velocityY, float lifetime, float startSize,
+                          byte particleColor) {
+        if (count >= limit()) {
+            dropped++;
+            return;
+        }
+        int i = count++;
+        x[i] = px;
+        y[i] = py;
+        vx[i] = velocityX;
+        vy[i] = velocityY;
+        age[i] = 0;
+        life[i] = lifetime;
+        size[i] = startSize;
+        color[i] = particleColor;
+    }
+
+    /**
+     * Returns a particle count scaled by the quality, at least one.
+     */
+    private int scaled(int n) {
+        return Math.max(1, (int) (n * quality));
+    }
+
+    /**
+     * Returns the largest number of live particles allowed right now.
+     * @return The smallest of the capacity, the quality's share of it, and the particles the update
+     *         budget has room for.
+     */
+    public int limit() {
+        int limit = Math.min(capacity, (int) (capacity * quality));
+        if (nanosPerParticle > 0) {
+            limit = (int) Math.min(limit, updateBudgetNanos / nanosPerParticle);
+        }
+        return limit;
+    }
+
+    /**
+     * Moves and ages every live particle and removes the ones that died. Particles beyond the current
+     * limit are removed first.
+     * @param seconds The time since the last update.
+     */
+    public void update(float seconds) {
+        long start = System.nanoTime();
+        count = Math.min(count, limit());
+        int n = count;
+        float damping = Math.max(1 - DRAG * seconds, 0);
+        for (int i = 0; i < n; ) {
+            float a = age[i] + seconds;
+            if (a >= life[i]) {
+                // Move the last live particle into the dead one's slot and look at that slot again
+                n--;
+                x[i] = x[n];
+                y[i] = y[n];
+                vx[i] = vx[n];
+                vy[i] = vy[n];
+                age[i] = age[n];
+                life[i] = life[n];
+                size[i] = size[n];
+                color[i] = color[n];
+                continue;
+            }
+            age[i] = a;
+            x[i] += vx[i] * seconds;
+            y[i] += vy[i] * seconds;
+            vx[i] *= damping;
+            vy[i] *= damping;
+            i++;
+        }
+        int updated = count;
+        count = n;
+        recordCost(System.nanoTime() - start, updated);
+    }
+
+    /**
+     * Gathers the time of an update until it covers MIN_COST_SAMPLE particles, then folds the cost per
+     * particle into the estimate, limited to MAX_COST_JUMP times the estimate.
+     * @param nanos The time the update took.
+     * @param particles The number of particles it updated.
+     */
+    void recordCost(long nanos, int particles) {
+        if (particles == 0) {
+            return; // Nothing to learn the cost per particle from
+        }
+        sampleNanos += nanos;
+        sampleParticles += particles;
+        if (sampleParticles < MIN_COST_SAMPLE) {
+            return;
+        }
+        double cost = (double) sampleNanos / sampleParticles;
+        sampleNanos = 0;
+        sampleParticles = 0;
+        if (nanosPerParticle == 0) {
+            nanosPerParticle = cost;
+        } else {
+            cost = Math.min(cost, nanosPerParticle * MAX_COST_JUMP);
+            nanosPerParticle += COST_SMOOTHING * (cost - nanosPerParticle);
+        }
+    }
+
+    /**
+     * Adjusts the quality to the time the last frame took: lowers it after a few frames in a row over
+     * budget, and raises it again after a run of frames within half the budget.
+     * @param frameNanos The time the frame took, in nanoseconds.
+     */
+    public void endFrame(long frameNanos) {
+        if (frameNanos > frameBudgetNanos) {
+            calmFrames = 0;
+            if (++slowFrames >= SLOW_FRAMES) {
+                quality = Math.max(quality * QUALITY_DROP, MIN_QUALITY);
+                slowFrames = 0;
+            }
+            return;
+        }
+        slowFrames = 0;
+        if (frameNanos >= frameBudgetNanos / 2) {
+            calmFrames = 0;
+        } else if (quality < 1 && ++calmFrames >= CALM_FRAMES) {
+            quality = Math.min(quality * QUALITY_RISE, 1);
+            calmFrames = 0;
+        }
+    }
+
+    /**
+     * Returns how large a particle is drawn: its birth size, shrinking to nothing as it ages.
+     * @param i The index of a live particle.
+     * @return The size in logical units.
+     */
+    float drawSize(int i) {
+        return size[i] * (1 - age[i] / life[i]);
+    }
+
+    /**
+     * Returns the next random number in [0, 1).
+     */
+    private float nextFloat() {
+        long z = random += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (z >>> 40) * 0x1.0p-24f;
+    }
+
+    float[] getX() {
+        return x;
+    }
+
+    float[] getY() {
+        return y;
+    }
+
+    byte[] getColor() {
+        return color;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public float getQuality() {
+        return quality;
+    }
+
+    public double getNanosPerParticle() {
+        return nanosPerParticle;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+}
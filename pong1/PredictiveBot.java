@@ -0,0 +1,124 @@
+/**
+ * This class is a CPU player for one racket. Instead of chasing the ball every tick, it works out in
+ * closed form where the ball will cross the face of its racket: the ball travels in a straight line,
+ * and the bounces off the top and bottom walls fold that line back into the field, so the height at
+ * the face is the unfolded height reflected into [radius, HEIGHT - radius]. A ball moving away is
+ * assumed to come back off the opposite racket. The prediction only changes when the trajectory does,
+ * i.e. after a racket hit, a goal or a change of speed, so between those events each tick costs a few
+ * comparisons. Wall bounces are part of the closed form and need no new prediction.
+ *
+ * The difficulty sets how many frames pass before the bot acts on a new prediction and how much
+ * random error is added to it.
+ */
+package com.example.pong1;
+
+import java.util.SplittableRandom;
+
+public class PredictiveBot {
+    private static final int GOAL_EVENTS = Simulation.EVENT_LEFT_SCORED | Simulation.EVENT_RIGHT_SCORED;
+    private final boolean left; // Whether the bot plays the left racket
+    private final int reactionFrames;
+    private final double noise;
+    private final SplittableRandom random;
+    private double knownDirX = Double.NaN; // Velocity the current prediction was made for
+    private double knownSpeedY = Double.NaN; // Vertical speed the current prediction was made for
+    private double target = Simulation.HEIGHT / 2; // Height the bot moves the middle of its racket to
+    private double pendingTarget; // Newest prediction, acted on once the reaction delay has passed
+    private long reactionTicks; // Ticks left until pendingTarget becomes the target
+    private long predictions; // Number of predictions made so far
+
+    /**
+     * Constructs a new bot for one racket.
+     * @param left Whether the bot plays the left racket rather than the right one.
+     * @param difficulty The reaction delay and prediction noise of the bot.
+     * @param seed The seed of the prediction noise.
+     */
+    public PredictiveBot(boolean left, BotDifficulty difficulty, long seed) {
+        this(left, difficulty.reactionFrames, difficulty.noise, seed);
+    }
+
+    /**
+     * Constructs a new bot for one racket with custom flaws.
+     * @param left Whether the bot plays the left racket rather than the right one.
+     * @param reactionFrames The delay before a new prediction is acted on, in reference frames.
+     * @param noise The largest error added to a prediction, in units.
+     * @param seed The seed of the prediction noise.
+     */
+    public PredictiveBot(boolean left, int reactionFrames, double noise, long seed) {
+        this.left = left;
+        this.reactionFrames = reactionFrames;
+        this.noise = noise;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Returns the input bits for the bot's racket in the coming tick.
+     * @param simulation The match being played.
+     * @param events The event bits returned by the previous step, used to notice goals.
+     * @return The input bits for the bot's racket only.
+     */
+    public int inputs(Simulation simulation, int events) {
+        // A racket hit flips dirX, a speed change alters either component, and a goal puts the ball back
+        // in the center; a wall bounce only flips the sign of dirY, which the prediction already covers
+        if ((events & GOAL_EVENTS) != 0 || simulation.ballDirX != knownDirX
+                || Math.abs(simulation.ballDirY) != knownSpeedY) {
+            knownDirX = simulation.ballDirX;
+            knownSpeedY = Math.abs(simulation.ballDirY);
+            pendingTarget = predict(simulation) + (random.nextDouble() * 2 - 1) * noise;
+            reactionTicks = Math.max(Math.round(reactionFrames / simulation.timeScale), 1);
+            predictions++;
+        }
+        if (reactionTicks > 0 && --reactionTicks == 0) {
+            target = pendingTarget;
+        }
+
+        double racketY = left ? simulation.leftRacketY : simulation.rightRacketY;
+        double middle = racketY + simulation.racketHeight / 2;
+        double deadZone = simulation.racketSpeed * simulation.timeScale; // Avoids shaking around the target
+        if (middle < target - deadZone) {
+            return left ? Simulation.LEFT_DOWN : Simulation.RIGHT_DOWN;
+        }
+        if (middle > target + deadZone) {
+            return left ? Simulation.LEFT_UP : Simulation.RIGHT_UP;
+        }
+        return 0;
+    }
+
+    /**
+     * Works out the height at which the ball will reach the face of the bot's racket.
+     * @param simulation The match being played.
+     * @return The predicted height of the ball's center at the racket face.
+     */
+    double predict(Simulation simulation) {
+        double r = simulation.ballRadius;
+        double ownFace = left ? Simulation.LEFT_RACKET_X + simulation.racketWidth + r : Simulation.RIGHT_RACKET_X - r;
+        double otherFace = left ? Simulation.RIGHT_RACKET_X - r : Simulation.LEFT_RACKET_X + simulation.racketWidth + r;
+        double dirX = simulation.ballDirX;
+        if (dirX == 0) {
+            return Simulation.HEIGHT / 2;
+        }
+        boolean towards = left ? dirX < 0 : dirX > 0;
+        // Horizontal distance the ball covers before it reaches our face, by way of the other racket if
+        // it is moving away
+        double distance = towards
+                ? Math.abs(ownFace - simulation.ballX)
+                : Math.abs(otherFace - simulation.ballX) + Math.abs(otherFace - ownFace);
+        double unfoldedY = simulation.ballY + simulation.ballDirY * distance / Math.abs(dirX);
+
+        // Fold the straight line back into the field between the walls
+        double span = Simulation.HEIGHT - 2 * r;
+        double folded = (unfoldedY - r) % (2 * span);
+        if (folded < 0) {
+            folded += 2 * span;
+        }
+        return r + (folded <= span ? folded : 2 * span - folded);
+    }
+
+    public double getTarget() {
+        return target;
+    }
+
+    public long getPredictions() {
+        return predictions;
+    }
+}
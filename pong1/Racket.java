@@ -1,6 +1,6 @@
 /**
  * This class represents a racket in the Pong game. It extends the Rectangle class and defines
- * properties and behaviors specific to the racket, such as movement and appearance.
+ * the appearance of the racket. Its position is projected from the Simulation every frame.
  */
 package com.example.pong1;
 
@@ -8,12 +8,9 @@ import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 
 public class Racket extends Rectangle {
-    public static int RACKET_HEIGHT = 100; // Default height of the racket
-    private static final int RACKET_WIDTH = 10; // Width of the racket
+    public static int RACKET_HEIGHT = Simulation.RACKET_HEIGHT; // Default height of the racket
+    static final int RACKET_WIDTH = Simulation.RACKET_WIDTH; // Width of the racket
     private static final Color RACKET_COLOR = Color.BLUE; // Default color of the racket
-    private static final int MOVEMENT_SPEED = 5; // Speed at which the racket moves
-    private boolean movingUp = false; // Flag to indicate if the racket is moving up
-    private boolean movingDown = false; // Flag to indicate if the racket is moving down
 
     /**
      * Constructs a new racket with the specified position.
@@ -26,38 +23,14 @@ public class Racket extends Rectangle {
     }
 
     /**
-     * Sets the flag to indicate that the racket should move up.
-     */
-    public void moveUp() {
-        movingUp = true;
-    }
-
-    /**
-     * Sets the flag to indicate that the racket should move down.
-     */
-    public void moveDown() {
-        movingDown = true;
-    }
-
-    /**
-     * Stops the movement of the racket.
-     */
-    public void stopMovement() {
-        movingUp = false;
-        movingDown = false;
-    }
-
-    /**
-     * Updates the position of the racket based on its movement flags.
+     * Moves the racket node to the position and height held by the simulation.
+     * @param x The x-coordinate of the racket.
+     * @param y The y-coordinate of the racket.
+     * @param height The height of the racket.
      */
-    public void update() {
-        // Move the racket up if the movingUp flag is true and it's not at the top edge
-        if (movingUp && getY() > 0) {
-            setY(getY() - MOVEMENT_SPEED);
-        }
-        // Move the racket down if the movingDown flag is true and it's not at the bottom edge
-        if (movingDown && getY() < Panel.HEIGHT - RACKET_HEIGHT) {
-            setY(getY() + MOVEMENT_SPEED);
-        }
+    public void moveTo(double x, double y, double height) {
+        setX(x);
+        setY(y);
+        setHeight(height);
     }
 }
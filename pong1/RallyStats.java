@@ -0,0 +1,42 @@
+/**
+ * This class gathers the rally statistics of a match from the event bits of each tick: how often the
+ * ball was hit by a racket and bounced off a wall, and the most racket hits within a single rally.
+ */
+package com.example.pong1;
+
+public class RallyStats {
+    private int racketHits;
+    private int wallBounces;
+    private int rallyHits; // Racket hits since the last point
+    private int longestRally;
+
+    /**
+     * Counts the events of one tick.
+     * @param events The event bits returned by Simulation.step().
+     */
+    public void record(int events) {
+        if ((events & Simulation.EVENT_RACKET_HIT) != 0) {
+            racketHits++;
+            rallyHits++;
+            longestRally = Math.max(longestRally, rallyHits);
+        }
+        if ((events & Simulation.EVENT_WALL_BOUNCE) != 0) {
+            wallBounces++;
+        }
+        if ((events & (Simulation.EVENT_LEFT_SCORED | Simulation.EVENT_RIGHT_SCORED)) != 0) {
+            rallyHits = 0;
+        }
+    }
+
+    public int getRacketHits() {
+        return racketHits;
+    }
+
+    public int getWallBounces() {
+        return wallBounces;
+    }
+
+    public int getLongestRally() {
+        return longestRally;
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * This enum lists the render backends the game panel can draw with.
+ */
+package com.example.pong1;
+
+public enum RenderBackend {
+    NODES, // One scene graph node per ball, racket and score
+    CANVAS; // The whole frame drawn into a single Canvas
+
+    /**
+     * Looks up a backend by name, ignoring case.
+     * @param name The name of the backend, or null for the default.
+     * @return The matching backend, or NODES if the name is null.
+     */
+    public static RenderBackend fromName(String name) {
+        if (name == null) {
+            return NODES;
+        }
+        return valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * This class compares the render backends of the Pong game. It runs the same scripted rally through
+ * each backend in turn and reports the time spent drawing each frame, the scene graph pulse cost
+ * (from the start of the pulse until layout has finished) and the interval between frames.
+ * Run it with --frames=N to change the number of measured frames per backend, and with --particles=N to
+ * keep N effect particles alive and draw them through a ParticleLayer on top of each backend.
+ */
+package com.example.pong1;
+
+import java.util.Arrays;
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.layout.Pane;
+import javafx.stage.Stage;
+
+public class RenderBenchmark extends Application {
+    private static final int WARMUP_FRAMES = 120; // Frames run before measuring each backend
+    private static final int DEFAULT_FRAMES = 600; // Frames measured for each backend
+    private Stage stage;
+    private int frames;
+    private int particleCount; // Live effect particles drawn every frame, or 0
+    private int backendIndex;
+
+    /**
+     * Launches the render benchmark.
+     * @param args Command-line arguments, e.g. --frames=1200.
+     */
+    public static void main(String[] args) {
+        Application.launch(RenderBenchmark.class, args);
+    }
+
+    @Override
+    public void start(Stage primaryStage) {
+        stage = primaryStage;
+        String framesArg = getParameters().getNamed().get("frames");
+        frames = framesArg == null ? DEFAULT_FRAMES : Integer.parseInt(framesArg);
+        String particlesArg = getParameters().getNamed().get("particles");
+        particleCount = particlesArg == null ? 0 : Integer.parseInt(particlesArg);
+        stage.setTitle("Pong Render Benchmark");
+        runBackend(RenderBackend.values()[backendIndex]);
+        stage.show();
+    }
+
+    /**
+     * Measures one backend, then moves on to the next one or exits when all have run.
+     * @param backend The backend to measure.
+     */
+    private void runBackend(RenderBackend backend) {
+        Pane pane = new Pane();
+        pane.setStyle("-fx-background-color: black;");
+        Simulation simulation = new Simulation(Integer.MAX_VALUE);
+        Renderer renderer = backend == RenderBackend.CANVAS
+                ? new CanvasRenderer(pane)
+                : new NodeRenderer(pane, simulation);
+        ParticleSystem particles = ParticleBenchmarks.newSystem(Math.max(2 * particleCount, 1));
+        ParticleLayer particleLayer = new ParticleLayer(particles);
+        GameEventBus bus = new GameEventBus(64);
+        GameEventBus.Reader reader = bus.newReader();
+        if (particleCount > 0) {
+            pane.getChildren().add(particleLayer);
+        }
+        Scene scene = new Scene(pane, Simulation.WIDTH, Simulation.HEIGHT);
+
+        long[] renderNanos = new long[frames];
+        long[] pulseNanos = new long[frames];
+        long[] intervalNanos = new long[frames];
+        long[] pulseStart = new long[1];
+        int[] frame = {-WARMUP_FRAMES};
+
+        // Runs once layout of the pulse is done, closing the pulse cost measurement
+        scene.addPostLayoutPulseListener(() -> {
+            int i = frame[0] - 1;
+            if (i >= 0 && i < frames) {
+                pulseNanos[i] = System.nanoTime() - pulseStart[0];
+            }
+        });
+
+        AnimationTimer timer = new AnimationTimer() {
+            private long last;
+
+            @Override
+            public void handle(long now) {
+                int i = frame[0]++;
+                if (i == frames) {
+                    stop();
+                    report(backend, renderNanos, pulseNanos, intervalNanos);
+                    Platform.runLater(() -> next());
+                    return;
+                }
+                pulseStart[0] = System.nanoTime();
+                simulation.step(TrackingBot.inputs(simulation));
+                long start = System.nanoTime();
+                renderer.render(simulation, 0);
+                if (particleCount > 0) {
+                    ParticleBenchmarks.refill(particles, bus, reader, particleCount, i);
+                    particleLayer.render(now);
+                }
+                if (i >= 0) {
+                    renderNanos[i] = System.nanoTime() - start;
+                    intervalNanos[i] = now - last;
+                }
+                last = now;
+            }
+        };
+        stage.setScene(scene);
+        timer.start();
+    }
+
+    /**
+     * Starts the next backend, or exits once every backend has been measured.
+     */
+    private void next() {
+        backendIndex++;
+        if (backendIndex < RenderBackend.values().length) {
+            runBackend(RenderBackend.values()[backendIndex]);
+        } else {
+            Platform.exit();
+        }
+    }
+
+    /**
+     * Prints the mean, median and 99th percentile of each measurement.
+     */
+    private static void report(RenderBackend backend, long[] render, long[] pulse, long[] interval) {
+        System.out.printf("%-7s render %s | pulse %s | interval %s%n", backend,
+                summarize(render), summarize(pulse), summarize(interval));
+    }
+
+    /**
+     * Summarizes a series of durations in microseconds.
+     * @param nanos The durations in nanoseconds.
+     * @return The mean, median and 99th percentile as text.
+     */
+    private static String summarize(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0);
+        return String.format("mean %8.1f us p50 %8.1f us p99 %8.1f us",
+                mean / 1000, sorted[sorted.length / 2] / 1000.0, sorted[(int) (sorted.length * 0.99)] / 1000.0);
+    }
+}
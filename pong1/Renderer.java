@@ -0,0 +1,14 @@
+/**
+ * This interface represents a render backend of the Pong game. A renderer draws the ball, rackets and
+ * scores held by the Simulation in logical coordinates; the panel maps them onto the window.
+ */
+package com.example.pong1;
+
+public interface Renderer {
+    /**
+     * Draws the current simulation state, interpolated between the last two ticks.
+     * @param simulation The simulation to draw.
+     * @param alpha How far the frame lies between the previous and the current tick, in [0, 1).
+     */
+    public void render(Simulation simulation, double alpha);
+}
@@ -0,0 +1,246 @@
+/**
+ * This class plays back a match written by MatchRecorder. The log and keyframe index are memory-mapped
+ * rather than read onto the heap, so even multi-hour sessions open instantly. Seeking loads the nearest
+ * keyframe at or before the target tick, found in O(1) from the fixed-size index records, and then
+ * simulates forward at most one keyframe interval. Playback runs as fast as the caller steps it.
+ * Each mapped file is limited to 2 GB.
+ */
+package com.example.pong1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class ReplayReader implements Closeable {
+    private final FileChannel logChannel;
+    private final FileChannel indexChannel;
+    private final MappedByteBuffer log;
+    private final MappedByteBuffer index;
+    private final int tickRate;
+    private final int finalScore;
+    private final int keyframeInterval;
+    private final String leftPlayerName;
+    private final String rightPlayerName;
+    private final long startTick; // Tick of the first keyframe
+    private final int keyframes; // Number of keyframes in the index
+    private long nextRecordTick = Long.MAX_VALUE; // Tick of the next unread record
+    private int inputs; // Input bits currently held
+    private long endTick = Long.MAX_VALUE; // Last tick of the recording, once its end record is read
+
+    /**
+     * Opens a recording and maps its log and index files.
+     * @param path The path of the log file.
+     * @throws IOException If the files cannot be read or are not a recording.
+     */
+    public ReplayReader(Path path) throws IOException {
+        logChannel = FileChannel.open(path, StandardOpenOption.READ);
+        indexChannel = FileChannel.open(MatchRecorder.indexPathOf(path), StandardOpenOption.READ);
+        log = logChannel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(logChannel.size(), Integer.MAX_VALUE));
+        index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(indexChannel.size(), Integer.MAX_VALUE));
+
+        if (log.getInt() != MatchRecorder.LOG_MAGIC || index.getInt() != MatchRecorder.INDEX_MAGIC) {
+            close();
+            throw new IOException("Not a Pong recording: " + path);
+        }
+        if (log.getShort() != MatchRecorder.VERSION || index.getShort() != MatchRecorder.VERSION) {
+            close();
+            throw new IOException("Unsupported recording version: " + path);
+        }
+        tickRate = log.getInt();
+        finalScore = log.getInt();
+        keyframeInterval = log.getInt();
+        leftPlayerName = getName();
+        rightPlayerName = getName();
+
+        index.getShort(); // Reserved
+        index.getInt(); // Keyframe interval, also stored in the log header
+        if (index.getInt() != SnapshotCodec.SNAPSHOT_BYTES) {
+            close();
+            throw new IOException("Recording has an incompatible state layout: " + path);
+        }
+        startTick = index.getLong();
+        keyframes = (index.limit() - MatchRecorder.INDEX_HEADER_BYTES) / MatchRecorder.KEYFRAME_BYTES;
+        if (keyframes == 0) {
+            close();
+            throw new IOException("Recording has no keyframes: " + path);
+        }
+    }
+
+    /**
+     * Creates a simulation positioned at the start of the recording.
+     * @return A new simulation in the recorded starting state.
+     */
+    public Simulation createSimulation() {
+        Simulation simulation = new Simulation(finalScore);
+        seek(simulation, startTick);
+        return simulation;
+    }
+
+    /**
+     * Moves the simulation to the specified tick: restores the nearest keyframe at or before it, then
+     * replays the inputs up to the tick.
+     * @param simulation The simulation to position.
+     * @param tick The tick to seek to; clamped to the recording.
+     */
+    public void seek(Simulation simulation, long tick) {
+        long keyframe = Math.max(0, Math.min((tick - startTick) / keyframeInterval, keyframes - 1));
+        index.position(MatchRecorder.INDEX_HEADER_BYTES + (int) keyframe * MatchRecorder.KEYFRAME_BYTES);
+        index.getLong(); // Tick of the keyframe, also part of the state
+        long logOffset = index.getLong();
+        nextRecordTick = index.getLong(); // Base for the delta of the next record
+        inputs = index.getInt();
+        SnapshotCodec.decode(index, simulation);
+
+        log.position((int) logOffset);
+        readRecordTick();
+        while (simulation.getTick() < tick && !isFinished(simulation)) {
+            step(simulation);
+        }
+    }
+
+    /**
+     * Applies the records due before the simulation's next tick and steps it with the recorded inputs.
+     * @param simulation The simulation being replayed.
+     * @return The event bits raised during the tick.
+     */
+    public int step(Simulation simulation) {
+        long tick = simulation.getTick();
+        while (nextRecordTick == tick) {
+            applyRecord(simulation);
+            if (tick >= endTick) {
+                return 0;
+            }
+        }
+        return simulation.step(inputs);
+    }
+
+    /**
+     * Returns whether the replay has reached the end of the recording or of the match.
+     * @param simulation The simulation being replayed.
+     */
+    public boolean isFinished(Simulation simulation) {
+        return simulation.isGameEnded() || simulation.getTick() >= endTick;
+    }
+
+    /**
+     * Reads the tag of the current record, applies it, and reads the tick of the following record.
+     */
+    private void applyRecord(Simulation simulation) {
+        int tag = log.get() & 0xFF;
+        if (tag < MatchRecorder.TAG_BALL_SPEED) {
+            inputs = tag;
+        } else if (tag == MatchRecorder.TAG_BALL_SPEED) {
+            long zigzag = getVarLong();
+            simulation.increaseBallSpeed((int) (zigzag >>> 1) ^ -(int) (zigzag & 1));
+        } else if (tag == MatchRecorder.TAG_RACKET_SIZE) {
+            simulation.increaseRacketHeight(log.getDouble());
+        } else if (tag == MatchRecorder.TAG_END) {
+            endTick = nextRecordTick;
+        }
+        readRecordTick();
+    }
+
+    /**
+     * Reads the tick delta of the next record, or marks the log as exhausted. A record cut short by
+     * a crash while recording counts as the end of the log.
+     */
+    private void readRecordTick() {
+        try {
+            if (log.hasRemaining()) {
+                nextRecordTick += getVarLong();
+                return;
+            }
+        } catch (BufferUnderflowException e) {
+            // Truncated record
+        }
+        nextRecordTick = Long.MAX_VALUE;
+    }
+
+    /**
+     * Reads a value written in seven-bit groups, low bits first.
+     */
+    private long getVarLong() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = log.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 player name.
+     */
+    private String getName() {
+        byte[] bytes = new byte[log.getShort()];
+        log.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Closes the mapped files. The mappings stay valid until they are garbage collected.
+     * @throws IOException If a file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            logChannel.close();
+        } finally {
+            indexChannel.close();
+        }
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public int getFinalScore() {
+        return finalScore;
+    }
+
+    public String getLeftPlayerName() {
+        return leftPlayerName;
+    }
+
+    public String getRightPlayerName() {
+        return rightPlayerName;
+    }
+
+    public long getStartTick() {
+        return startTick;
+    }
+
+    /**
+     * Replays a recording headless as fast as possible and prints the result.
+     * @param args The path of the log file, optionally followed by a tick to seek to first.
+     * @throws IOException If the recording cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        try (ReplayReader reader = new ReplayReader(Paths.get(args[0]))) {
+            Simulation simulation = reader.createSimulation();
+            if (args.length > 1) {
+                reader.seek(simulation, Long.parseLong(args[1]));
+            }
+            long start = System.nanoTime();
+            long firstTick = simulation.getTick();
+            while (!reader.isFinished(simulation)) {
+                reader.step(simulation);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long ticks = simulation.getTick() - firstTick;
+            System.out.printf("%s %d : %d %s after %d ticks (%.0f ticks/s, %.0fx real time)%n",
+                    reader.getLeftPlayerName(), simulation.getLeftScore(), simulation.getRightScore(),
+                    reader.getRightPlayerName(), simulation.getTick(), ticks / seconds,
+                    ticks / seconds / reader.getTickRate());
+        }
+    }
+}
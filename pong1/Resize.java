@@ -1,8 +0,0 @@
-package com.example.pong1;
-
-public interface Resize{
-    public void resizeX(double factor);
-    public void resizeY(double factor);
-
-
-}
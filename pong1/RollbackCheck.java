@@ -0,0 +1,152 @@
+/**
+ * This class checks that rolling back never changes the outcome of a match. It plays a
+ * RollbackSession for each side against random remote inputs that arrive late, out of order and
+ * twice, next to a reference Simulation that is stepped with every input known in advance. Every
+ * SETTLE_FRAMES frames the late inputs all arrive at once and the session settles, as RollbackPeer.poll()
+ * does; its state must then be byte for byte the reference's, compared as SnapshotCodec snapshots.
+ *
+ * Run it with: RollbackCheck [--ticks=N] [--max-delay=TICKS] [--ball-speed=N] [--seed=N]
+ * It exits with a non-zero status if a state differed or the session rolled back fewer times than
+ * MIN_ROLLBACKS, which would mean the check did not test anything.
+ */
+package com.example.pong1;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+public class RollbackCheck {
+    private static final double INPUT_CHANGE = 0.05; // Chance per tick that a player changes their input
+    private static final double DUPLICATE = 0.1; // Chance that an input is delivered a second time
+    private static final int[] LEFT_INPUTS = {0, Simulation.LEFT_UP, Simulation.LEFT_DOWN};
+    private static final int[] RIGHT_INPUTS = {0, Simulation.RIGHT_UP, Simulation.RIGHT_DOWN};
+    private static final int SETTLE_FRAMES = 20; // Frames between the points where every input is in
+    private static final int MIN_ROLLBACKS = 1_000; // Fewest rollbacks per side for a meaningful check
+
+    /**
+     * Plays both sides and prints how often each rolled back and whether the states matched.
+     * @param args The options described in the class comment.
+     */
+    public static void main(String[] args) {
+        Map<String, String> options = BenchmarkRunner.parseOptions(args);
+        int ticks = LaunchConfig.parseInt("ticks", options.get("ticks"), 80_000, 1, Integer.MAX_VALUE);
+        int maxDelay = LaunchConfig.parseInt("max-delay", options.get("max-delay"), 12, 0,
+                RollbackSession.MAX_PREDICTION);
+        int ballSpeed = LaunchConfig.parseInt("ball-speed", options.get("ball-speed"), 4, 1, 100);
+        long seed = options.containsKey("seed") ? Long.parseLong(options.get("seed")) : 1;
+
+        int failures = 0;
+        System.out.printf("%-6s %10s %10s %12s %12s%n", "Side", "Ticks", "Rollbacks", "Resimulated", "Compared");
+        for (boolean left : new boolean[] {true, false}) {
+            Result result = play(left, ticks, maxDelay, ballSpeed, seed);
+            String status = result.mismatchTick >= 0 ? "DIFFERS at tick " + result.mismatchTick
+                    : result.rollbacks < MIN_ROLLBACKS ? "TOO FEW ROLLBACKS" : "ok";
+            System.out.printf("%-6s %10d %10d %12d %12d %s%n", left ? "left" : "right", ticks, result.rollbacks,
+                    result.resimulatedTicks, result.compared, status);
+            if (result.mismatchTick >= 0 || result.rollbacks < MIN_ROLLBACKS) {
+                failures++;
+            }
+        }
+
+        if (failures > 0) {
+            System.out.println(failures + " rollback check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("Rolled back states match the reference byte for byte");
+    }
+
+    /**
+     * Plays one side of a match for a number of ticks, one tick per frame, and compares it with the
+     * reference whenever it has settled.
+     */
+    private static Result play(boolean left, int ticks, int maxDelay, int ballSpeed, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int localMask = left ? Simulation.LEFT_UP | Simulation.LEFT_DOWN : Simulation.RIGHT_UP | Simulation.RIGHT_DOWN;
+        int remoteMask = (Simulation.LEFT_UP | Simulation.LEFT_DOWN | Simulation.RIGHT_UP | Simulation.RIGHT_DOWN)
+                & ~localMask;
+        int[] inputs = new int[ticks]; // Both players' inputs of each tick
+        int[] arrivals = new int[ticks]; // Frame in which the remote input of each tick arrives
+        int leftInput = 0;
+        int rightInput = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            if (random.nextDouble() < INPUT_CHANGE) {
+                leftInput = LEFT_INPUTS[random.nextInt(LEFT_INPUTS.length)];
+            }
+            if (random.nextDouble() < INPUT_CHANGE) {
+                rightInput = RIGHT_INPUTS[random.nextInt(RIGHT_INPUTS.length)];
+            }
+            inputs[tick] = leftInput | rightInput;
+            arrivals[tick] = tick + random.nextInt(maxDelay + 1);
+        }
+
+        Simulation simulation = newSimulation(ballSpeed);
+        Simulation reference = newSimulation(ballSpeed);
+        RollbackSession session = new RollbackSession(simulation, left);
+        ByteBuffer actual = ByteBuffer.allocate(SnapshotCodec.SNAPSHOT_BYTES);
+        ByteBuffer expected = ByteBuffer.allocate(SnapshotCodec.SNAPSHOT_BYTES);
+        Result result = new Result();
+        for (int frame = 0; session.getTick() < ticks; frame++) {
+            // Deliver the inputs that arrive in this frame, some of them twice
+            for (int tick = Math.max(0, frame - maxDelay); tick <= frame && tick < ticks; tick++) {
+                if (arrivals[tick] == frame || arrivals[tick] < frame && random.nextDouble() < DUPLICATE) {
+                    session.addRemoteInput(tick, inputs[tick] & remoteMask);
+                }
+            }
+            session.advance(inputs[(int) session.getTick()] & localMask);
+            while (reference.tick < simulation.tick) {
+                reference.step(inputs[(int) reference.tick]);
+            }
+            boolean last = session.getTick() == ticks;
+            if ((frame % SETTLE_FRAMES == 0 || last)
+                    && !settle(session, inputs, remoteMask, simulation, reference, actual, expected, result)) {
+                break;
+            }
+        }
+        result.rollbacks = session.getRollbacks();
+        result.resimulatedTicks = session.getResimulatedTicks();
+        return result;
+    }
+
+    /**
+     * Delivers every remote input still missing up to the session's tick, newest first, settles the
+     * session and compares it with the reference.
+     * @return Whether the snapshots are identical; a mismatch is recorded in the result.
+     */
+    private static boolean settle(RollbackSession session, int[] inputs, int remoteMask, Simulation simulation,
+                                  Simulation reference, ByteBuffer actual, ByteBuffer expected, Result result) {
+        for (long tick = session.getTick() - 1; tick > session.getConfirmedTick(); tick--) {
+            session.addRemoteInput(tick, inputs[(int) tick] & remoteMask);
+        }
+        session.rollback();
+        actual.clear();
+        SnapshotCodec.encode(simulation, actual);
+        expected.clear();
+        SnapshotCodec.encode(reference, expected);
+        result.compared++;
+        if (!actual.flip().equals(expected.flip())) {
+            result.mismatchTick = simulation.tick;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a simulation in the starting state both sides agree on.
+     */
+    private static Simulation newSimulation(int ballSpeed) {
+        Simulation simulation = new Simulation(Integer.MAX_VALUE);
+        simulation.setTickRate(Panel.DEFAULT_TICK_RATE);
+        simulation.increaseBallSpeed(ballSpeed);
+        return simulation;
+    }
+
+    /**
+     * This class holds what one side's run found.
+     */
+    private static final class Result {
+        long rollbacks;
+        long resimulatedTicks;
+        long compared; // Snapshots compared with the reference
+        long mismatchTick = -1; // Tick of the first differing state, or -1
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * This class plays a rollback match over loopback on one machine: two RollbackPeers driven by
+ * PredictiveBots, each on its own thread at the game's tick rate, with the link impairments given on
+ * the command line. Every loop iteration stands for one frame of a player. It reports how often a
+ * frame had to roll back, how many ticks were simulated again and what that cost per frame, how
+ * often a peer had to wait for the other one, and finally checks that both peers ended in exactly
+ * the same state.
+ *
+ * Run it with: RollbackLoopback [LATENCY_MS] [JITTER_MS] [LOSS_RATE] [SECONDS] [BALL_SPEED]
+ */
+package com.example.pong1;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.locks.LockSupport;
+
+public class RollbackLoopback {
+    private static final long SETTLE_TIMEOUT_NANOS = 5_000_000_000L; // Time allowed to exchange the last inputs
+
+    /**
+     * Runs one loopback match and prints the measurements.
+     * @param args The link impairments and match length described in the class comment.
+     * @throws Exception If the match cannot be set up.
+     */
+    public static void main(String[] args) throws Exception {
+        double latency = args.length > 0 ? Double.parseDouble(args[0]) : 30;
+        double jitter = args.length > 1 ? Double.parseDouble(args[1]) : 5;
+        double loss = args.length > 2 ? Double.parseDouble(args[2]) : 0.02;
+        double seconds = args.length > 3 ? Double.parseDouble(args[3]) : 10;
+        int ballSpeed = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+        long ticks = Math.round(seconds * Panel.DEFAULT_TICK_RATE);
+
+        InetSocketAddress any = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        RollbackPeer left = new RollbackPeer(any, any, true, new LinkSimulator(latency, jitter, loss, 1));
+        RollbackPeer right = new RollbackPeer(any, left.getLocalAddress(), false,
+                new LinkSimulator(latency, jitter, loss, 2));
+        left.setRemote(right.getLocalAddress());
+
+        CyclicBarrier startLine = new CyclicBarrier(2);
+        PeerRunner leftRunner = new PeerRunner(left, ticks, ballSpeed, startLine);
+        PeerRunner rightRunner = new PeerRunner(right, ticks, ballSpeed, startLine);
+        Thread leftThread = new Thread(leftRunner, "pong-peer-left");
+        Thread rightThread = new Thread(rightRunner, "pong-peer-right");
+        leftThread.start();
+        rightThread.start();
+        leftThread.join();
+        rightThread.join();
+
+        System.out.printf("Link: %.0f ms latency, %.0f ms jitter, %.1f%% loss, %d ticks%n", latency, jitter,
+                loss * 100, ticks);
+        leftRunner.report("left");
+        rightRunner.report("right");
+        ByteBuffer leftState = leftRunner.finalState();
+        ByteBuffer rightState = rightRunner.finalState();
+        System.out.println(leftState != null && leftState.equals(rightState)
+                ? "Final states are identical"
+                : "DESYNC: the peers ended in different states");
+        left.close();
+        right.close();
+    }
+
+    /**
+     * This class runs one peer at the tick rate for a fixed number of ticks, then keeps exchanging
+     * inputs until every remote input is confirmed.
+     */
+    private static class PeerRunner implements Runnable {
+        private final RollbackPeer peer;
+        private final long ticks;
+        private final CyclicBarrier startLine;
+        private final Simulation simulation = new Simulation(Integer.MAX_VALUE);
+        private final PredictiveBot bot;
+        private final LatencyHistogram frameCost = new LatencyHistogram(); // Re-simulation time of rollback frames
+        private long frames;
+        private long rollbackFrames;
+        private boolean settled;
+
+        PeerRunner(RollbackPeer peer, long ticks, int ballSpeed, CyclicBarrier startLine) {
+            this.peer = peer;
+            this.ticks = ticks;
+            this.startLine = startLine;
+            simulation.setTickRate(Panel.DEFAULT_TICK_RATE);
+            simulation.increaseBallSpeed(ballSpeed);
+            bot = new PredictiveBot(peer.isLeft(), BotDifficulty.MEDIUM, peer.isLeft() ? 1 : 2);
+            peer.attach(simulation);
+        }
+
+        @Override
+        public void run() {
+            try {
+                RollbackSession session = peer.getSession();
+                long tickNanos = 1_000_000_000L / Panel.DEFAULT_TICK_RATE;
+                startLine.await();
+                long nextTick = System.nanoTime();
+                int events = 0;
+                while (session.getTick() < ticks) {
+                    long resimulated = session.getResimulatedTicks();
+                    long before = System.nanoTime();
+                    events = peer.tick(bot.inputs(simulation, events));
+                    frames++;
+                    if (session.getResimulatedTicks() != resimulated) {
+                        rollbackFrames++;
+                        frameCost.record(System.nanoTime() - before);
+                    }
+                    nextTick += tickNanos;
+                    LockSupport.parkNanos(nextTick - System.nanoTime());
+                }
+                long deadline = System.nanoTime() + SETTLE_TIMEOUT_NANOS;
+                while (session.getConfirmedTick() < ticks - 1 && System.nanoTime() < deadline) {
+                    peer.poll();
+                    LockSupport.parkNanos(tickNanos);
+                }
+                peer.poll();
+                // Keep answering for a moment so the other peer gets our last acknowledgement
+                for (long end = System.nanoTime() + 200_000_000L; System.nanoTime() < end; ) {
+                    peer.poll();
+                    LockSupport.parkNanos(tickNanos);
+                }
+                settled = session.getConfirmedTick() >= ticks - 1;
+            } catch (Exception e) {
+                System.err.println("Peer stopped: " + e);
+            }
+        }
+
+        /**
+         * Returns the snapshot of the peer's final state, or null if not every input arrived.
+         */
+        ByteBuffer finalState() {
+            if (!settled) {
+                return null;
+            }
+            ByteBuffer state = ByteBuffer.allocate(SnapshotCodec.SNAPSHOT_BYTES);
+            SnapshotCodec.encode(simulation, state);
+            return state.flip();
+        }
+
+        /**
+         * Prints the rollback measurements of this peer.
+         */
+        void report(String name) {
+            RollbackSession session = peer.getSession();
+            LatencyHistogram resimulation = session.getResimulationTimes();
+            System.out.printf("Peer %-5s: %d frames, %.1f%% rolled back, %d ticks re-simulated (%.2f per rollback,"
+                            + " max %d), %d stalled frames%n", name, frames, 100.0 * rollbackFrames / Math.max(frames, 1),
+                    session.getResimulatedTicks(),
+                    (double) session.getResimulatedTicks() / Math.max(session.getRollbacks(), 1),
+                    session.getMaxRollbackDepth(), session.getStalls());
+            System.out.printf("Peer %-5s: re-simulation p50 %.1f us p99 %.1f us max %.1f us; rollback frame"
+                            + " p50 %.1f us p99 %.1f us; %d bytes sent%n", name, resimulation.percentile(50) / 1e3,
+                    resimulation.percentile(99) / 1e3, resimulation.getMax() / 1e3, frameCost.percentile(50) / 1e3,
+                    frameCost.percentile(99) / 1e3, peer.getSentBytes());
+            System.out.printf("Peer %-5s: score %d : %d at tick %d%n", name, simulation.getLeftScore(),
+                    simulation.getRightScore(), simulation.getTick());
+        }
+    }
+}
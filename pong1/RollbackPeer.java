@@ -0,0 +1,174 @@
+/**
+ * This class connects a RollbackSession to the other player over UDP. There is no server: each peer
+ * binds its own port and sends its inputs straight to the other one in PEER_INPUT packets. Every packet
+ * repeats all local inputs the other peer has not acknowledged yet, so a lost packet is covered by the
+ * next one without any resend logic. Both peers must start from the same settings (final score, tick
+ * rate, ball speed and racket size) and agree on who plays which side.
+ */
+package com.example.pong1;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+public class RollbackPeer {
+    private static final int HEADER_BYTES = 1 + Integer.BYTES + 1 + Integer.BYTES; // PEER_INPUT without inputs
+    private final DatagramChannel channel;
+    private InetSocketAddress remote;
+    private final LinkSimulator link;
+    private final boolean left;
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET_BYTES);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET_BYTES);
+    private RollbackSession session; // Created once attached
+    private long ackedTick = -1; // Every local input up to this tick has reached the remote peer
+    private long receivedBytes;
+
+    /**
+     * Constructs a new peer.
+     * @param local The address to receive on; port 0 picks a free port.
+     * @param remote The address of the other peer.
+     * @param left Whether the local player plays the left racket rather than the right one.
+     * @param link The simulated link used for outgoing packets.
+     * @throws IOException If the channel cannot be opened.
+     */
+    public RollbackPeer(InetSocketAddress local, InetSocketAddress remote, boolean left, LinkSimulator link)
+            throws IOException {
+        this.remote = remote;
+        this.left = left;
+        this.link = link;
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.bind(local);
+    }
+
+    /**
+     * Changes the address of the other peer, e.g. once it has bound a free port.
+     * @param remote The address of the other peer.
+     */
+    void setRemote(InetSocketAddress remote) {
+        this.remote = remote;
+    }
+
+    /**
+     * Sets the simulation the match is played in, e.g. the one a Panel renders. Call this before the
+     * first tick, with the simulation in the starting state both peers agreed on.
+     * @param simulation The simulation to play in.
+     */
+    public void attach(Simulation simulation) {
+        session = new RollbackSession(simulation, left);
+    }
+
+    /**
+     * Advances the match by one tick: takes the inputs that arrived, rolls back if one of them proves
+     * a prediction wrong, simulates the tick and sends the local input.
+     * @param localInputs The input bits held by the local player; bits for the other racket are ignored.
+     * @return The event bits of the tick.
+     * @throws IOException If the channel fails.
+     */
+    public int tick(int localInputs) throws IOException {
+        long now = System.nanoTime();
+        receive();
+        int events = session.advance(localInputs);
+        send(now);
+        return events;
+    }
+
+    /**
+     * Exchanges inputs and settles the state without simulating a new tick, e.g. while waiting for the
+     * other peer to catch up.
+     * @throws IOException If the channel fails.
+     */
+    public void poll() throws IOException {
+        long now = System.nanoTime();
+        receive();
+        session.rollback();
+        send(now);
+    }
+
+    /**
+     * Sends every local input the other peer has not acknowledged, up to the last tick simulated.
+     */
+    private void send(long now) throws IOException {
+        long last = session.getTick() - 1;
+        long first = Math.max(ackedTick + 1, last - RollbackSession.RING_TICKS + 1);
+        first = Math.max(first, 0);
+        int count = (int) Math.max(last - first + 1, 0); // At most RING_TICKS, so it fits in a byte
+        sendBuffer.clear();
+        sendBuffer.put(NetProtocol.PEER_INPUT).putInt((int) first).put((byte) count);
+        for (int i = 0; i < count; i++) {
+            sendBuffer.put((byte) session.getLocalInput(first + i));
+        }
+        sendBuffer.putInt((int) session.getConfirmedTick());
+        sendBuffer.flip();
+        link.send(channel, sendBuffer, remote, now);
+        link.flush(channel, now);
+    }
+
+    /**
+     * Reads every pending datagram from the other peer. Datagrams from any other address are dropped,
+     * so nobody else can feed inputs into the match. The channel is not connected instead, because
+     * the address may still change and a connected channel fails on the ICMP errors sent back while
+     * the other peer is not listening yet.
+     */
+    private void receive() throws IOException {
+        while (true) {
+            receiveBuffer.clear();
+            SocketAddress source = channel.receive(receiveBuffer);
+            if (source == null) {
+                return;
+            }
+            if (!source.equals(remote)) {
+                continue;
+            }
+            receivedBytes += receiveBuffer.position();
+            receiveBuffer.flip();
+            if (receiveBuffer.remaining() < HEADER_BYTES || receiveBuffer.get() != NetProtocol.PEER_INPUT) {
+                continue;
+            }
+            long first = receiveBuffer.getInt();
+            int count = receiveBuffer.get() & 0xFF;
+            if (receiveBuffer.remaining() < count + Integer.BYTES) {
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                session.addRemoteInput(first + i, receiveBuffer.get());
+            }
+            ackedTick = Math.max(ackedTick, receiveBuffer.getInt());
+        }
+    }
+
+    /**
+     * Closes the channel.
+     * @throws IOException If the channel cannot be closed.
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Returns the address the peer receives on.
+     * @return The bound address.
+     * @throws IOException If the channel is closed.
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) channel.getLocalAddress();
+    }
+
+    public RollbackSession getSession() {
+        return session;
+    }
+
+    public boolean isLeft() {
+        return left;
+    }
+
+    public long getSentBytes() {
+        return link.getSentBytes();
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * This class runs one side of a rollback match, where both players simulate the whole game and only
+ * exchange their inputs. Each tick is simulated at once with the local input and a prediction of the
+ * remote one: the remote player is assumed to still hold the last input received from them. Before
+ * every tick the state is written as a SnapshotCodec snapshot into a ring of the last RING_TICKS ticks,
+ * together with the inputs used. When a remote input arrives for a tick that was already simulated
+ * and differs from the prediction, the state of that tick is restored from the ring and every tick
+ * since is simulated again, so the match ends up exactly as if the input had arrived in time.
+ *
+ * The local simulation may run at most MAX_PREDICTION ticks ahead of the last tick for which every
+ * remote input is known; beyond that it waits for the remote player, so a rollback never needs a
+ * state that has left the ring. The end of the match is only reported once the inputs that led to it
+ * are all confirmed, since a rollback could still undo it before that. The extra balls of the
+ * multi-ball mode are not part of a snapshot and cannot be played this way.
+ */
+package com.example.pong1;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class RollbackSession {
+    public static final int RING_TICKS = 32; // Ticks of state kept for rollback; a power of two
+    public static final int MAX_PREDICTION = RING_TICKS - 2; // Ticks the simulation may run unconfirmed
+    private static final int MASK = RING_TICKS - 1;
+    private final Simulation simulation;
+    private final int localMask; // Input bits of the local racket
+    private final int remoteMask; // Input bits of the remote racket
+    private final ByteBuffer states = ByteBuffer.allocate(RING_TICKS * SnapshotCodec.SNAPSHOT_BYTES);
+    private final int[] localInputs = new int[RING_TICKS]; // Local input of each tick
+    private final int[] usedRemoteInputs = new int[RING_TICKS]; // Remote input each tick was simulated with
+    private final int[] remoteInputs = new int[RING_TICKS]; // Remote inputs received
+    private final long[] remoteTicks = new long[RING_TICKS]; // Tick each received remote input belongs to
+    private final LatencyHistogram resimulationTimes = new LatencyHistogram();
+    private long confirmedTick = -1; // Every remote input up to this tick has been received
+    private long rollbackFrom = Long.MAX_VALUE; // Earliest tick simulated with a wrong prediction
+    private boolean endReported;
+    private long rollbacks;
+    private long resimulatedTicks;
+    private int maxRollbackDepth;
+    private long stalls; // Ticks skipped while waiting for remote input
+
+    /**
+     * Constructs a new session on a simulation in the agreed starting state.
+     * @param simulation The simulation both players start from.
+     * @param left Whether the local player plays the left racket rather than the right one.
+     */
+    public RollbackSession(Simulation simulation, boolean left) {
+        this.simulation = simulation;
+        localMask = left ? Simulation.LEFT_UP | Simulation.LEFT_DOWN : Simulation.RIGHT_UP | Simulation.RIGHT_DOWN;
+        remoteMask = (Simulation.LEFT_UP | Simulation.LEFT_DOWN | Simulation.RIGHT_UP | Simulation.RIGHT_DOWN)
+                & ~localMask;
+        Arrays.fill(remoteTicks, -1);
+    }
+
+    /**
+     * Corrects any misprediction, then simulates the next tick with the local input and the predicted
+     * or received remote input, unless the simulation is too far ahead of the remote player.
+     * @param localInput The input bits of the local player; bits for the other racket are ignored.
+     * @return The event bits of the tick; EVENT_MATCH_END once the end of the match is confirmed.
+     */
+    public int advance(int localInput) {
+        rollback();
+        int events = 0;
+        long tick = simulation.tick;
+        if (!simulation.gameEnded) {
+            if (tick - confirmedTick > MAX_PREDICTION) {
+                stalls++;
+                return 0;
+            }
+            int slot = (int) (tick & MASK);
+            localInputs[slot] = localInput & localMask;
+            events = simulate(tick) & ~Simulation.EVENT_MATCH_END;
+        }
+        if (simulation.gameEnded && !endReported && confirmedTick >= simulation.tick - 1) {
+            endReported = true;
+            events |= Simulation.EVENT_MATCH_END;
+        }
+        return events;
+    }
+
+    /**
+     * Takes a remote input. Inputs may arrive late, twice or out of order; a repeated or too old one
+     * is ignored, and one that proves a prediction wrong schedules a rollback for the next advance().
+     * @param tick The tick the input belongs to.
+     * @param input The input bits of the remote player.
+     */
+    public void addRemoteInput(long tick, int input) {
+        if (tick <= confirmedTick || tick - confirmedTick >= RING_TICKS) {
+            return; // Already known, or too far ahead to be held without overwriting a needed slot
+        }
+        int slot = (int) (tick & MASK);
+        if (remoteTicks[slot] == tick) {
+            return;
+        }
+        input &= remoteMask;
+        remoteInputs[slot] = input;
+        remoteTicks[slot] = tick;
+        while (remoteTicks[(int) ((confirmedTick + 1) & MASK)] == confirmedTick + 1) {
+            confirmedTick++;
+        }
+        if (tick < simulation.tick && usedRemoteInputs[slot] != input) {
+            rollbackFrom = Math.min(rollbackFrom, tick);
+        }
+    }
+
+    /**
+     * Restores the state before the earliest mispredicted tick and simulates again up to the current
+     * tick with the corrected inputs. Called by advance(); may also be called to settle the state
+     * without advancing.
+     * @return The number of ticks simulated again.
+     */
+    public int rollback() {
+        if (rollbackFrom == Long.MAX_VALUE) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        long from = rollbackFrom;
+        long to = simulation.tick;
+        rollbackFrom = Long.MAX_VALUE;
+        states.position((int) (from & MASK) * SnapshotCodec.SNAPSHOT_BYTES);
+        SnapshotCodec.decode(states, simulation);
+        for (long tick = from; tick < to; tick++) {
+            simulate(tick);
+        }
+        int depth = (int) (to - from);
+        rollbacks++;
+        resimulatedTicks += depth;
+        maxRollbackDepth = Math.max(maxRollbackDepth, depth);
+        resimulationTimes.record(System.nanoTime() - start);
+        return depth;
+    }
+
+    /**
+     * Saves the state before a tick, then steps the simulation with the inputs of that tick.
+     */
+    private int simulate(long tick) {
+        int slot = (int) (tick & MASK);
+        states.position(slot * SnapshotCodec.SNAPSHOT_BYTES);
+        SnapshotCodec.encode(simulation, states);
+        int remote = predictRemote(tick);
+        usedRemoteInputs[slot] = remote;
+        return simulation.step(localInputs[slot] | remote);
+    }
+
+    /**
+     * Returns the remote input of a tick if it has arrived, else the last confirmed remote input.
+     */
+    private int predictRemote(long tick) {
+        int slot = (int) (tick & MASK);
+        if (remoteTicks[slot] == tick) {
+            return remoteInputs[slot];
+        }
+        return confirmedTick < 0 ? 0 : remoteInputs[(int) (confirmedTick & MASK)];
+    }
+
+    /**
+     * Returns the local input of a recent tick, to be sent to the remote player.
+     * @param tick A tick within the last RING_TICKS ticks simulated.
+     * @return The local input bits of that tick.
+     */
+    public int getLocalInput(long tick) {
+        return localInputs[(int) (tick & MASK)];
+    }
+
+    /**
+     * Returns the next tick to be simulated.
+     * @return The tick of the simulation.
+     */
+    public long getTick() {
+        return simulation.tick;
+    }
+
+    public long getConfirmedTick() {
+        return confirmedTick;
+    }
+
+    public long getRollbacks() {
+        return rollbacks;
+    }
+
+    public long getResimulatedTicks() {
+        return resimulatedTicks;
+    }
+
+    public int getMaxRollbackDepth() {
+        return maxRollbackDepth;
+    }
+
+    public long getStalls() {
+        return stalls;
+    }
+
+    public LatencyHistogram getResimulationTimes() {
+        return resimulationTimes;
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * This class is one match hosted by a RoomServer: a headless Simulation with the rules of the Panel
+ * and its own final score, ticked at the server's rate by one of its workers. Players set the keys
+ * they hold with setInputs() from any thread, or the room plays itself with two TrackingBots, e.g.
+ * for load tests. Pausing, resuming and closing are compare-and-set operations on the room's state,
+ * so any thread can do them without a lock; the worker sees the change at the room's next tick.
+ * The tick statistics are written by the worker and may be read slightly stale by other threads.
+ */
+package com.example.pong1;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Room {
+    static final int RUNNING = 0;
+    static final int PAUSED = 1;
+    static final int FINISHED = 2; // The match has ended; the room stays until it is closed
+    static final int CLOSED = 3;
+    private final long id;
+    private final Simulation simulation;
+    private final boolean bots;
+    private final AtomicInteger state = new AtomicInteger(RUNNING);
+    private volatile int inputs; // Input bits held by the players
+    private long ticks;
+    private long latencySum; // Sum of the tick latencies, in nanoseconds
+    private long maxLatency;
+
+    /**
+     * Constructs a new room with a match at its start.
+     * @param id The id the server knows the room by.
+     * @param finalScore The final score at which the match ends.
+     * @param tickRate The number of ticks per second.
+     * @param bots Whether two TrackingBots play the match instead of players.
+     */
+    Room(long id, int finalScore, int tickRate, boolean bots) {
+        this.id = id;
+        this.bots = bots;
+        simulation = new Simulation(finalScore);
+        simulation.setTickRate(tickRate);
+    }
+
+    /**
+     * Steps the match by one tick with the held inputs, marking the room finished when the match ends.
+     * Only called by the room's worker.
+     */
+    void tick() {
+        int events = simulation.step(bots ? TrackingBot.inputs(simulation) : inputs);
+        if ((events & Simulation.EVENT_MATCH_END) != 0) {
+            state.compareAndSet(RUNNING, FINISHED);
+        }
+        ticks++;
+    }
+
+    /**
+     * Records how late a tick completed after the time it was due.
+     */
+    void recordLatency(long nanos) {
+        latencySum += nanos;
+        if (nanos > maxLatency) {
+            maxLatency = nanos;
+        }
+    }
+
+    int getState() {
+        return state.get();
+    }
+
+    /**
+     * Sets the keys held by the players, for the next tick of the room.
+     * @param inputs The input bits of both players.
+     */
+    public void setInputs(int inputs) {
+        this.inputs = inputs;
+    }
+
+    /**
+     * Stops ticking the room, like pausing a Panel, until it is resumed.
+     * @return true if the room was running.
+     */
+    public boolean pause() {
+        return state.compareAndSet(RUNNING, PAUSED);
+    }
+
+    /**
+     * Continues ticking a paused room from its next scheduled tick.
+     * @return true if the room was paused.
+     */
+    public boolean resume() {
+        return state.compareAndSet(PAUSED, RUNNING);
+    }
+
+    /**
+     * Marks the room closed; its worker drops it at the room's next scheduled tick.
+     * @return true if the room was not closed yet.
+     */
+    boolean close() {
+        return state.getAndSet(CLOSED) != CLOSED;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getFinalScore() {
+        return simulation.getFinalScore();
+    }
+
+    public boolean isPaused() {
+        return state.get() == PAUSED;
+    }
+
+    public boolean isFinished() {
+        return state.get() == FINISHED;
+    }
+
+    public boolean isClosed() {
+        return state.get() == CLOSED;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns the mean time from a tick being due to its completion.
+     * @return The mean tick latency in nanoseconds, or 0 before the first tick.
+     */
+    public double getMeanTickLatency() {
+        long count = ticks;
+        return count == 0 ? 0 : (double) latencySum / count;
+    }
+
+    public long getMaxTickLatency() {
+        return maxLatency;
+    }
+}
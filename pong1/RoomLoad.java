@@ -0,0 +1,132 @@
+/**
+ * This class measures how RoomServer scales with the number of rooms. For each room count it creates
+ * that many bot-played rooms, lets them run, and reports the room ticks per second against the
+ * number the tick rate asks for, the ticks lost by workers that fell behind, the latency from a tick
+ * being due to its completion over all rooms and for the worst room, and what creating and closing a
+ * room costs. Halfway through it pauses every tenth room and checks that paused rooms are not ticked.
+ *
+ * Run it with: RoomLoad [--rooms=N,N,...] [--workers=N] [--seconds=S] [--tick-rate=N]
+ */
+package com.example.pong1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+public class RoomLoad {
+    private static final String DEFAULT_ROOMS = "100,1000,5000,10000";
+    private static final long WARMUP_MILLIS = 2_000;
+
+    /**
+     * Runs the scaling measurement and prints one line per room count.
+     * @param args The options described in the class comment.
+     * @throws InterruptedException If interrupted while the rooms run.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = BenchmarkRunner.parseOptions(args);
+        int workers = LaunchConfig.parseInt("workers", options.get("workers"),
+                Runtime.getRuntime().availableProcessors(), 1, 1_024);
+        double seconds = options.containsKey("seconds") ? Double.parseDouble(options.get("seconds")) : 5;
+        int tickRate = LaunchConfig.parseInt("tick-rate", options.get("tick-rate"), Panel.DEFAULT_TICK_RATE, 1, 10_000);
+
+        run(Math.min(1_000, 100 * workers), workers, WARMUP_MILLIS / 1e3, tickRate); // Compiles the tick path
+        System.out.printf("%8s %8s %12s %9s %9s %9s %9s %9s %11s %9s %9s%n", "Rooms", "Workers", "Ticks/s", "Of due",
+                "Skipped", "p50 us", "p99 us", "Max us", "Worst room", "Create us", "Close us");
+        for (String rooms : options.getOrDefault("rooms", DEFAULT_ROOMS).split(",")) {
+            Result result = run(Integer.parseInt(rooms.trim()), workers, seconds, tickRate);
+            System.out.printf("%8d %8d %12.0f %8.1f%% %9d %9.1f %9.1f %9.1f %9.1f us %9.2f %9.2f%n", result.rooms,
+                    workers, result.ticksPerSecond, 100 * result.ticksPerSecond / (result.running * tickRate),
+                    result.skipped, result.latency.percentile(50) / 1e3, result.latency.percentile(99) / 1e3,
+                    result.latency.getMax() / 1e3, result.worstRoomMean / 1e3, result.createNanos / 1e3,
+                    result.closeNanos / 1e3);
+            if (result.pausedTicks != 0) {
+                System.out.println("Paused rooms were ticked " + result.pausedTicks + " times");
+            }
+        }
+    }
+
+    /**
+     * The measurements of one room count.
+     */
+    private static class Result {
+        int rooms;
+        int running; // Rooms still playing at the end of the measurement
+        double ticksPerSecond;
+        long skipped;
+        LatencyHistogram latency;
+        double worstRoomMean; // Highest mean tick latency of any room, in nanoseconds
+        double createNanos; // Per room
+        double closeNanos; // Per room
+        long pausedTicks; // Ticks of rooms while they were paused; must be 0
+    }
+
+    /**
+     * Runs one server with the specified number of rooms and measures it.
+     */
+    private static Result run(int roomCount, int workers, double seconds, int tickRate) throws InterruptedException {
+        Result result = new Result();
+        result.rooms = roomCount;
+        RoomServer server = new RoomServer(tickRate, workers);
+        server.start();
+        SplittableRandom random = new SplittableRandom(roomCount);
+        List<Room> rooms = new ArrayList<>(roomCount);
+        long start = System.nanoTime();
+        for (int i = 0; i < roomCount; i++) {
+            rooms.add(server.createRoom(5 + random.nextInt(17), true));
+        }
+        result.createNanos = (double) (System.nanoTime() - start) / roomCount;
+        Thread.sleep(200); // Every room has been admitted to its wheel
+
+        long halfMillis = (long) (seconds * 500);
+        long ticksBefore = server.getTotalTicks();
+        long measureStart = System.nanoTime();
+        Thread.sleep(halfMillis);
+        result.pausedTicks = pauseEveryTenth(rooms, 2_000 / tickRate + 20);
+        Thread.sleep(halfMillis);
+        long ticks = server.getTotalTicks() - ticksBefore;
+        result.ticksPerSecond = ticks / ((System.nanoTime() - measureStart) / 1e9);
+        result.skipped = server.getSkippedTicks();
+        result.latency = server.getTickLatency();
+        for (Room room : rooms) {
+            result.worstRoomMean = Math.max(result.worstRoomMean, room.getMeanTickLatency());
+            if (!room.isFinished()) {
+                result.running++;
+            }
+        }
+        result.running = Math.max(result.running, 1);
+
+        start = System.nanoTime();
+        for (Room room : rooms) {
+            server.closeRoom(room.getId());
+        }
+        result.closeNanos = (double) (System.nanoTime() - start) / roomCount;
+        server.stop();
+        return result;
+    }
+
+    /**
+     * Pauses every tenth room for a while and resumes it.
+     * @return The number of ticks the paused rooms were given while paused.
+     */
+    private static long pauseEveryTenth(List<Room> rooms, long pauseMillis) throws InterruptedException {
+        List<Room> paused = new ArrayList<>();
+        for (int i = 0; i < rooms.size(); i += 10) {
+            if (rooms.get(i).pause()) {
+                paused.add(rooms.get(i));
+            }
+        }
+        Thread.sleep(pauseMillis / 2); // A tick already under way when pausing may still complete
+        long[] ticks = new long[paused.size()];
+        for (int i = 0; i < ticks.length; i++) {
+            ticks[i] = paused.get(i).getTicks();
+        }
+        Thread.sleep(pauseMillis / 2);
+        long ticked = 0;
+        for (int i = 0; i < ticks.length; i++) {
+            ticked += paused.get(i).getTicks() - ticks[i];
+            paused.get(i).resume();
+        }
+        return ticked;
+    }
+}
@@ -0,0 +1,263 @@
+/**
+ * This class hosts many independent matches in one JVM without a thread per match. Each Room is ticked
+ * at the server's tick rate by one of a fixed pool of worker threads. Every worker owns a hashed timing
+ * wheel: one tick period split into WHEEL_SLOTS slots, each holding the rooms due at that point of the
+ * period. A room's id is hashed to pick its worker and its slot, so the rooms are spread across the
+ * workers and across the period instead of all being ticked at the start of it. A worker sleeps until
+ * the next slot is due, ticks the running rooms in it, and moves on; a room is back in turn exactly
+ * one period later.
+ *
+ * New rooms reach their worker through a lock-free queue that the worker drains between slots, and the
+ * server's directory of rooms is a ConcurrentHashMap, so creating, pausing and closing rooms never
+ * takes a lock shared by all rooms. Closed rooms are dropped by their worker the next time it reaches
+ * them. A worker that falls a whole period behind skips the missed periods rather than racing through
+ * them, counting the ticks its rooms lost.
+ */
+package com.example.pong1;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class RoomServer {
+    public static final int WHEEL_SLOTS = 64; // Slots per tick period; a power of two
+    private static final int SLOT_MASK = WHEEL_SLOTS - 1;
+    private final int tickRate;
+    private final long periodNanos;
+    private final Worker[] workers;
+    private final ConcurrentHashMap<Long, Room> rooms = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private volatile boolean running = true;
+
+    /**
+     * This class is one worker thread and the timing wheel of the rooms it ticks.
+     */
+    private final class Worker implements Runnable {
+        private final ConcurrentLinkedQueue<Room> arrivals = new ConcurrentLinkedQueue<>(); // Rooms to add
+        private final Room[][] wheel = new Room[WHEEL_SLOTS][];
+        private final int[] slotSizes = new int[WHEEL_SLOTS];
+        private final LatencyHistogram tickLatency = new LatencyHistogram(); // Due to done, every room
+        private int roomCount;
+        private long ticks;
+        private volatile long reportedTicks;
+        private volatile long skippedTicks;
+        private Thread thread;
+
+        Worker() {
+            for (int i = 0; i < WHEEL_SLOTS; i++) {
+                wheel[i] = new Room[8];
+            }
+        }
+
+        @Override
+        public void run() {
+            long slotNanos = periodNanos / WHEEL_SLOTS;
+            long next = System.nanoTime();
+            int cursor = 0;
+            while (running) {
+                admit();
+                for (int empty = 0; slotSizes[cursor] == 0 && empty < WHEEL_SLOTS; empty++) {
+                    cursor = (cursor + 1) & SLOT_MASK; // Sleep through empty slots in one go
+                    next += slotNanos;
+                }
+                long now = System.nanoTime();
+                if (now < next) {
+                    LockSupport.parkNanos(next - now);
+                    continue;
+                }
+                long behind = (now - next) / periodNanos;
+                if (behind > 0) {
+                    next += behind * periodNanos; // Same slot, later period
+                    skippedTicks += behind * roomCount;
+                }
+                tickSlot(cursor, next);
+                cursor = (cursor + 1) & SLOT_MASK;
+                next += slotNanos;
+            }
+        }
+
+        /**
+         * Moves the rooms created since the last slot into the wheel.
+         */
+        private void admit() {
+            Room room;
+            while ((room = arrivals.poll()) != null) {
+                int slot = slotOf(room.getId());
+                Room[] bucket = wheel[slot];
+                if (slotSizes[slot] == bucket.length) {
+                    bucket = wheel[slot] = Arrays.copyOf(bucket, bucket.length * 2);
+                }
+                bucket[slotSizes[slot]++] = room;
+                roomCount++;
+            }
+        }
+
+        /**
+         * Ticks every running room of a slot and drops the closed ones.
+         */
+        private void tickSlot(int slot, long due) {
+            Room[] bucket = wheel[slot];
+            for (int i = slotSizes[slot] - 1; i >= 0; i--) {
+                Room room = bucket[i];
+                int state = room.getState();
+                if (state == Room.RUNNING) {
+                    room.tick();
+                    long latency = System.nanoTime() - due;
+                    room.recordLatency(latency);
+                    tickLatency.record(latency);
+                    ticks++;
+                } else if (state == Room.CLOSED) {
+                    int last = --slotSizes[slot];
+                    bucket[i] = bucket[last];
+                    bucket[last] = null;
+                    roomCount--;
+                }
+            }
+            reportedTicks = ticks;
+        }
+    }
+
+    /**
+     * Constructs a new server. Call start() to start ticking.
+     * @param tickRate The number of ticks per second of every room.
+     * @param workerCount The number of worker threads.
+     */
+    public RoomServer(int tickRate, int workerCount) {
+        this.tickRate = tickRate;
+        periodNanos = 1_000_000_000L / tickRate;
+        workers = new Worker[Math.max(workerCount, 1)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker();
+        }
+    }
+
+    /**
+     * Starts the worker threads.
+     */
+    public void start() {
+        for (int i = 0; i < workers.length; i++) {
+            Thread thread = new Thread(workers[i], "pong-rooms-" + i);
+            thread.setDaemon(true);
+            workers[i].thread = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the worker threads and waits for them to finish their current slot.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Worker worker : workers) {
+            if (worker.thread != null) {
+                worker.thread.join();
+            }
+        }
+    }
+
+    /**
+     * Creates a room with a new match; it is ticked from its first slot on.
+     * @param finalScore The final score at which the match ends.
+     * @param bots Whether two TrackingBots play the match instead of players.
+     * @return The new room.
+     */
+    public Room createRoom(int finalScore, boolean bots) {
+        long id = nextId.getAndIncrement();
+        Room room = new Room(id, finalScore, tickRate, bots);
+        rooms.put(id, room);
+        workers[workerOf(id)].arrivals.add(room);
+        return room;
+    }
+
+    /**
+     * Closes a room and removes it from the server.
+     * @param id The id of the room.
+     * @return true if the room existed and was open.
+     */
+    public boolean closeRoom(long id) {
+        Room room = rooms.remove(id);
+        return room != null && room.close();
+    }
+
+    /**
+     * Returns a room by its id.
+     * @param id The id of the room.
+     * @return The room, or null if there is none with that id.
+     */
+    public Room getRoom(long id) {
+        return rooms.get(id);
+    }
+
+    public int getRoomCount() {
+        return rooms.size();
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    /**
+     * Returns the number of room ticks run by all workers since the start.
+     * @return The total tick count.
+     */
+    public long getTotalTicks() {
+        long total = 0;
+        for (Worker worker : workers) {
+            total += worker.reportedTicks;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of room ticks lost because a worker fell a whole period behind.
+     * @return The skipped tick count.
+     */
+    public long getSkippedTicks() {
+        long total = 0;
+        for (Worker worker : workers) {
+            total += worker.skippedTicks;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the time from a tick being due to its completion, over the ticks of every room.
+     * @return A new histogram combining those of all workers, read slightly stale while they run.
+     */
+    public LatencyHistogram getTickLatency() {
+        LatencyHistogram combined = new LatencyHistogram();
+        for (Worker worker : workers) {
+            combined.add(worker.tickLatency);
+        }
+        return combined;
+    }
+
+    /**
+     * Returns the worker that ticks a room.
+     */
+    private int workerOf(long id) {
+        return (int) ((hash(id) >>> 32) % workers.length);
+    }
+
+    /**
+     * Returns the slot of its worker's wheel that a room is ticked in.
+     */
+    private static int slotOf(long id) {
+        return (int) hash(id) & SLOT_MASK;
+    }
+
+    /**
+     * Spreads consecutive room ids over the whole range of a long.
+     */
+    private static long hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (h ^ (h >>> 29)) & Long.MAX_VALUE;
+    }
+}
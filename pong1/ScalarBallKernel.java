@@ -0,0 +1,81 @@
+/**
+ * This class runs the multi-ball inner loops one ball at a time. It is the fallback when the Vector
+ * API is not available, and VectorBallKernel uses it for the balls left over after the last full
+ * vector.
+ */
+package com.example.pong1;
+
+public class ScalarBallKernel implements BallKernel {
+    @Override
+    public void moveAndBounceWalls(BallField balls, float timeScale) {
+        moveAndBounceWalls(balls, 0, balls.count, timeScale);
+    }
+
+    /**
+     * Moves a range of balls and bounces them off the top and bottom walls.
+     * @param balls The balls to move.
+     * @param from The first ball to move.
+     * @param to The index after the last ball to move.
+     * @param timeScale The fraction of a reference frame covered by one tick.
+     */
+    static void moveAndBounceWalls(BallField balls, int from, int to, float timeScale) {
+        float[] x = balls.x;
+        float[] y = balls.y;
+        float[] vx = balls.vx;
+        float[] vy = balls.vy;
+        float top = balls.radius;
+        float bottom = Simulation.HEIGHT - balls.radius;
+        for (int i = from; i < to; i++) {
+            x[i] += vx[i] * timeScale;
+            float ballY = y[i] + vy[i] * timeScale;
+            // Mirror the part of the movement that went past the wall back into the field
+            if (ballY < top) {
+                ballY = 2 * top - ballY;
+                vy[i] = Math.abs(vy[i]);
+            } else if (ballY > bottom) {
+                ballY = 2 * bottom - ballY;
+                vy[i] = -Math.abs(vy[i]);
+            }
+            y[i] = ballY;
+        }
+    }
+
+    @Override
+    public int bounceRacket(BallField balls, int[] candidates, int count, float racketX, float racketY,
+                            float racketWidth, float racketHeight) {
+        return bounceRacket(balls, candidates, 0, count, racketX, racketY, racketWidth, racketHeight);
+    }
+
+    /**
+     * Bounces a range of candidate balls off a racket.
+     * @return The number of balls that bounced.
+     */
+    static int bounceRacket(BallField balls, int[] candidates, int from, int to, float racketX, float racketY,
+                            float racketWidth, float racketHeight) {
+        float[] x = balls.x;
+        float[] y = balls.y;
+        float[] vx = balls.vx;
+        float r = balls.radius;
+        float middle = racketX + racketWidth / 2;
+        int bounces = 0;
+        for (int c = from; c < to; c++) {
+            int i = candidates[c];
+            boolean overlaps = x[i] + r > racketX && x[i] - r < racketX + racketWidth
+                    && y[i] + r > racketY && y[i] - r < racketY + racketHeight;
+            if (!overlaps) {
+                continue;
+            }
+            // Bounce off the face on the ball's side, but only when moving towards it
+            if (x[i] >= middle && vx[i] < 0) {
+                x[i] = racketX + racketWidth + r;
+                vx[i] = -vx[i];
+                bounces++;
+            } else if (x[i] < middle && vx[i] > 0) {
+                x[i] = racketX - r;
+                vx[i] = -vx[i];
+                bounces++;
+            }
+        }
+        return bounces;
+    }
+}
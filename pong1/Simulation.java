@@ -0,0 +1,430 @@
+/**
+ * This class represents the headless simulation core of the Pong game. It holds the ball, racket and
+ * score state in plain primitive fields and advances it one tick at a time through step(inputs), so
+ * matches can run without a JavaFX toolkit. The scene graph nodes only project this state. Once
+ * compiled, a tick allocates nothing; AllocationCheck fails if that changes.
+ */
+package com.example.pong1;
+
+public class Simulation {
+    public static final int WIDTH = 1000; // Logical width of the playing field
+    public static final int HEIGHT = 1000; // Logical height of the playing field
+
+    // Input bits passed to step(), one pair per racket
+    public static final int LEFT_UP = 1;
+    public static final int LEFT_DOWN = 1 << 1;
+    public static final int RIGHT_UP = 1 << 2;
+    public static final int RIGHT_DOWN = 1 << 3;
+
+    // Event bits returned from step()
+    public static final int EVENT_WALL_BOUNCE = 1;
+    public static final int EVENT_RACKET_HIT = 1 << 1;
+    public static final int EVENT_LEFT_SCORED = 1 << 2;
+    public static final int EVENT_RIGHT_SCORED = 1 << 3;
+    public static final int EVENT_MATCH_END = 1 << 4;
+
+    static final int BALL_RADIUS = 10; // Default radius of the ball
+    static final int RACKET_WIDTH = 10; // Width of the racket
+    static final int RACKET_HEIGHT = 100; // Default height of the racket
+    static final int MOVEMENT_SPEED = 5; // Speed at which the racket moves
+    public static final int REFERENCE_RATE = 60; // Tick rate at which the speeds below apply unscaled
+    static final double LEFT_RACKET_X = 10; // X-coordinate of the left racket
+    static final double RIGHT_RACKET_X = WIDTH - 20; // X-coordinate of the right racket
+    private static final int WALL_BOUNCE_SPEED_FACTOR = 1; // Speed factor applied on every wall bounce
+    // Highest ball speed along each axis, in units per reference frame. Up to this speed the ball
+    // crosses the field at most once per tick, so MAX_BOUNCES_PER_TICK covers every contact and the
+    // ball can never tunnel through a racket.
+    public static final double MAX_BALL_SPEED = WIDTH;
+    private static final int MAX_BOUNCES_PER_TICK = 8; // Contacts resolved within a single tick
+
+    // Ball state
+    double ballX;
+    double ballY;
+    double ballDirX; // Velocity in the X direction
+    double ballDirY; // Velocity in the Y direction
+    double ballRadius = BALL_RADIUS;
+
+    // Racket state
+    double leftRacketY;
+    double rightRacketY;
+    double racketWidth = RACKET_WIDTH;
+    double racketHeight = RACKET_HEIGHT;
+    double racketSpeed = MOVEMENT_SPEED;
+
+    // State of the previous tick, kept for render interpolation
+    double prevBallX;
+    double prevBallY;
+    double prevLeftRacketY;
+    double prevRightRacketY;
+
+    // Score state
+    int leftScore;
+    int rightScore;
+    int finalScore;
+    boolean gameEnded;
+    long tick; // Number of ticks simulated so far
+    int heldInputs; // Input bits of the last tick, i.e. which rackets were moving
+    double timeScale = 1; // Fraction of a reference frame covered by one tick
+    private MultiBall multiBall; // Extra balls of the multi-ball mode, or null
+
+    // Earliest contact found while sweeping the ball, reused every tick
+    private final SweptCollision sweep = new SweptCollision();
+    private double hitTime;
+    private double hitNormalX;
+    private double hitNormalY;
+    private double hitDepth; // Push-out of a racket that overlaps the ball, 0 for a swept contact
+    private int hitEvent;
+
+    /**
+     * Constructs a new simulation with the ball and rackets in their starting positions.
+     * @param finalScore The final score at which the game ends.
+     */
+    public Simulation(int finalScore) {
+        this.finalScore = finalScore;
+        reset();
+    }
+
+    /**
+     * Puts the ball, rackets and scores back into their starting positions.
+     */
+    public void reset() {
+        ballX = WIDTH / 2;
+        ballY = HEIGHT / 2;
+        ballDirX = 1;
+        ballDirY = 1;
+        leftRacketY = HEIGHT / 2 - racketHeight / 2;
+        rightRacketY = HEIGHT / 2 - racketHeight / 2;
+        leftScore = 0;
+        rightScore = 0;
+        gameEnded = false;
+        tick = 0;
+        heldInputs = 0;
+        savePreviousState();
+    }
+
+    /**
+     * Sets the number of ticks per second, scaling the per-tick movement so the game speed stays
+     * the same at any simulation rate.
+     * @param tickRate The number of simulation ticks per second.
+     */
+    public void setTickRate(int tickRate) {
+        timeScale = (double) REFERENCE_RATE / tickRate;
+    }
+
+    /**
+     * Advances the game by one tick: updates racket movement, moves the ball, checks for collisions
+     * and checks if the game has ended. Does nothing once the game has ended.
+     * @param inputs The held input bits (LEFT_UP, LEFT_DOWN, RIGHT_UP, RIGHT_DOWN) for this tick.
+     * @return The event bits raised during this tick.
+     */
+    public int step(int inputs) {
+        if (gameEnded) {
+            return 0;
+        }
+        tick++;
+        heldInputs = inputs;
+        savePreviousState();
+
+        // Update racket movement first, so the ball is swept against where the rackets are now.
+        leftRacketY = moveRacket(leftRacketY, (inputs & LEFT_UP) != 0, (inputs & LEFT_DOWN) != 0);
+        rightRacketY = moveRacket(rightRacketY, (inputs & RIGHT_UP) != 0, (inputs & RIGHT_DOWN) != 0);
+
+        // Move the ball, bouncing off walls and rackets along the way, then check for a goal.
+        int events = moveBall();
+        events |= checkGoal();
+        if (multiBall != null) {
+            events |= multiBall.step(this);
+        }
+
+        // Check if the game has ended.
+        if (leftScore >= finalScore || rightScore >= finalScore) {
+            gameEnded = true;
+            events |= EVENT_MATCH_END;
+        }
+        return events;
+    }
+
+    /**
+     * Moves the ball along its velocity for one tick. The movement is swept against the walls and
+     * rackets, and at each contact the ball is reflected and carries on with the remaining part of
+     * the tick, so fast balls bounce correctly instead of passing through a racket. A racket that
+     * moved onto the ball pushes it out of its face first.
+     * @return The event bits raised by the bounces.
+     */
+    private int moveBall() {
+        int events = 0;
+        double remaining = 1; // Part of the tick's movement still to travel
+        for (int bounce = 0; bounce < MAX_BOUNCES_PER_TICK; bounce++) {
+            double dx = ballDirX * timeScale * remaining;
+            double dy = ballDirY * timeScale * remaining;
+            clearHit();
+            checkWallCollision(dy);
+            checkRacketCollision(dx, dy, LEFT_RACKET_X, leftRacketY);
+            checkRacketCollision(dx, dy, RIGHT_RACKET_X, rightRacketY);
+            if (hitEvent == 0) {
+                ballX += dx;
+                ballY += dy;
+                break;
+            }
+
+            // Move up to the contact, out of a racket it overlaps, and reflect the velocity about the
+            // contact normal unless the ball is already leaving
+            ballX += dx * hitTime + hitNormalX * hitDepth;
+            ballY += dy * hitTime + hitNormalY * hitDepth;
+            remaining *= 1 - hitTime;
+            double dot = ballDirX * hitNormalX + ballDirY * hitNormalY;
+            if (dot < 0) {
+                ballDirX -= 2 * dot * hitNormalX;
+                ballDirY -= 2 * dot * hitNormalY;
+            }
+            if (hitEvent == EVENT_WALL_BOUNCE) {
+                increaseBallSpeed(WALL_BOUNCE_SPEED_FACTOR);
+            }
+            events |= hitEvent;
+        }
+        return events;
+    }
+
+    /**
+     * Checks when the ball reaches the top or bottom wall during its movement, and records it if it
+     * is the earliest contact so far.
+     * @param dy The movement of the ball along the Y axis.
+     */
+    void checkWallCollision(double dy) {
+        double time;
+        double normal;
+        if (dy < 0) {
+            time = (ballRadius - ballY) / dy; // Top wall
+            normal = 1;
+        } else if (dy > 0) {
+            time = (HEIGHT - ballRadius - ballY) / dy; // Bottom wall
+            normal = -1;
+        } else {
+            return;
+        }
+        time = Math.max(time, 0); // Already past the wall: bounce straight away
+        if (time <= 1 && time < hitTime) {
+            recordHit(time, 0, normal, 0, EVENT_WALL_BOUNCE);
+        }
+    }
+
+    /**
+     * Checks when the ball touches a racket during its movement, and records it if it is the
+     * earliest contact so far.
+     * @param dx The movement of the ball along the X axis.
+     * @param dy The movement of the ball along the Y axis.
+     * @param racketX The x-coordinate of the racket.
+     * @param racketY The y-coordinate of the racket.
+     */
+    void checkRacketCollision(double dx, double dy, double racketX, double racketY) {
+        if (sweep.sweepCircleBox(ballX, ballY, ballRadius, dx, dy, racketX, racketY, racketWidth, racketHeight)
+                && sweep.time < hitTime) {
+            recordHit(sweep.time, sweep.normalX, sweep.normalY, sweep.depth, EVENT_RACKET_HIT);
+        }
+    }
+
+    /**
+     * Forgets the contact found for the previous part of the movement.
+     */
+    void clearHit() {
+        hitTime = 2;
+        hitEvent = 0;
+    }
+
+    /**
+     * Returns the event bit of the earliest contact found since the last clearHit(), or 0 if none.
+     */
+    int getHitEvent() {
+        return hitEvent;
+    }
+
+    /**
+     * Remembers a contact as the earliest one found for the current part of the movement.
+     */
+    private void recordHit(double time, double normalX, double normalY, double depth, int event) {
+        hitTime = time;
+        hitNormalX = normalX;
+        hitNormalY = normalY;
+        hitDepth = depth;
+        hitEvent = event;
+    }
+
+    /**
+     * Checks whether the ball has reached the left or right edge and awards the point.
+     * @return The event bits raised by a goal.
+     */
+    int checkGoal() {
+        // Left wall collision
+        if (ballX - ballRadius <= 0) {
+            // When the ball hits the left edge, increment the score for the right player
+            rightScore++;
+            resetBall();
+            return EVENT_RIGHT_SCORED;
+        }
+
+        // Right wall collision
+        if (ballX + ballRadius >= WIDTH) {
+            // When the ball hits the right edge, increment the score for the left player
+            leftScore++;
+            resetBall();
+            return EVENT_LEFT_SCORED;
+        }
+        return 0;
+    }
+
+    /**
+     * Moves a racket according to its movement flags without leaving the playing field.
+     * @param y The current y-coordinate of the racket.
+     * @param up Whether the racket is moving up.
+     * @param down Whether the racket is moving down.
+     * @return The new y-coordinate of the racket.
+     */
+    double moveRacket(double y, boolean up, boolean down) {
+        // Move the racket up if it's moving up and not at the top edge
+        if (up && y > 0) {
+            y -= racketSpeed * timeScale;
+        }
+        // Move the racket down if it's moving down and not at the bottom edge
+        if (down && y < HEIGHT - racketHeight) {
+            y += racketSpeed * timeScale;
+        }
+        return y;
+    }
+
+    /**
+     * Resets the position of the ball to the center of the playing field.
+     */
+    private void resetBall() {
+        ballX = WIDTH / 2;
+        ballY = HEIGHT / 2;
+        // Don't interpolate across the jump back to the center
+        prevBallX = ballX;
+        prevBallY = ballY;
+    }
+
+    /**
+     * Remembers the current positions as the state of the previous tick.
+     */
+    void savePreviousState() {
+        prevBallX = ballX;
+        prevBallY = ballY;
+        prevLeftRacketY = leftRacketY;
+        prevRightRacketY = rightRacketY;
+    }
+
+    /**
+     * Blends the previous and current value of a coordinate.
+     * @param previous The value at the previous tick.
+     * @param current The value at the current tick.
+     * @param alpha How far to move from the previous towards the current value, in [0, 1].
+     * @return The interpolated value.
+     */
+    private static double lerp(double previous, double current, double alpha) {
+        return previous + (current - previous) * alpha;
+    }
+
+    /**
+     * Adds extra balls that play alongside the regular ball. They are not part of a SnapshotCodec snapshot, so
+     * matches with extra balls cannot be recorded or played over the network.
+     * @param multiBall The extra balls, or null to play with the regular ball only.
+     */
+    public void setMultiBall(MultiBall multiBall) {
+        this.multiBall = multiBall;
+    }
+
+    public int getHeldInputs() {
+        return heldInputs;
+    }
+
+    public MultiBall getMultiBall() {
+        return multiBall;
+    }
+
+    /**
+     * Increases the speed of the ball by multiplying its velocities by a factor, up to MAX_BALL_SPEED.
+     * @param speedIncrease The factor by which to increase the speed.
+     */
+    public void increaseBallSpeed(int speedIncrease) {
+        ballDirX = limitSpeed(ballDirX * speedIncrease);
+        ballDirY = limitSpeed(ballDirY * speedIncrease);
+    }
+
+    /**
+     * Limits a velocity component to MAX_BALL_SPEED in either direction.
+     */
+    private static double limitSpeed(double speed) {
+        return Math.max(-MAX_BALL_SPEED, Math.min(speed, MAX_BALL_SPEED));
+    }
+
+    /**
+     * Increases the height of both rackets by a specified amount.
+     * @param heightIncrease The amount by which to increase the height of the rackets.
+     */
+    public void increaseRacketHeight(double heightIncrease) {
+        racketHeight += heightIncrease;
+    }
+
+    public double getBallX() {
+        return ballX;
+    }
+
+    public double getBallY() {
+        return ballY;
+    }
+
+    public double getBallX(double alpha) {
+        return lerp(prevBallX, ballX, alpha);
+    }
+
+    public double getBallY(double alpha) {
+        return lerp(prevBallY, ballY, alpha);
+    }
+
+    public double getBallRadius() {
+        return ballRadius;
+    }
+
+    public double getLeftRacketY() {
+        return leftRacketY;
+    }
+
+    public double getRightRacketY() {
+        return rightRacketY;
+    }
+
+    public double getLeftRacketY(double alpha) {
+        return lerp(prevLeftRacketY, leftRacketY, alpha);
+    }
+
+    public double getRightRacketY(double alpha) {
+        return lerp(prevRightRacketY, rightRacketY, alpha);
+    }
+
+    public double getRacketHeight() {
+        return racketHeight;
+    }
+
+    public int getLeftScore() {
+        return leftScore;
+    }
+
+    public int getRightScore() {
+        return rightScore;
+    }
+
+    public int getFinalScore() {
+        return finalScore;
+    }
+
+    public boolean isGameEnded() {
+        return gameEnded;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public double getTimeScale() {
+        return timeScale;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * This class holds the benchmarks for SnapshotCodec: encoding a snapshot, decoding it and copying a
+ * simulation through it, each into a heap and a direct buffer. All of them should take well under a
+ * microsecond and allocate nothing. Run it with the options of BenchmarkRunner, e.g. --filter=snapshot.
+ */
+package com.example.pong1;
+
+import java.nio.ByteBuffer;
+
+public class SnapshotBenchmarks {
+
+    /**
+     * Runs the snapshot benchmarks and exits with a non-zero status if any of them regressed.
+     * @param args Options passed on to BenchmarkRunner.
+     * @throws Exception If a baseline file cannot be read or written.
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        register(runner);
+        System.exit(runner.runAll(args));
+    }
+
+    /**
+     * Registers the snapshot benchmarks with a runner.
+     * @param runner The runner to add the benchmarks to.
+     */
+    static void register(BenchmarkRunner runner) {
+        addBenchmarks(runner, "heap", ByteBuffer.allocate(SnapshotCodec.SNAPSHOT_BYTES));
+        addBenchmarks(runner, "direct", ByteBuffer.allocateDirect(SnapshotCodec.SNAPSHOT_BYTES));
+    }
+
+    /**
+     * Registers the encode, decode and copy benchmarks for one kind of buffer.
+     */
+    private static void addBenchmarks(BenchmarkRunner runner, String kind, ByteBuffer buffer) {
+        Simulation source = new Simulation(Integer.MAX_VALUE);
+        for (int i = 0; i < 1_000; i++) {
+            source.step(TrackingBot.inputs(source)); // Mid-rally state rather than the starting one
+        }
+        Simulation target = new Simulation(Integer.MAX_VALUE);
+
+        runner.add("snapshot-encode-" + kind, operations -> {
+            long check = 0;
+            for (int i = 0; i < operations; i++) {
+                source.tick = i; // Vary the state so the work isn't hoisted
+                buffer.clear();
+                SnapshotCodec.encode(source, buffer);
+                check += buffer.getLong(8);
+            }
+            return check;
+        });
+
+        buffer.clear();
+        SnapshotCodec.encode(source, buffer);
+        runner.add("snapshot-decode-" + kind, operations -> {
+            long check = 0;
+            for (int i = 0; i < operations; i++) {
+                buffer.position(0);
+                SnapshotCodec.decode(buffer, target);
+                target.leftScore += i;
+                check += target.leftScore;
+            }
+            return check;
+        });
+
+        runner.add("snapshot-copy-" + kind, operations -> {
+            long check = 0;
+            for (int i = 0; i < operations; i++) {
+                source.tick = i;
+                SnapshotCodec.copy(source, target, buffer);
+                check += target.tick;
+            }
+            return check;
+        });
+    }
+}
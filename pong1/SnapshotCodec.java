@@ -0,0 +1,146 @@
+/**
+ * This class writes the complete state of a Simulation as a fixed-layout binary snapshot and reads
+ * it back, so a match can be saved and resumed, copied to another thread for analysis, or rewound to
+ * a keyframe. A snapshot starts with a magic number and a format version, followed by the state at
+ * fixed offsets:
+ *
+ *   0  magic, version, flags (bit 0: game ended)
+ *   8  tick
+ *  16  ball x, y, velocity x, y, radius
+ *  56  left and right racket y, racket width, height and speed
+ *  96  previous ball x, y and racket y of both rackets, for render interpolation
+ * 128  time scale
+ * 136  left score, right score, final score, held input bits
+ *
+ * Encoding and decoding work on a caller-supplied ByteBuffer, heap or direct, at its position and
+ * allocate nothing. The extra balls of the multi-ball mode are not part of a snapshot.
+ */
+package com.example.pong1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class SnapshotCodec {
+    public static final int MAGIC = 0x50534E50; // "PSNP"
+    public static final short VERSION = 1;
+    public static final int SNAPSHOT_BYTES = 152; // Size of every snapshot of this version
+    private static final int FLAG_GAME_ENDED = 1;
+
+    private SnapshotCodec() {
+    }
+
+    /**
+     * Writes a snapshot of the simulation at the buffer's position and advances it by SNAPSHOT_BYTES.
+     * @param simulation The simulation to capture.
+     * @param buffer The buffer to write to, with at least SNAPSHOT_BYTES remaining.
+     */
+    public static void encode(Simulation simulation, ByteBuffer buffer) {
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) (simulation.gameEnded ? FLAG_GAME_ENDED : 0));
+        buffer.putLong(simulation.tick);
+        buffer.putDouble(simulation.ballX).putDouble(simulation.ballY);
+        buffer.putDouble(simulation.ballDirX).putDouble(simulation.ballDirY).putDouble(simulation.ballRadius);
+        buffer.putDouble(simulation.leftRacketY).putDouble(simulation.rightRacketY);
+        buffer.putDouble(simulation.racketWidth).putDouble(simulation.racketHeight).putDouble(simulation.racketSpeed);
+        buffer.putDouble(simulation.prevBallX).putDouble(simulation.prevBallY);
+        buffer.putDouble(simulation.prevLeftRacketY).putDouble(simulation.prevRightRacketY);
+        buffer.putDouble(simulation.timeScale);
+        buffer.putInt(simulation.leftScore).putInt(simulation.rightScore).putInt(simulation.finalScore);
+        buffer.putInt(simulation.heldInputs);
+    }
+
+    /**
+     * Reads a snapshot at the buffer's position into the simulation and advances the buffer past it.
+     * The simulation is left unchanged if the snapshot is rejected.
+     * @param buffer The buffer to read from.
+     * @param simulation The simulation to restore.
+     * @throws IllegalArgumentException If the buffer holds no snapshot of this version.
+     */
+    public static void decode(ByteBuffer buffer, Simulation simulation) {
+        int start = buffer.position();
+        if (buffer.remaining() < SNAPSHOT_BYTES || buffer.getInt(start) != MAGIC) {
+            throw new IllegalArgumentException("Not a Pong snapshot");
+        }
+        if (buffer.getShort(start + 4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version " + buffer.getShort(start + 4));
+        }
+        buffer.position(start + 6);
+        int flags = buffer.getShort();
+        simulation.gameEnded = (flags & FLAG_GAME_ENDED) != 0;
+        simulation.tick = buffer.getLong();
+        simulation.ballX = buffer.getDouble();
+        simulation.ballY = buffer.getDouble();
+        simulation.ballDirX = buffer.getDouble();
+        simulation.ballDirY = buffer.getDouble();
+        simulation.ballRadius = buffer.getDouble();
+        simulation.leftRacketY = buffer.getDouble();
+        simulation.rightRacketY = buffer.getDouble();
+        simulation.racketWidth = buffer.getDouble();
+        simulation.racketHeight = buffer.getDouble();
+        simulation.racketSpeed = buffer.getDouble();
+        simulation.prevBallX = buffer.getDouble();
+        simulation.prevBallY = buffer.getDouble();
+        simulation.prevLeftRacketY = buffer.getDouble();
+        simulation.prevRightRacketY = buffer.getDouble();
+        simulation.timeScale = buffer.getDouble();
+        simulation.leftScore = buffer.getInt();
+        simulation.rightScore = buffer.getInt();
+        simulation.finalScore = buffer.getInt();
+        simulation.heldInputs = buffer.getInt();
+    }
+
+    /**
+     * Copies the state of one simulation into another through a snapshot, e.g. to hand a consistent
+     * copy of a running match to another thread.
+     * @param from The simulation to copy.
+     * @param to The simulation to overwrite.
+     * @param scratch A buffer of at least SNAPSHOT_BYTES, reused between calls.
+     */
+    public static void copy(Simulation from, Simulation to, ByteBuffer scratch) {
+        scratch.clear();
+        encode(from, scratch);
+        scratch.flip();
+        decode(scratch, to);
+    }
+
+    /**
+     * Saves a snapshot of the simulation to a file.
+     * @param simulation The simulation to save.
+     * @param path The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void save(Simulation simulation, Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_BYTES);
+        encode(simulation, buffer);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Restores the simulation from a snapshot file written by save().
+     * @param path The file to read.
+     * @param simulation The simulation to restore.
+     * @throws IOException If the file cannot be read or holds no snapshot of this version.
+     */
+    public static void load(Path path, Simulation simulation) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_BYTES);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the snapshot is complete or the file ends
+            }
+        }
+        buffer.flip();
+        try {
+            decode(buffer, simulation);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage() + ": " + path);
+        }
+    }
+}
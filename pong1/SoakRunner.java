@@ -0,0 +1,397 @@
+/**
+ * This class soaks the game rules for hours or days without a window. It plays match after match as
+ * fast as it can with random inputs held for random lengths of time, random racket sizes, final
+ * scores and ball speed increases, and now and then speeds the ball up again in the middle of a
+ * match. Every tick goes through the same event path as Panel: the events are published on a
+ * GameEventBus and read back into RallyStats and a ParticleSystem.
+ *
+ * After every tick the state is checked for anomalies: a position or velocity that is no longer a
+ * finite number, a ball faster than Simulation.MAX_BALL_SPEED or outside the field, a racket
+ * outside the field, a ball that stopped moving horizontally, a ball left inside a racket at the
+ * end of a tick, which Simulation's push-out rules out, and a score that has not changed for a long
+ * time. At every report it prints the ticks per second since the last one, the heap in use after a
+ * full collection and the anomalies so far, and at the end how throughput and heap changed over the
+ * run.
+ *
+ * Each match is played from a seed of its own, so it can be played again exactly. The seed of every
+ * match with an anomaly is appended to the failures file, and the state at the anomaly is saved next to
+ * it as a snapshot that GameFrame --resume=FILE can continue. --reproduce=SEED plays that match again.
+ *
+ * Run it with: SoakRunner [--seconds=S] [--ticks=N] [--seed=N] [--report=SECONDS] [--point-timeout=TICKS]
+ *              [--failures=FILE] [--reproduce=SEED]
+ * It exits with a non-zero status if any anomaly was found, so a clean run can gate a build.
+ */
+package com.example.pong1;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+public class SoakRunner {
+    private static final int CHUNK_TICKS = 1 << 16; // Ticks between two looks at the clock
+    private static final int MAX_HOLD_TICKS = 120; // Longest time a random input is held
+    private static final int MAX_RACKET_GROWTH = 300; // Largest random racket height increase
+    private static final int MAX_FINAL_SCORE = 21;
+    private static final int MAX_SPEED_FACTOR = 4; // Largest random ball speed increase at the start
+    private static final int SPEED_UP_ODDS = 1 << 17; // One tick in this many speeds the ball up again
+    private static final double STUCK_DEPTH = 0.5; // Overlap that counts as inside a racket
+    private static final int FRAME_TICKS = 2; // Ticks per particle update, as at 120 ticks and 60 frames per second
+    private static final int EVENT_RING = 1_024;
+    private static final int PARTICLES = 4_096;
+
+    /**
+     * This enum lists the anomalies the soak looks for.
+     */
+    enum Anomaly {
+        NON_FINITE("position or velocity is not a finite number"),
+        SPEED_LIMIT("ball is faster than MAX_BALL_SPEED"),
+        BALL_ESCAPED("ball left the field"),
+        RACKET_ESCAPED("racket left the field"),
+        BALL_STALLED("ball stopped moving horizontally"),
+        STUCK_IN_RACKET("ball stuck inside a racket"),
+        NO_POINTS("score never advances");
+
+        final String description;
+
+        Anomaly(String description) {
+            this.description = description;
+        }
+    }
+
+    /**
+     * This class plays the soak's matches one after the other and checks every tick.
+     */
+    static final class Soak {
+        private final long baseSeed;
+        private final int pointTimeout; // Ticks without a point that count as NO_POINTS
+        private final GameEventBus bus = new GameEventBus(EVENT_RING);
+        private final GameEventBus.Reader reader = bus.newReader();
+        private final ParticleSystem particles = new ParticleSystem(PARTICLES);
+        private Simulation simulation;
+        private RallyStats rallies;
+        private long match = -1; // Number of the current match
+        private long seed; // Seed of the current match
+        private long random; // SplitMix64 state of the current match
+        private int leftHeld; // Input bits held for each racket, and the ticks they are held for
+        private int leftHoldTicks;
+        private int rightHeld;
+        private int rightHoldTicks;
+        private int lastPoints; // Points of the current match at the last change
+        private long lastPointTick;
+        private Anomaly anomaly; // Anomaly of the last tick, or null
+
+        // Totals over the whole soak
+        long ticks;
+        long matches;
+        long points;
+        long racketHits;
+        long anomalies;
+
+        Soak(long baseSeed, int pointTimeout) {
+            this.baseSeed = baseSeed;
+            this.pointTimeout = pointTimeout;
+            particles.setBudgets(Long.MAX_VALUE, Long.MAX_VALUE); // Keep every particle, as a fast machine would
+        }
+
+        /**
+         * Returns the seed of a match of a soak.
+         */
+        static long seedOf(long baseSeed, long match) {
+            long z = baseSeed * 0x9E3779B97F4A7C15L + match;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+
+        /**
+         * Starts the next match of the soak.
+         */
+        void nextMatch() {
+            startMatch(seedOf(baseSeed, ++match));
+        }
+
+        /**
+         * Starts a match from its seed: picks its settings and resets the input state.
+         * @param matchSeed The seed of the match.
+         */
+        void startMatch(long matchSeed) {
+            seed = matchSeed;
+            random = matchSeed;
+            simulation = new Simulation(1 + nextInt(MAX_FINAL_SCORE));
+            simulation.setTickRate(Panel.DEFAULT_TICK_RATE);
+            simulation.increaseRacketHeight(nextInt(MAX_RACKET_GROWTH + 1));
+            simulation.reset(); // Centers the grown rackets
+            simulation.increaseBallSpeed(1 + nextInt(MAX_SPEED_FACTOR));
+            bus.publish(simulation, GameEventBus.EVENT_RESET, 0);
+            rallies = new RallyStats();
+            leftHoldTicks = 0;
+            rightHoldTicks = 0;
+            lastPoints = 0;
+            lastPointTick = 0;
+            anomaly = null;
+        }
+
+        /**
+         * Plays ticks of the current match until it ends, an anomaly is found, or the tick budget is
+         * used up.
+         * @param budget The largest number of ticks to play.
+         * @return The ticks played.
+         */
+        int play(int budget) {
+            for (int i = 0; i < budget; i++) {
+                if (leftHoldTicks-- <= 0) {
+                    leftHeld = randomInput(Simulation.LEFT_UP, Simulation.LEFT_DOWN);
+                    leftHoldTicks = nextInt(MAX_HOLD_TICKS);
+                }
+                if (rightHoldTicks-- <= 0) {
+                    rightHeld = randomInput(Simulation.RIGHT_UP, Simulation.RIGHT_DOWN);
+                    rightHoldTicks = nextInt(MAX_HOLD_TICKS);
+                }
+                if (nextInt(SPEED_UP_ODDS) == 0) {
+                    simulation.increaseBallSpeed(2);
+                    bus.publish(simulation, GameEventBus.EVENT_SPEED_UP, 2);
+                }
+                int events = simulation.step(leftHeld | rightHeld);
+                ticks++;
+                bus.publishTick(simulation, events);
+                while (reader.next()) {
+                    rallies.record(reader.getType());
+                    particles.emit(reader);
+                }
+                if (ticks % FRAME_TICKS == 0) {
+                    particles.update(FRAME_TICKS / (float) Panel.DEFAULT_TICK_RATE);
+                }
+
+                anomaly = check();
+                if (anomaly != null) {
+                    anomalies++;
+                    return i + 1;
+                }
+                if ((events & Simulation.EVENT_MATCH_END) != 0) {
+                    matches++;
+                    points += simulation.getLeftScore() + simulation.getRightScore();
+                    racketHits += rallies.getRacketHits();
+                    return i + 1;
+                }
+            }
+            return budget;
+        }
+
+        /**
+         * Looks for anomalies in the state after a tick.
+         * @return The anomaly found, or null.
+         */
+        private Anomaly check() {
+            Simulation s = simulation;
+            if (!Double.isFinite(s.ballX) || !Double.isFinite(s.ballY) || !Double.isFinite(s.ballDirX)
+                    || !Double.isFinite(s.ballDirY) || !Double.isFinite(s.leftRacketY)
+                    || !Double.isFinite(s.rightRacketY)) {
+                return Anomaly.NON_FINITE;
+            }
+            if (Math.abs(s.ballDirX) > Simulation.MAX_BALL_SPEED || Math.abs(s.ballDirY) > Simulation.MAX_BALL_SPEED) {
+                return Anomaly.SPEED_LIMIT;
+            }
+            if (s.ballX < 0 || s.ballX > Simulation.WIDTH || s.ballY < 0 || s.ballY > Simulation.HEIGHT) {
+                return Anomaly.BALL_ESCAPED;
+            }
+            double step = s.racketSpeed * s.timeScale + 1e-9; // A racket may end one step past an edge
+            double lowest = Simulation.HEIGHT - s.racketHeight + step;
+            if (s.leftRacketY < -step || s.leftRacketY > lowest || s.rightRacketY < -step || s.rightRacketY > lowest) {
+                return Anomaly.RACKET_ESCAPED;
+            }
+            if (s.ballDirX == 0) {
+                return Anomaly.BALL_STALLED;
+            }
+            if (overlaps(Simulation.LEFT_RACKET_X, s.leftRacketY) || overlaps(Simulation.RIGHT_RACKET_X, s.rightRacketY)) {
+                return Anomaly.STUCK_IN_RACKET;
+            }
+            int matchPoints = s.leftScore + s.rightScore;
+            if (matchPoints != lastPoints) {
+                lastPoints = matchPoints;
+                lastPointTick = s.tick;
+            } else if (s.tick - lastPointTick >= pointTimeout) {
+                return Anomaly.NO_POINTS;
+            }
+            return null;
+        }
+
+        /**
+         * Returns whether the ball reaches more than STUCK_DEPTH into a racket.
+         */
+        private boolean overlaps(double racketX, double racketY) {
+            Simulation s = simulation;
+            double nearestX = Math.max(racketX, Math.min(s.ballX, racketX + s.racketWidth));
+            double nearestY = Math.max(racketY, Math.min(s.ballY, racketY + s.racketHeight));
+            double dx = s.ballX - nearestX;
+            double dy = s.ballY - nearestY;
+            double reach = s.ballRadius - STUCK_DEPTH;
+            return dx * dx + dy * dy < reach * reach;
+        }
+
+        /**
+         * Returns nothing, the up bit or the down bit, each a third of the time.
+         */
+        private int randomInput(int up, int down) {
+            int choice = nextInt(3);
+            return choice == 0 ? 0 : choice == 1 ? up : down;
+        }
+
+        /**
+         * Returns the next random number in [0, bound).
+         */
+        private int nextInt(int bound) {
+            long z = random += 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            z ^= z >>> 31;
+            return (int) ((z >>> 33) % bound);
+        }
+
+        /**
+         * Describes the anomaly of the last tick and the state it was found in.
+         */
+        String describe() {
+            Simulation s = simulation;
+            return String.format("%d %s tick=%d ball=(%.3f, %.3f) velocity=(%.3f, %.3f) rackets=(%.3f, %.3f)"
+                            + " height=%.0f score=%d-%d # %s", seed, anomaly, s.tick, s.ballX, s.ballY, s.ballDirX,
+                    s.ballDirY, s.leftRacketY, s.rightRacketY, s.racketHeight, s.leftScore, s.rightScore,
+                    anomaly.description);
+        }
+
+        Anomaly getAnomaly() {
+            return anomaly;
+        }
+
+        Simulation getSimulation() {
+            return simulation;
+        }
+
+        long getSeed() {
+            return seed;
+        }
+    }
+
+    /**
+     * Runs the soak, or plays one match again with --reproduce.
+     * @param args The options described in the class comment.
+     * @throws Exception If a failure cannot be saved.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = BenchmarkRunner.parseOptions(args);
+        int pointTimeout = LaunchConfig.parseInt("point-timeout", options.get("point-timeout"), 10_000_000, 1,
+                Integer.MAX_VALUE);
+        if (options.containsKey("reproduce")) {
+            System.exit(reproduce(Long.parseLong(options.get("reproduce")), pointTimeout));
+        }
+        double seconds = options.containsKey("seconds") ? Double.parseDouble(options.get("seconds")) : 60;
+        long maxTicks = options.containsKey("ticks") ? Long.parseLong(options.get("ticks")) : Long.MAX_VALUE;
+        double reportSeconds = options.containsKey("report") ? Double.parseDouble(options.get("report")) : 10;
+        long baseSeed = options.containsKey("seed") ? Long.parseLong(options.get("seed")) : System.nanoTime();
+        Path failures = Paths.get(options.getOrDefault("failures", "soak-failures.txt"));
+
+        System.out.printf("Soak with seed %d for %.0f s%n", baseSeed, seconds);
+        System.out.printf("%9s %14s %12s %10s %10s %10s%n", "Seconds", "Ticks", "Ticks/s", "Heap MB", "Matches",
+                "Anomalies");
+        Soak soak = new Soak(baseSeed, pointTimeout);
+        soak.nextMatch();
+        long start = System.nanoTime();
+        long end = start + (long) (seconds * 1e9);
+        long nextReport = start + (long) (reportSeconds * 1e9);
+        long reportTicks = 0;
+        long reportTime = start;
+        double firstRate = -1;
+        double lastRate = 0;
+        long firstHeap = -1;
+        long lastHeap = 0;
+        long now = start;
+        while (now < end && soak.ticks < maxTicks) {
+            int budget = (int) Math.min(CHUNK_TICKS, maxTicks - soak.ticks);
+            while (budget > 0) {
+                budget -= soak.play(budget);
+                if (soak.getAnomaly() != null) {
+                    saveFailure(soak, failures);
+                    soak.nextMatch();
+                } else if (soak.getSimulation().isGameEnded()) {
+                    soak.nextMatch();
+                }
+            }
+            now = System.nanoTime();
+            if (now >= nextReport || now >= end || soak.ticks >= maxTicks) {
+                double rate = (soak.ticks - reportTicks) / ((now - reportTime) / 1e9);
+                long heap = usedHeapAfterGc();
+                System.out.printf("%9.0f %14d %12.0f %10.1f %10d %10d%n", (now - start) / 1e9, soak.ticks, rate,
+                        heap / 1e6, soak.matches, soak.anomalies);
+                if (firstRate < 0) {
+                    firstRate = rate;
+                    firstHeap = heap;
+                }
+                lastRate = rate;
+                lastHeap = heap;
+                reportTicks = soak.ticks;
+                now = System.nanoTime(); // Leaves the collection out of the next interval
+                reportTime = now;
+                nextReport = now + (long) (reportSeconds * 1e9);
+            }
+        }
+
+        double total = (now - start) / 1e9;
+        System.out.printf("%d ticks in %.0f s (%.0f per second), %d matches, %d points, %.1f racket hits per point%n",
+                soak.ticks, total, soak.ticks / total, soak.matches, soak.points,
+                soak.points == 0 ? 0 : (double) soak.racketHits / soak.points);
+        System.out.printf("Throughput %.0f -> %.0f ticks/s (%+.1f%%), heap after GC %.1f -> %.1f MB (%+.1f MB)%n",
+                firstRate, lastRate, (lastRate / firstRate - 1) * 100, firstHeap / 1e6, lastHeap / 1e6,
+                (lastHeap - firstHeap) / 1e6);
+        if (soak.anomalies > 0) {
+            System.out.println(soak.anomalies + " anomalies; their seeds are in " + failures);
+            System.exit(1);
+        }
+        System.out.println("No anomalies");
+    }
+
+    /**
+     * Appends the seed and description of a match with an anomaly to the failures file, and saves the
+     * state it was found in next to it.
+     */
+    private static void saveFailure(Soak soak, Path failures) throws IOException {
+        String line = soak.describe();
+        System.out.println("Anomaly: " + line);
+        if (failures.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(failures.toAbsolutePath().getParent());
+        }
+        Files.write(failures, (line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        Path snapshot = failures.resolveSibling("soak-" + soak.getSeed() + ".snapshot");
+        SnapshotCodec.save(soak.getSimulation(), snapshot);
+    }
+
+    /**
+     * Plays the match of a seed from a failures file again and reports its anomaly.
+     * @return 1 if the anomaly was reproduced, 0 otherwise.
+     */
+    private static int reproduce(long seed, int pointTimeout) {
+        Soak soak = new Soak(0, pointTimeout);
+        soak.startMatch(seed);
+        while (soak.getAnomaly() == null && !soak.getSimulation().isGameEnded()) {
+            soak.play(CHUNK_TICKS);
+        }
+        if (soak.getAnomaly() == null) {
+            System.out.println("Match " + seed + " ended without an anomaly after " + soak.ticks + " ticks");
+            return 0;
+        }
+        System.out.println("Reproduced: " + soak.describe());
+        return 1;
+    }
+
+    /**
+     * Returns the heap in use after a full collection.
+     */
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
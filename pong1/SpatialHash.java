@@ -0,0 +1,97 @@
+/**
+ * This class is a uniform grid over the playing field used as the broadphase of the multi-ball mode.
+ * It is rebuilt every tick with a counting sort: count the balls per cell, turn the counts into start
+ * offsets, then drop every ball index into its cell's range of one shared array. Building and querying
+ * it allocates nothing, and with cells at least one ball diameter wide two balls can only touch when
+ * they are in the same or in neighbouring cells.
+ */
+package com.example.pong1;
+
+import java.util.Arrays;
+
+public class SpatialHash {
+    final float cellSize;
+    final int columns;
+    final int rows;
+    final int[] cellStart; // Start of each cell's range in entries; cellStart[cell + 1] is its end
+    final int[] entries; // Ball indices grouped by cell
+    final int[] ballCell; // Cell of each ball at the last build
+
+    /**
+     * Constructs a new grid over the playing field.
+     * @param cellSize The width and height of a cell; at least the diameter of a ball.
+     * @param capacity The largest number of balls that will be inserted.
+     */
+    public SpatialHash(float cellSize, int capacity) {
+        this.cellSize = cellSize;
+        columns = (int) Math.ceil(Simulation.WIDTH / cellSize);
+        rows = (int) Math.ceil(Simulation.HEIGHT / cellSize);
+        cellStart = new int[columns * rows + 1];
+        entries = new int[capacity];
+        ballCell = new int[capacity];
+    }
+
+    /**
+     * Sorts every ball of a field into its cell. Balls outside the field go into the nearest edge cell.
+     * @param balls The balls to insert.
+     */
+    public void build(BallField balls) {
+        int cells = columns * rows;
+        Arrays.fill(cellStart, 0);
+        for (int i = 0; i < balls.count; i++) {
+            int cell = cellOf(balls.x[i], balls.y[i]);
+            ballCell[i] = cell;
+            cellStart[cell]++;
+        }
+        // Running totals make cellStart[cell] the end of each cell's range
+        for (int cell = 1; cell < cells; cell++) {
+            cellStart[cell] += cellStart[cell - 1];
+        }
+        cellStart[cells] = balls.count;
+        // Fill each range from its end, which leaves cellStart at the start of every range
+        for (int i = balls.count - 1; i >= 0; i--) {
+            entries[--cellStart[ballCell[i]]] = i;
+        }
+    }
+
+    /**
+     * Collects the balls in every cell overlapping a box.
+     * @param minX The left edge of the box.
+     * @param minY The top edge of the box.
+     * @param maxX The right edge of the box.
+     * @param maxY The bottom edge of the box.
+     * @param out The array to write the ball indices to; must hold every inserted ball.
+     * @return The number of indices written.
+     */
+    public int query(float minX, float minY, float maxX, float maxY, int[] out) {
+        int firstColumn = column(minX);
+        int lastColumn = column(maxX);
+        int firstRow = row(minY);
+        int lastRow = row(maxY);
+        int found = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                for (int e = cellStart[cell]; e < cellStart[cell + 1]; e++) {
+                    out[found++] = entries[e];
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the cell containing a point, clamped to the grid.
+     */
+    int cellOf(float pointX, float pointY) {
+        return row(pointY) * columns + column(pointX);
+    }
+
+    private int column(float pointX) {
+        return Math.min(Math.max((int) (pointX / cellSize), 0), columns - 1);
+    }
+
+    private int row(float pointY) {
+        return Math.min(Math.max((int) (pointY / cellSize), 0), rows - 1);
+    }
+}
@@ -0,0 +1,340 @@
+/**
+ * This class load-tests SpectatorServer on one machine. It broadcasts a bot match at the game's tick
+ * rate to thousands of spectator connections over loopback. The spectators are opened by a child JVM,
+ * so the server's heap can be measured on its own. It reports the frames per second sent, the heap
+ * used per spectator, the cost of publish() on the game thread, and the time from publishing a frame
+ * to a spectator decoding it. With --slow=FRACTION that share of the spectators reads only once a
+ * second, to show them being skipped to keyframes instead of having frames buffered for them.
+ *
+ * Run it with: SpectatorLoad [--viewers=N] [--seconds=S] [--slow=FRACTION] [--tick-rate=N]
+ */
+package com.example.pong1;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class SpectatorLoad {
+    private static final int DEFAULT_VIEWERS = 10_000;
+    private static final double DEFAULT_SECONDS = 10;
+    private static final long CONNECT_TIMEOUT_NANOS = 60_000_000_000L;
+
+    /**
+     * Runs the load test, or the spectator side of it when started with --viewer-process.
+     * @param args The options described in the class comment.
+     * @throws Exception If the server or the child JVM cannot be started.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = BenchmarkRunner.parseOptions(args);
+        int viewers = LaunchConfig.parseInt("viewers", options.get("viewers"), DEFAULT_VIEWERS, 1, 1_000_000);
+        double slow = options.containsKey("slow") ? Double.parseDouble(options.get("slow")) : 0;
+        if (options.containsKey("viewer-process")) {
+            int port = LaunchConfig.parseInt("port", options.get("port"), -1, 1, 65_535);
+            new ViewerProcess(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), viewers, slow).run();
+            return;
+        }
+        double seconds = options.containsKey("seconds") ? Double.parseDouble(options.get("seconds")) : DEFAULT_SECONDS;
+        int tickRate = LaunchConfig.parseInt("tick-rate", options.get("tick-rate"), Panel.DEFAULT_TICK_RATE, 1, 10_000);
+
+        SpectatorServer server = new SpectatorServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                tickRate, Integer.MAX_VALUE, "Left bot", "Right bot", SpectatorServer.DEFAULT_KEYFRAME_INTERVAL,
+                viewers);
+        Thread io = new Thread(server, "pong-spectators");
+        io.start();
+        long heapBefore = usedHeapAfterGc();
+
+        Process child = startViewers(server.getLocalAddress().getPort(), viewers, slow);
+        long connectStart = System.nanoTime();
+        while (server.getViewerCount() < viewers && child.isAlive()
+                && System.nanoTime() - connectStart < CONNECT_TIMEOUT_NANOS) {
+            Thread.sleep(10);
+        }
+        int connected = server.getViewerCount();
+        double connectSeconds = (System.nanoTime() - connectStart) / 1e9;
+        long heapAfter = usedHeapAfterGc();
+
+        Simulation simulation = new Simulation(Integer.MAX_VALUE);
+        simulation.setTickRate(tickRate);
+        LatencyHistogram publishCost = new LatencyHistogram();
+        long ticks = Math.round(seconds * tickRate);
+        long tickNanos = 1_000_000_000L / tickRate;
+        long start = System.nanoTime();
+        long nextTick = start;
+        for (long i = 0; i < ticks; i++) {
+            simulation.step(TrackingBot.inputs(simulation));
+            long before = System.nanoTime();
+            server.publish(simulation);
+            publishCost.record(System.nanoTime() - before);
+            nextTick += tickNanos;
+            LockSupport.parkNanos(nextTick - System.nanoTime());
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long sentFrames = server.getSentFrames();
+        long sentBytes = server.getSentBytes();
+        server.stop();
+        io.join();
+        if (!child.waitFor(60, TimeUnit.SECONDS)) {
+            child.destroy();
+        }
+
+        LatencyHistogram fanout = server.getFanoutTimes();
+        System.out.printf("Server: %d spectators connected in %.1f s, %.0f bytes of heap each%n", connected,
+                connectSeconds, (double) (heapAfter - heapBefore) / Math.max(connected, 1));
+        System.out.printf("Server: %d frames published (%d dropped), %.0f frames/s sent, %.1f MB/s%n",
+                server.getPublishedFrames(), server.getDroppedFrames(), sentFrames / elapsed, sentBytes / elapsed / 1e6);
+        System.out.printf("Server: %d frames skipped, %d resyncs at a keyframe, %d slow spectators dropped%n",
+                server.getSkippedFrames(), server.getResyncs(), server.getSlowDisconnects());
+        System.out.printf("Server: publish p50 %.2f us p99 %.2f us max %.2f us; fan-out p50 %.2f ms p99 %.2f ms"
+                        + " max %.2f ms%n", publishCost.percentile(50) / 1e3, publishCost.percentile(99) / 1e3,
+                publishCost.getMax() / 1e3, fanout.percentile(50) / 1e6, fanout.percentile(99) / 1e6,
+                fanout.getMax() / 1e6);
+    }
+
+    /**
+     * Starts the child JVM that opens the spectator connections, sharing this process's output.
+     */
+    private static Process startViewers(int port, int viewers, double slow) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = List.of(java, "-cp", System.getProperty("java.class.path"),
+                SpectatorLoad.class.getName(), "--viewer-process", "--port=" + port, "--viewers=" + viewers,
+                "--slow=" + slow);
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    /**
+     * Returns the heap in use after a full collection.
+     */
+    private static long usedHeapAfterGc() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * This class opens the spectator connections from one selector thread and decodes every frame
+     * they receive, until the server closes them all.
+     */
+    private static class ViewerProcess {
+        private static final int MAX_CONNECTING = 256; // Connections being opened at once
+        private static final int SLOW_RECEIVE_BUFFER_BYTES = 4 * 1024;
+        private static final long SLOW_READ_NANOS = 1_000_000_000L;
+        // Polling instead of blocking in select() keeps every frame written from waking this process,
+        // which on a machine with few cores would make the server wait for it
+        private static final long POLL_NANOS = 1_000_000L;
+        private final InetSocketAddress address;
+        private final int viewers;
+        private final int slowViewers;
+        private final Selector selector;
+        private final List<Viewer> slow = new ArrayList<>();
+        private final LatencyHistogram latency = new LatencyHistogram(); // Publish to decode, prompt spectators
+        private int opened;
+        private int connecting;
+        private int open;
+        private long keyframes;
+        private long deltas;
+        private long brokenDeltas; // Deltas without the frame before them; must stay 0
+        private long slowFrames;
+
+        ViewerProcess(InetSocketAddress address, int viewers, double slowFraction) throws IOException {
+            this.address = address;
+            this.viewers = viewers;
+            this.slowViewers = (int) Math.round(viewers * Math.min(Math.max(slowFraction, 0), 1));
+            this.selector = Selector.open();
+        }
+
+        /**
+         * Connects every spectator, then reads until the server has closed all of them.
+         */
+        void run() throws IOException {
+            long nextSlowRead = System.nanoTime() + SLOW_READ_NANOS;
+            do {
+                while (opened < viewers && connecting < MAX_CONNECTING) {
+                    connect(opened < slowViewers);
+                }
+                selector.selectNow(this::handle);
+                LockSupport.parkNanos(POLL_NANOS);
+                if (System.nanoTime() >= nextSlowRead) {
+                    for (int i = slow.size() - 1; i >= 0; i--) {
+                        if (!read(slow.get(i))) {
+                            slow.remove(i);
+                        }
+                    }
+                    nextSlowRead += SLOW_READ_NANOS;
+                }
+            } while (open > 0 || connecting > 0 || opened < viewers);
+            System.out.printf("Spectators: %d keyframes and %d deltas decoded, %d broken deltas%n", keyframes,
+                    deltas, brokenDeltas);
+            System.out.printf("Spectators: publish to decode p50 %.2f ms p99 %.2f ms p99.9 %.2f ms max %.2f ms"
+                            + " (%d prompt spectators)%n", latency.percentile(50) / 1e6, latency.percentile(99) / 1e6,
+                    latency.percentile(99.9) / 1e6, latency.getMax() / 1e6, viewers - slowViewers);
+            if (slowViewers > 0) {
+                System.out.printf("Spectators: %d slow spectators decoded %.1f frames each%n", slowViewers,
+                        (double) slowFrames / slowViewers);
+            }
+        }
+
+        /**
+         * Starts opening one spectator connection.
+         */
+        private void connect(boolean slowReader) throws IOException {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            if (slowReader) {
+                channel.setOption(StandardSocketOptions.SO_RCVBUF, SLOW_RECEIVE_BUFFER_BYTES);
+            }
+            Viewer viewer = new Viewer(channel, slowReader);
+            opened++;
+            if (channel.connect(address)) {
+                connected(viewer);
+            } else {
+                connecting++;
+                channel.register(selector, SelectionKey.OP_CONNECT, viewer);
+            }
+        }
+
+        /**
+         * Starts reading a connected spectator: prompt ones whenever data arrives, slow ones once a second.
+         */
+        private void connected(Viewer viewer) throws IOException {
+            open++;
+            if (viewer.slow) {
+                slow.add(viewer);
+            } else {
+                viewer.channel.register(selector, SelectionKey.OP_READ, viewer);
+            }
+        }
+
+        /**
+         * Handles a connection that was established or has data.
+         */
+        private void handle(SelectionKey key) {
+            Viewer viewer = (Viewer) key.attachment();
+            try {
+                if (key.isConnectable()) {
+                    connecting--;
+                    if (viewer.channel.finishConnect()) {
+                        open++;
+                        if (viewer.slow) {
+                            key.cancel();
+                            slow.add(viewer);
+                        } else {
+                            key.interestOps(SelectionKey.OP_READ);
+                        }
+                    }
+                } else if (key.isReadable() && !read(viewer)) {
+                    key.cancel();
+                }
+            } catch (IOException e) {
+                System.err.println("Spectator failed: " + e.getMessage());
+                key.cancel();
+                closeQuietly(viewer);
+            }
+        }
+
+        /**
+         * Reads what a spectator has received and decodes every complete message.
+         * @return false once the connection is closed.
+         */
+        private boolean read(Viewer viewer) {
+            ByteBuffer buffer = viewer.buffer;
+            int read;
+            try {
+                read = viewer.channel.read(buffer);
+            } catch (IOException e) {
+                read = -1;
+            }
+            buffer.flip();
+            long now = System.nanoTime();
+            while (buffer.remaining() >= 2 && buffer.remaining() >= 2 + (buffer.getShort(buffer.position()) & 0xFFFF)) {
+                int end = buffer.position() + 2 + (buffer.getShort() & 0xFFFF);
+                decode(viewer, buffer, now);
+                buffer.position(end);
+            }
+            buffer.compact();
+            if (read < 0) {
+                closeQuietly(viewer);
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Decodes one message and checks that every delta follows the frame it was made against.
+         */
+        private void decode(Viewer viewer, ByteBuffer buffer, long now) {
+            byte type = buffer.get();
+            if (type != NetProtocol.SPECTATE_KEYFRAME && type != NetProtocol.SPECTATE_DELTA) {
+                return; // The hello only names the players
+            }
+            int seq = buffer.getInt();
+            buffer.getLong(); // Tick
+            long serverTime = buffer.getLong();
+            if (type == NetProtocol.SPECTATE_KEYFRAME) {
+                keyframes++;
+                viewer.synced = true;
+            } else if (viewer.synced && seq == viewer.lastSeq + 1) {
+                deltas++;
+            } else {
+                brokenDeltas++;
+                return;
+            }
+            NetProtocol.readDelta(buffer, viewer.fields, viewer.fields);
+            viewer.lastSeq = seq;
+            if (viewer.slow) {
+                slowFrames++;
+            } else {
+                latency.record(now - serverTime);
+            }
+        }
+
+        /**
+         * Closes a spectator connection the server has finished with.
+         */
+        private void closeQuietly(Viewer viewer) {
+            if (!viewer.closed) {
+                viewer.closed = true;
+                open--;
+                try {
+                    viewer.channel.close();
+                } catch (IOException ignored) {
+                    // Done with it either way
+                }
+            }
+        }
+    }
+
+    /**
+     * This class holds one spectator connection and the match state it has decoded.
+     */
+    private static class Viewer {
+        final SocketChannel channel;
+        final boolean slow;
+        final ByteBuffer buffer; // Slow spectators read at most this much per second
+        final double[] fields = new double[NetProtocol.FIELDS];
+        boolean synced;
+        boolean closed;
+        int lastSeq;
+
+        Viewer(SocketChannel channel, boolean slow) {
+            this.channel = channel;
+            this.slow = slow;
+            buffer = ByteBuffer.allocate(slow ? 1024 : 4 * 1024);
+        }
+    }
+}
@@ -0,0 +1,454 @@
+/**
+ * This class streams a live match to spectators over TCP. The game thread hands it the match state
+ * once per tick with publish(), which encodes a single frame into a ring of preallocated direct
+ * buffers: a delta against the frame before, or a keyframe with every field at a fixed interval. All
+ * spectators are sent the same frame bytes; nothing is encoded or copied per spectator.
+ *
+ * One I/O thread owns every connection and serves them from a Selector. Each pass it writes every
+ * spectator the frames it has not received yet with one gathering write, so a pass that falls behind
+ * sends several frames per system call instead of one call per frame. A spectator whose socket is
+ * full does not get frames queued for it: once it trails by more than MAX_QUEUED frames it stops
+ * receiving deltas, and resumes with the newest keyframe when its socket drains. A spectator that
+ * cannot even finish one frame before it leaves the ring is disconnected. publish() never blocks or
+ * waits for the I/O thread; if that thread falls a whole ring behind, frames are dropped and the next
+ * one is sent as a keyframe.
+ */
+package com.example.pong1;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+
+public class SpectatorServer implements Runnable {
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 60; // Half a second at the default tick rate
+    public static final int DEFAULT_MAX_VIEWERS = 16_384;
+    static final int TIME_OFFSET = 2 + 1 + Integer.BYTES + Long.BYTES; // Position of the server time in a frame
+    private static final int FRAME_RING = 256; // Frames kept for sending; a power of two
+    private static final int MASK = FRAME_RING - 1;
+    private static final int MAX_LAG = FRAME_RING / 2; // Frames anyone may trail the newest before losing out
+    private static final int MAX_QUEUED = 8; // Unsent frames a spectator with a full socket may have
+    private static final int MAX_BATCH = 16; // Frames per gathering write
+    private static final int FRAME_BYTES = 128;
+    private static final int SEND_BUFFER_BYTES = 8 * 1024; // About a second of frames, so slow spectators are noticed early
+    private static final int ACCEPT_BACKLOG = 1_024;
+    private static final long SELECT_TIMEOUT_MILLIS = 100;
+    private final ServerSocketChannel acceptor;
+    private final Selector selector;
+    private final int keyframeInterval;
+    private final int maxViewers;
+    private final ByteBuffer hello = ByteBuffer.allocateDirect(FRAME_BYTES);
+    private final ByteBuffer[] frames = new ByteBuffer[FRAME_RING];
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(256); // Spectators send nothing we keep
+    private final ByteBuffer[] batch = new ByteBuffer[MAX_BATCH + 1];
+    private final ArrayList<Viewer> viewers = new ArrayList<>();
+    private final LatencyHistogram fanoutTimes = new LatencyHistogram(); // Publish to last spectator written
+
+    // Written by the publishing thread only
+    private final double[] fields = new double[NetProtocol.FIELDS];
+    private final double[] previous = new double[NetProtocol.FIELDS]; // Fields of the last frame published
+    private long nextSeq;
+    private boolean forceKeyframe = true;
+    private volatile long droppedFrames;
+
+    // Written by the I/O thread only, and copied to the reported counters after every pass
+    private long lastKeyframe = -1; // Newest keyframe the I/O thread has seen
+    private long sentFrames;
+    private long sentBytes;
+    private long skippedFrames; // Frames spectators missed after falling behind
+    private long resyncs; // Times a spectator that fell behind resumed at a keyframe
+    private long slowDisconnects; // Spectators dropped for not finishing a frame before it left the ring
+    private volatile long reportedSentFrames;
+    private volatile long reportedSentBytes;
+    private volatile long reportedSkippedFrames;
+    private volatile long reportedResyncs;
+    private volatile long reportedSlowDisconnects;
+    private volatile long published = -1; // Newest frame handed to the I/O thread
+    private volatile long consumed = -1; // Newest frame the I/O thread has sent to every spectator it could
+    private volatile int viewerCount;
+    private volatile boolean running = true;
+
+    /**
+     * This class holds the sending state of one spectator.
+     */
+    private static class Viewer {
+        final SocketChannel channel;
+        final SelectionKey key;
+        int index; // Position in the viewer list
+        int helloOffset; // Bytes of the hello message sent
+        long nextSeq; // Next frame to send
+        int offset; // Bytes of that frame sent
+        boolean synced; // Has every frame since its last keyframe, so deltas apply
+        boolean everSynced;
+        boolean blocked; // The last write left bytes behind, so the socket is full
+
+        Viewer(SocketChannel channel, SelectionKey key, long nextSeq) {
+            this.channel = channel;
+            this.key = key;
+            this.nextSeq = nextSeq;
+        }
+    }
+
+    /**
+     * Constructs a new server bound to the specified address. Call run() on a thread of its own.
+     * @param address The address to listen on; port 0 picks a free port.
+     * @param tickRate The number of ticks per second, sent to spectators.
+     * @param finalScore The final score of the match, sent to spectators.
+     * @param leftPlayerName The name of the left player.
+     * @param rightPlayerName The name of the right player.
+     * @param keyframeInterval The number of frames from one keyframe to the next.
+     * @param maxViewers The number of spectators beyond which connections are refused.
+     * @throws IOException If the server socket cannot be opened.
+     */
+    public SpectatorServer(InetSocketAddress address, int tickRate, int finalScore, String leftPlayerName,
+                           String rightPlayerName, int keyframeInterval, int maxViewers) throws IOException {
+        this.keyframeInterval = Math.max(keyframeInterval, 1);
+        this.maxViewers = maxViewers;
+        for (int i = 0; i < FRAME_RING; i++) {
+            frames[i] = ByteBuffer.allocateDirect(FRAME_BYTES);
+        }
+        hello.putShort((short) 0).put(NetProtocol.SPECTATE_HELLO).putInt(tickRate).putInt(finalScore)
+                .putInt(this.keyframeInterval);
+        NetProtocol.putString(hello, leftPlayerName);
+        NetProtocol.putString(hello, rightPlayerName);
+        hello.putShort(0, (short) (hello.position() - 2));
+        hello.flip();
+        selector = Selector.open();
+        acceptor = ServerSocketChannel.open();
+        acceptor.configureBlocking(false);
+        acceptor.bind(address, ACCEPT_BACKLOG);
+        acceptor.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Encodes the state of the match as the next frame and hands it to the I/O thread. Call this once
+     * per tick, always from the same thread. It allocates nothing and never waits for spectators.
+     * @param simulation The match to broadcast.
+     * @return false if the frame was dropped because the I/O thread is too far behind.
+     */
+    public boolean publish(Simulation simulation) {
+        long seq = nextSeq;
+        if (seq - consumed > MAX_LAG) {
+            droppedFrames++;
+            forceKeyframe = true; // The next frame must not depend on this one
+            return false;
+        }
+        boolean keyframe = forceKeyframe || seq % keyframeInterval == 0;
+        NetProtocol.capture(simulation, fields);
+        ByteBuffer frame = frames[(int) (seq & MASK)];
+        frame.clear();
+        frame.putShort((short) 0).put(keyframe ? NetProtocol.SPECTATE_KEYFRAME : NetProtocol.SPECTATE_DELTA)
+                .putInt((int) seq).putLong(simulation.getTick()).putLong(System.nanoTime());
+        NetProtocol.writeDelta(frame, fields, keyframe ? null : previous);
+        frame.putShort(0, (short) (frame.position() - 2));
+        frame.flip();
+        System.arraycopy(fields, 0, previous, 0, NetProtocol.FIELDS);
+        forceKeyframe = false;
+        nextSeq = seq + 1;
+        published = seq;
+        selector.wakeup();
+        return true;
+    }
+
+    /**
+     * Runs the I/O loop until stop() is called, then closes every connection.
+     */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(this::handle, SELECT_TIMEOUT_MILLIS);
+                long last = published;
+                if (last != consumed) {
+                    sendNewFrames(last);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Spectator server stopped: " + e.getMessage());
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Asks the I/O loop to stop and close every connection.
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Handles one ready key: new connections, closed connections, and sockets that drained.
+     */
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        Viewer viewer = (Viewer) key.attachment();
+        if (key.isReadable() && !drain(viewer)) {
+            return;
+        }
+        if (key.isValid() && key.isWritable()) {
+            flush(viewer, consumed);
+        }
+    }
+
+    /**
+     * Accepts every pending connection, refusing those beyond the viewer limit.
+     */
+    private void accept() {
+        try {
+            SocketChannel channel;
+            while ((channel = acceptor.accept()) != null) {
+                if (viewers.size() >= maxViewers) {
+                    channel.close();
+                    continue;
+                }
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.setOption(StandardSocketOptions.SO_SNDBUF, SEND_BUFFER_BYTES);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                Viewer viewer = new Viewer(channel, key, consumed + 1);
+                key.attach(viewer);
+                viewer.index = viewers.size();
+                viewers.add(viewer);
+                viewerCount = viewers.size();
+                flush(viewer, consumed);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not accept a spectator: " + e.getMessage()); // e.g. out of file handles
+        }
+    }
+
+    /**
+     * Discards whatever a spectator sent, closing the connection once the spectator has closed it.
+     * @return false if the connection was closed.
+     */
+    private boolean drain(Viewer viewer) {
+        try {
+            int read;
+            do {
+                readBuffer.clear();
+                read = viewer.channel.read(readBuffer);
+            } while (read > 0);
+            if (read < 0) {
+                disconnect(viewer);
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            disconnect(viewer);
+            return false;
+        }
+    }
+
+    /**
+     * Sends the frames up to the newest one to every spectator, then drops spectators that could not
+     * keep up with the ring, so that no frame still being sent can be overwritten.
+     */
+    private void sendNewFrames(long last) {
+        for (long seq = consumed + 1; seq <= last; seq++) {
+            if (frames[(int) (seq & MASK)].get(2) == NetProtocol.SPECTATE_KEYFRAME) {
+                lastKeyframe = seq;
+            }
+        }
+        for (int i = viewers.size() - 1; i >= 0; i--) {
+            Viewer viewer = viewers.get(i);
+            flush(viewer, last);
+            if (viewer.key.isValid() && last - viewer.nextSeq >= MAX_LAG && viewer.nextSeq <= last) {
+                slowDisconnects++;
+                disconnect(viewer);
+            }
+        }
+        fanoutTimes.record(System.nanoTime() - frames[(int) (last & MASK)].getLong(TIME_OFFSET));
+        consumed = last;
+        reportedSentFrames = sentFrames;
+        reportedSentBytes = sentBytes;
+        reportedSkippedFrames = skippedFrames;
+        reportedResyncs = resyncs;
+        reportedSlowDisconnects = slowDisconnects;
+    }
+
+    /**
+     * Writes a spectator the frames up to the specified one, in gathering writes of up to MAX_BATCH
+     * frames, until they are all sent or its socket is full. A spectator that fell behind with a full
+     * socket, or that has not had a keyframe yet, skips ahead to the newest keyframe first.
+     */
+    private void flush(Viewer viewer, long last) {
+        if (viewer.offset == 0 && viewer.helloOffset == hello.limit()) {
+            if (viewer.synced && viewer.blocked && last - viewer.nextSeq >= MAX_QUEUED) {
+                viewer.synced = false;
+            }
+            if (!viewer.synced) {
+                skipToKeyframe(viewer, last);
+            }
+        }
+        try {
+            boolean blocked = false;
+            while (!blocked) {
+                int count = 0;
+                if (viewer.helloOffset < hello.limit()) {
+                    hello.position(viewer.helloOffset);
+                    batch[count++] = hello;
+                }
+                for (long seq = viewer.nextSeq; viewer.synced && seq <= last && count < batch.length; seq++) {
+                    ByteBuffer frame = frames[(int) (seq & MASK)];
+                    frame.position(seq == viewer.nextSeq ? viewer.offset : 0);
+                    batch[count++] = frame;
+                }
+                if (count == 0) {
+                    break;
+                }
+                sentBytes += viewer.channel.write(batch, 0, count);
+                blocked = advance(viewer, count);
+                if (!blocked && !viewer.synced) {
+                    skipToKeyframe(viewer, last); // The hello is out, so a new spectator can start at a keyframe
+                }
+            }
+            if (blocked != viewer.blocked) {
+                viewer.blocked = blocked;
+                viewer.key.interestOps(blocked ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            }
+        } catch (IOException e) {
+            disconnect(viewer);
+        }
+    }
+
+    /**
+     * Moves a spectator past what the last write sent.
+     * @return true if the write left bytes behind.
+     */
+    private boolean advance(Viewer viewer, int count) {
+        for (int i = 0; i < count; i++) {
+            ByteBuffer sent = batch[i];
+            boolean partial = sent.hasRemaining();
+            if (sent == hello) {
+                viewer.helloOffset = sent.position();
+            } else if (partial) {
+                viewer.offset = sent.position();
+            } else {
+                viewer.nextSeq++;
+                viewer.offset = 0;
+                sentFrames++;
+            }
+            if (partial) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves a spectator at a frame boundary to the newest keyframe it has not been sent yet, or past
+     * every frame sent so far if there is none, so that it only ever decodes a delta it has the base of.
+     */
+    private void skipToKeyframe(Viewer viewer, long last) {
+        long from = viewer.nextSeq;
+        boolean fellBehind = viewer.everSynced; // Rather than waiting for its first keyframe
+        if (lastKeyframe >= from && lastKeyframe <= last) {
+            viewer.nextSeq = lastKeyframe;
+            viewer.synced = true;
+            viewer.everSynced = true;
+            if (fellBehind) {
+                resyncs++;
+            }
+        } else {
+            viewer.nextSeq = Math.max(from, last + 1);
+        }
+        if (fellBehind) {
+            skippedFrames += viewer.nextSeq - from;
+        }
+    }
+
+    /**
+     * Closes a spectator's connection and removes it from the viewer list.
+     */
+    private void disconnect(Viewer viewer) {
+        viewer.key.cancel();
+        try {
+            viewer.channel.close();
+        } catch (IOException ignored) {
+            // The spectator is gone either way
+        }
+        Viewer moved = viewers.remove(viewers.size() - 1);
+        if (moved != viewer) {
+            viewers.set(viewer.index, moved);
+            moved.index = viewer.index;
+        }
+        viewerCount = viewers.size();
+    }
+
+    /**
+     * Closes every connection, the server socket and the selector.
+     */
+    private void close() {
+        while (!viewers.isEmpty()) {
+            disconnect(viewers.get(viewers.size() - 1));
+        }
+        try {
+            acceptor.close();
+            selector.close();
+        } catch (IOException ignored) {
+            // Shutting down anyway
+        }
+    }
+
+    /**
+     * Returns the address the server is listening on.
+     * @throws IOException If the server socket is closed.
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) acceptor.getLocalAddress();
+    }
+
+    public int getViewerCount() {
+        return viewerCount;
+    }
+
+    public long getPublishedFrames() {
+        return published + 1;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public long getSentFrames() {
+        return reportedSentFrames;
+    }
+
+    public long getSentBytes() {
+        return reportedSentBytes;
+    }
+
+    public long getSkippedFrames() {
+        return reportedSkippedFrames;
+    }
+
+    public long getResyncs() {
+        return reportedResyncs;
+    }
+
+    public long getSlowDisconnects() {
+        return reportedSlowDisconnects;
+    }
+
+    /**
+     * Returns the time from publishing a frame to having written it to every spectator that could take
+     * it, measured once per pass of the I/O thread. Only read it once the server has stopped.
+     * @return The fan-out time histogram.
+     */
+    public LatencyHistogram getFanoutTimes() {
+        return fanoutTimes;
+    }
+}
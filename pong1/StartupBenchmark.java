@@ -0,0 +1,202 @@
+/**
+ * This class measures how long the game takes from the start of the JVM to its first rendered frame.
+ * The game marks each phase of its launch here: main() entered, toolkit up (Application.init),
+ * start() entered, window shown and first frame rendered, the last one being the end of layout in
+ * the first pulse that drew the game. Started with --startup-benchmark, the game prints these times
+ * once the first frame is out and exits, along with how many ticks the Warmup had simulated by then
+ * and whether it had finished, which shows whether the warm-up overlapped the launch.
+ *
+ * Run as a program, this class starts the game that way in fresh JVMs several times and reports the
+ * best, median and worst time of each phase. With --cds=FILE it also measures the launch with an
+ * Application Class Data Sharing archive: if FILE does not exist yet, a training run of the game
+ * (--cds-training, which plays a short CPU match) creates it with -XX:ArchiveClassesAtExit, and the
+ * measured runs then map it with -XX:SharedArchiveFile. The same archive can be created by hand with
+ *
+ *   java -XX:ArchiveClassesAtExit=pong.jsa [JavaFX options] com.example.pong1.MyMain --cds-training
+ *
+ * and used for every kiosk launch with -XX:SharedArchiveFile=pong.jsa; mvn package creates
+ * target/pong.jsa this way for the packaged jar. The child JVMs get the same JVM options and class
+ * path as this one, plus any other options given here, e.g. --config=FILE.
+ */
+package com.example.pong1;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class StartupBenchmark {
+    // Launch phases, in the order they happen
+    public static final int MAIN = 0;
+    public static final int INIT = 1;
+    public static final int START = 2;
+    public static final int SHOWN = 3;
+    public static final int FIRST_FRAME = 4;
+    private static final String[] PHASE_NAMES = {"main", "init", "start", "shown", "first-frame"};
+    private static final String RESULT_PREFIX = "startup-ms"; // Marks the line the children print
+    private static final int DEFAULT_RUNS = 5;
+    private static final long[] marks = new long[PHASE_NAMES.length]; // System.nanoTime() of each phase
+    private static Warmup warmup; // Started by MyMain, or null with --no-warmup
+
+    private StartupBenchmark() {
+    }
+
+    /**
+     * Records the time a launch phase was reached; later calls for the same phase are ignored.
+     * @param phase One of MAIN, INIT, START, SHOWN and FIRST_FRAME.
+     */
+    public static void mark(int phase) {
+        if (marks[phase] == 0) {
+            marks[phase] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Sets the warm-up whose progress is reported with the phases.
+     * @param running The warm-up started at launch.
+     */
+    public static void setWarmup(Warmup running) {
+        warmup = running;
+    }
+
+    /**
+     * Returns the recorded phases as milliseconds since the JVM started, on one line. The start of the
+     * JVM is only known in milliseconds of uptime, so it is placed by subtracting the time that has
+     * passed since main() from the current uptime.
+     * @return The line with the phase times and the progress of the warm-up.
+     */
+    public static String report() {
+        long now = System.nanoTime();
+        double uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        double mainMillis = uptimeMillis - (now - marks[MAIN]) / 1e6;
+        StringBuilder line = new StringBuilder(RESULT_PREFIX);
+        for (int phase = 0; phase < marks.length; phase++) {
+            double millis = phase == MAIN ? mainMillis : mainMillis + (marks[phase] - marks[MAIN]) / 1e6;
+            line.append(String.format(Locale.ROOT, " %s=%.1f", PHASE_NAMES[phase],
+                    marks[phase] == 0 ? Double.NaN : millis));
+        }
+        if (warmup != null) {
+            line.append(" warmup-ticks=").append(warmup.getTicksRun()).append(" warmup-done=").append(warmup.isDone());
+        }
+        return line.toString();
+    }
+
+    /**
+     * Launches the game repeatedly in fresh JVMs and reports its startup times.
+     * @param args Options: --runs=N, --cds=FILE; any other option is passed on to the game.
+     * @throws Exception If a child JVM cannot be started.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = BenchmarkRunner.parseOptions(args);
+        int runs = LaunchConfig.parseInt("runs", options.get("runs"), DEFAULT_RUNS, 1, 1_000);
+        String archive = options.get("cds");
+        List<String> gameArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--runs=") && !arg.startsWith("--cds=")) {
+                gameArgs.add(arg);
+            }
+        }
+
+        measure("default", List.of(), gameArgs, runs);
+        if (archive != null) {
+            if (!Files.exists(Paths.get(archive))) {
+                List<String> training = new ArrayList<>(gameArgs);
+                training.add("--cds-training");
+                System.out.println("Creating " + archive + " with a training run");
+                launch(List.of("-XX:ArchiveClassesAtExit=" + archive), training);
+                if (!Files.exists(Paths.get(archive))) {
+                    System.out.println("The training run did not create " + archive);
+                    return;
+                }
+            }
+            measure("cds", List.of("-XX:SharedArchiveFile=" + archive), gameArgs, runs);
+        }
+    }
+
+    /**
+     * Launches the game the specified number of times and prints the best, median and worst time of
+     * every phase.
+     */
+    private static void measure(String label, List<String> jvmOptions, List<String> gameArgs, int runs)
+            throws IOException, InterruptedException {
+        List<String> args = new ArrayList<>(gameArgs);
+        args.add("--startup-benchmark");
+        double[][] times = new double[PHASE_NAMES.length][runs];
+        int completed = 0;
+        for (int run = 0; run < runs; run++) {
+            double[] result = launch(jvmOptions, args);
+            if (result == null) {
+                System.out.println(label + " run " + (run + 1) + " did not report a first frame");
+                continue;
+            }
+            for (int phase = 0; phase < result.length; phase++) {
+                times[phase][completed] = result[phase];
+            }
+            completed++;
+        }
+        if (completed == 0) {
+            return;
+        }
+        System.out.printf("%-8s %-12s %10s %10s %10s   (%d runs)%n", label, "phase", "best ms", "median ms",
+                "worst ms", completed);
+        for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+            double[] sorted = Arrays.copyOf(times[phase], completed);
+            Arrays.sort(sorted);
+            System.out.printf("%-8s %-12s %10.1f %10.1f %10.1f%n", label, PHASE_NAMES[phase], sorted[0],
+                    sorted[completed / 2], sorted[completed - 1]);
+        }
+    }
+
+    /**
+     * Runs the game in a new JVM with the options of this one and returns the phase times it printed.
+     * @return The phase times in milliseconds, or null if the game printed none.
+     */
+    private static double[] launch(List<String> jvmOptions, List<String> gameArgs)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String option : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (!option.startsWith("-XX:SharedArchiveFile") && !option.startsWith("-XX:ArchiveClassesAtExit")) {
+                command.add(option);
+            }
+        }
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(MyMain.class.getName());
+        command.add("--no-dialogs");
+        command.addAll(gameArgs);
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        double[] result = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    result = parse(line);
+                }
+            }
+        }
+        process.waitFor();
+        return result;
+    }
+
+    /**
+     * Parses a line written by report().
+     */
+    private static double[] parse(String line) {
+        String[] fields = line.substring(RESULT_PREFIX.length()).trim().split(" ");
+        double[] result = new double[PHASE_NAMES.length];
+        for (int phase = 0; phase < result.length && phase < fields.length; phase++) {
+            result[phase] = Double.parseDouble(fields[phase].substring(fields[phase].indexOf('=') + 1));
+        }
+        return Double.isNaN(result[FIRST_FRAME]) ? null : result;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * This class represents the statistics overlay of the Pong game. It sits between the player names of
+ * the Display and shows the tick time, render time and pulse interval percentiles, dropped frames and
+ * garbage collection pauses recorded by FrameStats, and the key-to-tick and key-to-frame latencies
+ * measured by the InputSystem. It is hidden until toggled on.
+ */
+package com.example.pong1;
+
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+public class StatsOverlay extends Pane {
+    private static final long REFRESH_NANOS = 250_000_000L; // The text is rebuilt at most four times a second
+    private final Text statsText;
+    private final StringBuilder builder = new StringBuilder(256); // Reused for every refresh
+    private long lastRefresh;
+
+    /**
+     * Constructs a new hidden overlay at the specified coordinates.
+     * @param x The x-coordinate of the overlay text.
+     * @param y The y-coordinate of the overlay text.
+     */
+    public StatsOverlay(double x, double y) {
+        statsText = new Text();
+        statsText.setFill(Color.LIGHTGRAY); // Set the color of the overlay text
+        statsText.setFont(Font.font("Monospaced", 12)); // Set the font of the overlay text
+        statsText.setLayoutX(x);
+        statsText.setLayoutY(y);
+        getChildren().add(statsText);
+        setVisible(false);
+        setMouseTransparent(true);
+    }
+
+    /**
+     * Shows the overlay if it is hidden, or hides it if it is shown.
+     */
+    public void toggle() {
+        setVisible(!isVisible());
+        lastRefresh = 0;
+    }
+
+    /**
+     * Rebuilds the overlay text from the statistics, at most four times a second while shown.
+     * @param stats The statistics to show.
+     * @param input The input pipeline whose latencies to show.
+     * @param now The current pulse time in nanoseconds.
+     */
+    public void refresh(FrameStats stats, InputSystem input, long now) {
+        if (!isVisible() || now - lastRefresh < REFRESH_NANOS) {
+            return;
+        }
+        lastRefresh = now;
+        builder.setLength(0);
+        appendLine("tick    ", stats.getTickTimes());
+        appendLine("render  ", stats.getRenderTimes());
+        appendLine("interval", stats.getPulseIntervals());
+        appendLine("gc pause", stats.getGcPauses());
+        appendLine("key>tick", input.getTickLatency());
+        appendLine("key>draw", input.getFrameLatency());
+        builder.append("dropped ").append(stats.getDroppedFrames()).append(" of ").append(stats.getFrames()).append(" frames");
+        statsText.setText(builder.toString());
+    }
+
+    /**
+     * Appends one line with the count and percentiles of a histogram, in microseconds.
+     */
+    private void appendLine(String label, LatencyHistogram histogram) {
+        builder.append(label)
+                .append("  p50 ").append(histogram.percentile(50) / 1000)
+                .append("  p99 ").append(histogram.percentile(99) / 1000)
+                .append("  max ").append(histogram.getMax() / 1000)
+                .append(" us  (").append(histogram.getCount()).append(")\n");
+    }
+}
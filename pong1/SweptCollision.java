@@ -0,0 +1,161 @@
+/**
+ * This class performs continuous collision detection between the moving ball and a racket. Instead of
+ * testing for overlap at discrete positions, it sweeps the circle along its movement for the tick and
+ * finds the first time of contact with the box together with the contact normal. It works on primitive
+ * coordinates only, and the result is kept in the fields of a reusable instance so nothing is allocated.
+ */
+package com.example.pong1;
+
+public class SweptCollision {
+    private static final double EPSILON = 1e-9;
+    private static final double CONTACT_SLOP = 1e-6; // Overlap still treated as resting contact
+    double time; // Fraction of the movement at which contact happens, in [0, 1]
+    double normalX; // X component of the unit contact normal, pointing towards the ball
+    double normalY; // Y component of the unit contact normal, pointing towards the ball
+    double depth; // Distance along the normal that takes an overlapping circle clear of the box, else 0
+
+    /**
+     * Sweeps a circle against an axis-aligned box. Contacts are only reported when the circle moves
+     * towards the box, so a ball that is already leaving a racket is never turned back into it. A
+     * circle that starts the movement inside the box, because the box moved onto it, is always
+     * reported: depth is then set and the normal points out of the face on the circle's side, left or
+     * right, the same way ScalarBallKernel pushes balls out of a racket.
+     * @param x The x-coordinate of the center of the circle at the start of the movement.
+     * @param y The y-coordinate of the center of the circle at the start of the movement.
+     * @param r The radius of the circle.
+     * @param dx The movement of the circle along the X axis.
+     * @param dy The movement of the circle along the Y axis.
+     * @param bx The x-coordinate of the top-left corner of the box.
+     * @param by The y-coordinate of the top-left corner of the box.
+     * @param bw The width of the box.
+     * @param bh The height of the box.
+     * @return true if the circle touches the box during the movement; time and normal are then set.
+     */
+    public boolean sweepCircleBox(double x, double y, double r, double dx, double dy,
+                                  double bx, double by, double bw, double bh) {
+        double minX = bx;
+        double maxX = bx + bw;
+        double minY = by;
+        double maxY = by + bh;
+
+        // Already touching or overlapping at the start of the movement
+        double nearestX = clamp(x, minX, maxX);
+        double nearestY = clamp(y, minY, maxY);
+        double ox = x - nearestX;
+        double oy = y - nearestY;
+        double distanceSquared = ox * ox + oy * oy;
+        depth = 0;
+        if (distanceSquared <= r * r) {
+            time = 0;
+            double distance = Math.sqrt(distanceSquared);
+            if (distance >= r - CONTACT_SLOP) {
+                // Resting on the box, as after a bounce earlier in the tick
+                normalX = ox / distance;
+                normalY = oy / distance;
+                return dx * normalX + dy * normalY < 0;
+            }
+            // Overlapping: push out through the left or right face, whichever the center is closer to
+            normalY = 0;
+            if (x >= (minX + maxX) / 2) {
+                normalX = 1;
+                depth = maxX + r - x;
+            } else {
+                normalX = -1;
+                depth = x - (minX - r);
+            }
+            return true;
+        }
+
+        // Ray against the box grown by the radius on every side (slab test)
+        double entryX;
+        double exitX;
+        if (Math.abs(dx) < EPSILON) {
+            if (x < minX - r || x > maxX + r) {
+                return false;
+            }
+            entryX = Double.NEGATIVE_INFINITY;
+            exitX = Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (minX - r - x) / dx;
+            double t2 = (maxX + r - x) / dx;
+            entryX = Math.min(t1, t2);
+            exitX = Math.max(t1, t2);
+        }
+        double entryY;
+        double exitY;
+        if (Math.abs(dy) < EPSILON) {
+            if (y < minY - r || y > maxY + r) {
+                return false;
+            }
+            entryY = Double.NEGATIVE_INFINITY;
+            exitY = Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (minY - r - y) / dy;
+            double t2 = (maxY + r - y) / dy;
+            entryY = Math.min(t1, t2);
+            exitY = Math.max(t1, t2);
+        }
+        double entry = Math.max(entryX, entryY);
+        double exit = Math.min(exitX, exitY);
+        if (entry > exit || entry > 1 || exit < 0) {
+            return false;
+        }
+        if (entry < 0) {
+            // Starting inside the grown box but clear of the box itself, which only happens near a corner
+            return sweepCircleCorner(x, y, r, dx, dy, x < minX ? minX : maxX, y < minY ? minY : maxY);
+        }
+
+        // A contact on a flat side of the box is exact; otherwise the circle is in a corner region
+        double hitX = x + dx * entry;
+        double hitY = y + dy * entry;
+        if (entryX > entryY) {
+            if (hitY >= minY && hitY <= maxY) {
+                time = entry;
+                normalX = dx > 0 ? -1 : 1;
+                normalY = 0;
+                return true;
+            }
+        } else if (hitX >= minX && hitX <= maxX) {
+            time = entry;
+            normalX = 0;
+            normalY = dy > 0 ? -1 : 1;
+            return true;
+        }
+        double cornerX = hitX < minX ? minX : maxX;
+        double cornerY = hitY < minY ? minY : maxY;
+        return sweepCircleCorner(x, y, r, dx, dy, cornerX, cornerY);
+    }
+
+    /**
+     * Sweeps a circle against a single corner point of the box, i.e. a ray against a circle of the
+     * same radius around the corner.
+     * @return true if the circle touches the corner during the movement.
+     */
+    private boolean sweepCircleCorner(double x, double y, double r, double dx, double dy,
+                                      double cornerX, double cornerY) {
+        double fx = x - cornerX;
+        double fy = y - cornerY;
+        double a = dx * dx + dy * dy;
+        double b = fx * dx + fy * dy;
+        double c = fx * fx + fy * fy - r * r;
+        double discriminant = b * b - a * c;
+        if (a < EPSILON || discriminant < 0 || b >= 0) {
+            return false;
+        }
+        double t = (-b - Math.sqrt(discriminant)) / a;
+        if (t < 0 || t > 1) {
+            return false;
+        }
+        time = t;
+        normalX = (fx + dx * t) / r;
+        normalY = (fy + dy * t) / r;
+        return true;
+    }
+
+    /**
+     * Limits a value to the specified range.
+     */
+    private static double clamp(double value, double min, double max) {
+        return value < min ? min : Math.min(value, max);
+    }
+}
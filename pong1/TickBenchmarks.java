@@ -0,0 +1,119 @@
+/**
+ * This class holds the benchmarks for the simulation tick and its collision paths: one full tick,
+ * wall and racket collision in isolation, ball reset and scoring, long rallies at increasing ball
+ * speeds, and a tick played by two PredictiveBots together with the bots' prediction on its own.
+ * Run it with the options of BenchmarkRunner, e.g. --baseline=tick-baseline.properties.
+ */
+package com.example.pong1;
+
+public class TickBenchmarks {
+    private static final int[] RALLY_SPEEDS = {1, 8, 64, 512}; // Ball speeds for the rally benchmarks
+
+    /**
+     * Runs the tick benchmarks and exits with a non-zero status if any of them regressed.
+     * @param args Options passed on to BenchmarkRunner.
+     * @throws Exception If a baseline file cannot be read or written.
+     */
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        register(runner);
+        System.exit(runner.runAll(args));
+    }
+
+    /**
+     * Registers the tick benchmarks with a runner.
+     * @param runner The runner to add the benchmarks to.
+     */
+    static void register(BenchmarkRunner runner) {
+        Simulation match = new Simulation(Integer.MAX_VALUE);
+        runner.add("tick", operations -> {
+            long events = 0;
+            for (int i = 0; i < operations; i++) {
+                events += match.step(TrackingBot.inputs(match));
+            }
+            return events;
+        });
+
+        Simulation wall = new Simulation(Integer.MAX_VALUE);
+        runner.add("wall-collision", operations -> {
+            long events = 0;
+            for (int i = 0; i < operations; i++) {
+                wall.ballY = Simulation.BALL_RADIUS + (i & 7); // Vary the distance so the work isn't hoisted
+                wall.clearHit();
+                wall.checkWallCollision(-5);
+                events += wall.getHitEvent();
+            }
+            return events;
+        });
+
+        Simulation racket = new Simulation(Integer.MAX_VALUE);
+        racket.ballX = Simulation.LEFT_RACKET_X + Simulation.RACKET_WIDTH + Simulation.BALL_RADIUS + 2;
+        racket.ballY = racket.leftRacketY + racket.racketHeight / 2;
+        runner.add("racket-collision", operations -> {
+            long events = 0;
+            for (int i = 0; i < operations; i++) {
+                racket.clearHit();
+                racket.checkRacketCollision(-5, i & 3, Simulation.LEFT_RACKET_X, racket.leftRacketY);
+                events += racket.getHitEvent();
+            }
+            return events;
+        });
+
+        Simulation goal = new Simulation(Integer.MAX_VALUE);
+        runner.add("reset-and-score", operations -> {
+            long events = 0;
+            for (int i = 0; i < operations; i++) {
+                goal.ballX = (i & 1) == 0 ? 0 : Simulation.WIDTH;
+                events += goal.checkGoal();
+            }
+            goal.leftScore = 0;
+            goal.rightScore = 0;
+            return events;
+        });
+
+        Simulation botMatch = new Simulation(Integer.MAX_VALUE);
+        PredictiveBot leftBot = new PredictiveBot(true, BotDifficulty.HARD, 1);
+        PredictiveBot rightBot = new PredictiveBot(false, BotDifficulty.EASY, 2);
+        runner.add("predictive-bot-tick", new BenchmarkRunner.Benchmark() {
+            private int events; // Events of the previous tick, carried between runs
+
+            @Override
+            public long run(int operations) {
+                long sum = 0;
+                for (int i = 0; i < operations; i++) {
+                    events = botMatch.step(leftBot.inputs(botMatch, events) | rightBot.inputs(botMatch, events));
+                    sum += events;
+                }
+                return sum;
+            }
+        });
+
+        Simulation predicted = new Simulation(Integer.MAX_VALUE);
+        PredictiveBot predictor = new PredictiveBot(false, BotDifficulty.HARD, 3);
+        runner.add("predictive-bot-predict", operations -> {
+            double sum = 0;
+            for (int i = 0; i < operations; i++) {
+                predicted.ballDirY = 1 + (i & 7); // Vary the slope so the work isn't hoisted
+                sum += predictor.predict(predicted);
+            }
+            return (long) sum;
+        });
+
+        for (int speed : RALLY_SPEEDS) {
+            // Full-height rackets never miss, so the rally goes on for as long as the benchmark runs
+            Simulation rally = new Simulation(Integer.MAX_VALUE);
+            rally.racketHeight = Simulation.HEIGHT;
+            rally.leftRacketY = 0;
+            rally.rightRacketY = 0;
+            rally.ballDirX = speed;
+            rally.ballDirY = speed * 0.75;
+            runner.add("rally-speed-" + speed, operations -> {
+                long events = 0;
+                for (int i = 0; i < operations; i++) {
+                    events += rally.step(0);
+                }
+                return events;
+            });
+        }
+    }
+}
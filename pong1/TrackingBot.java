@@ -0,0 +1,23 @@
+/**
+ * This class is a scripted opponent that simply moves both rackets towards the ball's current height.
+ * It keeps rallies going in benchmarks and batch runs without any prediction.
+ */
+package com.example.pong1;
+
+public class TrackingBot {
+    private TrackingBot() {
+    }
+
+    /**
+     * Moves both rackets towards the ball.
+     * @param simulation The simulation to read the ball position from.
+     * @return The input bits for this tick.
+     */
+    public static int inputs(Simulation simulation) {
+        double middle = simulation.getBallY() - simulation.getRacketHeight() / 2;
+        int inputs = 0;
+        inputs |= simulation.getLeftRacketY() < middle ? Simulation.LEFT_DOWN : Simulation.LEFT_UP;
+        inputs |= simulation.getRightRacketY() < middle ? Simulation.RIGHT_DOWN : Simulation.RIGHT_UP;
+        return inputs;
+    }
+}
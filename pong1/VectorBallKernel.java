@@ -0,0 +1,96 @@
+/**
+ * This class runs the multi-ball inner loops with the incubating Vector API, several balls per
+ * instruction. The wall and racket tests become lane masks and the bounces become blends, so the
+ * loops have no branches per ball. The racket loop gathers its candidates through their indices and
+ * writes the few balls that bounced back one lane at a time; storing through an index map crashed
+ * the JDK 17 C2 compiler on AVX-512 hardware. Balls left over after the last full vector go through the scalar
+ * kernel. It needs --add-modules jdk.incubator.vector at compile and run time; BallKernel.load() only
+ * uses it when the module is there.
+ */
+package com.example.pong1;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+public class VectorBallKernel implements BallKernel {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void moveAndBounceWalls(BallField balls, float timeScale) {
+        float[] x = balls.x;
+        float[] y = balls.y;
+        float[] vx = balls.vx;
+        float[] vy = balls.vy;
+        float top = balls.radius;
+        float bottom = Simulation.HEIGHT - balls.radius;
+        int upper = SPECIES.loopBound(balls.count);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            FloatVector ballX = FloatVector.fromArray(SPECIES, x, i);
+            FloatVector ballY = FloatVector.fromArray(SPECIES, y, i);
+            FloatVector velocityX = FloatVector.fromArray(SPECIES, vx, i);
+            FloatVector velocityY = FloatVector.fromArray(SPECIES, vy, i);
+            ballX.add(velocityX.mul(timeScale)).intoArray(x, i);
+            ballY = ballY.add(velocityY.mul(timeScale));
+
+            // Mirror the part of the movement that went past a wall back into the field
+            VectorMask<Float> pastTop = ballY.compare(VectorOperators.LT, top);
+            VectorMask<Float> pastBottom = ballY.compare(VectorOperators.GT, bottom);
+            ballY = ballY.blend(ballY.neg().add(2 * top), pastTop);
+            ballY = ballY.blend(ballY.neg().add(2 * bottom), pastBottom);
+            FloatVector speedY = velocityY.abs();
+            velocityY = velocityY.blend(speedY, pastTop).blend(speedY.neg(), pastBottom);
+            ballY.intoArray(y, i);
+            velocityY.intoArray(vy, i);
+        }
+        ScalarBallKernel.moveAndBounceWalls(balls, i, balls.count, timeScale);
+    }
+
+    @Override
+    public int bounceRacket(BallField balls, int[] candidates, int count, float racketX, float racketY,
+                            float racketWidth, float racketHeight) {
+        float[] x = balls.x;
+        float[] y = balls.y;
+        float[] vx = balls.vx;
+        float r = balls.radius;
+        float middle = racketX + racketWidth / 2;
+        int bounces = 0;
+        int upper = SPECIES.loopBound(count);
+        int c = 0;
+        for (; c < upper; c += SPECIES.length()) {
+            FloatVector ballX = FloatVector.fromArray(SPECIES, x, 0, candidates, c);
+            FloatVector ballY = FloatVector.fromArray(SPECIES, y, 0, candidates, c);
+            FloatVector velocityX = FloatVector.fromArray(SPECIES, vx, 0, candidates, c);
+            VectorMask<Float> overlaps = ballX.compare(VectorOperators.GT, racketX - r)
+                    .and(ballX.compare(VectorOperators.LT, racketX + racketWidth + r))
+                    .and(ballY.compare(VectorOperators.GT, racketY - r))
+                    .and(ballY.compare(VectorOperators.LT, racketY + racketHeight + r));
+            if (!overlaps.anyTrue()) {
+                continue;
+            }
+            // Bounce off the face on the ball's side, but only when moving towards it
+            VectorMask<Float> rightSide = ballX.compare(VectorOperators.GE, middle);
+            VectorMask<Float> hitRight = overlaps.and(rightSide).and(velocityX.compare(VectorOperators.LT, 0));
+            VectorMask<Float> hitLeft = overlaps.andNot(rightSide).and(velocityX.compare(VectorOperators.GT, 0));
+            if (!hitRight.or(hitLeft).anyTrue()) {
+                continue;
+            }
+            for (int lane = 0; lane < SPECIES.length(); lane++) {
+                int i = candidates[c + lane];
+                if (hitRight.laneIsSet(lane)) {
+                    x[i] = racketX + racketWidth + r;
+                } else if (hitLeft.laneIsSet(lane)) {
+                    x[i] = racketX - r;
+                } else {
+                    continue;
+                }
+                vx[i] = -vx[i];
+                bounces++;
+            }
+        }
+        return bounces + ScalarBallKernel.bounceRacket(balls, candidates, c, count, racketX, racketY, racketWidth,
+                racketHeight);
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * This class maps the fixed logical coordinate space of the Simulation onto the pixels of the window.
+ * The whole field is scaled uniformly to fit and centered, leaving bars on the longer side, so shapes
+ * and text keep their proportions. The mapping is always computed from the current window size, never
+ * by multiplying the previous one with a factor, so any number of resizes that end at the same size
+ * end at exactly the same mapping.
+ */
+package com.example.pong1;
+
+public class Viewport {
+    private double width = -1; // Window size the mapping was computed for
+    private double height = -1;
+    private double scale = 1; // Pixels per logical unit
+    private double offsetX; // Pixel position of logical x = 0
+    private double offsetY; // Pixel position of logical y = 0
+
+    /**
+     * Fits the logical field into a window of the specified size.
+     * @param newWidth The width of the window in pixels.
+     * @param newHeight The height of the window in pixels.
+     * @return true if the mapping changed.
+     */
+    public boolean update(double newWidth, double newHeight) {
+        if (newWidth == width && newHeight == height) {
+            return false;
+        }
+        width = newWidth;
+        height = newHeight;
+        scale = Math.max(Math.min(newWidth / Simulation.WIDTH, newHeight / Simulation.HEIGHT), 0);
+        offsetX = (newWidth - Simulation.WIDTH * scale) / 2;
+        offsetY = (newHeight - Simulation.HEIGHT * scale) / 2;
+        return true;
+    }
+
+    /**
+     * Converts a logical x-coordinate to a pixel position in the window.
+     * @param x The logical x-coordinate.
+     * @return The pixel position.
+     */
+    public double toScreenX(double x) {
+        return offsetX + x * scale;
+    }
+
+    /**
+     * Converts a logical y-coordinate to a pixel position in the window.
+     * @param y The logical y-coordinate.
+     * @return The pixel position.
+     */
+    public double toScreenY(double y) {
+        return offsetY + y * scale;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    public double getOffsetX() {
+        return offsetX;
+    }
+
+    public double getOffsetY() {
+        return offsetY;
+    }
+}
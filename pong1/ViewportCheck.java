@@ -0,0 +1,99 @@
+/**
+ * This class checks that resizing the window never moves anything on screen for good. It projects the
+ * ball, the rackets and the corners of the field through a Viewport, then resizes the viewport to a
+ * random size and back again many times, and fails unless every projected position is bit for bit the
+ * one it started with and the logical positions in the Simulation have not changed either. It also
+ * checks that resizing to the current size leaves the mapping alone.
+ *
+ * Run it with: ViewportCheck [--round-trips=N] [--width=PIXELS] [--height=PIXELS] [--seed=N]
+ * It exits with a non-zero status if a position drifted.
+ */
+package com.example.pong1;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+public class ViewportCheck {
+    private static final double MIN_SIZE = 1; // Smallest random window side, in pixels
+    private static final double MAX_SIZE = 4_000; // Largest random window side, in pixels
+
+    /**
+     * Runs the round-trips and prints whether any position drifted.
+     * @param args The options described in the class comment.
+     */
+    public static void main(String[] args) {
+        Map<String, String> options = BenchmarkRunner.parseOptions(args);
+        int roundTrips = LaunchConfig.parseInt("round-trips", options.get("round-trips"), 10_000, 1,
+                Integer.MAX_VALUE);
+        int width = LaunchConfig.parseInt("width", options.get("width"), 1_000, 1, Integer.MAX_VALUE);
+        int height = LaunchConfig.parseInt("height", options.get("height"), 1_000, 1, Integer.MAX_VALUE);
+        long seed = options.containsKey("seed") ? Long.parseLong(options.get("seed")) : 1;
+
+        Simulation simulation = new Simulation(Integer.MAX_VALUE);
+        simulation.setTickRate(Panel.DEFAULT_TICK_RATE);
+        for (int i = 0; i < 100; i++) {
+            simulation.step(Simulation.LEFT_UP | Simulation.RIGHT_DOWN); // Off the starting positions
+        }
+        double[] logical = logicalPositions(simulation);
+        Viewport viewport = new Viewport();
+        viewport.update(width, height);
+        double[] screen = project(viewport, logical);
+
+        int failures = 0;
+        SplittableRandom random = new SplittableRandom(seed);
+        int drifted = -1; // First round-trip after which a position had moved
+        for (int i = 0; i < roundTrips; i++) {
+            viewport.update(random.nextDouble(MIN_SIZE, MAX_SIZE), random.nextDouble(MIN_SIZE, MAX_SIZE));
+            viewport.update(width, height);
+            if (drifted < 0 && !Arrays.equals(screen, project(viewport, logical))) {
+                drifted = i;
+            }
+        }
+        if (drifted >= 0) {
+            System.out.println("Screen positions drifted after round-trip " + (drifted + 1));
+            failures++;
+        }
+        if (!Arrays.equals(logical, logicalPositions(simulation))) {
+            System.out.println("Logical positions changed");
+            failures++;
+        }
+        if (viewport.update(width, height)) {
+            System.out.println("Resizing to the current size recomputed the mapping");
+            failures++;
+        }
+
+        if (failures > 0) {
+            System.out.println(failures + " viewport check(s) failed");
+            System.exit(1);
+        }
+        System.out.printf("Positions unchanged after %d resize round-trips at %dx%d (scale %.4f)%n", roundTrips,
+                width, height, viewport.getScale());
+    }
+
+    /**
+     * Returns the logical x and y of the ball, the top-left corner of each racket and the corners of the
+     * field, one pair after the other.
+     */
+    private static double[] logicalPositions(Simulation simulation) {
+        return new double[] {
+                simulation.getBallX(), simulation.getBallY(),
+                Simulation.LEFT_RACKET_X, simulation.getLeftRacketY(),
+                Simulation.RIGHT_RACKET_X, simulation.getRightRacketY(),
+                0, 0,
+                Simulation.WIDTH, Simulation.HEIGHT
+        };
+    }
+
+    /**
+     * Projects pairs of logical coordinates to pixel positions.
+     */
+    private static double[] project(Viewport viewport, double[] logical) {
+        double[] screen = new double[logical.length];
+        for (int i = 0; i < logical.length; i += 2) {
+            screen[i] = viewport.toScreenX(logical[i]);
+            screen[i + 1] = viewport.toScreenY(logical[i + 1]);
+        }
+        return screen;
+    }
+}
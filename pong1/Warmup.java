@@ -0,0 +1,80 @@
+/**
+ * This class warms up the game code while the JavaFX toolkit is still starting. MyMain runs it on a
+ * low-priority daemon thread before launching the application: it loads the classes the first frame
+ * needs and plays headless bot matches, so the tick path has been interpreted and compiled by the
+ * time the window opens instead of during the first seconds of play. It touches no JavaFX state;
+ * the game classes are loaded without running their static initialisers.
+ */
+package com.example.pong1;
+
+public class Warmup implements Runnable {
+    private static final int DEFAULT_TICKS = 50_000; // Enough for the tick path to be compiled
+    // Classes that are otherwise loaded one by one on the JavaFX thread while the window opens
+    private static final String[] PRELOAD = {
+            "com.example.pong1.Panel", "com.example.pong1.Display", "com.example.pong1.GlyphAtlas",
+            "com.example.pong1.NodeRenderer", "com.example.pong1.CanvasRenderer", "com.example.pong1.Racket",
+            "com.example.pong1.Ball", "com.example.pong1.StatsOverlay", "com.example.pong1.InputSystem",
+            "com.example.pong1.InputBindings", "com.example.pong1.FrameStats", "com.example.pong1.Viewport",
+            "javafx.scene.canvas.Canvas", "javafx.scene.text.Text", "javafx.scene.control.Button",
+            "javafx.scene.control.TextInputDialog", "javafx.scene.layout.StackPane", "javafx.scene.layout.HBox"
+    };
+    private final int ticks;
+    private volatile long ticksRun; // Ticks simulated so far
+    private volatile boolean done;
+
+    /**
+     * Constructs a new warm-up.
+     * @param ticks The number of ticks to simulate.
+     */
+    public Warmup(int ticks) {
+        this.ticks = ticks;
+    }
+
+    /**
+     * Starts a warm-up of the default length on a low-priority daemon thread.
+     * @return The running warm-up.
+     */
+    public static Warmup start() {
+        Warmup warmup = new Warmup(DEFAULT_TICKS);
+        Thread thread = new Thread(warmup, "pong-warmup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return warmup;
+    }
+
+    @Override
+    public void run() {
+        ClassLoader loader = Warmup.class.getClassLoader();
+        for (String name : PRELOAD) {
+            try {
+                Class.forName(name, false, loader);
+            } catch (ClassNotFoundException | LinkageError e) {
+                // Only a missed optimisation; the class is loaded normally when it is needed
+            }
+        }
+
+        // Matches with both kinds of bot and growing speeds cover the sweep, bounce and scoring paths
+        Simulation simulation = new Simulation(Integer.MAX_VALUE);
+        simulation.setTickRate(Panel.DEFAULT_TICK_RATE);
+        PredictiveBot bot = new PredictiveBot(false, BotDifficulty.HARD, 1);
+        int events = 0;
+        for (int i = 0; i < ticks; i++) {
+            int inputs = TrackingBot.inputs(simulation) & (Simulation.LEFT_UP | Simulation.LEFT_DOWN);
+            events = simulation.step(inputs | bot.inputs(simulation, events));
+            if (i % 10_000 == 9_999) {
+                simulation.increaseBallSpeed(2);
+            }
+            ticksRun = i + 1;
+        }
+        done = true;
+    }
+
+    public long getTicksRun() {
+        return ticksRun;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+}